@@ -0,0 +1,96 @@
+package io.github.t4skforce.deepviolet.benchmark;
+
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.CipherMapClassificationsJson;
+import io.github.t4skforce.deepviolet.json.CipherMapIndex;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CipherMapBenchmark {
+
+  private CipherMap cipherMap;
+  private CipherMapIndex index;
+  private String[] keys;
+  private int[] codes;
+
+  @Setup
+  public void setUp() throws IOException {
+    cipherMap = CipherMap.builder().load("ciphermap.json").build();
+    index = cipherMap.index();
+    codes = index.codes();
+    keys = new String[codes.length];
+    for (int i = 0; i < codes.length; i++) {
+      keys[i] = CipherMap.toHex(codes[i]);
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public CipherMap loadDefault() throws IOException {
+    return CipherMap.builder().load().build();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public CipherMap loadJson() throws IOException {
+    return CipherMap.builder().load("ciphermap.json").build();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public CipherMap loadBinary() throws IOException {
+    return CipherMap.builder().loadBinary("ciphermap.bin").build();
+  }
+
+  /**
+   * Resolve every known suite the way a parsed ServerHello did before the index existed.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public void lookupByKey(Blackhole bh) {
+    for (int code : codes) {
+      bh.consume(cipherMap.get(CipherMap.toHex(code)));
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public void lookupByPrecomputedKey(Blackhole bh) {
+    for (String key : keys) {
+      bh.consume(cipherMap.get(key));
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public void lookupByCode(Blackhole bh) {
+    for (int code : codes) {
+      CipherMapClassificationsJson entry = index.get((byte) (code >>> 8), (byte) code);
+      bh.consume(entry);
+    }
+  }
+
+}
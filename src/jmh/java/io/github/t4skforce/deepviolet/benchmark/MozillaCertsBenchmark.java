@@ -0,0 +1,54 @@
+package io.github.t4skforce.deepviolet.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.io.Resources;
+
+import io.github.t4skforce.deepviolet.json.mozilla.MozillaCerts;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MozillaCertsBenchmark {
+
+  @Param({ "4.0.json", "5.1.json", "5.2.json", "5.3.json", "5.4.json", "5.5.json", "5.6.json" })
+  public String guideline;
+
+  private byte[] json;
+  private ObjectReader reader;
+
+  @Setup
+  public void setUp() throws IOException {
+    json = Resources.toByteArray(Resources.getResource("mozilla/guidelines/" + guideline));
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.configure(MapperFeature.USE_ANNOTATIONS, true);
+    mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    reader = mapper.readerFor(MozillaCerts.class);
+  }
+
+  @Benchmark
+  public MozillaCerts deserialize() throws IOException {
+    return reader.readValue(json);
+  }
+
+}
@@ -0,0 +1,127 @@
+package io.github.t4skforce.deepviolet.benchmark;
+
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.CompatibilityEnum;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+import io.github.t4skforce.deepviolet.scan.ProbeResult;
+import io.github.t4skforce.deepviolet.scan.ScanEngine;
+import io.github.t4skforce.deepviolet.scan.ScanScheduler;
+import io.github.t4skforce.deepviolet.scan.TargetScan;
+import io.github.t4skforce.deepviolet.tls.ClientHello;
+import io.github.t4skforce.deepviolet.test.extension.WebServerExtension;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end scans of a local farm of modern, intermediate and old endpoints, loopback only. The
+ * score of {@code scanFarm} is full farm scans per second, the {@code probes} counter probes per
+ * second, every iteration gets a fresh scheduler. {@code hello} samples the ServerHello latency of
+ * single probes across the farm, JMH reports its percentiles.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ScanFarmBenchmark {
+
+  @Param({ "4" })
+  public int copies;
+
+  @Param({ "64" })
+  public int maxInFlight;
+
+  private WebServerExtension farm;
+  private List<InetSocketAddress> targets;
+  private CipherMap cipherMap;
+  private ScanScheduler scheduler;
+  private ScanEngine engine;
+  private final ClientHello hello = ClientHello.builder()
+      .version(TlsVersion.of(TlsVersion.TLS_V1_3)).build();
+  private int next;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Probes {
+    public long probes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      probes = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    cipherMap = CipherMap.builder().load().build();
+    farm = WebServerExtension.builder().profile(CompatibilityEnum.MORDERN)
+        .profile(CompatibilityEnum.INTERMEDIATE).profile(CompatibilityEnum.OLD).copies(copies)
+        .build();
+    farm.start();
+    targets = farm.getAddresses();
+    engine = ScanEngine.builder().cipherMap(cipherMap).build();
+  }
+
+  @Setup(Level.Iteration)
+  public void setUpIteration() throws Exception {
+    // every endpoint shares the loopback address
+    scheduler = ScanScheduler.builder().cipherMap(cipherMap).maxInFlight(maxInFlight)
+        .maxPerAddress(maxInFlight).connectTimeout(Duration.ofSeconds(2))
+        .readTimeout(Duration.ofSeconds(2)).build();
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDownIteration() throws Exception {
+    scheduler.close();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    engine.close();
+    farm.close();
+  }
+
+  @Benchmark
+  public int scanFarm(Probes counters) throws Exception {
+    List<CompletableFuture<TargetScan>> scans = new ArrayList<>(targets.size());
+    for (InetSocketAddress target : targets) {
+      scans.add(scheduler.submit(target));
+    }
+    int probes = 0;
+    for (CompletableFuture<TargetScan> scan : scans) {
+      probes += scan.get().getProbes();
+    }
+    counters.probes += probes;
+    return probes;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public ProbeResult hello() throws Exception {
+    // TLS_AES_128_GCM_SHA256, accepted by every level
+    return engine.probe(targets.get(next++ % targets.size()), hello, 0x1301).get();
+  }
+
+}
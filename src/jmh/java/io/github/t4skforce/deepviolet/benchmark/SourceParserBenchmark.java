@@ -0,0 +1,75 @@
+package io.github.t4skforce.deepviolet.benchmark;
+
+import com.google.common.io.Resources;
+
+import io.github.t4skforce.deepviolet.json.parser.SourceParser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsers behind {@code CipherMap.Builder.fetch*()} run against the bundled download fixtures.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SourceParserBenchmark {
+
+  @Param({ "IANA", "NSS", "OPENSSL", "GNUTLS" })
+  public String source;
+
+  private SourceParser parser;
+  private String content;
+
+  @Setup
+  public void setUp() throws IOException {
+    String fixture;
+    switch (source) {
+      case "IANA":
+        parser = SourceParser.IANA;
+        fixture = "tls-parameters.xhtml";
+        break;
+      case "NSS":
+        parser = SourceParser.NSS;
+        fixture = "sslproto.h";
+        break;
+      case "OPENSSL":
+        parser = SourceParser.OPENSSL;
+        fixture = "tls1.h";
+        break;
+      default:
+        parser = SourceParser.GNUTLS;
+        fixture = "ciphersuites.c";
+        break;
+    }
+    content = Resources.toString(Resources.getResource("builder/download/" + fixture),
+        StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public void parse(Blackhole bh) throws IOException {
+    parser.parse(new StringReader(content), (hex, name) -> {
+      bh.consume(hex);
+      bh.consume(name);
+    });
+  }
+
+}
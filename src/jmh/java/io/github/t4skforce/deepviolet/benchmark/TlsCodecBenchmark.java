@@ -0,0 +1,80 @@
+package io.github.t4skforce.deepviolet.benchmark;
+
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+import io.github.t4skforce.deepviolet.tls.ClientHello;
+import io.github.t4skforce.deepviolet.tls.HandshakeReader;
+import io.github.t4skforce.deepviolet.tls.ServerHello;
+import io.github.t4skforce.deepviolet.tls.TlsRecord;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per probe codec cost: writing a ClientHello and reading the ServerHello. Run with
+ * {@code -prof gc} to check the allocation rate stays at zero.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TlsCodecBenchmark {
+
+  private final ClientHello hello = ClientHello.builder()
+      .version(TlsVersion.of(TlsVersion.TLS_V1_2)).serverName("www.example.com").build();
+  private final int[] suites = new int[128];
+  private final ByteBuffer out = ByteBuffer.allocateDirect(4096);
+  private final ByteBuffer in = ByteBuffer.allocateDirect(4096);
+  private final HandshakeReader reader = new HandshakeReader();
+  private final ServerHello serverHello = new ServerHello();
+  private int received;
+
+  @Setup
+  public void setUp() {
+    for (int i = 0; i < suites.length; i++) {
+      suites[i] = 0xC000 + i;
+    }
+    // ServerHello selecting 0xC02F
+    ByteBuffer body = ByteBuffer.allocate(40);
+    body.putShort((short) TlsVersion.TLS_V1_2);
+    body.position(body.position() + 32);
+    body.put((byte) 0);
+    body.putShort((short) 0xC02F);
+    body.put((byte) 0);
+    body.flip();
+    in.put((byte) TlsRecord.HANDSHAKE).putShort((short) TlsVersion.TLS_V1_2)
+        .putShort((short) (TlsRecord.HANDSHAKE_HEADER_LENGTH + body.remaining()));
+    in.put((byte) TlsRecord.SERVER_HELLO).put((byte) 0).putShort((short) body.remaining());
+    in.put(body);
+    received = in.position();
+  }
+
+  @Benchmark
+  public int writeClientHello() {
+    out.clear();
+    hello.write(out, suites, suites.length);
+    return out.position();
+  }
+
+  @Benchmark
+  public int readServerHello() throws ProtocolException {
+    in.position(received);
+    reader.reset(in);
+    reader.next();
+    return serverHello.wrap(in, reader.getOffset(), reader.getLength()).getCipherSuite();
+  }
+
+}
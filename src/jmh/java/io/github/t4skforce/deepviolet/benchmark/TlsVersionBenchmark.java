@@ -0,0 +1,47 @@
+package io.github.t4skforce.deepviolet.benchmark;
+
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TlsVersionBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Names {
+    @Param({ "SSLv3", "TLSv1", "TLSv1.2", "TLSv1.3", "TLSv1.10", "UNKNOWN" })
+    public String name;
+  }
+
+  @State(Scope.Benchmark)
+  public static class Versions {
+    @Param({ "768", "771", "772", "2570" })
+    public int version;
+  }
+
+  @Benchmark
+  public TlsVersion ofString(Names names) {
+    return TlsVersion.of(names.name);
+  }
+
+  @Benchmark
+  public TlsVersion ofInt(Versions versions) {
+    return TlsVersion.of(versions.version);
+  }
+
+}
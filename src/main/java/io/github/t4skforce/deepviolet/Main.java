@@ -1,17 +1,274 @@
 package io.github.t4skforce.deepviolet;
 
+import com.google.common.net.HostAndPort;
+
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.CipherMapClassificationsJson;
+import io.github.t4skforce.deepviolet.json.CipherMapIndex;
+import io.github.t4skforce.deepviolet.report.NdjsonWriter;
+import io.github.t4skforce.deepviolet.scan.CipherSuiteScan;
+import io.github.t4skforce.deepviolet.scan.ScanJournal;
+import io.github.t4skforce.deepviolet.scan.ScanScheduler;
+import io.github.t4skforce.deepviolet.scan.ScanStats;
+import io.github.t4skforce.deepviolet.scan.TargetScan;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
 public class Main {
 
-  public static void main(String[] args) {
-    System.out.println("=====================================================================");
-    System.out.println("=====================================================================");
-    System.out.print("main ( ");
-    for (String arg : args) {
-      System.out.print(arg + " ");
+  private static final int DEFAULT_PORT = 443;
+  private static final long STATS_INTERVAL = 10;
+  private static final int RESOLVERS = 16;
+
+  public static void main(String[] args) throws Exception {
+    ScanScheduler.Builder builder = ScanScheduler.builder();
+    List<String> targets = new ArrayList<>();
+    String file = null;
+    String out = null;
+    String journalFile = null;
+    double rate = 0;
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "-f":
+          file = args[++i];
+          break;
+        case "-o":
+          out = args[++i];
+          break;
+        case "--in-flight":
+          builder.maxInFlight(Integer.parseInt(args[++i]));
+          break;
+        case "--per-host":
+          builder.maxPerHost(Integer.parseInt(args[++i]));
+          break;
+        case "--per-ip":
+          builder.maxPerAddress(Integer.parseInt(args[++i]));
+          break;
+        case "--journal":
+          journalFile = args[++i];
+          break;
+        case "--rate":
+          rate = Double.parseDouble(args[++i]);
+          break;
+        default:
+          targets.add(args[i]);
+          break;
+      }
+    }
+    if (targets.isEmpty() && file == null) {
+      System.out.println("usage: Main [-f targets.txt|-] [-o results.ndjson[.gz]|-]"
+          + " [--in-flight n] [--per-host n] [--per-ip n] [--rate probes/s] [--journal file]"
+          + " host[:port] ...");
+      return;
+    }
+    builder.rateLimit(rate, (int) Math.max(1, rate / 10));
+
+    CipherMap cipherMap = CipherMap.builder().load().build();
+    CipherMapIndex index = cipherMap.index();
+    // results are printed off the engine thread
+    ExecutorService output = Executors.newSingleThreadExecutor();
+    // name lookups block, they must not hold up reading the targets
+    ExecutorService resolver = Executors.newFixedThreadPool(RESOLVERS, r -> {
+      Thread thread = new Thread(r, "deepviolet-resolver");
+      thread.setDaemon(true);
+      return thread;
+    });
+    ScheduledExecutorService stats = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "deepviolet-stats");
+      thread.setDaemon(true);
+      return thread;
+    });
+    // one party per unfinished target, a list of futures would grow with the target file
+    Phaser printed = new Phaser(1);
+    // the first failed write of results or journal, no more targets are read after it
+    AtomicReference<IOException> failure = new AtomicReference<>();
+    long skipped = 0;
+    // closed after the scheduler so the last checkpoints are synced
+    try (ScanJournal journal = journal(journalFile);
+        NdjsonWriter writer = writer(out, cipherMap);
+        ScanScheduler scheduler = builder.cipherMap(cipherMap).journal(journal).build()) {
+      AtomicReference<ScanStats> last = new AtomicReference<>(scheduler.getStats());
+      stats.scheduleAtFixedRate(() -> {
+        ScanStats now = scheduler.getStats();
+        System.err.printf("%.1f probes/s %s%n", now.getProbesPerSecond(last.getAndSet(now)), now);
+      }, STATS_INTERVAL, STATS_INTERVAL, TimeUnit.SECONDS);
+      Submitter submitter = new Submitter(scheduler, journal, index, writer, resolver, output,
+          printed, failure);
+
+      for (String target : targets) {
+        if (failure.get() != null) {
+          break;
+        }
+        if (!submitter.submit(target)) {
+          skipped++;
+        }
+      }
+      if (file != null) {
+        try (InputStream in = "-".equals(file) ? System.in : new FileInputStream(file);
+            BufferedReader reader = new BufferedReader(
+                new InputStreamReader(in, StandardCharsets.UTF_8))) {
+          String line;
+          while (failure.get() == null && (line = reader.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+              if (!submitter.submit(line)) {
+                skipped++;
+              }
+            }
+          }
+        }
+      }
+      printed.arriveAndAwaitAdvance();
+      if (skipped > 0) {
+        System.err.println("skipped " + skipped + " targets finished by a previous run");
+      }
+      if (failure.get() != null) {
+        throw failure.get();
+      }
+    } finally {
+      stats.shutdownNow();
+      resolver.shutdownNow();
+      output.shutdown();
+    }
+  }
+
+  private static NdjsonWriter writer(String out, CipherMap cipherMap) throws IOException {
+    if (out == null) {
+      return null;
+    }
+    NdjsonWriter.Builder builder = NdjsonWriter.builder().cipherMap(cipherMap)
+        .gzip(out.endsWith(".gz"));
+    return "-".equals(out) ? builder.build(System.out) : builder.build(Paths.get(out));
+  }
+
+  private static ScanJournal journal(String file) throws IOException {
+    return file == null ? null : ScanJournal.builder().path(Paths.get(file)).build();
+  }
+
+  private static final class Submitter {
+    private final ScanScheduler scheduler;
+    private final ScanJournal journal;
+    private final CipherMapIndex index;
+    private final NdjsonWriter writer;
+    private final Executor resolver;
+    private final Executor output;
+    private final Phaser printed;
+    private final AtomicReference<IOException> failure;
+    // targets handed to the resolver but not yet to the scheduler
+    private final Semaphore resolving = new Semaphore(RESOLVERS * 4);
+
+    private Submitter(ScanScheduler scheduler, ScanJournal journal, CipherMapIndex index,
+        NdjsonWriter writer, Executor resolver, Executor output, Phaser printed,
+        AtomicReference<IOException> failure) {
+      this.scheduler = scheduler;
+      this.journal = journal;
+      this.index = index;
+      this.writer = writer;
+      this.resolver = resolver;
+      this.output = output;
+      this.printed = printed;
+      this.failure = failure;
+    }
+
+    /**
+     * Resolve and scan a target in the background, blocking only while too many lookups are
+     * pending.
+     *
+     * @return false if the journal already finished the target
+     */
+    private boolean submit(String target) throws InterruptedException {
+      HostAndPort hostAndPort;
+      try {
+        hostAndPort = HostAndPort.fromString(target).withDefaultPort(DEFAULT_PORT);
+      } catch (IllegalArgumentException e) {
+        System.err.println(target + " failed: invalid target");
+        return true;
+      }
+      // the journal keys targets by name, finished ones are never resolved
+      if (journal != null && journal.isFinished(InetSocketAddress
+          .createUnresolved(hostAndPort.getHost(), hostAndPort.getPort()))) {
+        return false;
+      }
+      resolving.acquire();
+      printed.register();
+      resolver.execute(() -> {
+        try {
+          InetSocketAddress address = new InetSocketAddress(hostAndPort.getHost(),
+              hostAndPort.getPort());
+          if (address.isUnresolved()) {
+            System.err.println(target + " failed: unknown host");
+            printed.arriveAndDeregister();
+            return;
+          }
+          scheduler.submit(address).whenCompleteAsync((scan, error) -> done(target, scan, error),
+              output);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          printed.arriveAndDeregister();
+        } catch (RuntimeException e) {
+          System.err.println(target + " failed: " + e);
+          printed.arriveAndDeregister();
+        } finally {
+          resolving.release();
+        }
+      });
+      return true;
+    }
+
+    private void done(String target, TargetScan scan, Throwable error) {
+      try {
+        IOException journalFailure = scheduler.getJournalFailure();
+        if (journalFailure != null && failure.compareAndSet(null, journalFailure)) {
+          System.err.println("writing the journal failed, aborting: " + journalFailure);
+        }
+        if (error != null) {
+          System.err.println(target + " failed: " + error);
+        } else if (writer != null) {
+          if (failure.get() == null) {
+            writer.write(scan);
+          }
+        } else {
+          print(index, scan);
+        }
+      } catch (IOException e) {
+        if (failure.compareAndSet(null, e)) {
+          System.err.println("writing results failed, aborting: " + e);
+        }
+      } finally {
+        printed.arriveAndDeregister();
+      }
+    }
+  }
+
+  private static void print(CipherMapIndex index, TargetScan target) {
+    System.out.println(target.getTarget() + " " + target.getProbes() + " probes in "
+        + TimeUnit.NANOSECONDS.toMillis(target.getNanos()) + " ms");
+    for (CipherSuiteScan scan : target.getScans()) {
+      System.out.println("  " + scan.getVersion().getName()
+          + (scan.isComplete() ? "" : " (incomplete: " + scan.getFailure() + ")"));
+      for (int code : scan.getAccepted()) {
+        CipherMapClassificationsJson entry = index.get(code);
+        System.out.println("    " + CipherMap.toHex(code) + " "
+            + (entry == null ? "UNKNOWN" : entry.getIana()));
+      }
     }
-    System.out.println(")");
-    System.out.println("=====================================================================");
-    System.out.println("=====================================================================");
   }
 
 }
@@ -0,0 +1,128 @@
+package io.github.t4skforce.deepviolet.cert;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.github.t4skforce.deepviolet.tls.Certificate;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Parses certificates once per fingerprint. Mass scans see the same CDN and hosting certificates
+ * on thousands of hosts, the analyzer hashes the DER encoding straight from the receive buffer and
+ * only parses it on a cache miss.
+ *
+ * <p>Instances are thread safe, one analyzer per scan run is the intended scope.
+ */
+public final class CertificateAnalyzer {
+
+  private static final HashFunction FINGERPRINT = Hashing.sha256();
+
+  private final Cache<HashCode, CertificateInfo> cache;
+
+  private CertificateAnalyzer(Builder builder) {
+    this.cache = CacheBuilder.newBuilder().maximumSize(builder.maximumSize).recordStats()
+        .build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @param der DER encoding, the buffer position is not modified
+   * @return analysis, shared by all callers presenting the same certificate
+   * @throws CertificateException if the encoding can not be parsed
+   */
+  public CertificateInfo analyze(ByteBuffer der) throws CertificateException {
+    HashCode fingerprint = FINGERPRINT.hashBytes(der.duplicate());
+    try {
+      return cache.get(fingerprint, () -> parse(fingerprint, der.duplicate()));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof CertificateException) {
+        throw (CertificateException) e.getCause();
+      }
+      throw new CertificateException(e.getCause());
+    }
+  }
+
+  public CertificateInfo analyze(byte[] der) throws CertificateException {
+    return analyze(ByteBuffer.wrap(der));
+  }
+
+  /**
+   * Analyze every certificate of a chain.
+   *
+   * @param chain Certificate handshake message view
+   * @return analyses, the leaf first
+   * @throws CertificateException if a certificate can not be parsed
+   */
+  public List<CertificateInfo> analyze(Certificate chain) throws CertificateException {
+    List<CertificateInfo> result = new ArrayList<>(chain.getCount());
+    for (int i = 0; i < chain.getCount(); i++) {
+      result.add(analyze(chain.getEncoded(i)));
+    }
+    return result;
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  /**
+   * @return hits are certificates that were not parsed again
+   */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  private static CertificateInfo parse(HashCode fingerprint, ByteBuffer der)
+      throws CertificateException {
+    byte[] encoded = new byte[der.remaining()];
+    der.get(encoded);
+    X509Certificate certificate = (X509Certificate) CertificateFactory.getInstance("X.509")
+        .generateCertificate(new ByteArrayInputStream(encoded));
+    try {
+      return CertificateInfo.of(fingerprint, certificate);
+    } catch (IllegalArgumentException e) {
+      throw new CertificateException("Unsupported public key encoding", e);
+    }
+  }
+
+  public static class Builder {
+
+    private long maximumSize = 10_000;
+
+    private Builder() {
+    }
+
+    /**
+     * Number of distinct certificates kept, least recently used ones are evicted first.
+     *
+     * @param maximumSize cache size
+     * @return this builder
+     */
+    public Builder maximumSize(long maximumSize) {
+      if (maximumSize < 0) {
+        throw new IllegalArgumentException("maximumSize must not be negative");
+      }
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    public CertificateAnalyzer build() {
+      return new CertificateAnalyzer(this);
+    }
+  }
+
+}
@@ -0,0 +1,220 @@
+package io.github.t4skforce.deepviolet.cert;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import io.github.t4skforce.deepviolet.json.mozilla.MozillaConfig;
+import java.math.BigInteger;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.DSAPublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Properties of a single certificate that Mozilla guidelines have an opinion on. Algorithm and
+ * curve names follow OpenSSL as the guidelines do, eg. ecdsa with prime256v1 signed with
+ * sha256WithRSAEncryption.
+ */
+public final class CertificateInfo {
+
+  public static final String RSA = "rsa";
+  public static final String ECDSA = "ecdsa";
+  public static final String DSA = "dsa";
+  public static final String ED25519 = "ed25519";
+  public static final String ED448 = "ed448";
+
+  private static final Map<String, String> KEY_TYPES = ImmutableMap.<String, String>builder()
+      .put("1.2.840.113549.1.1.1", RSA)
+      .put("1.2.840.113549.1.1.10", "rsa-pss")
+      .put("1.2.840.10045.2.1", ECDSA)
+      .put("1.2.840.10040.4.1", DSA)
+      .put("1.3.101.112", ED25519)
+      .put("1.3.101.113", ED448)
+      .build();
+
+  private static final Map<String, String> CURVES = ImmutableMap.<String, String>builder()
+      .put("1.2.840.10045.3.1.7", "prime256v1")
+      .put("1.3.132.0.34", "secp384r1")
+      .put("1.3.132.0.35", "secp521r1")
+      .put("1.3.36.3.3.2.8.1.1.7", "brainpoolP256r1")
+      .put("1.3.36.3.3.2.8.1.1.11", "brainpoolP384r1")
+      .put("1.3.36.3.3.2.8.1.1.13", "brainpoolP512r1")
+      .build();
+
+  private static final Map<String, String> SIGNATURES = ImmutableMap.<String, String>builder()
+      .put("1.2.840.113549.1.1.4", "md5WithRSAEncryption")
+      .put("1.2.840.113549.1.1.5", "sha1WithRSAEncryption")
+      .put("1.2.840.113549.1.1.10", "rsassaPss")
+      .put("1.2.840.113549.1.1.11", "sha256WithRSAEncryption")
+      .put("1.2.840.113549.1.1.12", "sha384WithRSAEncryption")
+      .put("1.2.840.113549.1.1.13", "sha512WithRSAEncryption")
+      .put("1.2.840.10045.4.1", "ecdsa-with-SHA1")
+      .put("1.2.840.10045.4.3.2", "ecdsa-with-SHA256")
+      .put("1.2.840.10045.4.3.3", "ecdsa-with-SHA384")
+      .put("1.2.840.10045.4.3.4", "ecdsa-with-SHA512")
+      .put("1.3.101.112", "ED25519")
+      .put("1.3.101.113", "ED448")
+      .build();
+
+  private final HashCode fingerprint;
+  private final String subject;
+  private final String issuer;
+  private final String keyType;
+  private final int keyBits;
+  private final String curve;
+  private final String signature;
+  private final Instant notBefore;
+  private final Instant notAfter;
+  // guideline configurations are long lived, identity keys are what we want
+  private final Map<MozillaConfig, Set<String>> violations = new ConcurrentHashMap<>(4);
+
+  private CertificateInfo(HashCode fingerprint, X509Certificate certificate) {
+    this.fingerprint = fingerprint;
+    this.subject = certificate.getSubjectX500Principal().getName();
+    this.issuer = certificate.getIssuerX500Principal().getName();
+    PublicKey key = certificate.getPublicKey();
+    String[] algorithm = Der.algorithm(key.getEncoded());
+    this.keyType = KEY_TYPES.getOrDefault(algorithm[0], key.getAlgorithm().toLowerCase());
+    this.curve = algorithm[1] == null ? null : CURVES.getOrDefault(algorithm[1], algorithm[1]);
+    this.keyBits = keyBits(key);
+    this.signature = SIGNATURES.getOrDefault(certificate.getSigAlgOID(),
+        certificate.getSigAlgName());
+    this.notBefore = certificate.getNotBefore().toInstant();
+    this.notAfter = certificate.getNotAfter().toInstant();
+  }
+
+  static CertificateInfo of(HashCode fingerprint, X509Certificate certificate) {
+    return new CertificateInfo(fingerprint, certificate);
+  }
+
+  private static int keyBits(PublicKey key) {
+    if (key instanceof RSAPublicKey) {
+      return ((RSAPublicKey) key).getModulus().bitLength();
+    }
+    if (key instanceof ECPublicKey) {
+      return ((ECPublicKey) key).getParams().getCurve().getField().getFieldSize();
+    }
+    if (key instanceof DSAPublicKey) {
+      BigInteger p = ((DSAPublicKey) key).getParams().getP();
+      return p.bitLength();
+    }
+    switch (key.getAlgorithm()) {
+      case "Ed25519":
+        return 256;
+      case "Ed448":
+        return 456;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * @return SHA-256 of the DER encoding
+   */
+  public HashCode getFingerprint() {
+    return fingerprint;
+  }
+
+  public String getSubject() {
+    return subject;
+  }
+
+  public String getIssuer() {
+    return issuer;
+  }
+
+  /**
+   * @return key type as named in guidelines eg. rsa or ecdsa
+   */
+  public String getKeyType() {
+    return keyType;
+  }
+
+  /**
+   * @return modulus or field size in bits, -1 if unknown
+   */
+  public int getKeyBits() {
+    return keyBits;
+  }
+
+  /**
+   * @return OpenSSL curve name eg. prime256v1, the OID for unknown curves or null for non EC keys
+   */
+  public String getCurve() {
+    return curve;
+  }
+
+  /**
+   * @return OpenSSL signature algorithm name eg. sha256WithRSAEncryption
+   */
+  public String getSignature() {
+    return signature;
+  }
+
+  public Instant getNotBefore() {
+    return notBefore;
+  }
+
+  public Instant getNotAfter() {
+    return notAfter;
+  }
+
+  public long getLifespanDays() {
+    return Duration.between(notBefore, notAfter).toDays();
+  }
+
+  public boolean isSelfIssued() {
+    return subject.equals(issuer);
+  }
+
+  /**
+   * Guideline properties this certificate violates when used as the leaf, computed once per
+   * configuration. A missing or empty guideline property places no restriction.
+   *
+   * @param config guideline level
+   * @return violated property names eg. rsa_key_size
+   */
+  public Set<String> violations(MozillaConfig config) {
+    return violations.computeIfAbsent(config, this::check);
+  }
+
+  private Set<String> check(MozillaConfig config) {
+    ImmutableSet.Builder<String> result = ImmutableSet.builder();
+    if (!permits(config.getCertificateTypes(), keyType)) {
+      result.add("certificate_types");
+    }
+    if (!permits(config.getCertificateSignatures(), signature)) {
+      result.add("certificate_signatures");
+    }
+    if (curve != null && !permits(config.getCertificateCurves(), curve)) {
+      result.add("certificate_curves");
+    }
+    if (RSA.equals(keyType) && config.getRsaKeySize() != null
+        && keyBits < config.getRsaKeySize()) {
+      result.add("rsa_key_size");
+    }
+    if (config.getMaximumCertificateLifespan() != null
+        && getLifespanDays() > config.getMaximumCertificateLifespan()) {
+      result.add("maximum_certificate_lifespan");
+    }
+    return result.build();
+  }
+
+  private static boolean permits(Collection<String> allowed, String value) {
+    return allowed == null || allowed.isEmpty() || allowed.contains(value);
+  }
+
+  @Override
+  public String toString() {
+    return "CertificateInfo [" + subject + " " + keyType + " " + keyBits
+        + (curve == null ? "" : " " + curve) + " " + signature + " " + fingerprint + "]";
+  }
+
+}
@@ -0,0 +1,99 @@
+package io.github.t4skforce.deepviolet.cert;
+
+/**
+ * Just enough DER to read the algorithm identifier of a SubjectPublicKeyInfo, the JDK only exposes
+ * key parameters and not the OIDs guidelines refer to.
+ */
+final class Der {
+
+  private static final int SEQUENCE = 0x30;
+  private static final int OID = 0x06;
+
+  private Der() {
+  }
+
+  /**
+   * Algorithm and parameter OIDs of an X.509 SubjectPublicKeyInfo.
+   *
+   * @param spki encoded public key as returned by {@link java.security.PublicKey#getEncoded()}
+   * @return algorithm OID and parameter OID, the latter null if the parameters are not an OID
+   * @throws IllegalArgumentException if the encoding is not a SubjectPublicKeyInfo
+   */
+  static String[] algorithm(byte[] spki) {
+    int[] pos = { 0 };
+    expect(spki, pos, SEQUENCE);
+    length(spki, pos);
+    expect(spki, pos, SEQUENCE);
+    int end = length(spki, pos) + pos[0];
+    expect(spki, pos, OID);
+    int len = length(spki, pos);
+    String algorithm = oid(spki, pos[0], len);
+    pos[0] += len;
+    String parameters = null;
+    if (pos[0] < end && spki[pos[0]] == OID) {
+      pos[0]++;
+      len = length(spki, pos);
+      parameters = oid(spki, pos[0], len);
+    }
+    return new String[] { algorithm, parameters };
+  }
+
+  private static void expect(byte[] der, int[] pos, int tag) {
+    if (pos[0] >= der.length || (der[pos[0]] & 0xFF) != tag) {
+      throw new IllegalArgumentException("Expected tag " + tag + " at " + pos[0]);
+    }
+    pos[0]++;
+  }
+
+  private static int length(byte[] der, int[] pos) {
+    if (pos[0] >= der.length) {
+      throw new IllegalArgumentException("Truncated length");
+    }
+    int first = der[pos[0]++] & 0xFF;
+    if (first < 0x80) {
+      return check(der, pos, first);
+    }
+    int bytes = first & 0x7F;
+    if (bytes == 0 || bytes > 3 || pos[0] + bytes > der.length) {
+      throw new IllegalArgumentException("Unsupported length encoding");
+    }
+    int length = 0;
+    for (int i = 0; i < bytes; i++) {
+      length = length << 8 | der[pos[0]++] & 0xFF;
+    }
+    return check(der, pos, length);
+  }
+
+  private static int check(byte[] der, int[] pos, int length) {
+    if (pos[0] + length > der.length) {
+      throw new IllegalArgumentException("Truncated value");
+    }
+    return length;
+  }
+
+  static String oid(byte[] der, int offset, int length) {
+    if (length == 0) {
+      throw new IllegalArgumentException("Empty OID");
+    }
+    StringBuilder oid = new StringBuilder();
+    long value = 0;
+    boolean first = true;
+    for (int i = offset; i < offset + length; i++) {
+      value = value << 7 | der[i] & 0x7F;
+      if ((der[i] & 0x80) != 0) {
+        continue;
+      }
+      if (first) {
+        // the first byte packs the first two arcs
+        int arc = (int) Math.min(value / 40, 2);
+        oid.append(arc).append('.').append(value - arc * 40L);
+        first = false;
+      } else {
+        oid.append('.').append(value);
+      }
+      value = 0;
+    }
+    return oid.toString();
+  }
+
+}
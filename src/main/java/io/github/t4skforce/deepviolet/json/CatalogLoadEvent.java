@@ -0,0 +1,29 @@
+package io.github.t4skforce.deepviolet.json;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event around loading a stored ciphermap, json through jackson or the binary
+ * image.
+ */
+@Name("io.github.t4skforce.deepviolet.CatalogLoad")
+@Label("Catalog Load")
+@Category({ "DeepViolet", "Catalog" })
+@Description("Loading a stored ciphermap")
+@StackTrace(false)
+final class CatalogLoadEvent extends jdk.jfr.Event {
+
+  @Label("Source")
+  String source;
+
+  @Label("Format")
+  String format;
+
+  @Label("Entries")
+  int entries;
+
+}
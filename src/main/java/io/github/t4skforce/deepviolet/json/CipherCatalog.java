@@ -0,0 +1,205 @@
+package io.github.t4skforce.deepviolet.json;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Frozen snapshot of a {@link CipherMap}. Entries are immutable {@link CipherSuite} values in a
+ * dense table over the 16-bit code space, so a catalog can be shared between threads without any
+ * locking and swapped as a whole through a {@link CipherCatalogHolder}.
+ */
+public final class CipherCatalog {
+
+  private final CipherSuite[] entries;
+  private final int[] codes;
+  private final long generation;
+  private volatile CipherNameIndex names;
+
+  private CipherCatalog(CipherSuite[] entries, int[] codes, long generation,
+      CipherNameIndex names) {
+    this.entries = entries;
+    this.codes = codes;
+    this.generation = generation;
+    this.names = names;
+  }
+
+  public static CipherCatalog of(Map<String, CipherMapClassificationsJson> map) {
+    CipherSuite[] entries = new CipherSuite[CipherMapIndex.CODE_SPACE];
+    int[] keys = new int[map.size()];
+    int cnt = 0;
+    for (Entry<String, CipherMapClassificationsJson> entry : map.entrySet()) {
+      int code = CipherMap.toCode(entry.getKey());
+      if (entries[code] == null) {
+        keys[cnt++] = code;
+      }
+      entries[code] = CipherSuite.of(code, entry.getValue());
+    }
+    int[] codes = Arrays.copyOf(keys, cnt);
+    Arrays.sort(codes);
+    return new CipherCatalog(entries, codes, 0, null);
+  }
+
+  public static CipherCatalog of(CipherMapBinary binary) {
+    CipherSuite[] entries = new CipherSuite[CipherMapIndex.CODE_SPACE];
+    // records are sorted by code
+    int[] codes = new int[binary.size()];
+    for (int i = 0; i < codes.length; i++) {
+      codes[i] = binary.code(i);
+      entries[codes[i]] = CipherSuite.of(codes[i], binary.decode(i));
+    }
+    return new CipherCatalog(entries, codes, 0, null);
+  }
+
+  CipherCatalog withGeneration(long generation) {
+    // tables are never written after construction and can be shared
+    return new CipherCatalog(entries, codes, generation, names);
+  }
+
+  /**
+   * Get entry by its wire code eg. 0x1301
+   *
+   * @param code cipher suite code in the range 0x0000 - 0xFFFF
+   * @return entry or null if the code is unknown or out of range
+   */
+  public CipherSuite get(int code) {
+    if ((code & ~0xFFFF) != 0) {
+      return null;
+    }
+    return entries[code];
+  }
+
+  public boolean contains(int code) {
+    return get(code) != null;
+  }
+
+  public int size() {
+    return codes.length;
+  }
+
+  /**
+   * All codes in ascending order.
+   *
+   * @return copy of the codes
+   */
+  public int[] codes() {
+    return codes.clone();
+  }
+
+  /**
+   * Reverse name lookup for this snapshot, built on first use.
+   *
+   * @return name index
+   */
+  public CipherNameIndex names() {
+    CipherNameIndex index = names;
+    if (index == null) {
+      // racing threads build equal indexes, any of them may be kept
+      index = CipherNameIndex.of(this);
+      names = index;
+    }
+    return index;
+  }
+
+  /**
+   * Number of times the holder that published this catalog was refreshed, 0 for a catalog that
+   * was never published.
+   *
+   * @return generation
+   */
+  public long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Mutable copy for APIs that still work on {@link CipherMap}.
+   *
+   * @return new cipher map
+   */
+  public CipherMap toCipherMap() {
+    CipherMap map = new CipherMap();
+    for (int code : codes) {
+      map.put(CipherMap.toHex(code), entries[code].toJson());
+    }
+    return map;
+  }
+
+  /**
+   * Compare against a newer catalog.
+   *
+   * @param next newer catalog
+   * @return codes added, removed and changed in {@code next}
+   */
+  public Diff diff(CipherCatalog next) {
+    int[] added = new int[next.codes.length];
+    int[] removed = new int[codes.length];
+    int[] changed = new int[Math.min(codes.length, next.codes.length)];
+    int addedCnt = 0;
+    int removedCnt = 0;
+    int changedCnt = 0;
+    // merge of the two sorted code lists
+    int i = 0;
+    int j = 0;
+    while (i < codes.length || j < next.codes.length) {
+      int a = i < codes.length ? codes[i] : Integer.MAX_VALUE;
+      int b = j < next.codes.length ? next.codes[j] : Integer.MAX_VALUE;
+      if (a < b) {
+        removed[removedCnt++] = a;
+        i++;
+      } else if (b < a) {
+        added[addedCnt++] = b;
+        j++;
+      } else {
+        if (!entries[a].equals(next.entries[a])) {
+          changed[changedCnt++] = a;
+        }
+        i++;
+        j++;
+      }
+    }
+    return new Diff(Arrays.copyOf(added, addedCnt), Arrays.copyOf(removed, removedCnt),
+        Arrays.copyOf(changed, changedCnt));
+  }
+
+  /**
+   * Difference between two catalogs, all codes in ascending order.
+   */
+  public static final class Diff {
+    private final int[] added;
+    private final int[] removed;
+    private final int[] changed;
+
+    private Diff(int[] added, int[] removed, int[] changed) {
+      this.added = added;
+      this.removed = removed;
+      this.changed = changed;
+    }
+
+    public int[] getAdded() {
+      return added.clone();
+    }
+
+    public int[] getRemoved() {
+      return removed.clone();
+    }
+
+    /**
+     * Codes present in both catalogs whose names differ.
+     *
+     * @return changed codes
+     */
+    public int[] getChanged() {
+      return changed.clone();
+    }
+
+    public boolean isEmpty() {
+      return added.length == 0 && removed.length == 0 && changed.length == 0;
+    }
+
+    @Override
+    public String toString() {
+      return "+" + added.length + " -" + removed.length + " ~" + changed.length;
+    }
+  }
+
+}
@@ -0,0 +1,148 @@
+package io.github.t4skforce.deepviolet.json;
+
+import io.github.t4skforce.deepviolet.metrics.Counter;
+import io.github.t4skforce.deepviolet.metrics.Histogram;
+import io.github.t4skforce.deepviolet.metrics.MetricsRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+/**
+ * Publishes the current {@link CipherCatalog} of a long running process.
+ *
+ * <p>Readers call {@link #get()}, a single volatile read, and keep using the returned snapshot for
+ * as long as they need a consistent view. Refreshes build the next catalog off to the side and
+ * swap it in as a whole, so readers never block and never see a half updated catalog. Refreshes
+ * are serialized among themselves.
+ */
+public final class CipherCatalogHolder {
+
+  /**
+   * Source of a new catalog, eg. {@code () -> CipherMap.builder().fetch().build()}.
+   */
+  @FunctionalInterface
+  public interface Loader {
+    Map<String, CipherMapClassificationsJson> load() throws IOException;
+  }
+
+  private volatile CipherCatalog current;
+  private volatile RefreshMetrics metrics;
+  private final Object refreshLock = new Object();
+  private final List<BiConsumer<CipherCatalog, CipherCatalog.Diff>> listeners =
+      new CopyOnWriteArrayList<>();
+
+  public CipherCatalogHolder(CipherCatalog initial) {
+    this.current = initial.withGeneration(0);
+  }
+
+  public static CipherCatalogHolder of(Map<String, CipherMapClassificationsJson> map) {
+    return new CipherCatalogHolder(CipherCatalog.of(map));
+  }
+
+  /**
+   * @return current snapshot
+   */
+  public CipherCatalog get() {
+    return current;
+  }
+
+  /**
+   * Record refreshes into the registry: the durations {@code catalog.refresh} and the counters
+   * {@code catalog.refresh.changed}, {@code catalog.refresh.unchanged} and
+   * {@code catalog.refresh.failed}.
+   *
+   * @param registry registry
+   * @return this holder
+   */
+  public CipherCatalogHolder metrics(MetricsRegistry registry) {
+    this.metrics = new RefreshMetrics(registry);
+    return this;
+  }
+
+  /**
+   * Called with the new catalog and its difference to the previous one after every refresh that
+   * changed something, on the refreshing thread.
+   *
+   * @param listener listener
+   */
+  public void addListener(BiConsumer<CipherCatalog, CipherCatalog.Diff> listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Publish a new catalog. Nothing is published if it has the same content as the current one.
+   *
+   * @param next new catalog
+   * @return difference to the replaced catalog
+   */
+  public CipherCatalog.Diff update(CipherCatalog next) {
+    CipherCatalog published;
+    CipherCatalog.Diff diff;
+    synchronized (refreshLock) {
+      CipherCatalog previous = current;
+      diff = previous.diff(next);
+      if (diff.isEmpty()) {
+        return diff;
+      }
+      published = next.withGeneration(previous.getGeneration() + 1);
+      current = published;
+    }
+    for (BiConsumer<CipherCatalog, CipherCatalog.Diff> listener : listeners) {
+      listener.accept(published, diff);
+    }
+    return diff;
+  }
+
+  public CipherCatalog.Diff update(Map<String, CipherMapClassificationsJson> map) {
+    return update(CipherCatalog.of(map));
+  }
+
+  /**
+   * Load and publish a new catalog in the background.
+   *
+   * @param loader   catalog source
+   * @param executor executor running the loader
+   * @return difference to the replaced catalog, completes exceptionally if the loader failed in
+   *         which case the current catalog stays in place
+   */
+  public CompletableFuture<CipherCatalog.Diff> refresh(Loader loader, Executor executor) {
+    return CompletableFuture.supplyAsync(() -> {
+      RefreshMetrics m = metrics;
+      long start = System.nanoTime();
+      try {
+        CipherCatalog.Diff diff = update(loader.load());
+        if (m != null) {
+          m.duration.record(System.nanoTime() - start);
+          (diff.isEmpty() ? m.unchanged : m.changed).increment();
+        }
+        return diff;
+      } catch (IOException | RuntimeException e) {
+        if (m != null) {
+          m.failed.increment();
+        }
+        throw e instanceof IOException ? new UncheckedIOException((IOException) e)
+            : (RuntimeException) e;
+      }
+    }, executor);
+  }
+
+  private static final class RefreshMetrics {
+    private final Histogram duration;
+    private final Counter changed;
+    private final Counter unchanged;
+    private final Counter failed;
+
+    private RefreshMetrics(MetricsRegistry registry) {
+      duration = registry.histogram("catalog.refresh");
+      changed = registry.counter("catalog.refresh.changed");
+      unchanged = registry.counter("catalog.refresh.unchanged");
+      failed = registry.counter("catalog.refresh.failed");
+    }
+  }
+
+}
@@ -5,20 +5,39 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.io.CountingInputStream;
 import com.google.common.io.Resources;
+import com.google.common.util.concurrent.MoreExecutors;
 
+import io.github.t4skforce.deepviolet.json.parser.SourceParser;
+import io.github.t4skforce.deepviolet.metrics.MetricsRegistry;
 import io.github.t4skforce.deepviolet.util.Downloader;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -38,40 +57,68 @@ public class CipherMap extends HashMap<String, CipherMapClassificationsJson> {
     return new Builder();
   }
 
+  public CipherMapIndex index() {
+    return CipherMapIndex.of(this);
+  }
+
+  /**
+   * Immutable copy that is safe to share between threads.
+   *
+   * @return catalog snapshot
+   */
+  public CipherCatalog snapshot() {
+    return CipherCatalog.of(this);
+  }
+
+  /**
+   * Convert a map key eg. 0x13,0x01 to its 16-bit wire code.
+   *
+   * @param hex key in the format 0xAA,0xBB
+   * @return wire code
+   */
+  public static int toCode(String hex) {
+    if (hex == null || hex.length() != 9 || hex.charAt(0) != '0' || hex.charAt(4) != ','
+        || hex.charAt(5) != '0' || Character.toLowerCase(hex.charAt(1)) != 'x'
+        || Character.toLowerCase(hex.charAt(6)) != 'x') {
+      throw new IllegalArgumentException("Invalid cipher suite code: " + hex);
+    }
+    int code = 0;
+    for (int i : new int[] { 2, 3, 7, 8 }) {
+      int digit = Character.digit(hex.charAt(i), 16);
+      if (digit < 0) {
+        throw new IllegalArgumentException("Invalid cipher suite code: " + hex);
+      }
+      code = code << 4 | digit;
+    }
+    return code;
+  }
+
+  /**
+   * Convert a 16-bit wire code to its map key eg. 0x13,0x01.
+   *
+   * @param code wire code
+   * @return key in the format 0xAA,0xBB
+   */
+  public static String toHex(int code) {
+    return String.format("0x%02X,0x%02X", code >>> 8 & 0xFF, code & 0xFF);
+  }
+
   public static class Builder {
 
     private static final String BASE_KEY = "cypher.builder";
     private static final String MSG_WARN_NOT_IANA = "warn.not.iana";
     private static final String MSG_INFO_FOUND = "info.found";
     private static final String MSG_INFO_FETCHING = "info.fetching";
+    private static final String MSG_INFO_TIMING = "info.timing";
 
     private static final String CIPHERMAP_JSON = "ciphermap.json";
+    private static final String CIPHERMAP_BIN = "ciphermap.bin";
 
     protected static final String IANA_URL = "http://www.iana.org/assignments/tls-parameters/tls-parameters.xhtml";
     protected static final String NSS_URL = "https://hg.mozilla.org/projects/nss/raw-file/tip/lib/ssl/sslproto.h";
     protected static final String OPENSSL_URL = "https://raw.githubusercontent.com/openssl/openssl/master/include/openssl/tls1.h";
     protected static final String GNUTLS_URL = "https://gitlab.com/gnutls/gnutls/raw/master/lib/algorithms/ciphersuites.c";
 
-    private static final Pattern REGEX_IANA = Pattern.compile(
-        "<td[^>]*>(?<hex>0x[0-9|A-F]{2},0x[0-9|A-F]{2})</td[^>]*>[^<]*<td[^>]*>(?<name>TLS_[^\\s]+)</td[^>]*>",
-        Pattern.DOTALL | Pattern.MULTILINE);
-
-    private static final Pattern REGEX_NSS = Pattern.compile(
-        "#\\s*define\\s+(?<name>TLS_[^\\s]+)\\s+(?<hex>0x[A-F|0-9]{4})",
-        Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
-
-    private static final Pattern REGEX_OPENSSL = Pattern.compile(
-        "#\\s*define\\s+TLS1_CK_(?<name>[^\\s]+)\\s+(?<hex>0x[A-F|0-9]{8})",
-        Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
-
-    private static final Pattern REGEX_OPENSSL_NAMES = Pattern.compile(
-        "#\\s*define\\s+TLS1_TXT_(?<key>[^\\s]+)\\s+\"(?<value>[^\"]+)\"",
-        Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
-
-    private static final Pattern REGEX_GNUTLS_NAMES = Pattern.compile(
-        "#\\s*define\\s*GNU(?<name>TLS_[^\\s]+)\\s*\\{\\s*(?<hex1>0x[A-F|0-9]{2})\\s*,\\s*(?<hex2>0x[A-F|0-9]{2})\\s*\\}",
-        Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
-
     private CipherMap cipherMapJson = new CipherMap();
 
     private Map<String, String> ianaNameMap = new HashMap<>();
@@ -82,45 +129,158 @@ public class CipherMap extends HashMap<String, CipherMapClassificationsJson> {
     private MessageConsumer<String, Object[]> warnConsumer = (m, o) -> {
     };
 
+    private Executor executor = MoreExecutors.directExecutor();
+
+    private MetricsRegistry metrics;
+
+    private String mirror;
+
     private ObjectMapper mapper;
 
     private static final ResourceBundle RES_BUNDLE = ResourceBundle.getBundle("Messages");
 
     private Builder() {
-      mapper = new ObjectMapper();
-      mapper.configure(MapperFeature.USE_ANNOTATIONS, true);
-      mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    private ObjectMapper mapper() {
+      // created lazily so loading the binary image never initializes jackson databind
+      if (mapper == null) {
+        mapper = new ObjectMapper();
+        mapper.configure(MapperFeature.USE_ANNOTATIONS, true);
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+      }
+      return mapper;
     }
 
     public Builder write(File target) throws IOException {
-      ObjectWriter writer = mapper.writer(new DefaultPrettyPrinter());
+      ObjectWriter writer = mapper().writer(new DefaultPrettyPrinter());
       writer.writeValue(target, cipherMapJson);
       return this;
     }
 
+    public Builder writeBinary(File target) throws IOException {
+      try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target))) {
+        CipherMapBinary.write(cipherMapJson, out);
+      }
+      return this;
+    }
+
+    /**
+     * Load the bundled ciphermap if nothing was loaded or fetched yet. The precompiled binary image
+     * is preferred, the json resource is used as fallback.
+     *
+     * @return this builder
+     * @throws IOException if neither resource can be read
+     */
     public Builder load() throws IOException {
       if (MapUtils.isEmpty(cipherMapJson)) {
-        load(CIPHERMAP_JSON);
+        try {
+          loadBinary(CIPHERMAP_BIN);
+        } catch (IOException | IllegalArgumentException e) {
+          load(CIPHERMAP_JSON);
+        }
       }
       return this;
     }
 
     public Builder load(File file) throws IOException {
-      cipherMapJson = mapper.readValue(file, CipherMap.class);
+      CatalogLoadEvent event = new CatalogLoadEvent();
+      event.begin();
+      cipherMapJson = mapper().readValue(file, CipherMap.class);
+      commit(event, file.getPath(), "json");
       return this;
     }
 
     public Builder load(String resourceName) throws IOException {
+      CatalogLoadEvent event = new CatalogLoadEvent();
+      event.begin();
       String json = Resources.toString(Resources.getResource(resourceName), StandardCharsets.UTF_8);
-      cipherMapJson = mapper.readValue(json, CipherMap.class);
+      cipherMapJson = mapper().readValue(json, CipherMap.class);
+      commit(event, resourceName, "json");
+      return this;
+    }
+
+    /**
+     * Load a binary image into the map. The map is fully materialized, callers that only need
+     * lookups can use {@link CipherMapBinary#index()} or {@link CipherMapBinary#snapshot()}
+     * instead, which decode straight from the image.
+     *
+     * @param file binary image
+     * @return this builder
+     * @throws IOException if the image can not be read
+     */
+    public Builder loadBinary(File file) throws IOException {
+      CatalogLoadEvent event = new CatalogLoadEvent();
+      event.begin();
+      cipherMapJson = CipherMapBinary.load(file).toCipherMap();
+      commit(event, file.getPath(), "binary");
+      return this;
+    }
+
+    public Builder loadBinary(String resourceName) throws IOException {
+      CatalogLoadEvent event = new CatalogLoadEvent();
+      event.begin();
+      cipherMapJson = CipherMapBinary.load(resourceName).toCipherMap();
+      commit(event, resourceName, "binary");
       return this;
     }
 
+    private void commit(CatalogLoadEvent event, String source, String format) {
+      if (event.shouldCommit()) {
+        event.source = source;
+        event.format = format;
+        event.entries = cipherMapJson.size();
+        event.commit();
+      }
+    }
+
     public CipherMap build() throws IOException {
       load();
       return cipherMapJson;
     }
 
+    /**
+     * Executor used by {@link #fetch()} to download and parse the sources. Defaults to running on
+     * the calling thread.
+     *
+     * @param executor executor for the download and parse tasks
+     * @return this builder
+     */
+    public Builder executor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Record fetch durations per source into the histograms {@code catalog.fetch.<source>.connect},
+     * time until the response is open, and {@code catalog.fetch.<source>.parse}, time to stream
+     * and parse the body, eg. {@code catalog.fetch.iana.connect}.
+     *
+     * @param metrics registry
+     * @return this builder
+     */
+    public Builder metrics(MetricsRegistry metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    /**
+     * Fetch the sources from a mirror instead of upstream, each from the base URL followed by the
+     * file name of its upstream URL, eg. {@code <mirror>/tls1.h} for OpenSSL.
+     *
+     * @param mirror base URL ending with a slash, null for upstream
+     * @return this builder
+     */
+    public Builder mirror(String mirror) {
+      this.mirror = mirror;
+      return this;
+    }
+
+    private String url(Source source) {
+      return mirror == null ? source.url
+          : mirror + source.url.substring(source.url.lastIndexOf('/') + 1);
+    }
+
     public Builder log(MessageConsumer<String, Object[]> logConsumer) {
       this.logConsumer = logConsumer;
       return this;
@@ -139,105 +299,148 @@ public class CipherMap extends HashMap<String, CipherMapClassificationsJson> {
       this.warnConsumer.accept(StringUtils.joinWith(".", BASE_KEY, key), params);
     }
 
+    /**
+     * Fetch all sources. Downloads and parsing run on the configured {@link #executor(Executor)},
+     * results are merged and logged on the calling thread with IANA first so output and warnings
+     * do not depend on completion order.
+     *
+     * @return this builder
+     * @throws IOException if any source can not be fetched
+     */
     public Builder fetch() throws IOException {
-      return fetchIana().fetchNss().fetchOpenSsl().fetchGnuTls();
+      Map<Source, CompletableFuture<Parsed>> pending = new EnumMap<>(Source.class);
+      for (Source source : Source.values()) {
+        String url = url(source);
+        pending.put(source, CompletableFuture.supplyAsync(() -> {
+          try {
+            return download(source, url);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }, executor));
+      }
+      for (Source source : Source.values()) {
+        merge(join(pending.get(source)));
+      }
+      return this;
     }
 
     public Builder fetchIana() throws IOException {
-      int cnt = 0;
-      log(MSG_INFO_FETCHING, "IANA", IANA_URL);
-      Matcher sources = REGEX_IANA.matcher(Downloader.get(IANA_URL));
-      while (sources.find()) {
-        String hex = sources.group("hex").trim().toUpperCase().replace("X", "x");
-        String name = sources.group("name").trim().toUpperCase();
-
-        cipherMapJson.computeIfAbsent(hex, k -> new CipherMapClassificationsJson());
+      return fetch(Source.IANA);
+    }
 
-        CipherMapClassificationsJson cipher = cipherMapJson.get(hex);
-        cipher.setIana(name);
+    public Builder fetchNss() throws IOException {
+      return fetch(Source.NSS);
+    }
 
-        cipherMapJson.put(hex, cipher);
-        ianaNameMap.put(name, hex);
-        cnt++;
-      }
-      log(MSG_INFO_FOUND, cnt);
-      return this;
+    public Builder fetchOpenSsl() throws IOException {
+      return fetch(Source.OPENSSL);
     }
 
-    public Builder fetchNss() throws IOException {
-      int cnt = 0;
-      log(MSG_INFO_FETCHING, "NSS", NSS_URL);
-      Matcher sources = REGEX_NSS.matcher(Downloader.get(NSS_URL));
-      while (sources.find()) {
-        String hex = sources.group("hex").trim().toUpperCase().replace("X", "x");
-        hex = String.format("%s,0x%s", hex.substring(0, 4), hex.substring(4, 6));
-        String name = sources.group("name").trim().toUpperCase();
-        if (!cipherMapJson.containsKey(hex)) {
-          warn(MSG_WARN_NOT_IANA, "NSS", hex, name);
-          continue;
-        }
-        CipherMapClassificationsJson cipher = cipherMapJson.get(hex);
-        cipher.setNss(name);
+    public Builder fetchGnuTls() throws IOException {
+      return fetch(Source.GNUTLS);
+    }
 
-        cnt++;
-      }
-      log(MSG_INFO_FOUND, cnt);
+    private Builder fetch(Source source) throws IOException {
+      merge(download(source, url(source)));
       return this;
     }
 
-    public Builder fetchOpenSsl() throws IOException {
-      int cnt = 0;
-      log(MSG_INFO_FETCHING, "OpenSSL", NSS_URL);
-      String content = Downloader.get(OPENSSL_URL);
-
-      // mapping e.g., ECDHE_RSA_WITH_AES_128_GCM_SHA256 ->
-      // ECDHE-RSA-AES128-GCM-SHA256
-      Map<String, String> mapping = new HashMap<>();
-      Matcher sources = REGEX_OPENSSL_NAMES.matcher(content);
-      while (sources.find()) {
-        String key = sources.group("key").trim().toUpperCase();
-        String value = sources.group("value").trim().toUpperCase();
-        mapping.put(key, value);
+    private static Parsed join(CompletableFuture<Parsed> future) throws IOException {
+      try {
+        return future.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof UncheckedIOException) {
+          throw ((UncheckedIOException) e.getCause()).getCause();
+        }
+        throw e;
       }
+    }
 
-      sources = REGEX_OPENSSL.matcher(content);
-      while (sources.find()) {
-        String name = sources.group("name").trim().toUpperCase();
-        name = mapping.get(name);
-        String hex = sources.group("hex").trim().toUpperCase().replace("X", "x");
-        hex = String.format("0x%s,0x%s", hex.substring(6, 8), hex.substring(8, 10));
-
-        if (!cipherMapJson.containsKey(hex)) {
-          warn(MSG_WARN_NOT_IANA, "OpenSSL", hex, name);
-          continue;
+    private static Parsed download(Source source, String url) throws IOException {
+      long start = System.nanoTime();
+      List<String[]> entries = new ArrayList<>();
+      CountingInputStream in = new CountingInputStream(Downloader.open(url));
+      try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+        long connected = System.nanoTime();
+        SourceParseEvent event = new SourceParseEvent();
+        event.begin();
+        source.parser.parse(reader, (hex, name) -> entries.add(new String[] { hex, name }));
+        if (event.shouldCommit()) {
+          event.source = source.label;
+          event.bytes = in.getCount();
+          event.entries = entries.size();
+          event.commit();
         }
-        CipherMapClassificationsJson cipher = cipherMapJson.get(hex);
-        cipher.setOpenssl(name);
-        cnt++;
+        return new Parsed(source, url, entries, connected - start,
+            System.nanoTime() - connected);
       }
-      log(MSG_INFO_FOUND, cnt);
-      return this;
     }
 
-    public Builder fetchGnuTls() throws IOException {
+    private void merge(Parsed parsed) {
+      log(MSG_INFO_FETCHING, parsed.source.label, parsed.url);
       int cnt = 0;
-      log(MSG_INFO_FETCHING, "GnuTLS", NSS_URL);
-      Matcher sources = REGEX_GNUTLS_NAMES.matcher(Downloader.get(GNUTLS_URL));
-      while (sources.find()) {
-        String hex = String.format("%s,%s",
-            sources.group("hex1").trim().toUpperCase().replace("X", "x"),
-            sources.group("hex2").trim().toUpperCase().replace("X", "x"));
-        String name = sources.group("name").trim().toUpperCase();
-        if (!cipherMapJson.containsKey(hex)) {
-          warn(MSG_WARN_NOT_IANA, "GnuTLS", hex, name);
+      for (String[] entry : parsed.entries) {
+        String hex = entry[0];
+        String name = entry[1];
+        if (parsed.source == Source.IANA) {
+          cipherMapJson.computeIfAbsent(hex, k -> new CipherMapClassificationsJson()).setIana(name);
+          ianaNameMap.put(name, hex);
+        } else if (!cipherMapJson.containsKey(hex)) {
+          warn(MSG_WARN_NOT_IANA, parsed.source.label, hex, name);
           continue;
+        } else {
+          parsed.source.setter.accept(cipherMapJson.get(hex), name);
         }
-        CipherMapClassificationsJson cipher = cipherMapJson.get(hex);
-        cipher.setGnutls(name);
         cnt++;
       }
       log(MSG_INFO_FOUND, cnt);
-      return this;
+      if (metrics != null) {
+        String prefix = "catalog.fetch." + parsed.source.name().toLowerCase(Locale.ROOT);
+        metrics.histogram(prefix + ".connect").record(parsed.connectNanos);
+        metrics.histogram(prefix + ".parse").record(parsed.parseNanos);
+      }
+      log(MSG_INFO_TIMING, parsed.source.label,
+          TimeUnit.NANOSECONDS.toMillis(parsed.connectNanos),
+          TimeUnit.NANOSECONDS.toMillis(parsed.parseNanos));
+    }
+
+    private enum Source {
+      IANA("IANA", IANA_URL, SourceParser.IANA, CipherMapClassificationsJson::setIana),
+      NSS("NSS", NSS_URL, SourceParser.NSS, CipherMapClassificationsJson::setNss),
+      OPENSSL("OpenSSL", OPENSSL_URL, SourceParser.OPENSSL,
+          CipherMapClassificationsJson::setOpenssl),
+      GNUTLS("GnuTLS", GNUTLS_URL, SourceParser.GNUTLS, CipherMapClassificationsJson::setGnutls);
+
+      private final String label;
+      private final String url;
+      private final SourceParser parser;
+      private final BiConsumer<CipherMapClassificationsJson, String> setter;
+
+      Source(String label, String url, SourceParser parser,
+          BiConsumer<CipherMapClassificationsJson, String> setter) {
+        this.label = label;
+        this.url = url;
+        this.parser = parser;
+        this.setter = setter;
+      }
+    }
+
+    private static final class Parsed {
+      private final Source source;
+      private final String url;
+      private final List<String[]> entries;
+      private final long connectNanos;
+      private final long parseNanos;
+
+      private Parsed(Source source, String url, List<String[]> entries, long connectNanos,
+          long parseNanos) {
+        this.source = source;
+        this.url = url;
+        this.entries = entries;
+        this.connectNanos = connectNanos;
+        this.parseNanos = parseNanos;
+      }
     }
 
     @FunctionalInterface
@@ -252,11 +455,17 @@ public class CipherMap extends HashMap<String, CipherMapClassificationsJson> {
 
   @SuppressWarnings("all")
   public static void main(String[] args) throws Exception {
-    CipherMap.builder().log((key, params) -> {
-      System.out.println("[INFO] " + Builder.format(key, params));
-    }).warn((key, params) -> {
-      System.out.println("[WARNING] " + Builder.format(key, params));
-    }).fetch().write(Paths.get(args[0], Builder.CIPHERMAP_JSON).toFile());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      CipherMap.builder().executor(executor).log((key, params) -> {
+        System.out.println("[INFO] " + Builder.format(key, params));
+      }).warn((key, params) -> {
+        System.out.println("[WARNING] " + Builder.format(key, params));
+      }).fetch().write(Paths.get(args[0], Builder.CIPHERMAP_JSON).toFile())
+          .writeBinary(Paths.get(args[0], Builder.CIPHERMAP_BIN).toFile());
+    } finally {
+      executor.shutdown();
+    }
   }
 
 }
@@ -0,0 +1,218 @@
+package io.github.t4skforce.deepviolet.json;
+
+import com.google.common.io.Resources;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Compact binary image of a {@link CipherMap}, served straight from a (memory mapped) buffer.
+ *
+ * <p>Layout (big endian): header {@code magic:int, version:short, count:int, tableSize:int},
+ * followed by {@code count} fixed-width records {@code code:short, gnutls:int, nss:int, iana:int,
+ * openssl:int} sorted by code, followed by the string table. Record fields are offsets into the
+ * string table or -1 for null; each table entry is {@code length:short, utf8:byte[length]}.
+ * Compatibility classifications are not part of the image.
+ */
+public final class CipherMapBinary {
+
+  public static final int MAGIC = 0x4456434D;
+  public static final short VERSION = 1;
+
+  private static final int HEADER_SIZE = 14;
+  private static final int RECORD_SIZE = 18;
+  private static final int NULL = -1;
+
+  private final ByteBuffer buffer;
+  private final int count;
+  private final int tableOffset;
+
+  private CipherMapBinary(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer.slice();
+    if (this.buffer.remaining() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a ciphermap image");
+    }
+    if (this.buffer.getShort(4) != VERSION) {
+      throw new IOException("Unsupported ciphermap image version " + this.buffer.getShort(4));
+    }
+    count = this.buffer.getInt(6);
+    tableOffset = HEADER_SIZE + count * RECORD_SIZE;
+    if (count < 0 || tableOffset + this.buffer.getInt(10) > this.buffer.limit()) {
+      throw new IOException("Truncated ciphermap image");
+    }
+  }
+
+  public static CipherMapBinary of(ByteBuffer buffer) throws IOException {
+    return new CipherMapBinary(buffer);
+  }
+
+  public static CipherMapBinary load(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return new CipherMapBinary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  public static CipherMapBinary load(String resourceName) throws IOException {
+    return new CipherMapBinary(
+        ByteBuffer.wrap(Resources.toByteArray(Resources.getResource(resourceName))));
+  }
+
+  public int size() {
+    return count;
+  }
+
+  public boolean contains(int code) {
+    return find(code) >= 0;
+  }
+
+  /**
+   * Decode a single entry without materializing the whole map.
+   *
+   * @param code cipher suite wire code
+   * @return entry or null if the code is not part of the image
+   */
+  public CipherMapClassificationsJson get(int code) {
+    int idx = find(code);
+    return idx < 0 ? null : decode(idx);
+  }
+
+  /**
+   * Index decoded straight from the image, without building the intermediate map.
+   *
+   * @return code index
+   */
+  public CipherMapIndex index() {
+    return CipherMapIndex.of(this);
+  }
+
+  /**
+   * Catalog decoded straight from the image, without building the intermediate map.
+   *
+   * @return catalog snapshot
+   */
+  public CipherCatalog snapshot() {
+    return CipherCatalog.of(this);
+  }
+
+  public CipherMap toCipherMap() {
+    CipherMap map = new CipherMap();
+    for (int i = 0; i < count; i++) {
+      map.put(CipherMap.toHex(code(i)), decode(i));
+    }
+    return map;
+  }
+
+  int code(int idx) {
+    return buffer.getShort(HEADER_SIZE + idx * RECORD_SIZE) & 0xFFFF;
+  }
+
+  private int find(int code) {
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int midCode = code(mid);
+      if (midCode < code) {
+        low = mid + 1;
+      } else if (midCode > code) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  CipherMapClassificationsJson decode(int idx) {
+    int pos = HEADER_SIZE + idx * RECORD_SIZE + 2;
+    CipherMapClassificationsJson entry = new CipherMapClassificationsJson();
+    entry.setGnutls(string(buffer.getInt(pos)));
+    entry.setNss(string(buffer.getInt(pos + 4)));
+    entry.setIana(string(buffer.getInt(pos + 8)));
+    entry.setOpenssl(string(buffer.getInt(pos + 12)));
+    return entry;
+  }
+
+  private String string(int offset) {
+    if (offset == NULL) {
+      return null;
+    }
+    int pos = tableOffset + offset;
+    byte[] bytes = new byte[buffer.getShort(pos) & 0xFFFF];
+    ByteBuffer view = buffer.duplicate();
+    view.position(pos + 2);
+    view.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  public static void write(Map<String, CipherMapClassificationsJson> map, OutputStream out)
+      throws IOException {
+    TreeMap<Integer, CipherMapClassificationsJson> sorted = new TreeMap<>();
+    for (Entry<String, CipherMapClassificationsJson> entry : map.entrySet()) {
+      sorted.put(CipherMap.toCode(entry.getKey()), entry.getValue());
+    }
+
+    Map<String, Integer> offsets = new HashMap<>();
+    List<byte[]> table = new ArrayList<>();
+    int[] tableSize = new int[1];
+    int[][] records = new int[sorted.size()][];
+    int idx = 0;
+    for (Entry<Integer, CipherMapClassificationsJson> entry : sorted.entrySet()) {
+      CipherMapClassificationsJson value = entry.getValue();
+      records[idx++] = new int[] { entry.getKey(),
+          intern(value.getGnutls(), offsets, table, tableSize),
+          intern(value.getNss(), offsets, table, tableSize),
+          intern(value.getIana(), offsets, table, tableSize),
+          intern(value.getOpenssl(), offsets, table, tableSize) };
+    }
+
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeShort(VERSION);
+    data.writeInt(records.length);
+    data.writeInt(tableSize[0]);
+    for (int[] record : records) {
+      data.writeShort(record[0]);
+      for (int i = 1; i < record.length; i++) {
+        data.writeInt(record[i]);
+      }
+    }
+    for (byte[] bytes : table) {
+      data.writeShort(bytes.length);
+      data.write(bytes);
+    }
+    data.flush();
+  }
+
+  private static int intern(String value, Map<String, Integer> offsets, List<byte[]> table,
+      int[] tableSize) {
+    if (value == null) {
+      return NULL;
+    }
+    Integer offset = offsets.get(value);
+    if (offset == null) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      if (bytes.length > 0xFFFF) {
+        throw new IllegalArgumentException("Name too long for ciphermap image: " + value);
+      }
+      offset = tableSize[0];
+      offsets.put(value, offset);
+      table.add(bytes);
+      tableSize[0] += 2 + bytes.length;
+    }
+    return offset;
+  }
+
+}
@@ -0,0 +1,92 @@
+package io.github.t4skforce.deepviolet.json;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Read-only view of a {@link CipherMap} indexed by the 16-bit wire code of each cipher suite.
+ *
+ * <p>The index is a dense table over the whole code space, so lookups from values parsed off the
+ * wire are a single array access and never allocate. It is a snapshot: later changes to the source
+ * map are not reflected.
+ */
+public final class CipherMapIndex {
+
+  public static final int CODE_SPACE = 0x10000;
+
+  private final CipherMapClassificationsJson[] entries =
+      new CipherMapClassificationsJson[CODE_SPACE];
+
+  private final int[] codes;
+
+  private CipherMapIndex(Map<String, CipherMapClassificationsJson> map) {
+    int[] keys = new int[map.size()];
+    int cnt = 0;
+    for (Entry<String, CipherMapClassificationsJson> entry : map.entrySet()) {
+      int code = CipherMap.toCode(entry.getKey());
+      if (entries[code] == null) {
+        keys[cnt++] = code;
+      }
+      entries[code] = entry.getValue();
+    }
+    codes = Arrays.copyOf(keys, cnt);
+    Arrays.sort(codes);
+  }
+
+  private CipherMapIndex(CipherMapBinary binary) {
+    // records are sorted by code
+    codes = new int[binary.size()];
+    for (int i = 0; i < codes.length; i++) {
+      codes[i] = binary.code(i);
+      entries[codes[i]] = binary.decode(i);
+    }
+  }
+
+  public static CipherMapIndex of(Map<String, CipherMapClassificationsJson> map) {
+    return new CipherMapIndex(map);
+  }
+
+  public static CipherMapIndex of(CipherMapBinary binary) {
+    return new CipherMapIndex(binary);
+  }
+
+  /**
+   * Get entry by its wire code eg. 0x1301
+   *
+   * @param code cipher suite code in the range 0x0000 - 0xFFFF
+   * @return entry or null if the code is unknown or out of range
+   */
+  public CipherMapClassificationsJson get(int code) {
+    if ((code & ~0xFFFF) != 0) {
+      return null;
+    }
+    return entries[code];
+  }
+
+  public CipherMapClassificationsJson get(short code) {
+    return entries[code & 0xFFFF];
+  }
+
+  public CipherMapClassificationsJson get(byte first, byte second) {
+    return entries[(first & 0xFF) << 8 | second & 0xFF];
+  }
+
+  public boolean contains(int code) {
+    return get(code) != null;
+  }
+
+  public int size() {
+    return codes.length;
+  }
+
+  /**
+   * All indexed codes in ascending order.
+   *
+   * @return copy of the indexed codes
+   */
+  public int[] codes() {
+    return codes.clone();
+  }
+
+}
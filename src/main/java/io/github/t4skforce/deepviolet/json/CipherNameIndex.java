@@ -0,0 +1,240 @@
+package io.github.t4skforce.deepviolet.json;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Function;
+
+/**
+ * Case-insensitive reverse lookup from cipher suite names to codes, one open addressing table per
+ * naming dialect. Names are stored upper-cased in a single char array per table, lookups hash and
+ * compare the {@link CharSequence} in place and never allocate, so a log line can be resolved
+ * directly from a sub range of its buffer.
+ *
+ * <p>Instances are immutable and built once per {@link CipherCatalog}, see
+ * {@link CipherCatalog#names()}.
+ */
+public final class CipherNameIndex {
+
+  public static final int UNKNOWN = -1;
+
+  public enum Dialect {
+    IANA(CipherSuite::getIana),
+    OPENSSL(CipherSuite::getOpenssl),
+    NSS(CipherSuite::getNss),
+    GNUTLS(CipherSuite::getGnutls);
+
+    private final Function<CipherSuite, String> name;
+
+    Dialect(Function<CipherSuite, String> name) {
+      this.name = name;
+    }
+
+    public String of(CipherSuite suite) {
+      return name.apply(suite);
+    }
+  }
+
+  private static final Dialect[] DIALECTS = Dialect.values();
+
+  private final Table[] tables;
+
+  private CipherNameIndex(Table[] tables) {
+    this.tables = tables;
+  }
+
+  public static CipherNameIndex of(CipherCatalog catalog) {
+    Table[] tables = new Table[DIALECTS.length];
+    for (Dialect dialect : DIALECTS) {
+      tables[dialect.ordinal()] = Table.build(catalog, dialect);
+    }
+    return new CipherNameIndex(tables);
+  }
+
+  /**
+   * Resolve a name in a single dialect.
+   *
+   * @param dialect naming dialect
+   * @param name    suite name, case is ignored
+   * @return code or {@link #UNKNOWN}
+   */
+  public int code(Dialect dialect, CharSequence name) {
+    return code(dialect, name, 0, name.length());
+  }
+
+  /**
+   * Resolve {@code name.subSequence(start, end)} in a single dialect without copying it.
+   *
+   * @param dialect naming dialect
+   * @param name    text containing the suite name, case is ignored
+   * @param start   index of the first char
+   * @param end     index after the last char
+   * @return code or {@link #UNKNOWN}
+   */
+  public int code(Dialect dialect, CharSequence name, int start, int end) {
+    checkRange(name, start, end);
+    return tables[dialect.ordinal()].get(name, start, end, hash(name, start, end));
+  }
+
+  /**
+   * Resolve a name in any dialect, trying IANA, OpenSSL, NSS and GnuTLS in that order.
+   *
+   * @param name suite name, case is ignored
+   * @return code or {@link #UNKNOWN}
+   */
+  public int code(CharSequence name) {
+    return code(name, 0, name.length());
+  }
+
+  public int code(CharSequence name, int start, int end) {
+    checkRange(name, start, end);
+    int hash = hash(name, start, end);
+    for (Table table : tables) {
+      int code = table.get(name, start, end, hash);
+      if (code != UNKNOWN) {
+        return code;
+      }
+    }
+    return UNKNOWN;
+  }
+
+  /**
+   * Dialect a name belongs to, following the same order as {@link #code(CharSequence)}.
+   *
+   * @param name suite name, case is ignored
+   * @return dialect or null if the name is unknown
+   */
+  public Dialect dialect(CharSequence name) {
+    int hash = hash(name, 0, name.length());
+    for (Dialect dialect : DIALECTS) {
+      if (tables[dialect.ordinal()].get(name, 0, name.length(), hash) != UNKNOWN) {
+        return dialect;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param dialect naming dialect
+   * @return number of names indexed for the dialect
+   */
+  public int size(Dialect dialect) {
+    return tables[dialect.ordinal()].size;
+  }
+
+  public Map<Dialect, Integer> sizes() {
+    Map<Dialect, Integer> sizes = new EnumMap<>(Dialect.class);
+    for (Dialect dialect : DIALECTS) {
+      sizes.put(dialect, size(dialect));
+    }
+    return sizes;
+  }
+
+  private static void checkRange(CharSequence name, int start, int end) {
+    if (start < 0 || end > name.length() || start > end) {
+      throw new IndexOutOfBoundsException(
+          "Range [" + start + ", " + end + ") out of bounds for length " + name.length());
+    }
+  }
+
+  // names are ASCII, folding a-z only keeps lookups independent of the default locale
+  private static char fold(char c) {
+    return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+  }
+
+  private static int hash(CharSequence name, int start, int end) {
+    // FNV-1a over the folded chars
+    int hash = 0x811C9DC5;
+    for (int i = start; i < end; i++) {
+      hash = (hash ^ fold(name.charAt(i))) * 0x01000193;
+    }
+    return hash ^ hash >>> 16;
+  }
+
+  private static final class Table {
+    // slot -> entry + 1, 0 marks an empty slot
+    private final int[] slots;
+    private final int[] hashes;
+    private final int[] offsets;
+    private final int[] codes;
+    private final char[] chars;
+    private final int size;
+
+    private Table(int[] slots, int[] hashes, int[] offsets, int[] codes, char[] chars, int size) {
+      this.slots = slots;
+      this.hashes = hashes;
+      this.offsets = offsets;
+      this.codes = codes;
+      this.chars = chars;
+      this.size = size;
+    }
+
+    private static Table build(CipherCatalog catalog, Dialect dialect) {
+      // codes are ascending, the lowest code keeps a name that appears twice
+      Map<String, Integer> names = new LinkedHashMap<>();
+      for (int code : catalog.codes()) {
+        String name = dialect.of(catalog.get(code));
+        if (name != null && !name.isEmpty()) {
+          names.putIfAbsent(upper(name), code);
+        }
+      }
+      int size = names.size();
+      int capacity = Integer.highestOneBit(Math.max(size, 1) * 2) * 2;
+      int[] slots = new int[capacity];
+      int[] hashes = new int[size];
+      int[] offsets = new int[size + 1];
+      int[] codes = new int[size];
+      StringBuilder chars = new StringBuilder();
+      int entry = 0;
+      for (Entry<String, Integer> name : names.entrySet()) {
+        int hash = hash(name.getKey(), 0, name.getKey().length());
+        chars.append(name.getKey());
+        hashes[entry] = hash;
+        codes[entry] = name.getValue();
+        offsets[entry + 1] = chars.length();
+        int slot = hash & (capacity - 1);
+        while (slots[slot] != 0) {
+          slot = (slot + 1) & (capacity - 1);
+        }
+        slots[slot] = ++entry;
+      }
+      char[] buffer = new char[chars.length()];
+      chars.getChars(0, chars.length(), buffer, 0);
+      return new Table(slots, hashes, offsets, codes, buffer, size);
+    }
+
+    private static String upper(String name) {
+      char[] folded = new char[name.length()];
+      for (int i = 0; i < folded.length; i++) {
+        folded[i] = fold(name.charAt(i));
+      }
+      return new String(folded);
+    }
+
+    private int get(CharSequence name, int start, int end, int hash) {
+      int mask = slots.length - 1;
+      for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+        int entry = slots[slot] - 1;
+        if (hashes[entry] == hash && matches(entry, name, start, end)) {
+          return codes[entry];
+        }
+      }
+      return UNKNOWN;
+    }
+
+    private boolean matches(int entry, CharSequence name, int start, int end) {
+      int offset = offsets[entry];
+      if (offsets[entry + 1] - offset != end - start) {
+        return false;
+      }
+      for (int i = start; i < end; i++, offset++) {
+        if (chars[offset] != fold(name.charAt(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+}
@@ -0,0 +1,94 @@
+package io.github.t4skforce.deepviolet.json;
+
+import java.util.Objects;
+
+/**
+ * Immutable catalog entry, the frozen counterpart of {@link CipherMapClassificationsJson}.
+ */
+public final class CipherSuite {
+
+  private final int code;
+  private final String iana;
+  private final String openssl;
+  private final String nss;
+  private final String gnutls;
+
+  public CipherSuite(int code, String iana, String openssl, String nss, String gnutls) {
+    if ((code & ~0xFFFF) != 0) {
+      throw new IllegalArgumentException("Invalid cipher suite code: " + code);
+    }
+    this.code = code;
+    this.iana = iana;
+    this.openssl = openssl;
+    this.nss = nss;
+    this.gnutls = gnutls;
+  }
+
+  static CipherSuite of(int code, CipherMapClassificationsJson json) {
+    return new CipherSuite(code, json.getIana(), json.getOpenssl(), json.getNss(),
+        json.getGnutls());
+  }
+
+  public int getCode() {
+    return code;
+  }
+
+  public String getHex() {
+    return CipherMap.toHex(code);
+  }
+
+  public String getIana() {
+    return iana;
+  }
+
+  public String getOpenssl() {
+    return openssl;
+  }
+
+  public String getNss() {
+    return nss;
+  }
+
+  public String getGnutls() {
+    return gnutls;
+  }
+
+  /**
+   * Mutable copy for APIs that still work on {@link CipherMap}.
+   *
+   * @return new json entry
+   */
+  public CipherMapClassificationsJson toJson() {
+    CipherMapClassificationsJson json = new CipherMapClassificationsJson();
+    json.setIana(iana);
+    json.setOpenssl(openssl);
+    json.setNss(nss);
+    json.setGnutls(gnutls);
+    return json;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof CipherSuite)) {
+      return false;
+    }
+    CipherSuite other = (CipherSuite) obj;
+    return code == other.code && Objects.equals(iana, other.iana)
+        && Objects.equals(openssl, other.openssl) && Objects.equals(nss, other.nss)
+        && Objects.equals(gnutls, other.gnutls);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(code, iana, openssl, nss, gnutls);
+  }
+
+  @Override
+  public String toString() {
+    return getHex() + " " + iana;
+  }
+
+}
@@ -0,0 +1,111 @@
+package io.github.t4skforce.deepviolet.json;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Registry of TLS supported groups (formerly elliptic curves) by IANA code point, including the
+ * OpenSSL aliases used in the Mozilla guidelines eg. prime256v1.
+ */
+public final class NamedGroup {
+
+  public static final int UNKNOWN = -1;
+
+  public static final int SECP256R1 = 0x0017;
+  public static final int SECP384R1 = 0x0018;
+  public static final int SECP521R1 = 0x0019;
+  public static final int X25519 = 0x001D;
+  public static final int X448 = 0x001E;
+  public static final int FFDHE2048 = 0x0100;
+  public static final int FFDHE3072 = 0x0101;
+  public static final int FFDHE4096 = 0x0102;
+  public static final int FFDHE6144 = 0x0103;
+  public static final int FFDHE8192 = 0x0104;
+
+  private static final Map<String, Integer> CODES;
+  private static final Map<Integer, String> NAMES;
+  private static final Map<Integer, Integer> BITS;
+
+  static {
+    Map<String, Integer> codes = new HashMap<>();
+    Map<Integer, String> names = new HashMap<>();
+    Map<Integer, Integer> bits = new HashMap<>();
+    String[] sect = { "sect163k1", "sect163r1", "sect163r2", "sect193r1", "sect193r2",
+        "sect233k1", "sect233r1", "sect239k1", "sect283k1", "sect283r1", "sect409k1", "sect409r1",
+        "sect571k1", "sect571r1", "secp160k1", "secp160r1", "secp160r2", "secp192k1", "secp192r1",
+        "secp224k1", "secp224r1", "secp256k1", "secp256r1", "secp384r1", "secp521r1",
+        "brainpoolP256r1", "brainpoolP384r1", "brainpoolP512r1", "x25519", "x448",
+        "brainpoolP256r1tls13", "brainpoolP384r1tls13", "brainpoolP512r1tls13" };
+    int[] sectBits = { 163, 163, 163, 193, 193, 233, 233, 239, 283, 283, 409, 409, 571, 571, 160,
+        160, 160, 192, 192, 224, 224, 256, 256, 384, 521, 256, 384, 512, 256, 448, 256, 384, 512 };
+    for (int i = 0; i < sect.length; i++) {
+      register(codes, names, bits, i + 1, sect[i], sectBits[i]);
+    }
+    int[] ffdhe = { 2048, 3072, 4096, 6144, 8192 };
+    for (int i = 0; i < ffdhe.length; i++) {
+      register(codes, names, bits, FFDHE2048 + i, "ffdhe" + ffdhe[i], ffdhe[i]);
+    }
+    register(codes, names, bits, 0x11EB, "SecP256r1MLKEM768", 256);
+    register(codes, names, bits, 0x11EC, "X25519MLKEM768", 256);
+    register(codes, names, bits, 0x11ED, "SecP384r1MLKEM1024", 384);
+    // openssl aliases
+    codes.put("prime192v1", 19);
+    codes.put("prime256v1", SECP256R1);
+    CODES = Collections.unmodifiableMap(lowerCase(codes));
+    NAMES = Collections.unmodifiableMap(names);
+    BITS = Collections.unmodifiableMap(bits);
+  }
+
+  private NamedGroup() {
+  }
+
+  private static void register(Map<String, Integer> codes, Map<Integer, String> names,
+      Map<Integer, Integer> bits, int code, String name, int size) {
+    codes.put(name, code);
+    names.put(code, name);
+    bits.put(code, size);
+  }
+
+  private static Map<String, Integer> lowerCase(Map<String, Integer> codes) {
+    Map<String, Integer> lower = new HashMap<>();
+    codes.forEach((k, v) -> lower.put(k.toLowerCase(Locale.ROOT), v));
+    return lower;
+  }
+
+  /**
+   * Resolve a group name eg. X25519 or prime256v1, case insensitive.
+   *
+   * @param name group name
+   * @return code point or {@link #UNKNOWN}
+   */
+  public static int code(String name) {
+    if (name == null) {
+      return UNKNOWN;
+    }
+    Integer code = CODES.get(name.toLowerCase(Locale.ROOT));
+    return code == null ? UNKNOWN : code;
+  }
+
+  public static String name(int code) {
+    String name = NAMES.get(code);
+    return name == null ? String.format("UNKNOWN_GROUP:0x%04X", code) : name;
+  }
+
+  /**
+   * Security size of the group in bits, as compared against dh_param_size and ecdh_param_size.
+   *
+   * @param code group code point
+   * @return size in bits or 0 if unknown
+   */
+  public static int bits(int code) {
+    Integer bits = BITS.get(code);
+    return bits == null ? 0 : bits;
+  }
+
+  public static boolean isFiniteField(int code) {
+    return code >= FFDHE2048 && code <= 0x01FF;
+  }
+
+}
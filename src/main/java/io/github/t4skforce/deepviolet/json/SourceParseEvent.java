@@ -0,0 +1,31 @@
+package io.github.t4skforce.deepviolet.json;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event around the parse pass over one fetched source. The body is parsed as it
+ * arrives, so slow transfers show up here and not in the download event.
+ */
+@Name("io.github.t4skforce.deepviolet.SourceParse")
+@Label("Source Parse")
+@Category({ "DeepViolet", "Catalog" })
+@Description("Reading and parsing the body of a cipher suite source")
+@StackTrace(false)
+final class SourceParseEvent extends jdk.jfr.Event {
+
+  @Label("Source")
+  String source;
+
+  @Label("Bytes")
+  @DataAmount
+  long bytes;
+
+  @Label("Entries")
+  int entries;
+
+}
@@ -1,16 +1,16 @@
 package io.github.t4skforce.deepviolet.json;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
-public class TlsVersion {
+public class TlsVersion implements Comparable<TlsVersion> {
   private static final String TL_SV1 = "TLSv1";
   private static final String SS_LV3 = "SSLv3";
   private static final String SS_LV2 = "SSLv2";
+  private static final String UNKNOWN_NAME = "UNKNOWN_NAME:";
   public static final int UNKNOWN = 0xFFFF;
   public static final int SSL_V2 = 0x0200;
   public static final int SSL_V3 = 0x0300;
@@ -19,32 +19,37 @@ public class TlsVersion {
   public static final int TLS_V1_2 = 0x0303;
   public static final int TLS_V1_3 = 0x0304;
 
-  private static final Pattern TLS_REGEX = Pattern.compile("^TLSv1.([0-9])$",
-      Pattern.CASE_INSENSITIVE);
+  private static final int MAX_UNKNOWN_NAMES = 1024;
 
-  private static final Map<Integer, TlsVersion> VERSIONS = new HashMap<>();
+  // interned instances over the whole 16-bit wire space, populated on first use
+  private static final AtomicReferenceArray<TlsVersion> VERSIONS = new AtomicReferenceArray<>(
+      0x10000);
+
+  private static final ConcurrentMap<String, TlsVersion> UNKNOWN_NAMES = new ConcurrentHashMap<>();
 
   static {
-    VERSIONS.put(UNKNOWN, of(UNKNOWN));
-    VERSIONS.put(SSL_V2, of(SSL_V2));
-    VERSIONS.put(SSL_V3, of(SSL_V3));
-    VERSIONS.put(TLS_V1, of(TLS_V1));
-    VERSIONS.put(TLS_V1_1, of(TLS_V1_1));
-    VERSIONS.put(TLS_V1_2, of(TLS_V1_2));
-    VERSIONS.put(TLS_V1_3, of(TLS_V1_3));
+    of(UNKNOWN);
+    of(SSL_V2);
+    of(SSL_V3);
+    of(TLS_V1);
+    of(TLS_V1_1);
+    of(TLS_V1_2);
+    of(TLS_V1_3);
   }
 
-  private Integer version;
-  private String name;
+  private final int code;
+  private final Integer version;
+  private final String name;
 
   private TlsVersion(int version, String name) {
+    this.code = version;
     this.version = version;
     this.name = name;
   }
 
   /**
    * Get TlsVersion enum by it's string representation eg. TLSv1
-   * 
+   *
    * @param name String representation of version
    * @return
    */
@@ -58,49 +63,105 @@ public class TlsVersion {
       } else if (name.equalsIgnoreCase(TL_SV1)) {
         return of(TLS_V1);
       }
-      Matcher tlsm = TLS_REGEX.matcher(name);
-      if (tlsm.matches()) {
-        return of(0x0301 + Integer.parseInt(tlsm.group(1), 10));
+      // TLSv1.[0-9]
+      if (name.length() == 7 && name.regionMatches(true, 0, TL_SV1, 0, TL_SV1.length())
+          && name.charAt(5) == '.' && name.charAt(6) >= '0' && name.charAt(6) <= '9') {
+        return of(TLS_V1 + name.charAt(6) - '0');
       }
     }
-    return new TlsVersion(UNKNOWN, "UNKNOWN_NAME:" + name);
+    return unknown(name);
+  }
+
+  private static TlsVersion unknown(String name) {
+    String key = String.valueOf(name);
+    TlsVersion tv = UNKNOWN_NAMES.get(key);
+    if (tv == null) {
+      tv = new TlsVersion(UNKNOWN, UNKNOWN_NAME + key);
+      // bounded, names come from untrusted input
+      if (UNKNOWN_NAMES.size() < MAX_UNKNOWN_NAMES) {
+        TlsVersion existing = UNKNOWN_NAMES.putIfAbsent(key, tv);
+        if (existing != null) {
+          tv = existing;
+        }
+      }
+    }
+    return tv;
   }
 
   /**
    * Get TlsVersion enum by it's string representation eg. TLSv1
-   * 
+   *
    * @param version Integer representation of version
    * @return
    */
   public static TlsVersion of(int version) {
-    TlsVersion tv;
-    if (VERSIONS.containsKey(version)) {
-      return VERSIONS.get(version);
+    if ((version & ~0xFFFF) != 0) {
+      return create(version);
     }
+    TlsVersion tv = VERSIONS.get(version);
+    if (tv == null) {
+      tv = create(version);
+      if (!VERSIONS.compareAndSet(version, null, tv)) {
+        tv = VERSIONS.get(version);
+      }
+    }
+    return tv;
+  }
+
+  /**
+   * Get TlsVersion by the two version bytes of a record or handshake header.
+   *
+   * @param major first version byte eg. 0x03
+   * @param minor second version byte eg. 0x03
+   * @return interned version
+   */
+  public static TlsVersion of(byte major, byte minor) {
+    return of((major & 0xFF) << 8 | minor & 0xFF);
+  }
+
+  /**
+   * Get TlsVersion from two bytes at an absolute position, the buffer position is not changed.
+   *
+   * @param buffer buffer holding the version
+   * @param index  position of the first version byte
+   * @return interned version
+   */
+  public static TlsVersion of(ByteBuffer buffer, int index) {
+    return of(buffer.getShort(index) & 0xFFFF);
+  }
+
+  private static TlsVersion create(int version) {
     if (version == SSL_V2) {
-      tv = new TlsVersion(version, SS_LV2);
+      return new TlsVersion(version, SS_LV2);
     } else if (version == SSL_V3) {
-      tv = new TlsVersion(version, SS_LV3);
+      return new TlsVersion(version, SS_LV3);
     } else if (version >>> 8 == 0x03) {
-      tv = new TlsVersion(version, "TLSv1." + ((version & 0xFF) - 1));
-    } else {
-      tv = new TlsVersion(version, String.format("UNKNOWN_VERSION:0x%04X", version));
+      return new TlsVersion(version, "TLSv1." + ((version & 0xFF) - 1));
     }
-    VERSIONS.put(version, tv);
-    return tv;
+    return new TlsVersion(version, String.format("UNKNOWN_VERSION:0x%04X", version));
   }
 
   public Integer getVersion() {
     return version;
   }
 
+  public int getCode() {
+    return code;
+  }
+
   public String getName() {
     return name;
   }
 
+  @Override
+  public int compareTo(TlsVersion other) {
+    return Integer.compare(code, other.code);
+  }
+
   @Override
   public int hashCode() {
-    return Objects.hash(version);
+    // same value as Objects.hash(version) without the varargs array
+    return 31 + code;
   }
 
   @Override
@@ -112,7 +173,7 @@ public class TlsVersion {
       return false;
     }
     TlsVersion other = (TlsVersion) obj;
-    return Objects.equals(version, other.version);
+    return code == other.code;
   }
 
   @Override
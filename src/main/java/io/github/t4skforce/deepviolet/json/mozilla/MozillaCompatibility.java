@@ -1,5 +1,296 @@
 package io.github.t4skforce.deepviolet.json.mozilla;
 
+import io.github.t4skforce.deepviolet.json.CipherCatalog;
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.CipherNameIndex;
+import io.github.t4skforce.deepviolet.json.CipherNameIndex.Dialect;
+import io.github.t4skforce.deepviolet.json.CompatibilityEnum;
+import io.github.t4skforce.deepviolet.json.NamedGroup;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Mozilla guideline configurations compiled to bitsets over cipher suite codes, protocol versions
+ * and named groups. Checking a server is a few {@link BitSet#intersects(BitSet)} calls per level,
+ * details are only computed for levels that are violated.
+ *
+ * <p>An empty or missing list in the guideline places no restriction on that dimension.
+ */
 public class MozillaCompatibility {
 
+  private static final int CODE_SPACE = 0x10000;
+
+  // strictest first
+  private static final CompatibilityEnum[] LEVELS = { CompatibilityEnum.MORDERN,
+      CompatibilityEnum.INTERMEDIATE, CompatibilityEnum.OLD };
+
+  private final Map<CompatibilityEnum, Level> levels;
+
+  private MozillaCompatibility(Map<CompatibilityEnum, Level> levels) {
+    this.levels = levels;
+  }
+
+  public static MozillaCompatibility compile(MozillaCerts certs, CipherMap cipherMap) {
+    return compile(certs.getConfigurations(), cipherMap);
+  }
+
+  public static MozillaCompatibility compile(Map<CompatibilityEnum, MozillaConfig> configurations,
+      CipherMap cipherMap) {
+    return compile(configurations, cipherMap.snapshot());
+  }
+
+  public static MozillaCompatibility compile(Map<CompatibilityEnum, MozillaConfig> configurations,
+      CipherCatalog catalog) {
+    CipherNameIndex names = catalog.names();
+    Map<CompatibilityEnum, Level> levels = new EnumMap<>(CompatibilityEnum.class);
+    for (Entry<CompatibilityEnum, MozillaConfig> entry : configurations.entrySet()) {
+      levels.put(entry.getKey(), Level.compile(entry.getValue(), names));
+    }
+    return new MozillaCompatibility(levels);
+  }
+
+  public Set<CompatibilityEnum> getLevels() {
+    return Collections.unmodifiableSet(levels.keySet());
+  }
+
+  /**
+   * Check a server against a single level without allocating.
+   *
+   * @param level    guideline level
+   * @param suites   accepted cipher suite codes
+   * @param versions accepted protocol version codes
+   * @param groups   accepted named group codes
+   * @return true if nothing outside the level is accepted
+   */
+  public boolean isCompliant(CompatibilityEnum level, BitSet suites, BitSet versions,
+      BitSet groups) {
+    Level compiled = levels.get(level);
+    if (compiled == null) {
+      throw new IllegalArgumentException("Level not configured: " + level);
+    }
+    return compiled.isCompliant(suites, versions, groups);
+  }
+
+  public Report evaluate(BitSet suites, BitSet versions, BitSet groups) {
+    Map<CompatibilityEnum, Violations> violations = new EnumMap<>(CompatibilityEnum.class);
+    for (CompatibilityEnum level : LEVELS) {
+      Level compiled = levels.get(level);
+      if (compiled != null) {
+        violations.put(level, compiled.isCompliant(suites, versions, groups) ? Violations.NONE
+            : compiled.violations(suites, versions, groups));
+      }
+    }
+    return new Report(violations);
+  }
+
+  public BitSet getSuites(CompatibilityEnum level) {
+    return (BitSet) levels.get(level).suites.clone();
+  }
+
+  public BitSet getVersions(CompatibilityEnum level) {
+    return (BitSet) levels.get(level).versions.clone();
+  }
+
+  public BitSet getGroups(CompatibilityEnum level) {
+    return (BitSet) levels.get(level).groups.clone();
+  }
+
+  /**
+   * Names from the guideline that could not be resolved to a code point.
+   *
+   * @param level guideline level
+   * @return unresolved suite, version and group names
+   */
+  public Set<String> getUnresolved(CompatibilityEnum level) {
+    return levels.get(level).unresolved;
+  }
+
+  private static final class Level {
+    private final BitSet suites = new BitSet();
+    private final BitSet versions = new BitSet();
+    private final BitSet groups = new BitSet();
+    private BitSet forbiddenSuites = new BitSet();
+    private BitSet forbiddenVersions = new BitSet();
+    private BitSet forbiddenGroups = new BitSet();
+    private Set<String> unresolved = new TreeSet<>();
+    // configured suite names, resolved or not
+    private int suiteNames;
+
+    private static Level compile(MozillaConfig config, CipherNameIndex names) {
+      Level level = new Level();
+      level.addSuites(config.getCiphersuites(), names);
+      if (config.getCiphers() != null) {
+        for (Entry<String, Set<String>> ciphers : config.getCiphers().entrySet()) {
+          if ("iana".equals(ciphers.getKey()) || "openssl".equals(ciphers.getKey())) {
+            level.addSuites(ciphers.getValue(), names);
+          }
+        }
+      }
+      if (config.getTlsVersions() != null) {
+        for (TlsVersion version : config.getTlsVersions()) {
+          if (version.getCode() == TlsVersion.UNKNOWN) {
+            level.unresolved.add(version.getName());
+          } else {
+            level.versions.set(version.getCode());
+          }
+        }
+      }
+      if (config.getTlsCurves() != null) {
+        for (String curve : config.getTlsCurves()) {
+          int code = NamedGroup.code(curve);
+          if (code == NamedGroup.UNKNOWN) {
+            level.unresolved.add(curve);
+          } else {
+            level.groups.set(code);
+          }
+        }
+      }
+      // only a missing or empty list leaves a dimension unrestricted, names that all fail to
+      // resolve still restrict it and forbid everything
+      level.forbiddenSuites = complement(level.suites, level.suiteNames > 0);
+      level.forbiddenVersions = complement(level.versions, !isEmpty(config.getTlsVersions()));
+      level.forbiddenGroups = complement(level.groups, !isEmpty(config.getTlsCurves()));
+      level.unresolved = Collections.unmodifiableSet(level.unresolved);
+      return level;
+    }
+
+    private void addSuites(Collection<String> names, CipherNameIndex index) {
+      if (names == null) {
+        return;
+      }
+      for (String name : names) {
+        suiteNames++;
+        // IANA names win over OpenSSL names should they ever collide
+        int code = index.code(Dialect.IANA, name);
+        if (code == CipherNameIndex.UNKNOWN) {
+          code = index.code(Dialect.OPENSSL, name);
+        }
+        if (code == CipherNameIndex.UNKNOWN) {
+          unresolved.add(name);
+        } else {
+          suites.set(code);
+        }
+      }
+    }
+
+    private static boolean isEmpty(Collection<?> names) {
+      return names == null || names.isEmpty();
+    }
+
+    private static BitSet complement(BitSet allowed, boolean restricted) {
+      BitSet forbidden = new BitSet(CODE_SPACE);
+      if (restricted) {
+        forbidden.set(0, CODE_SPACE);
+        forbidden.andNot(allowed);
+      }
+      return forbidden;
+    }
+
+    private boolean isCompliant(BitSet suites, BitSet versions, BitSet groups) {
+      return !suites.intersects(forbiddenSuites) && !versions.intersects(forbiddenVersions)
+          && !groups.intersects(forbiddenGroups);
+    }
+
+    private Violations violations(BitSet suites, BitSet versions, BitSet groups) {
+      return new Violations(intersection(suites, forbiddenSuites),
+          intersection(versions, forbiddenVersions), intersection(groups, forbiddenGroups));
+    }
+
+    private static BitSet intersection(BitSet offered, BitSet forbidden) {
+      BitSet result = (BitSet) offered.clone();
+      result.and(forbidden);
+      return result;
+    }
+  }
+
+  /**
+   * Accepted suites, versions and groups that are not permitted by a level.
+   */
+  public static final class Violations {
+
+    static final Violations NONE = new Violations(new BitSet(), new BitSet(), new BitSet());
+
+    private final BitSet suites;
+    private final BitSet versions;
+    private final BitSet groups;
+
+    private Violations(BitSet suites, BitSet versions, BitSet groups) {
+      this.suites = suites;
+      this.versions = versions;
+      this.groups = groups;
+    }
+
+    public boolean isEmpty() {
+      return suites.isEmpty() && versions.isEmpty() && groups.isEmpty();
+    }
+
+    public BitSet getSuites() {
+      return (BitSet) suites.clone();
+    }
+
+    public BitSet getVersions() {
+      return (BitSet) versions.clone();
+    }
+
+    public BitSet getGroups() {
+      return (BitSet) groups.clone();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("Violations [suites=[");
+      suites.stream().forEach(code -> sb.append(CipherMap.toHex(code)).append(' '));
+      sb.append("], versions=[");
+      versions.stream().forEach(code -> sb.append(TlsVersion.of(code).getName()).append(' '));
+      sb.append("], groups=[");
+      groups.stream().forEach(code -> sb.append(NamedGroup.name(code)).append(' '));
+      return sb.append("]]").toString();
+    }
+  }
+
+  public static final class Report {
+
+    private final Map<CompatibilityEnum, Violations> violations;
+
+    private Report(Map<CompatibilityEnum, Violations> violations) {
+      this.violations = violations;
+    }
+
+    public boolean isCompliant(CompatibilityEnum level) {
+      Violations levelViolations = violations.get(level);
+      return levelViolations != null && levelViolations.isEmpty();
+    }
+
+    public Violations getViolations(CompatibilityEnum level) {
+      return violations.get(level);
+    }
+
+    /**
+     * Strictest level the server complies with.
+     *
+     * @return level or null if no level is satisfied
+     */
+    public CompatibilityEnum getBestLevel() {
+      for (CompatibilityEnum level : LEVELS) {
+        if (isCompliant(level)) {
+          return level;
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public String toString() {
+      return "Report [best=" + getBestLevel() + ", violations=" + violations + "]";
+    }
+  }
+
 }
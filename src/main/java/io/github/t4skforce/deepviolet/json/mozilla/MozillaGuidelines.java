@@ -0,0 +1,436 @@
+package io.github.t4skforce.deepviolet.json.mozilla;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.MapDifference.ValueDifference;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Resources;
+import io.github.t4skforce.deepviolet.json.CipherCatalog;
+import io.github.t4skforce.deepviolet.json.CompatibilityEnum;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+import io.github.t4skforce.deepviolet.util.Downloader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Every loaded Mozilla guideline version held at once. Names and sets are interned while loading,
+ * a suite list that did not change between two versions is a single shared immutable set, so
+ * keeping the full history resident costs little more than the latest version.
+ *
+ * <p>Configurations returned by this class share their sets with other versions and must be
+ * treated as read-only.
+ */
+public final class MozillaGuidelines {
+
+  private static final String GUIDELINE_URL = "https://ssl-config.mozilla.org/guidelines/%s.json";
+
+  private final ImmutableSortedMap<Double, MozillaCerts> guidelines;
+  private final Double[] versions;
+  // level -> suite name -> indexes into versions
+  private final Map<CompatibilityEnum, Map<String, BitSet>> permitted;
+  private final Map<Double, MozillaCompatibility> compatibility;
+
+  private MozillaGuidelines(ImmutableSortedMap<Double, MozillaCerts> guidelines,
+      Map<Double, MozillaCompatibility> compatibility) {
+    this.guidelines = guidelines;
+    this.versions = guidelines.keySet().toArray(new Double[0]);
+    this.compatibility = compatibility;
+    this.permitted = new EnumMap<>(CompatibilityEnum.class);
+    for (int i = 0; i < versions.length; i++) {
+      for (Entry<CompatibilityEnum, MozillaConfig> entry : guidelines.get(versions[i])
+          .getConfigurations().entrySet()) {
+        Map<String, BitSet> names = permitted.computeIfAbsent(entry.getKey(),
+            k -> new HashMap<>());
+        for (String suite : suites(entry.getValue())) {
+          names.computeIfAbsent(suite, k -> new BitSet()).set(i);
+        }
+      }
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return loaded guideline versions in ascending order
+   */
+  public NavigableSet<Double> getVersions() {
+    return guidelines.navigableKeySet();
+  }
+
+  /**
+   * @param version guideline version eg. 5.6
+   * @return guideline or null if the version was not loaded
+   */
+  public MozillaCerts get(double version) {
+    return guidelines.get(version);
+  }
+
+  public MozillaCerts latest() {
+    return guidelines.isEmpty() ? null : guidelines.lastEntry().getValue();
+  }
+
+  public MozillaConfig get(double version, CompatibilityEnum level) {
+    return guideline(version).getConfigurations().get(level);
+  }
+
+  /**
+   * Compiled guideline, only available if the repository was built with a catalog.
+   *
+   * @param version guideline version
+   * @return compiled guideline
+   */
+  public MozillaCompatibility getCompatibility(double version) {
+    guideline(version);
+    if (compatibility.isEmpty()) {
+      throw new IllegalStateException("Guidelines were built without a cipher catalog");
+    }
+    return compatibility.get(version);
+  }
+
+  /**
+   * Guideline versions whose level lists the suite by its IANA or OpenSSL name.
+   *
+   * @param level guideline level
+   * @param suite suite name as written in the guideline
+   * @return matching versions in ascending order
+   */
+  public NavigableSet<Double> versionsPermitting(CompatibilityEnum level, String suite) {
+    Map<String, BitSet> names = permitted.get(level);
+    BitSet bits = names == null ? null : names.get(suite);
+    NavigableSet<Double> result = new TreeSet<>();
+    if (bits != null) {
+      for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+        result.add(versions[i]);
+      }
+    }
+    return Collections.unmodifiableNavigableSet(result);
+  }
+
+  /**
+   * Guideline versions whose level permits the suite code, whatever name the guideline used.
+   *
+   * @param level guideline level
+   * @param code  cipher suite code
+   * @return matching versions in ascending order
+   */
+  public NavigableSet<Double> versionsPermitting(CompatibilityEnum level, int code) {
+    NavigableSet<Double> result = new TreeSet<>();
+    for (Double version : versions) {
+      MozillaCompatibility compiled = getCompatibility(version);
+      if (compiled.getLevels().contains(level) && compiled.getSuites(level).get(code)) {
+        result.add(version);
+      }
+    }
+    return Collections.unmodifiableNavigableSet(result);
+  }
+
+  /**
+   * Compare one level between two guideline versions.
+   *
+   * @param from  older version
+   * @param to    newer version
+   * @param level guideline level
+   * @return differences keyed by guideline property
+   */
+  public Diff diff(double from, double to, CompatibilityEnum level) {
+    // a level missing from one version diffs as an empty configuration
+    MozillaConfig before = MoreObjects.firstNonNull(get(from, level), new MozillaConfig());
+    MozillaConfig after = MoreObjects.firstNonNull(get(to, level), new MozillaConfig());
+    Map<String, Set<Object>> setsBefore = sets(before);
+    Map<String, Set<Object>> setsAfter = sets(after);
+    Map<String, Set<Object>> added = new TreeMap<>();
+    Map<String, Set<Object>> removed = new TreeMap<>();
+    for (String property : Sets.union(setsBefore.keySet(), setsAfter.keySet())) {
+      Set<Object> a = setsBefore.getOrDefault(property, Collections.emptySet());
+      Set<Object> b = setsAfter.getOrDefault(property, Collections.emptySet());
+      if (!a.equals(b)) {
+        putIfNotEmpty(added, property, Sets.difference(b, a));
+        putIfNotEmpty(removed, property, Sets.difference(a, b));
+      }
+    }
+    Map<String, ValueDifference<Object>> changed = new TreeMap<>(
+        Maps.difference(scalars(before), scalars(after)).entriesDiffering());
+    return new Diff(from, to, level, added, removed, changed);
+  }
+
+  private MozillaCerts guideline(double version) {
+    MozillaCerts certs = guidelines.get(version);
+    if (certs == null) {
+      throw new IllegalArgumentException("Guideline version not loaded: " + version);
+    }
+    return certs;
+  }
+
+  private static Set<String> suites(MozillaConfig config) {
+    Set<String> suites = new HashSet<>(config.getCiphersuites());
+    for (Entry<String, Set<String>> ciphers : config.getCiphers().entrySet()) {
+      if ("iana".equals(ciphers.getKey()) || "openssl".equals(ciphers.getKey())) {
+        suites.addAll(ciphers.getValue());
+      }
+    }
+    return suites;
+  }
+
+  private static void putIfNotEmpty(Map<String, Set<Object>> map, String property,
+      Set<Object> values) {
+    if (!values.isEmpty()) {
+      map.put(property, Collections.unmodifiableSet(new TreeSet<>(values)));
+    }
+  }
+
+  private static Map<String, Set<Object>> sets(MozillaConfig config) {
+    Map<String, Set<Object>> sets = new LinkedHashMap<>();
+    sets.put("certificate_curves", names(config.getCertificateCurves()));
+    sets.put("certificate_signatures", names(config.getCertificateSignatures()));
+    sets.put("certificate_types", names(config.getCertificateTypes()));
+    sets.put("ciphersuites", names(config.getCiphersuites()));
+    sets.put("oldest_clients", names(config.getOldestClients()));
+    sets.put("tls_curves", names(config.getTlsCurves()));
+    sets.put("tls_versions", names(config.getTlsVersions()));
+    for (Entry<String, Set<String>> ciphers : config.getCiphers().entrySet()) {
+      sets.put("ciphers." + ciphers.getKey(), names(ciphers.getValue()));
+    }
+    return sets;
+  }
+
+  private static Set<Object> names(Set<?> values) {
+    Set<Object> names = new TreeSet<>();
+    for (Object value : values) {
+      names.add(value instanceof TlsVersion ? ((TlsVersion) value).getName() : value);
+    }
+    return names;
+  }
+
+  private static Map<String, Object> scalars(MozillaConfig config) {
+    Map<String, Object> scalars = new HashMap<>();
+    scalars.put("dh_param_size", config.getDhParamSize());
+    scalars.put("ecdh_param_size", config.getEcdhParamSize());
+    scalars.put("hsts_min_age", config.getHstsMinAge());
+    scalars.put("maximum_certificate_lifespan", config.getMaximumCertificateLifespan());
+    scalars.put("ocsp_staple", config.getOcspStaple());
+    scalars.put("recommended_certificate_lifespan", config.getRecommendedCertificateLifespan());
+    scalars.put("rsa_key_size", config.getRsaKeySize());
+    scalars.put("server_preferred_order", config.getServerPeferredOrder());
+    scalars.values().removeIf(value -> value == null);
+    return scalars;
+  }
+
+  /**
+   * Difference of one level between two guideline versions. Set valued properties are reported
+   * as added and removed values, the cipher lists as {@code ciphers.openssl} and
+   * {@code ciphers.iana}.
+   */
+  public static final class Diff {
+    private final double from;
+    private final double to;
+    private final CompatibilityEnum level;
+    private final Map<String, Set<Object>> added;
+    private final Map<String, Set<Object>> removed;
+    private final Map<String, ValueDifference<Object>> changed;
+
+    private Diff(double from, double to, CompatibilityEnum level, Map<String, Set<Object>> added,
+        Map<String, Set<Object>> removed, Map<String, ValueDifference<Object>> changed) {
+      this.from = from;
+      this.to = to;
+      this.level = level;
+      this.added = Collections.unmodifiableMap(added);
+      this.removed = Collections.unmodifiableMap(removed);
+      this.changed = Collections.unmodifiableMap(changed);
+    }
+
+    public double getFrom() {
+      return from;
+    }
+
+    public double getTo() {
+      return to;
+    }
+
+    public CompatibilityEnum getLevel() {
+      return level;
+    }
+
+    public Map<String, Set<Object>> getAdded() {
+      return added;
+    }
+
+    public Map<String, Set<Object>> getRemoved() {
+      return removed;
+    }
+
+    /**
+     * Scalar properties like {@code rsa_key_size} that differ, a property missing on one side is
+     * not reported.
+     *
+     * @return old and new value by property
+     */
+    public Map<String, ValueDifference<Object>> getChanged() {
+      return changed;
+    }
+
+    public boolean isEmpty() {
+      return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+      return from + " -> " + to + " " + level + " +" + added + " -" + removed + " ~" + changed;
+    }
+  }
+
+  public static class Builder {
+
+    private final Map<Double, MozillaCerts> guidelines = new TreeMap<>();
+    private final Interner<Object> interner = Interners.newStrongInterner();
+    private CipherCatalog catalog;
+    private ObjectMapper mapper;
+
+    private Builder() {
+    }
+
+    private ObjectMapper mapper() {
+      if (mapper == null) {
+        mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+      }
+      return mapper;
+    }
+
+    /**
+     * Compile every version against the catalog so suites can be queried by code.
+     *
+     * @param catalog cipher catalog
+     * @return this builder
+     */
+    public Builder catalog(CipherCatalog catalog) {
+      this.catalog = catalog;
+      return this;
+    }
+
+    /**
+     * Add a guideline, a later guideline with the same version replaces the earlier one.
+     *
+     * @param certs parsed guideline
+     * @return this builder
+     */
+    public Builder add(MozillaCerts certs) {
+      if (certs.getVersion() == null) {
+        throw new IllegalArgumentException("Guideline without version");
+      }
+      Map<CompatibilityEnum, MozillaConfig> configurations = new EnumMap<>(
+          CompatibilityEnum.class);
+      if (certs.getConfigurations() != null) {
+        for (Entry<CompatibilityEnum, MozillaConfig> entry : certs.getConfigurations()
+            .entrySet()) {
+          configurations.put(entry.getKey(), intern(entry.getValue()));
+        }
+      }
+      guidelines.put(certs.getVersion(), new MozillaCerts(certs.getVersion(), certs.getHref(),
+          Maps.immutableEnumMap(configurations)));
+      return this;
+    }
+
+    public Builder load(InputStream in) throws IOException {
+      return add(mapper().readValue(in, MozillaCerts.class));
+    }
+
+    public Builder load(String resourceName) throws IOException {
+      try (InputStream in = Resources.getResource(resourceName).openStream()) {
+        return load(in);
+      }
+    }
+
+    /**
+     * Download guideline versions from ssl-config.mozilla.org.
+     *
+     * @param versions versions eg. "5.6" or "latest"
+     * @return this builder
+     * @throws IOException if a version can not be downloaded or parsed
+     */
+    public Builder fetch(String... versions) throws IOException {
+      for (String version : versions) {
+        try (InputStream in = Downloader.open(String.format(GUIDELINE_URL, version))) {
+          load(in);
+        }
+      }
+      return this;
+    }
+
+    public MozillaGuidelines build() {
+      Map<Double, MozillaCompatibility> compatibility = new HashMap<>();
+      if (catalog != null) {
+        for (MozillaCerts certs : guidelines.values()) {
+          compatibility.put(certs.getVersion(),
+              MozillaCompatibility.compile(certs.getConfigurations(), catalog));
+        }
+      }
+      return new MozillaGuidelines(ImmutableSortedMap.copyOf(guidelines),
+          ImmutableMap.copyOf(compatibility));
+    }
+
+    private MozillaConfig intern(MozillaConfig config) {
+      MozillaConfig copy = new MozillaConfig();
+      copy.setCertificateCurves(internSet(config.getCertificateCurves()));
+      copy.setCertificateSignatures(internSet(config.getCertificateSignatures()));
+      copy.setCertificateTypes(internSet(config.getCertificateTypes()));
+      copy.setCiphersuites(internSet(config.getCiphersuites()));
+      copy.setOldestClients(internSet(config.getOldestClients()));
+      copy.setTlsCurves(internSet(config.getTlsCurves()));
+      // versions are interned by TlsVersion itself
+      copy.setTlsVersions(internSet(config.getTlsVersions()));
+      ImmutableSortedMap.Builder<String, Set<String>> ciphers = ImmutableSortedMap.naturalOrder();
+      if (config.getCiphers() != null) {
+        for (Entry<String, Set<String>> entry : config.getCiphers().entrySet()) {
+          ciphers.put(internValue(entry.getKey()), internSet(entry.getValue()));
+        }
+      }
+      copy.setCiphers(internValue(ciphers.build()));
+      copy.setDhParamSize(config.getDhParamSize());
+      copy.setEcdhParamSize(config.getEcdhParamSize());
+      copy.setHstsMinAge(config.getHstsMinAge());
+      copy.setMaximumCertificateLifespan(config.getMaximumCertificateLifespan());
+      copy.setOcspStaple(config.getOcspStaple());
+      copy.setRecommendedCertificateLifespan(config.getRecommendedCertificateLifespan());
+      copy.setRsaKeySize(config.getRsaKeySize());
+      copy.setServerPeferredOrder(config.getServerPeferredOrder());
+      return copy;
+    }
+
+    private <T extends Comparable<? super T>> Set<T> internSet(Set<T> values) {
+      ImmutableSortedSet.Builder<T> set = ImmutableSortedSet.naturalOrder();
+      if (values != null) {
+        for (T value : values) {
+          set.add(internValue(value));
+        }
+      }
+      return internValue(set.build());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T internValue(T value) {
+      return (T) interner.intern(value);
+    }
+  }
+
+}
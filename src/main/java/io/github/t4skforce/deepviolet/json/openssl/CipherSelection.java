@@ -0,0 +1,74 @@
+package io.github.t4skforce.deepviolet.json.openssl;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a compiled OpenSSL cipher string: the selected suite codes in preference order.
+ */
+public final class CipherSelection {
+
+  private final String expression;
+  private final int[] codes;
+  private final BitSet set;
+  private final List<String> unknown;
+
+  CipherSelection(String expression, int[] codes, List<String> unknown) {
+    this.expression = expression;
+    this.codes = codes;
+    this.set = new BitSet();
+    for (int code : codes) {
+      set.set(code);
+    }
+    this.unknown = Collections.unmodifiableList(unknown);
+  }
+
+  public String getExpression() {
+    return expression;
+  }
+
+  /**
+   * Selected suites, most preferred first.
+   *
+   * @return copy of the suite codes
+   */
+  public int[] getCodes() {
+    return codes.clone();
+  }
+
+  /**
+   * @return copy of the selected suites as a bitset over the code space
+   */
+  public BitSet getSet() {
+    return (BitSet) set.clone();
+  }
+
+  public boolean contains(int code) {
+    return code >= 0 && set.get(code);
+  }
+
+  public int size() {
+    return codes.length;
+  }
+
+  public boolean isEmpty() {
+    return codes.length == 0;
+  }
+
+  /**
+   * Keywords and cipher names that matched nothing, OpenSSL skips them the same way.
+   *
+   * @return unknown words
+   */
+  public List<String> getUnknown() {
+    return unknown;
+  }
+
+  @Override
+  public String toString() {
+    return expression + " " + Arrays.toString(codes);
+  }
+
+}
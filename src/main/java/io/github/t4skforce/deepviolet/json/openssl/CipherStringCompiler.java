@@ -0,0 +1,510 @@
+package io.github.t4skforce.deepviolet.json.openssl;
+
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.A_DH;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.A_DSS;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.A_ECDH;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.A_ECDSA;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.A_GOST;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.A_KRB5;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.A_NULL;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.A_PSK;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.A_RSA;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.A_SRP;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.E_3DES;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.E_AES;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.E_ARIA;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.E_CAMELLIA;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.E_CHACHA20;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.E_DES;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.E_GOST89;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.E_IDEA;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.E_NULL;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.E_RC2;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.E_RC4;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.E_SEED;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.K_DH;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.K_DHE;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.K_DHEPSK;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.K_ECDH;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.K_ECDHE;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.K_ECDHEPSK;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.K_GOST;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.K_KRB5;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.K_PSK;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.K_RSA;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.K_RSAPSK;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.K_SRP;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.MODE_CCM;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.MODE_CCM8;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.MODE_GCM;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.M_MD5;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.M_SHA1;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.M_SHA256;
+import static io.github.t4skforce.deepviolet.json.openssl.CipherTraits.M_SHA384;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import io.github.t4skforce.deepviolet.json.CipherCatalog;
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.CipherSuite;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+
+/**
+ * Compiles OpenSSL cipher strings such as {@code ECDHE+AESGCM:!aNULL:@STRENGTH} against a
+ * {@link CipherCatalog} without running {@code openssl ciphers}.
+ *
+ * <p>Evaluation follows OpenSSL: all suites start disabled in OpenSSL's default preference order,
+ * plain words enable matching suites at the end of the list, {@code +} moves them to the end,
+ * {@code -} disables them, {@code !} removes them for good and {@code @STRENGTH} sorts by key
+ * length. Words joined by {@code +} match the intersection. Algorithms are derived from the IANA
+ * names, TLS 1.3 suites are not part of cipher strings just like in OpenSSL.
+ *
+ * <p>Compiled expressions are cached, the compiler is thread safe.
+ */
+public final class CipherStringCompiler {
+
+  private static final String DEFAULT = "DEFAULT";
+  private static final String DEFAULT_EXPANSION = "ALL:!COMPLEMENTOFDEFAULT:!eNULL";
+
+  private static final Map<String, Predicate<CipherTraits>> KEYWORDS = new HashMap<>();
+
+  static {
+    keyword(t -> !E_NULL.equals(t.enc), "ALL");
+    keyword(t -> E_NULL.equals(t.enc), "COMPLEMENTOFALL", "eNULL", "NULL");
+    keyword(t -> !E_NULL.equals(t.enc) && !t.isDefault(), "COMPLEMENTOFDEFAULT");
+    keyword(CipherTraits::isDefault, DEFAULT);
+    keyword(CipherTraits::isHigh, "HIGH");
+    keyword(CipherTraits::isMedium, "MEDIUM");
+    keyword(CipherTraits::isLow, "LOW");
+    keyword(t -> t.export, "EXPORT", "EXP");
+    keyword(t -> t.export && t.bits == 40, "EXPORT40");
+    keyword(t -> t.export && t.bits == 56, "EXPORT56");
+
+    keyword(t -> A_NULL.equals(t.au), "aNULL");
+    keyword(t -> K_RSA.equals(t.kx), "kRSA", "RSA");
+    keyword(t -> A_RSA.equals(t.au), "aRSA");
+    keyword(t -> A_DSS.equals(t.au), "aDSS", "DSS");
+    keyword(t -> A_ECDSA.equals(t.au), "aECDSA", "ECDSA");
+    keyword(t -> K_DHE.equals(t.kx), "kDHE", "kEDH");
+    keyword(t -> K_DHE.equals(t.kx) || K_DHEPSK.equals(t.kx), "DH");
+    keyword(t -> K_DHE.equals(t.kx) && !A_NULL.equals(t.au), "DHE", "EDH");
+    keyword(t -> K_DHE.equals(t.kx) && A_NULL.equals(t.au), "ADH");
+    keyword(t -> K_ECDHE.equals(t.kx), "kECDHE", "kEECDH");
+    keyword(t -> K_ECDHE.equals(t.kx) || K_ECDHEPSK.equals(t.kx), "ECDH");
+    keyword(t -> K_ECDHE.equals(t.kx) && !A_NULL.equals(t.au), "ECDHE", "EECDH");
+    keyword(t -> K_ECDHE.equals(t.kx) && A_NULL.equals(t.au), "AECDH");
+    keyword(t -> K_DH.equals(t.kx), "kDH", "kDHr", "kDHd");
+    keyword(t -> A_DH.equals(t.au), "aDH");
+    keyword(t -> K_ECDH.equals(t.kx), "kECDH", "kECDHr", "kECDHe");
+    keyword(t -> A_ECDH.equals(t.au), "aECDH");
+    keyword(CipherTraits::isPsk, "PSK");
+    keyword(t -> K_PSK.equals(t.kx), "kPSK");
+    keyword(t -> K_RSAPSK.equals(t.kx), "kRSAPSK");
+    keyword(t -> K_DHEPSK.equals(t.kx), "kDHEPSK");
+    keyword(t -> K_ECDHEPSK.equals(t.kx), "kECDHEPSK");
+    keyword(t -> A_PSK.equals(t.au), "aPSK");
+    keyword(t -> K_SRP.equals(t.kx), "SRP", "kSRP");
+    keyword(t -> A_SRP.equals(t.au), "aSRP");
+    keyword(t -> K_KRB5.equals(t.kx), "KRB5", "kKRB5");
+    keyword(t -> A_KRB5.equals(t.au), "aKRB5");
+    keyword(t -> K_GOST.equals(t.kx), "kGOST");
+    keyword(t -> A_GOST.equals(t.au), "aGOST", "GOST");
+
+    keyword(t -> E_AES.equals(t.enc), "AES");
+    keyword(t -> E_AES.equals(t.enc) && t.bits == 128, "AES128");
+    keyword(t -> E_AES.equals(t.enc) && t.bits == 256, "AES256");
+    keyword(t -> E_AES.equals(t.enc) && MODE_GCM.equals(t.mode), "AESGCM");
+    keyword(t -> E_AES.equals(t.enc) && (MODE_CCM.equals(t.mode) || MODE_CCM8.equals(t.mode)),
+        "AESCCM");
+    keyword(t -> E_AES.equals(t.enc) && MODE_CCM8.equals(t.mode), "AESCCM8");
+    keyword(t -> E_CAMELLIA.equals(t.enc), "CAMELLIA");
+    keyword(t -> E_CAMELLIA.equals(t.enc) && t.bits == 128, "CAMELLIA128");
+    keyword(t -> E_CAMELLIA.equals(t.enc) && t.bits == 256, "CAMELLIA256");
+    keyword(t -> E_ARIA.equals(t.enc), "ARIA");
+    keyword(t -> E_ARIA.equals(t.enc) && t.bits == 128, "ARIA128");
+    keyword(t -> E_ARIA.equals(t.enc) && t.bits == 256, "ARIA256");
+    keyword(t -> E_ARIA.equals(t.enc) && MODE_GCM.equals(t.mode), "ARIAGCM");
+    keyword(t -> E_CHACHA20.equals(t.enc), "CHACHA20");
+    keyword(t -> E_3DES.equals(t.enc), "3DES");
+    keyword(t -> E_DES.equals(t.enc), "DES");
+    keyword(t -> E_RC4.equals(t.enc), "RC4");
+    keyword(t -> E_RC2.equals(t.enc), "RC2");
+    keyword(t -> E_IDEA.equals(t.enc), "IDEA");
+    keyword(t -> E_SEED.equals(t.enc), "SEED");
+    keyword(t -> E_GOST89.equals(t.enc), "GOST89");
+
+    keyword(t -> M_MD5.equals(t.mac), "MD5");
+    keyword(t -> M_SHA1.equals(t.mac), "SHA1", "SHA");
+    keyword(t -> M_SHA256.equals(t.mac), "SHA256");
+    keyword(t -> M_SHA384.equals(t.mac), "SHA384");
+
+    keyword(t -> t.getMinVersion() == TlsVersion.TLS_V1_2, "TLSv1.2");
+    keyword(t -> t.getMinVersion() == TlsVersion.TLS_V1, "TLSv1", "TLSv1.0");
+    keyword(t -> t.getMinVersion() == TlsVersion.SSL_V3, "SSLv3");
+  }
+
+  private static void keyword(Predicate<CipherTraits> predicate, String... names) {
+    for (String name : names) {
+      KEYWORDS.put(name, predicate);
+    }
+  }
+
+  private enum Rule {
+    ADD, ORD, DEL, KILL, BUMP
+  }
+
+  private final CipherTraits[] suites;
+  private final Map<String, BitSet> keywords = new HashMap<>();
+  private final Map<String, Integer> names = new HashMap<>();
+  // all suites in OpenSSL default preference order
+  private final int[] baseOrder;
+  private final Cache<String, CipherSelection> cache;
+
+  private CipherStringCompiler(Builder builder) {
+    List<CipherTraits> list = new ArrayList<>();
+    for (int code : builder.catalog.codes()) {
+      CipherSuite suite = builder.catalog.get(code);
+      if (!builder.unnamed && suite.getOpenssl() == null) {
+        continue;
+      }
+      CipherTraits traits = CipherTraits.parse(suite);
+      if (traits != null) {
+        list.add(traits);
+      }
+    }
+    this.suites = list.toArray(new CipherTraits[0]);
+    for (int i = 0; i < suites.length; i++) {
+      names.put(suites[i].name, i);
+    }
+    for (Map.Entry<String, Predicate<CipherTraits>> entry : KEYWORDS.entrySet()) {
+      keywords.put(entry.getKey(), select(entry.getValue()));
+    }
+    this.baseOrder = baseOrder();
+    this.cache = CacheBuilder.newBuilder().maximumSize(builder.cacheSize).build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private BitSet select(Predicate<CipherTraits> predicate) {
+    BitSet set = new BitSet(suites.length);
+    for (int i = 0; i < suites.length; i++) {
+      if (predicate.test(suites[i])) {
+        set.set(i);
+      }
+    }
+    return set;
+  }
+
+  private BitSet keyword(String name) {
+    return keywords.get(name);
+  }
+
+  /**
+   * Mirrors the rules OpenSSL applies before parsing the cipher string.
+   */
+  private int[] baseOrder() {
+    State state = new State(suites.length);
+    // OpenSSL collects its cipher table back to front, roughly descending codes
+    for (int i = 0; i < suites.length; i++) {
+      state.list[i] = suites.length - 1 - i;
+    }
+    BitSet ecdhe = keyword("kECDHE");
+    state.apply(Rule.ADD, and(ecdhe, keyword("aECDSA")));
+    state.apply(Rule.ADD, ecdhe);
+    state.apply(Rule.DEL, ecdhe);
+    state.apply(Rule.ADD, keyword("AESGCM"));
+    state.apply(Rule.ADD, keyword("CHACHA20"));
+    BitSet aes = (BitSet) keyword("AES").clone();
+    aes.andNot(keyword("AESGCM"));
+    state.apply(Rule.ADD, aes);
+    state.apply(Rule.ADD, all());
+    state.apply(Rule.ORD, keyword("MD5"));
+    state.apply(Rule.ORD, keyword("aNULL"));
+    state.apply(Rule.ORD, keyword("kRSA"));
+    state.apply(Rule.ORD, keyword("kPSK"));
+    state.apply(Rule.ORD, keyword("RC4"));
+    state.strengthSort(suites);
+    state.apply(Rule.BUMP, keyword("TLSv1.2"));
+    BitSet aead = select(CipherTraits::isAead);
+    state.apply(Rule.BUMP, aead);
+    BitSet ephemeral = or(keyword("kDHE"), ecdhe);
+    state.apply(Rule.BUMP, ephemeral);
+    state.apply(Rule.BUMP, and(ephemeral, aead));
+    state.apply(Rule.DEL, all());
+    return Arrays.copyOf(state.list, state.size);
+  }
+
+  private BitSet all() {
+    BitSet set = new BitSet(suites.length);
+    set.set(0, suites.length);
+    return set;
+  }
+
+  private static BitSet and(BitSet a, BitSet b) {
+    BitSet set = (BitSet) a.clone();
+    set.and(b);
+    return set;
+  }
+
+  private static BitSet or(BitSet a, BitSet b) {
+    BitSet set = (BitSet) a.clone();
+    set.or(b);
+    return set;
+  }
+
+  /**
+   * Compile a cipher string, repeated expressions come from the cache.
+   *
+   * @param expression OpenSSL cipher string
+   * @return selected suites in preference order
+   * @throws IllegalArgumentException on unknown {@code @} commands
+   */
+  public CipherSelection compile(String expression) {
+    try {
+      return cache.get(expression, () -> compileUncached(expression));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Compile the cipher strings of a guideline, eg. {@code MozillaConfig.ciphers.get("openssl")}
+   * which holds one cipher name per entry.
+   *
+   * @param items cipher string items
+   * @return selected suites in preference order
+   */
+  public CipherSelection compile(Iterable<String> items) {
+    return compile(String.join(":", items));
+  }
+
+  private CipherSelection compileUncached(String expression) {
+    State state = new State(suites.length);
+    System.arraycopy(baseOrder, 0, state.list, 0, baseOrder.length);
+    state.size = baseOrder.length;
+    List<String> unknown = new ArrayList<>();
+    String[] items = expression.trim().split("[:, ]+");
+    for (int i = 0; i < items.length; i++) {
+      String item = items[i];
+      if (item.isEmpty()) {
+        continue;
+      }
+      if (i == 0 && DEFAULT.equals(item)) {
+        for (String defaults : DEFAULT_EXPANSION.split(":")) {
+          apply(state, defaults, unknown);
+        }
+        continue;
+      }
+      apply(state, item, unknown);
+    }
+    int[] codes = new int[state.size];
+    int cnt = 0;
+    for (int i = 0; i < state.size; i++) {
+      if (state.active[state.list[i]]) {
+        codes[cnt++] = suites[state.list[i]].code;
+      }
+    }
+    return new CipherSelection(expression, Arrays.copyOf(codes, cnt), unknown);
+  }
+
+  private void apply(State state, String item, List<String> unknown) {
+    if (item.charAt(0) == '@') {
+      if ("@STRENGTH".equals(item)) {
+        state.strengthSort(suites);
+      } else if (!item.startsWith("@SECLEVEL=")) {
+        // security levels restrict keys and certificates, not the list itself
+        throw new IllegalArgumentException("Unknown cipher string command: " + item);
+      }
+      return;
+    }
+    Rule rule = Rule.ADD;
+    switch (item.charAt(0)) {
+      case '!':
+        rule = Rule.KILL;
+        break;
+      case '-':
+        rule = Rule.DEL;
+        break;
+      case '+':
+        rule = Rule.ORD;
+        break;
+      default:
+        break;
+    }
+    String words = rule == Rule.ADD ? item : item.substring(1);
+    BitSet matches = null;
+    for (String word : words.split("\\+")) {
+      BitSet set = match(word);
+      if (set == null) {
+        unknown.add(word);
+        set = new BitSet();
+      }
+      matches = matches == null ? (BitSet) set.clone() : and(matches, set);
+    }
+    state.apply(rule, matches);
+  }
+
+  private BitSet match(String word) {
+    BitSet set = keywords.get(word);
+    if (set != null) {
+      return set;
+    }
+    Integer index = names.get(word);
+    if (index == null) {
+      return null;
+    }
+    set = new BitSet();
+    set.set(index);
+    return set;
+  }
+
+  /**
+   * Cipher list being edited: the order of all suites not removed yet plus their enabled flag.
+   */
+  private static final class State {
+    private final int[] list;
+    private final boolean[] active;
+    private final int[] scratch;
+    private int size;
+
+    private State(int suites) {
+      this.list = new int[suites];
+      this.active = new boolean[suites];
+      this.scratch = new int[suites];
+      this.size = suites;
+    }
+
+    private void apply(Rule rule, BitSet matches) {
+      int head = 0;
+      int tail = 0;
+      // scratch holds moved suites, list keeps the others
+      for (int i = 0; i < size; i++) {
+        int suite = list[i];
+        boolean match = matches.get(suite);
+        switch (rule) {
+          case ADD:
+            match &= !active[suite];
+            if (match) {
+              active[suite] = true;
+            }
+            break;
+          case ORD:
+          case BUMP:
+            match &= active[suite];
+            break;
+          case DEL:
+            match &= active[suite];
+            if (match) {
+              active[suite] = false;
+            }
+            break;
+          case KILL:
+            if (match) {
+              active[suite] = false;
+              continue;
+            }
+            break;
+          default:
+            break;
+        }
+        if (match && rule != Rule.KILL) {
+          scratch[tail++] = suite;
+        } else {
+          list[head++] = suite;
+        }
+      }
+      if (rule == Rule.ADD || rule == Rule.ORD) {
+        // moved to the end
+        System.arraycopy(scratch, 0, list, head, tail);
+      } else if (rule == Rule.DEL || rule == Rule.BUMP) {
+        // moved to the front
+        System.arraycopy(list, 0, list, tail, head);
+        System.arraycopy(scratch, 0, list, 0, tail);
+      }
+      size = head + tail;
+    }
+
+    /**
+     * Stable sort of the enabled suites by key length, strongest first, behind the disabled ones.
+     */
+    private void strengthSort(CipherTraits[] suites) {
+      int head = 0;
+      int tail = 0;
+      for (int i = 0; i < size; i++) {
+        if (active[list[i]]) {
+          scratch[tail++] = list[i];
+        } else {
+          list[head++] = list[i];
+        }
+      }
+      Integer[] sorted = new Integer[tail];
+      for (int i = 0; i < tail; i++) {
+        sorted[i] = scratch[i];
+      }
+      Arrays.sort(sorted, (a, b) -> Integer.compare(suites[b].bits, suites[a].bits));
+      for (int i = 0; i < tail; i++) {
+        list[head + i] = sorted[i];
+      }
+    }
+  }
+
+  public static class Builder {
+    private CipherCatalog catalog;
+    private boolean unnamed;
+    private long cacheSize = 1024;
+
+    private Builder() {
+    }
+
+    public Builder catalog(CipherCatalog catalog) {
+      this.catalog = catalog;
+      return this;
+    }
+
+    public Builder cipherMap(CipherMap cipherMap) {
+      this.catalog = cipherMap.snapshot();
+      return this;
+    }
+
+    /**
+     * Also select suites OpenSSL has no name for, eg. to build probe sets. By default only suites
+     * with an OpenSSL name take part, matching the output of {@code openssl ciphers}.
+     *
+     * @param unnamed true to include suites without OpenSSL name
+     * @return builder
+     */
+    public Builder unnamed(boolean unnamed) {
+      this.unnamed = unnamed;
+      return this;
+    }
+
+    public Builder cacheSize(long cacheSize) {
+      this.cacheSize = cacheSize;
+      return this;
+    }
+
+    public CipherStringCompiler build() {
+      if (catalog == null) {
+        throw new IllegalStateException("No CipherCatalog configured");
+      }
+      return new CipherStringCompiler(this);
+    }
+  }
+
+}
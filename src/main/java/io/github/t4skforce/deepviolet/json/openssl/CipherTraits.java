@@ -0,0 +1,285 @@
+package io.github.t4skforce.deepviolet.json.openssl;
+
+import io.github.t4skforce.deepviolet.json.CipherSuite;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Algorithms of a TLS 1.2 and older cipher suite derived from its IANA name, eg.
+ * TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256 is kECDHE, aRSA, AES 128 GCM, AEAD.
+ */
+final class CipherTraits {
+
+  static final String K_RSA = "RSA";
+  static final String K_DHE = "DHE";
+  static final String K_DH = "DH";
+  static final String K_ECDHE = "ECDHE";
+  static final String K_ECDH = "ECDH";
+  static final String K_PSK = "PSK";
+  static final String K_RSAPSK = "RSAPSK";
+  static final String K_DHEPSK = "DHEPSK";
+  static final String K_ECDHEPSK = "ECDHEPSK";
+  static final String K_SRP = "SRP";
+  static final String K_KRB5 = "KRB5";
+  static final String K_GOST = "GOST";
+  static final String K_ECCPWD = "ECCPWD";
+
+  static final String A_RSA = "RSA";
+  static final String A_DSS = "DSS";
+  static final String A_ECDSA = "ECDSA";
+  static final String A_NULL = "NULL";
+  static final String A_DH = "DH";
+  static final String A_ECDH = "ECDH";
+  static final String A_PSK = "PSK";
+  static final String A_SRP = "SRP";
+  static final String A_KRB5 = "KRB5";
+  static final String A_GOST = "GOST";
+  static final String A_ECCPWD = "ECCPWD";
+
+  static final String E_NULL = "NULL";
+  static final String E_AES = "AES";
+  static final String E_CAMELLIA = "CAMELLIA";
+  static final String E_ARIA = "ARIA";
+  static final String E_CHACHA20 = "CHACHA20";
+  static final String E_3DES = "3DES";
+  static final String E_DES = "DES";
+  static final String E_RC4 = "RC4";
+  static final String E_RC2 = "RC2";
+  static final String E_IDEA = "IDEA";
+  static final String E_SEED = "SEED";
+  static final String E_GOST89 = "GOST89";
+  static final String E_KUZNYECHIK = "KUZNYECHIK";
+  static final String E_MAGMA = "MAGMA";
+
+  static final String MODE_CBC = "CBC";
+  static final String MODE_GCM = "GCM";
+  static final String MODE_CCM = "CCM";
+  static final String MODE_CCM8 = "CCM8";
+  static final String MODE_POLY1305 = "POLY1305";
+  static final String MODE_MGM = "MGM";
+  static final String MODE_CTR = "CTR";
+  static final String MODE_STREAM = "STREAM";
+
+  static final String M_MD5 = "MD5";
+  static final String M_SHA1 = "SHA1";
+  static final String M_SHA256 = "SHA256";
+  static final String M_SHA384 = "SHA384";
+  static final String M_GOST = "GOST";
+  static final String M_AEAD = "AEAD";
+
+  private static final Map<String, String[]> KEY_EXCHANGES = new HashMap<>();
+  // prefix, cipher, mode, key bits; longer prefixes before their own prefixes
+  private static final String[][] CIPHERS = {
+      { "28147_CNT", E_GOST89, MODE_STREAM, "256" },
+      { "3DES_EDE_CBC", E_3DES, MODE_CBC, "112" },
+      { "AES_128_CBC", E_AES, MODE_CBC, "128" },
+      { "AES_256_CBC", E_AES, MODE_CBC, "256" },
+      { "AES_128_CCM_8", E_AES, MODE_CCM8, "128" },
+      { "AES_256_CCM_8", E_AES, MODE_CCM8, "256" },
+      { "AES_128_CCM", E_AES, MODE_CCM, "128" },
+      { "AES_256_CCM", E_AES, MODE_CCM, "256" },
+      { "AES_128_GCM", E_AES, MODE_GCM, "128" },
+      { "AES_256_GCM", E_AES, MODE_GCM, "256" },
+      { "ARIA_128_CBC", E_ARIA, MODE_CBC, "128" },
+      { "ARIA_256_CBC", E_ARIA, MODE_CBC, "256" },
+      { "ARIA_128_GCM", E_ARIA, MODE_GCM, "128" },
+      { "ARIA_256_GCM", E_ARIA, MODE_GCM, "256" },
+      { "CAMELLIA_128_CBC", E_CAMELLIA, MODE_CBC, "128" },
+      { "CAMELLIA_256_CBC", E_CAMELLIA, MODE_CBC, "256" },
+      { "CAMELLIA_128_GCM", E_CAMELLIA, MODE_GCM, "128" },
+      { "CAMELLIA_256_GCM", E_CAMELLIA, MODE_GCM, "256" },
+      { "CHACHA20_POLY1305", E_CHACHA20, MODE_POLY1305, "256" },
+      { "DES40_CBC", E_DES, MODE_CBC, "40" },
+      { "DES_CBC_40", E_DES, MODE_CBC, "40" },
+      { "DES_CBC", E_DES, MODE_CBC, "56" },
+      { "IDEA_CBC", E_IDEA, MODE_CBC, "128" },
+      { "KUZNYECHIK_CTR_OMAC", E_KUZNYECHIK, MODE_CTR, "256" },
+      { "KUZNYECHIK_MGM", E_KUZNYECHIK, MODE_MGM, "256" },
+      { "MAGMA_CTR_OMAC", E_MAGMA, MODE_CTR, "256" },
+      { "MAGMA_MGM", E_MAGMA, MODE_MGM, "256" },
+      { "NULL", E_NULL, MODE_STREAM, "0" },
+      { "RC2_CBC_40", E_RC2, MODE_CBC, "40" },
+      { "RC4_128", E_RC4, MODE_STREAM, "128" },
+      { "RC4_40", E_RC4, MODE_STREAM, "40" },
+      { "SEED_CBC", E_SEED, MODE_CBC, "128" } };
+
+  static {
+    keyExchange("RSA", K_RSA, A_RSA);
+    keyExchange("DHE_RSA", K_DHE, A_RSA);
+    keyExchange("DHE_DSS", K_DHE, A_DSS);
+    keyExchange("DH_ANON", K_DHE, A_NULL);
+    keyExchange("DH_RSA", K_DH, A_DH);
+    keyExchange("DH_DSS", K_DH, A_DH);
+    keyExchange("ECDHE_RSA", K_ECDHE, A_RSA);
+    keyExchange("ECDHE_ECDSA", K_ECDHE, A_ECDSA);
+    keyExchange("ECDH_ANON", K_ECDHE, A_NULL);
+    keyExchange("ECDH_RSA", K_ECDH, A_ECDH);
+    keyExchange("ECDH_ECDSA", K_ECDH, A_ECDH);
+    keyExchange("PSK", K_PSK, A_PSK);
+    keyExchange("RSA_PSK", K_RSAPSK, A_RSA);
+    keyExchange("DHE_PSK", K_DHEPSK, A_PSK);
+    keyExchange("PSK_DHE", K_DHEPSK, A_PSK);
+    keyExchange("ECDHE_PSK", K_ECDHEPSK, A_PSK);
+    keyExchange("SRP_SHA", K_SRP, A_SRP);
+    keyExchange("SRP_SHA_RSA", K_SRP, A_RSA);
+    keyExchange("SRP_SHA_DSS", K_SRP, A_DSS);
+    keyExchange("KRB5", K_KRB5, A_KRB5);
+    keyExchange("GOSTR341001", K_GOST, A_GOST);
+    keyExchange("GOSTR341112_256", K_GOST, A_GOST);
+    keyExchange("ECCPWD", K_ECCPWD, A_ECCPWD);
+  }
+
+  private static void keyExchange(String name, String kx, String au) {
+    KEY_EXCHANGES.put(name, new String[] { kx, au });
+  }
+
+  final int code;
+  final String name;
+  final String kx;
+  final String au;
+  final String enc;
+  final String mode;
+  final int bits;
+  final String mac;
+  final boolean export;
+
+  private CipherTraits(int code, String name, String kx, String au, String enc, String mode,
+      int bits, String mac, boolean export) {
+    this.code = code;
+    this.name = name;
+    this.kx = kx;
+    this.au = au;
+    this.enc = enc;
+    this.mode = mode;
+    this.bits = bits;
+    this.mac = mac;
+    this.export = export;
+  }
+
+  /**
+   * @param suite catalog entry
+   * @return traits or null if the suite is not a TLS 1.2 or older suite with a known layout
+   */
+  static CipherTraits parse(CipherSuite suite) {
+    String iana = suite.getIana();
+    int with = iana == null ? -1 : iana.indexOf("_WITH_");
+    if (with < 0 || !iana.startsWith("TLS_") && !iana.startsWith("SSL_")) {
+      return null;
+    }
+    String keyExchange = iana.substring(4, with).toUpperCase();
+    boolean export = keyExchange.endsWith("_EXPORT");
+    if (export) {
+      keyExchange = keyExchange.substring(0, keyExchange.length() - "_EXPORT".length());
+    }
+    String[] kxAu = KEY_EXCHANGES.get(keyExchange);
+    if (kxAu == null) {
+      return null;
+    }
+    String cipher = iana.substring(with + "_WITH_".length());
+    for (String[] entry : CIPHERS) {
+      if (!cipher.startsWith(entry[0])) {
+        continue;
+      }
+      String suffix = cipher.substring(entry[0].length());
+      String mac = mac(entry[2], suffix);
+      if (mac == null) {
+        continue;
+      }
+      int bits = Integer.parseInt(entry[3]);
+      String name = suite.getOpenssl() != null ? suite.getOpenssl() : iana;
+      return new CipherTraits(suite.getCode(), name, kxAu[0], kxAu[1], entry[1], entry[2], bits,
+          mac, export || bits > 0 && bits <= 40);
+    }
+    return null;
+  }
+
+  private static String mac(String mode, String suffix) {
+    switch (mode) {
+      case MODE_GCM:
+      case MODE_CCM:
+      case MODE_CCM8:
+      case MODE_POLY1305:
+      case MODE_MGM:
+        // the hash in AEAD suite names is the PRF, eg. _SHA256 or _L/_S for MGM
+        return M_AEAD;
+      case MODE_CTR:
+        // OMAC is part of the cipher name
+        return M_GOST;
+      default:
+        break;
+    }
+    switch (suffix) {
+      case "_MD5":
+        return M_MD5;
+      case "_SHA":
+        return M_SHA1;
+      case "_SHA256":
+        return M_SHA256;
+      case "_SHA384":
+        return M_SHA384;
+      case "_IMIT":
+        return M_GOST;
+      default:
+        return null;
+    }
+  }
+
+  boolean isAead() {
+    return M_AEAD.equals(mac);
+  }
+
+  /**
+   * Oldest protocol version OpenSSL offers the suite with: TLS 1.2 for AEAD ciphers and SHA-2 MACs
+   * except the PSK suites, TLS 1.0 for those and elliptic curve suites, SSL 3.0 otherwise.
+   *
+   * @return version code
+   */
+  int getMinVersion() {
+    if (isAead() || (M_SHA256.equals(mac) || M_SHA384.equals(mac)) && !isPsk()) {
+      return TlsVersion.TLS_V1_2;
+    }
+    if (isPsk() && !M_SHA1.equals(mac) || K_ECDHE.equals(kx) || K_ECDH.equals(kx)
+        || K_ECDHEPSK.equals(kx)) {
+      return TlsVersion.TLS_V1;
+    }
+    return TlsVersion.SSL_V3;
+  }
+
+  /**
+   * Suites enabled by DEFAULT as of OpenSSL 3.0: authenticated AES-CBC, AES-GCM and ChaCha20
+   * suites without DSS.
+   *
+   * @return true if part of DEFAULT
+   */
+  boolean isDefault() {
+    return !A_NULL.equals(au) && !A_DSS.equals(au) && (E_CHACHA20.equals(enc)
+        || E_AES.equals(enc) && (MODE_CBC.equals(mode) || MODE_GCM.equals(mode)));
+  }
+
+  boolean isPsk() {
+    return K_PSK.equals(kx) || K_RSAPSK.equals(kx) || K_DHEPSK.equals(kx)
+        || K_ECDHEPSK.equals(kx);
+  }
+
+  boolean isHigh() {
+    return !export && bits >= 128 && !E_RC4.equals(enc) && !E_IDEA.equals(enc)
+        && !E_SEED.equals(enc);
+  }
+
+  boolean isMedium() {
+    return !export && (E_RC4.equals(enc) || E_IDEA.equals(enc) || E_SEED.equals(enc)
+        || E_3DES.equals(enc));
+  }
+
+  boolean isLow() {
+    return !export && bits > 0 && bits < 112;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+}
@@ -0,0 +1,96 @@
+package io.github.t4skforce.deepviolet.json.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Character cursor over a {@link Reader} with a fixed size buffer and single character look-ahead.
+ */
+class ChunkReader {
+
+  static final int EOF = -1;
+
+  private static final int CHUNK_SIZE = 8192;
+
+  private final Reader reader;
+  private final char[] chunk = new char[CHUNK_SIZE];
+  private int pos;
+  private int limit;
+
+  ChunkReader(Reader reader) {
+    this.reader = reader;
+  }
+
+  int peek() throws IOException {
+    if (pos == limit && !fill()) {
+      return EOF;
+    }
+    return chunk[pos];
+  }
+
+  int read() throws IOException {
+    if (pos == limit && !fill()) {
+      return EOF;
+    }
+    return chunk[pos++];
+  }
+
+  int skipWhitespace() throws IOException {
+    int c = peek();
+    while (c != EOF && Character.isWhitespace(c)) {
+      pos++;
+      c = peek();
+    }
+    return c;
+  }
+
+  /**
+   * Read the next run of non whitespace characters.
+   *
+   * @param target buffer the token is written to, cleared before reading
+   * @return false if the end of the source was reached before any token character
+   */
+  boolean readToken(StringBuilder target) throws IOException {
+    target.setLength(0);
+    int c = skipWhitespace();
+    while (c != EOF && !Character.isWhitespace(c)) {
+      target.append((char) c);
+      pos++;
+      c = peek();
+    }
+    return target.length() > 0;
+  }
+
+  /**
+   * Read up to and including the terminating character, but not past the end of the line.
+   *
+   * @param target buffer the characters are appended to
+   * @param end    terminating character
+   * @return false if the end of the line or source was reached first
+   */
+  boolean readThrough(StringBuilder target, char end) throws IOException {
+    int c;
+    while ((c = peek()) != EOF && c != '\n') {
+      target.append((char) c);
+      pos++;
+      if (c == end) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean fill() throws IOException {
+    int read;
+    do {
+      read = reader.read(chunk, 0, chunk.length);
+    } while (read == 0);
+    if (read < 0) {
+      return false;
+    }
+    pos = 0;
+    limit = read;
+    return true;
+  }
+
+}
@@ -0,0 +1,79 @@
+package io.github.t4skforce.deepviolet.json.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming scanner for {@code #define NAME VALUE} directives in C sources. Values starting with a
+ * double quote or an opening brace are read up to the closing character on the same line, any other
+ * value is a single whitespace delimited token. Comments and continuation lines are not
+ * interpreted.
+ */
+final class DefineScanner {
+
+  private static final String DIRECTIVE = "#define";
+
+  private DefineScanner() {
+  }
+
+  @FunctionalInterface
+  interface DefineConsumer {
+    void accept(String name, String value);
+  }
+
+  static void scan(Reader reader, DefineConsumer consumer) throws IOException {
+    ChunkReader in = new ChunkReader(reader);
+    StringBuilder token = new StringBuilder();
+    StringBuilder name = new StringBuilder();
+    StringBuilder value = new StringBuilder();
+
+    boolean more = in.readToken(token);
+    while (more) {
+      if ("#".contentEquals(token)) {
+        // "# define" with whitespace after the hash
+        if (!in.readToken(token)) {
+          return;
+        }
+        if (!"define".contentEquals(token)) {
+          continue;
+        }
+      } else if (!DIRECTIVE.contentEquals(token)) {
+        more = in.readToken(token);
+        continue;
+      }
+
+      if (!in.readToken(name)) {
+        return;
+      }
+      if (isDirective(name)) {
+        swap(name, token);
+        continue;
+      }
+
+      int c = in.skipWhitespace();
+      value.setLength(0);
+      if (c == '"' || c == '{') {
+        value.append((char) in.read());
+        in.readThrough(value, c == '"' ? '"' : '}');
+      } else if (!in.readToken(value)) {
+        return;
+      } else if (isDirective(value)) {
+        swap(value, token);
+        continue;
+      }
+
+      consumer.accept(name.toString(), value.toString());
+      more = in.readToken(token);
+    }
+  }
+
+  private static boolean isDirective(CharSequence token) {
+    return token.length() > 0 && token.charAt(0) == '#';
+  }
+
+  private static void swap(StringBuilder from, StringBuilder to) {
+    to.setLength(0);
+    to.append(from);
+  }
+
+}
@@ -0,0 +1,37 @@
+package io.github.t4skforce.deepviolet.json.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parser for the {@code #define GNUTLS_* { 0xAA, 0xBB }} constants in GnuTLS
+ * {@code ciphersuites.c}.
+ */
+class GnuTlsParser implements SourceParser {
+
+  private static final String PREFIX = "GNUTLS_";
+
+  private static final Pattern HEX = Pattern.compile(
+      "\\{\\s*(?<hex1>0x[A-F|0-9]{2})\\s*,\\s*(?<hex2>0x[A-F|0-9]{2})\\s*\\}",
+      Pattern.CASE_INSENSITIVE);
+
+  @Override
+  public void parse(Reader reader, EntryConsumer consumer) throws IOException {
+    DefineScanner.scan(reader, (name, value) -> {
+      if (name.length() <= PREFIX.length()
+          || !name.regionMatches(true, 0, PREFIX, 0, PREFIX.length())) {
+        return;
+      }
+      Matcher hexm = HEX.matcher(value);
+      if (hexm.matches()) {
+        consumer.accept(
+            String.format("%s,%s", hexm.group("hex1").toUpperCase().replace("X", "x"),
+                hexm.group("hex2").toUpperCase().replace("X", "x")),
+            name.substring(3).toUpperCase());
+      }
+    });
+  }
+
+}
@@ -0,0 +1,114 @@
+package io.github.t4skforce.deepviolet.json.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Pattern;
+
+/**
+ * Table cell tokenizer for the IANA {@code tls-parameters.xhtml} registry. Emits a suite whenever a
+ * cell holding a code point eg. 0x13,0x01 is directly followed by a cell holding a {@code TLS_*}
+ * name, with nothing but text in between.
+ */
+class IanaParser implements SourceParser {
+
+  private static final int MAX_CELL = 1024;
+
+  private static final Pattern HEX = Pattern.compile("0x[0-9|A-F]{2},0x[0-9|A-F]{2}");
+
+  private static final Pattern NAME = Pattern.compile("TLS_[^\\s]+");
+
+  @Override
+  public void parse(Reader reader, EntryConsumer consumer) throws IOException {
+    ChunkReader in = new ChunkReader(reader);
+    StringBuilder tag = new StringBuilder();
+    StringBuilder cell = new StringBuilder();
+    String hex = null;
+
+    int c;
+    while ((c = in.read()) != ChunkReader.EOF) {
+      if (c != '<') {
+        continue;
+      }
+      if (!readTag(in, tag)) {
+        return;
+      }
+      // a cell may be left open, in that case the next cell starts where it ended
+      while (isCellStart(tag)) {
+        cell.setLength(0);
+        tag.setLength(0);
+        boolean closed = readCell(in, cell, tag);
+        String content = cell.toString();
+        if (!closed) {
+          hex = null;
+        } else if (hex != null && NAME.matcher(content).matches()) {
+          consumer.accept(hex.toUpperCase().replace("X", "x"), content.toUpperCase());
+          hex = null;
+        } else if (HEX.matcher(content).matches()) {
+          hex = content;
+        } else {
+          hex = null;
+        }
+      }
+      if (!isCellEnd(tag)) {
+        hex = null;
+      }
+    }
+  }
+
+  private static boolean isCellStart(CharSequence tag) {
+    return tag.length() >= 2 && tag.charAt(0) == 't' && tag.charAt(1) == 'd';
+  }
+
+  private static boolean isCellEnd(CharSequence tag) {
+    return tag.length() >= 3 && tag.charAt(0) == '/' && tag.charAt(1) == 't'
+        && tag.charAt(2) == 'd';
+  }
+
+  /**
+   * Read the tag body up to the closing angle bracket, which is consumed.
+   */
+  private static boolean readTag(ChunkReader in, StringBuilder tag) throws IOException {
+    tag.setLength(0);
+    int c;
+    while ((c = in.read()) != ChunkReader.EOF) {
+      if (c == '>') {
+        return true;
+      }
+      if (tag.length() < MAX_CELL) {
+        tag.append((char) c);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Read the cell content up to its closing tag. Returns with the terminating tag in {@code tag},
+   * which is either the cell end or the start of the next cell if this one was not closed.
+   */
+  private static boolean readCell(ChunkReader in, StringBuilder cell, StringBuilder tag)
+      throws IOException {
+    int c;
+    while ((c = in.read()) != ChunkReader.EOF) {
+      if (c != '<') {
+        if (cell.length() < MAX_CELL) {
+          cell.append((char) c);
+        }
+        continue;
+      }
+      if (!readTag(in, tag)) {
+        return false;
+      }
+      if (isCellEnd(tag)) {
+        return cell.length() < MAX_CELL;
+      }
+      if (isCellStart(tag)) {
+        return false;
+      }
+      if (cell.length() < MAX_CELL) {
+        cell.append('<').append(tag).append('>');
+      }
+    }
+    return false;
+  }
+
+}
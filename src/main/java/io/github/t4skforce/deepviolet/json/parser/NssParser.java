@@ -0,0 +1,33 @@
+package io.github.t4skforce.deepviolet.json.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parser for the {@code #define TLS_* 0xAABB} constants in NSS {@code sslproto.h}.
+ */
+class NssParser implements SourceParser {
+
+  private static final String PREFIX = "TLS_";
+
+  private static final Pattern HEX = Pattern.compile("0x[A-F|0-9]{4}", Pattern.CASE_INSENSITIVE);
+
+  @Override
+  public void parse(Reader reader, EntryConsumer consumer) throws IOException {
+    DefineScanner.scan(reader, (name, value) -> {
+      if (name.length() <= PREFIX.length()
+          || !name.regionMatches(true, 0, PREFIX, 0, PREFIX.length())) {
+        return;
+      }
+      Matcher hexm = HEX.matcher(value);
+      if (hexm.lookingAt()) {
+        String hex = hexm.group().toUpperCase().replace("X", "x");
+        consumer.accept(String.format("%s,0x%s", hex.substring(0, 4), hex.substring(4, 6)),
+            name.toUpperCase());
+      }
+    });
+  }
+
+}
@@ -0,0 +1,61 @@
+package io.github.t4skforce.deepviolet.json.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parser for OpenSSL {@code tls1.h}. Code points come from the {@code TLS1_CK_*} constants, names
+ * from the matching {@code TLS1_TXT_*} strings. The name table can follow the code points, so code
+ * points are held back until the whole header has been read.
+ */
+class OpenSslParser implements SourceParser {
+
+  private static final String PREFIX_CODE = "TLS1_CK_";
+  private static final String PREFIX_NAME = "TLS1_TXT_";
+
+  private static final Pattern HEX = Pattern.compile("0x[A-F|0-9]{8}", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern TEXT = Pattern.compile("\"(?<value>[^\"]+)\"");
+
+  @Override
+  public void parse(Reader reader, EntryConsumer consumer) throws IOException {
+    // mapping e.g., ECDHE_RSA_WITH_AES_128_GCM_SHA256 ->
+    // ECDHE-RSA-AES128-GCM-SHA256
+    Map<String, String> mapping = new HashMap<>();
+    List<String[]> codes = new ArrayList<>();
+
+    DefineScanner.scan(reader, (name, value) -> {
+      if (hasPrefix(name, PREFIX_CODE)) {
+        Matcher hexm = HEX.matcher(value);
+        if (hexm.lookingAt()) {
+          String hex = hexm.group().toUpperCase().replace("X", "x");
+          codes.add(new String[] {
+              String.format("0x%s,0x%s", hex.substring(6, 8), hex.substring(8, 10)),
+              name.substring(PREFIX_CODE.length()).toUpperCase() });
+        }
+      } else if (hasPrefix(name, PREFIX_NAME)) {
+        Matcher textm = TEXT.matcher(value);
+        if (textm.lookingAt()) {
+          mapping.put(name.substring(PREFIX_NAME.length()).toUpperCase(),
+              textm.group("value").trim().toUpperCase());
+        }
+      }
+    });
+
+    for (String[] code : codes) {
+      consumer.accept(code[0], mapping.get(code[1]));
+    }
+  }
+
+  private static boolean hasPrefix(String name, String prefix) {
+    return name.length() > prefix.length()
+        && name.regionMatches(true, 0, prefix, 0, prefix.length());
+  }
+
+}
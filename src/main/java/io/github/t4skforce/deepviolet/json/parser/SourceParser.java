@@ -0,0 +1,33 @@
+package io.github.t4skforce.deepviolet.json.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Incremental parser for one of the upstream cipher suite registries. Implementations read the
+ * source chunk by chunk and emit each entry as soon as it is complete, so memory does not grow with
+ * the size of the document.
+ */
+@FunctionalInterface
+public interface SourceParser {
+
+  SourceParser IANA = new IanaParser();
+  SourceParser NSS = new NssParser();
+  SourceParser OPENSSL = new OpenSslParser();
+  SourceParser GNUTLS = new GnuTlsParser();
+
+  /**
+   * Parse the source.
+   *
+   * @param reader   source document
+   * @param consumer receives each entry as hex code point eg. 0x13,0x01 and the suite name
+   * @throws IOException if reading the source fails
+   */
+  void parse(Reader reader, EntryConsumer consumer) throws IOException;
+
+  @FunctionalInterface
+  interface EntryConsumer {
+    void accept(String hex, String name);
+  }
+
+}
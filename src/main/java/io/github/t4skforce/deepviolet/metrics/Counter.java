@@ -0,0 +1,33 @@
+package io.github.t4skforce.deepviolet.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter, increments from many threads only contend on a shared cell when the
+ * {@link LongAdder} has not yet grown one per contending thread.
+ */
+public final class Counter {
+
+  private final LongAdder adder = new LongAdder();
+
+  Counter() {
+  }
+
+  public void increment() {
+    adder.increment();
+  }
+
+  public void add(long delta) {
+    adder.add(delta);
+  }
+
+  public long get() {
+    return adder.sum();
+  }
+
+  @Override
+  public String toString() {
+    return Long.toString(get());
+  }
+
+}
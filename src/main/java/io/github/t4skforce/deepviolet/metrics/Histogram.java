@@ -0,0 +1,66 @@
+package io.github.t4skforce.deepviolet.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of nanosecond durations recorded from any number of threads. Recordings are spread
+ * over stripes by thread so concurrent writers rarely touch the same counters, a recording costs
+ * two atomic increments on the stripe and never allocates.
+ */
+public final class Histogram {
+
+  private static final int STRIPES = Integer.highestOneBit(
+      Math.max(1, Runtime.getRuntime().availableProcessors() - 1) << 1);
+
+  private final Stripe[] stripes = new Stripe[STRIPES];
+  private final AtomicLong max = new AtomicLong();
+
+  Histogram() {
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe();
+    }
+  }
+
+  /**
+   * @param nanos duration, negative values count as zero
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    Stripe stripe = stripes[(int) Thread.currentThread().getId() & STRIPES - 1];
+    stripe.counts.getAndIncrement(HistogramSnapshot.bucket(value));
+    stripe.sum.getAndAdd(value);
+    long current;
+    while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+      // retry, a larger maximum is rare once the histogram warmed up
+    }
+  }
+
+  public void record(long duration, TimeUnit unit) {
+    record(unit.toNanos(duration));
+  }
+
+  /**
+   * Copy of the counts. Recordings running concurrently may be included partially.
+   *
+   * @return snapshot
+   */
+  public HistogramSnapshot snapshot() {
+    long[] counts = new long[HistogramSnapshot.BUCKETS];
+    long sum = 0;
+    for (Stripe stripe : stripes) {
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] += stripe.counts.get(i);
+      }
+      sum += stripe.sum.get();
+    }
+    return new HistogramSnapshot(counts, sum, max.get());
+  }
+
+  private static final class Stripe {
+    private final AtomicLongArray counts = new AtomicLongArray(HistogramSnapshot.BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+  }
+
+}
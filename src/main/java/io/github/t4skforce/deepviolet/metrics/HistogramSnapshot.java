@@ -0,0 +1,135 @@
+package io.github.t4skforce.deepviolet.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable copy of a histogram of nanosecond durations.
+ *
+ * <p>The bucket layout is log-linear: every power of two is split into 16 buckets, so reported
+ * percentiles are at most 6.25% above the recorded value, with a fixed footprint of
+ * {@link #BUCKETS} counters covering the whole long range.
+ */
+public final class HistogramSnapshot {
+
+  private static final int SUB_BITS = 4;
+  private static final int SUB = 1 << SUB_BITS;
+  public static final int BUCKETS = (63 - SUB_BITS + 1) * SUB;
+
+  private final long[] counts;
+  private final long count;
+  private final long sum;
+  private final long max;
+
+  /**
+   * @param counts counts per bucket, not copied
+   * @param sum    sum of the recorded values
+   * @param max    largest recorded value
+   */
+  public HistogramSnapshot(long[] counts, long sum, long max) {
+    if (counts.length != BUCKETS) {
+      throw new IllegalArgumentException("Expected " + BUCKETS + " buckets");
+    }
+    long total = 0;
+    for (long c : counts) {
+      total += c;
+    }
+    this.counts = counts;
+    this.count = total;
+    this.sum = sum;
+    this.max = max;
+  }
+
+  /**
+   * @param value non negative value
+   * @return bucket of the value
+   */
+  public static int bucket(long value) {
+    if (value < SUB) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    return (exponent - SUB_BITS + 1) * SUB + (int) (value >>> exponent - SUB_BITS & SUB - 1);
+  }
+
+  /**
+   * @param bucket bucket index
+   * @return smallest value counted in the bucket
+   */
+  public static long lowest(int bucket) {
+    if (bucket < SUB) {
+      return bucket;
+    }
+    int exponent = bucket / SUB + SUB_BITS - 1;
+    return (long) (SUB + bucket % SUB) << exponent - SUB_BITS;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return largest recorded duration in nanoseconds
+   */
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * @return average duration in nanoseconds, 0 if nothing was recorded
+   */
+  public double getMean() {
+    return count == 0 ? 0 : (double) sum / count;
+  }
+
+  public long getP50() {
+    return getValueAtPercentile(50);
+  }
+
+  public long getP90() {
+    return getValueAtPercentile(90);
+  }
+
+  public long getP99() {
+    return getValueAtPercentile(99);
+  }
+
+  public long getP999() {
+    return getValueAtPercentile(99.9);
+  }
+
+  /**
+   * Duration below or at which the given share of recordings fall.
+   *
+   * @param percentile between 0 and 100
+   * @return upper bound of the bucket in nanoseconds, 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile must be between 0 and 100");
+    }
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        long upper = i + 1 < BUCKETS ? lowest(i + 1) - 1 : Long.MAX_VALUE;
+        return Math.min(upper, max);
+      }
+    }
+    return max;
+  }
+
+  @Override
+  public String toString() {
+    return "[count=" + count + ", mean=" + micros((long) getMean()) + "us, p50="
+        + micros(getP50()) + "us, p99=" + micros(getP99()) + "us, max=" + micros(max) + "us]";
+  }
+
+  private static long micros(long nanos) {
+    return TimeUnit.NANOSECONDS.toMicros(nanos);
+  }
+
+}
@@ -0,0 +1,14 @@
+package io.github.t4skforce.deepviolet.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of a {@link MetricsRegistry}, every attribute read takes a fresh snapshot.
+ */
+public interface MetricsMXBean {
+
+  Map<String, Long> getCounters();
+
+  Map<String, HistogramSnapshot> getHistograms();
+
+}
@@ -0,0 +1,108 @@
+package io.github.t4skforce.deepviolet.metrics;
+
+import com.google.common.collect.ImmutableSortedMap;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Named counters and histograms shared by the components of a process.
+ *
+ * <p>Metrics are created on first use and live as long as the registry. Components look their
+ * metrics up once when they are built and keep the references, recording never touches the
+ * registry and never allocates. Names are dot separated, eg. {@code scan.probes}.
+ */
+public final class MetricsRegistry {
+
+  public static final String DOMAIN = "io.github.t4skforce.deepviolet";
+
+  private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+  private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+  public Counter counter(String name) {
+    return counters.computeIfAbsent(name, k -> new Counter());
+  }
+
+  public Histogram histogram(String name) {
+    return histograms.computeIfAbsent(name, k -> new Histogram());
+  }
+
+  public MetricsSnapshot snapshot() {
+    long now = System.nanoTime();
+    ImmutableSortedMap.Builder<String, Long> c = ImmutableSortedMap.naturalOrder();
+    for (Map.Entry<String, Counter> e : counters.entrySet()) {
+      c.put(e.getKey(), e.getValue().get());
+    }
+    ImmutableSortedMap.Builder<String, HistogramSnapshot> h = ImmutableSortedMap.naturalOrder();
+    for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+      h.put(e.getKey(), e.getValue().snapshot());
+    }
+    return new MetricsSnapshot(now, c.build(), h.build());
+  }
+
+  /**
+   * Hand a snapshot to the consumer at a fixed rate until the returned future is cancelled.
+   *
+   * @param executor executor running the consumer
+   * @param period   time between snapshots
+   * @param consumer snapshot consumer, eg. a log or file writer
+   * @return future to cancel the reports
+   */
+  public ScheduledFuture<?> report(ScheduledExecutorService executor, Duration period,
+      Consumer<MetricsSnapshot> consumer) {
+    long nanos = period.toNanos();
+    return executor.scheduleAtFixedRate(() -> consumer.accept(snapshot()), nanos, nanos,
+        TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Register on the platform MBean server as {@code io.github.t4skforce.deepviolet:type=Metrics,
+   * name=<name>}.
+   *
+   * @param name registry name, distinguishes several registries in one process
+   * @return registered name, pass to {@link #unregister(ObjectName)}
+   * @throws JMException if the name is taken or invalid
+   */
+  public ObjectName register(String name) throws JMException {
+    ObjectName objectName = new ObjectName(DOMAIN + ":type=Metrics,name=" + ObjectName.quote(name));
+    ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), objectName);
+    return objectName;
+  }
+
+  public void unregister(ObjectName objectName) throws JMException {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    if (server.isRegistered(objectName)) {
+      server.unregisterMBean(objectName);
+    }
+  }
+
+  private final class Bean implements MetricsMXBean {
+
+    // open type conversion rejects sorted maps with a comparator, guava sets one for natural order
+
+    @Override
+    public Map<String, Long> getCounters() {
+      return new HashMap<>(snapshot().getCounters());
+    }
+
+    @Override
+    public Map<String, HistogramSnapshot> getHistograms() {
+      return new HashMap<>(snapshot().getHistograms());
+    }
+  }
+
+  @Override
+  public String toString() {
+    return snapshot().toString();
+  }
+
+}
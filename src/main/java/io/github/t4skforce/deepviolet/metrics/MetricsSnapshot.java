@@ -0,0 +1,88 @@
+package io.github.t4skforce.deepviolet.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Values of all metrics of a {@link MetricsRegistry} at one point in time.
+ */
+public final class MetricsSnapshot {
+
+  private final long nanoTime;
+  private final SortedMap<String, Long> counters;
+  private final SortedMap<String, HistogramSnapshot> histograms;
+
+  MetricsSnapshot(long nanoTime, SortedMap<String, Long> counters,
+      SortedMap<String, HistogramSnapshot> histograms) {
+    this.nanoTime = nanoTime;
+    this.counters = counters;
+    this.histograms = histograms;
+  }
+
+  public long getNanoTime() {
+    return nanoTime;
+  }
+
+  /**
+   * @return counter values by name
+   */
+  public SortedMap<String, Long> getCounters() {
+    return counters;
+  }
+
+  /**
+   * @return histograms by name
+   */
+  public SortedMap<String, HistogramSnapshot> getHistograms() {
+    return histograms;
+  }
+
+  /**
+   * @param name counter name
+   * @return value or 0 if the counter does not exist
+   */
+  public long getCounter(String name) {
+    return counters.getOrDefault(name, 0L);
+  }
+
+  /**
+   * @param name histogram name
+   * @return histogram or null if it does not exist
+   */
+  public HistogramSnapshot getHistogram(String name) {
+    return histograms.get(name);
+  }
+
+  /**
+   * Increase of a counter per second between an earlier snapshot and this one.
+   *
+   * @param name  counter name
+   * @param since earlier snapshot
+   * @return events per second
+   */
+  public double getRate(String name, MetricsSnapshot since) {
+    long elapsed = nanoTime - since.nanoTime;
+    if (elapsed <= 0) {
+      return 0;
+    }
+    return (getCounter(name) - since.getCounter(name)) * (double) TimeUnit.SECONDS.toNanos(1)
+        / elapsed;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("MetricsSnapshot [");
+    for (Map.Entry<String, Long> e : counters.entrySet()) {
+      sb.append(e.getKey()).append('=').append(e.getValue()).append(", ");
+    }
+    for (Map.Entry<String, HistogramSnapshot> e : histograms.entrySet()) {
+      sb.append(e.getKey()).append('=').append(e.getValue()).append(", ");
+    }
+    if (sb.charAt(sb.length() - 1) == ' ') {
+      sb.setLength(sb.length() - 2);
+    }
+    return sb.append(']').toString();
+  }
+
+}
@@ -0,0 +1,202 @@
+package io.github.t4skforce.deepviolet.report;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.CipherMapClassificationsJson;
+import io.github.t4skforce.deepviolet.json.CipherMapIndex;
+import io.github.t4skforce.deepviolet.scan.CipherSuiteScan;
+import io.github.t4skforce.deepviolet.scan.TargetScan;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams scan results as newline delimited JSON, one compact record per target.
+ *
+ * <p>A single {@link JsonGenerator} is reused for all records, so memory does not grow with the
+ * number of targets. Each record is flushed once written unless {@link Builder#autoFlush(boolean)}
+ * is turned off, a reader tailing the file sees every target as soon as it finished. Gzip output
+ * uses sync flushes, so a partially written file can still be decompressed up to the last record.
+ */
+public final class NdjsonWriter implements Closeable, Flushable {
+
+  private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  private final JsonGenerator generator;
+  private final CipherMapIndex index;
+  private final boolean autoFlush;
+  private long records;
+
+  private NdjsonWriter(Builder builder, OutputStream out) throws IOException {
+    this.generator = new JsonFactory().createGenerator(out, JsonEncoding.UTF8);
+    // records are separated by the newline written after each one
+    this.generator.setRootValueSeparator(null);
+    this.index = builder.cipherMap == null ? null : builder.cipherMap.index();
+    this.autoFlush = builder.autoFlush;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Append the record of a finished target.
+   *
+   * @param scan target scan
+   * @throws IOException if writing fails
+   */
+  public synchronized void write(TargetScan scan) throws IOException {
+    InetSocketAddress target = scan.getTarget();
+    InetAddress address = target.getAddress();
+    generator.writeStartObject();
+    generator.writeStringField("host", target.getHostString());
+    if (address != null) {
+      generator.writeStringField("ip", address.getHostAddress());
+    }
+    generator.writeNumberField("port", target.getPort());
+    generator.writeNumberField("timestamp", System.currentTimeMillis());
+    generator.writeNumberField("millis", scan.getNanos() / 1_000_000);
+    generator.writeNumberField("probes", scan.getProbes());
+    generator.writeBooleanField("complete", scan.isComplete());
+    generator.writeArrayFieldStart("versions");
+    for (CipherSuiteScan version : scan.getScans()) {
+      writeVersion(version);
+    }
+    generator.writeEndArray();
+    generator.writeEndObject();
+    generator.writeRaw('\n');
+    records++;
+    if (autoFlush) {
+      generator.flush();
+    }
+  }
+
+  private void writeVersion(CipherSuiteScan scan) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField("version", scan.getVersion().getName());
+    generator.writeNumberField("probes", scan.getProbes());
+    generator.writeBooleanField("complete", scan.isComplete());
+    if (!scan.isComplete()) {
+      generator.writeStringField("failure", scan.getFailure().toString());
+    }
+    generator.writeArrayFieldStart("suites");
+    for (int code : scan.getAccepted()) {
+      generator.writeStartObject();
+      generator.writeStringField("code", CipherMap.toHex(code));
+      CipherMapClassificationsJson entry = index == null ? null : index.get(code);
+      if (entry != null && entry.getIana() != null) {
+        generator.writeStringField("name", entry.getIana());
+      }
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
+    generator.writeEndObject();
+  }
+
+  /**
+   * @return records written so far
+   */
+  public synchronized long getRecords() {
+    return records;
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    generator.flush();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    generator.close();
+  }
+
+  public static class Builder {
+    private CipherMap cipherMap;
+    private boolean gzip;
+    private boolean append;
+    private boolean autoFlush = true;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    private Builder() {
+    }
+
+    /**
+     * Adds IANA names next to the suite codes.
+     *
+     * @param cipherMap cipher map
+     * @return builder
+     */
+    public Builder cipherMap(CipherMap cipherMap) {
+      this.cipherMap = cipherMap;
+      return this;
+    }
+
+    public Builder gzip(boolean gzip) {
+      this.gzip = gzip;
+      return this;
+    }
+
+    /**
+     * Append to an existing file instead of truncating it, a gzip file then gets another member.
+     *
+     * @param append true to append
+     * @return builder
+     */
+    public Builder append(boolean append) {
+      this.append = append;
+      return this;
+    }
+
+    public Builder autoFlush(boolean autoFlush) {
+      this.autoFlush = autoFlush;
+      return this;
+    }
+
+    public Builder bufferSize(int bufferSize) {
+      if (bufferSize < 1) {
+        throw new IllegalArgumentException("bufferSize must be positive");
+      }
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    public NdjsonWriter build(Path target) throws IOException {
+      FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE,
+          append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+      try {
+        return build(Channels.newOutputStream(channel));
+      } catch (IOException e) {
+        channel.close();
+        throw e;
+      }
+    }
+
+    /**
+     * @param out target stream, closed together with the writer
+     * @return writer
+     * @throws IOException if the gzip header cannot be written
+     */
+    public NdjsonWriter build(OutputStream out) throws IOException {
+      OutputStream buffered = new BufferedOutputStream(out, bufferSize);
+      if (gzip) {
+        buffered = new GZIPOutputStream(buffered, bufferSize, true);
+      }
+      return new NdjsonWriter(this, buffered);
+    }
+  }
+
+}
@@ -0,0 +1,94 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Cipher suites a server accepted for one protocol version.
+ */
+public final class CipherSuiteScan {
+
+  private final InetSocketAddress target;
+  private final TlsVersion version;
+  private final int[] accepted;
+  private final int probes;
+  private final ProbeResult failure;
+
+  CipherSuiteScan(InetSocketAddress target, TlsVersion version, int[] accepted, int probes,
+      ProbeResult failure) {
+    this.target = target;
+    this.version = version;
+    this.accepted = accepted;
+    this.probes = probes;
+    this.failure = failure;
+  }
+
+  public InetSocketAddress getTarget() {
+    return target;
+  }
+
+  public TlsVersion getVersion() {
+    return version;
+  }
+
+  /**
+   * Accepted suite codes in the order they were discovered.
+   *
+   * @return suite codes
+   */
+  public int[] getAccepted() {
+    return accepted.clone();
+  }
+
+  public BitSet getAcceptedSet() {
+    BitSet set = new BitSet();
+    for (int code : accepted) {
+      set.set(code);
+    }
+    return set;
+  }
+
+  /**
+   * Number of handshakes sent.
+   *
+   * @return probe count
+   */
+  public int getProbes() {
+    return probes;
+  }
+
+  /**
+   * A scan is complete unless a probe timed out or failed, in which case the accepted suites are
+   * only a lower bound.
+   *
+   * @return true if every candidate was decided
+   */
+  public boolean isComplete() {
+    return failure == null;
+  }
+
+  public ProbeResult getFailure() {
+    return failure;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (int code : accepted) {
+      sb.append(sb.length() == 0 ? "" : ", ").append(CipherMap.toHex(code));
+    }
+    return "CipherSuiteScan [target=" + target + ", version=" + version.getName() + ", accepted=["
+        + sb + "], probes=" + probes + (failure == null ? "" : ", failure=" + failure) + "]";
+  }
+
+  static int[] concat(int[] a, int[] b) {
+    int[] result = Arrays.copyOf(a, a.length + b.length);
+    System.arraycopy(b, 0, result, a.length, b.length);
+    return result;
+  }
+
+}
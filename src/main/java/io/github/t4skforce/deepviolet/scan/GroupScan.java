@@ -0,0 +1,127 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import io.github.t4skforce.deepviolet.json.NamedGroup;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+
+import java.net.InetSocketAddress;
+import java.util.BitSet;
+
+/**
+ * Key exchange groups a server accepted for one protocol version and the size of its finite
+ * field DH parameters.
+ */
+public final class GroupScan {
+
+  private final InetSocketAddress target;
+  private final TlsVersion version;
+  private final int[] groups;
+  private final int dhBits;
+  private final int probes;
+  private final ProbeResult failure;
+
+  GroupScan(InetSocketAddress target, TlsVersion version, int[] groups, int dhBits, int probes,
+      ProbeResult failure) {
+    this.target = target;
+    this.version = version;
+    this.groups = groups;
+    this.dhBits = dhBits;
+    this.probes = probes;
+    this.failure = failure;
+  }
+
+  public InetSocketAddress getTarget() {
+    return target;
+  }
+
+  public TlsVersion getVersion() {
+    return version;
+  }
+
+  /**
+   * Accepted groups in the order the server selected them, which is its preference order unless
+   * it follows the client.
+   *
+   * @return group codes
+   */
+  public int[] getGroups() {
+    return groups.clone();
+  }
+
+  /**
+   * @return accepted groups as a bitset, as expected by
+   *         {@link io.github.t4skforce.deepviolet.json.mozilla.MozillaCompatibility}
+   */
+  public BitSet getGroupSet() {
+    BitSet set = new BitSet();
+    for (int group : groups) {
+      set.set(group);
+    }
+    return set;
+  }
+
+  /**
+   * Smallest accepted elliptic curve group, to compare against ecdh_param_size.
+   *
+   * @return size in bits or 0 if no elliptic curve group was accepted
+   */
+  public int getMinEcdhBits() {
+    int min = 0;
+    for (int group : groups) {
+      int bits = NamedGroup.bits(group);
+      if (!NamedGroup.isFiniteField(group) && bits > 0 && (min == 0 || bits < min)) {
+        min = bits;
+      }
+    }
+    return min;
+  }
+
+  /**
+   * Prime size of the finite field DHE parameters the server sent before TLSv1.3, to compare
+   * against dh_param_size. For TLSv1.3 the smallest accepted ffdhe group.
+   *
+   * @return size in bits or 0 if the server does not do finite field DHE
+   */
+  public int getDhBits() {
+    if (dhBits > 0 || version.getCode() < TlsVersion.TLS_V1_3) {
+      return dhBits;
+    }
+    int min = 0;
+    for (int group : groups) {
+      if (NamedGroup.isFiniteField(group) && (min == 0 || NamedGroup.bits(group) < min)) {
+        min = NamedGroup.bits(group);
+      }
+    }
+    return min;
+  }
+
+  /**
+   * Number of handshakes sent.
+   *
+   * @return probe count
+   */
+  public int getProbes() {
+    return probes;
+  }
+
+  public boolean isComplete() {
+    return failure == null;
+  }
+
+  /**
+   * @return result that ended the scan early or null if it completed
+   */
+  public ProbeResult getFailure() {
+    return failure;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder names = new StringBuilder();
+    for (int group : groups) {
+      names.append(names.length() == 0 ? "" : ",").append(NamedGroup.name(group));
+    }
+    return "GroupScan [" + target + " " + version.getName() + " " + names + " dh=" + getDhBits()
+        + " probes=" + probes + (failure == null ? "" : " " + failure) + "]";
+  }
+
+}
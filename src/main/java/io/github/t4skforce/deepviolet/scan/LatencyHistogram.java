@@ -0,0 +1,83 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import io.github.t4skforce.deepviolet.metrics.HistogramSnapshot;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of nanosecond durations with the bucket layout of {@link HistogramSnapshot}.
+ *
+ * <p>Recording is meant for a single thread, the selector thread of the engine, and costs a
+ * counter increment without locks or CAS. Readers on other threads may observe a recording in
+ * progress, but never lose one. Histograms shared by several threads are
+ * {@link io.github.t4skforce.deepviolet.metrics.Histogram}s.
+ */
+public final class LatencyHistogram {
+
+  private final AtomicLongArray counts = new AtomicLongArray(HistogramSnapshot.BUCKETS);
+  private volatile long count;
+  private volatile long sum;
+  private volatile long max;
+
+  LatencyHistogram() {
+  }
+
+  /**
+   * Record one duration, single writer only.
+   *
+   * @param nanos duration, negative values count as zero
+   */
+  void record(long nanos) {
+    long value = Math.max(0, nanos);
+    int index = HistogramSnapshot.bucket(value);
+    counts.lazySet(index, counts.get(index) + 1);
+    sum += value;
+    if (value > max) {
+      max = value;
+    }
+    count++;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return largest recorded duration in nanoseconds
+   */
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * @return average duration in nanoseconds, 0 if nothing was recorded
+   */
+  public double getMean() {
+    long n = count;
+    return n == 0 ? 0 : (double) sum / n;
+  }
+
+  /**
+   * Duration below or at which the given share of recordings fall.
+   *
+   * @param percentile between 0 and 100
+   * @return upper bound of the bucket in nanoseconds, 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    return snapshot().getValueAtPercentile(percentile);
+  }
+
+  public HistogramSnapshot snapshot() {
+    long[] snapshot = new long[HistogramSnapshot.BUCKETS];
+    for (int i = 0; i < snapshot.length; i++) {
+      snapshot[i] = counts.get(i);
+    }
+    return new HistogramSnapshot(snapshot, sum, max);
+  }
+
+  @Override
+  public String toString() {
+    return "LatencyHistogram " + snapshot();
+  }
+
+}
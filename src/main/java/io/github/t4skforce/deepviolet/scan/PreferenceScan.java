@@ -0,0 +1,86 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Cipher suite preference of a server for one protocol version.
+ */
+public final class PreferenceScan {
+
+  private final InetSocketAddress target;
+  private final TlsVersion version;
+  private final boolean serverOrder;
+  private final int[] order;
+  private final int probes;
+  private final ProbeResult failure;
+
+  PreferenceScan(InetSocketAddress target, TlsVersion version, boolean serverOrder, int[] order,
+      int probes, ProbeResult failure) {
+    this.target = target;
+    this.version = version;
+    this.serverOrder = serverOrder;
+    this.order = order;
+    this.probes = probes;
+    this.failure = failure;
+  }
+
+  public InetSocketAddress getTarget() {
+    return target;
+  }
+
+  public TlsVersion getVersion() {
+    return version;
+  }
+
+  /**
+   * Whether the server enforces its own order, as asked by server_preferred_order of the
+   * guidelines. False if it honors the client order or accepted fewer than two suites.
+   *
+   * @return true if the server order wins
+   */
+  public boolean isServerOrder() {
+    return serverOrder;
+  }
+
+  /**
+   * Accepted suites most preferred first if the server enforces its order, otherwise in the order
+   * they were passed in. Only a prefix of the order is known if the scan did not complete.
+   *
+   * @return suite codes
+   */
+  public int[] getOrder() {
+    return order.clone();
+  }
+
+  /**
+   * Number of handshakes sent.
+   *
+   * @return probe count
+   */
+  public int getProbes() {
+    return probes;
+  }
+
+  public boolean isComplete() {
+    return failure == null;
+  }
+
+  public ProbeResult getFailure() {
+    return failure;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (int code : order) {
+      sb.append(sb.length() == 0 ? "" : ", ").append(CipherMap.toHex(code));
+    }
+    return "PreferenceScan [target=" + target + ", version=" + version.getName() + ", serverOrder="
+        + serverOrder + ", order=[" + sb + "], probes=" + probes
+        + (failure == null ? "" : ", failure=" + failure) + "]";
+  }
+
+}
@@ -0,0 +1,41 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event spanning one probe from connect to the decided answer. Probes run on the
+ * selector thread, the event is committed there too.
+ */
+@Name("io.github.t4skforce.deepviolet.Probe")
+@Label("Probe")
+@Category({ "DeepViolet", "Scan" })
+@Description("One ClientHello sent to a server and its answer")
+@StackTrace(false)
+final class ProbeEvent extends jdk.jfr.Event {
+
+  @Label("Host")
+  String host;
+
+  @Label("Port")
+  int port;
+
+  @Label("Offered Suites")
+  int offered;
+
+  @Label("Key Exchange")
+  boolean keyExchange;
+
+  @Label("Status")
+  String status;
+
+  @Label("Version")
+  int version;
+
+  @Label("Cipher Suite")
+  int cipherSuite;
+
+}
@@ -0,0 +1,197 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Admission control for queued probes, owned by the selector thread. Probes wait in one FIFO per
+ * host, hosts take turns round robin as long as the host and its IP address are below their
+ * concurrency caps and the token bucket has a token. A host that does not answer can therefore
+ * hold at most its own cap of connections while everyone else keeps going.
+ *
+ * @param <T> queued element
+ */
+final class ProbeQueue<T extends ProbeQueue.Entry> {
+
+  /**
+   * Queued element, remembers its host for {@link ProbeQueue#release(Entry)}.
+   */
+  abstract static class Entry {
+    Host host;
+
+    abstract InetSocketAddress target();
+  }
+
+  static final class Host {
+    private final String name;
+    private final Address address;
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private int inFlight;
+    private boolean scheduled;
+
+    private Host(String name, Address address) {
+      this.name = name;
+      this.address = address;
+    }
+  }
+
+  static final class Address {
+    private final Object key;
+    private final ArrayDeque<Host> waiting = new ArrayDeque<>();
+    private int inFlight;
+    private int hosts;
+
+    private Address(Object key) {
+      this.key = key;
+    }
+  }
+
+  private final int maxPerHost;
+  private final int maxPerAddress;
+  private final TokenBucket bucket;
+
+  private final Map<String, Host> hosts = new HashMap<>();
+  private final Map<Object, Address> addresses = new HashMap<>();
+  // hosts with queued entries that are below the host cap
+  private final ArrayDeque<Host> ready = new ArrayDeque<>();
+  private int size;
+  private int maxDepth;
+
+  ProbeQueue(int maxPerHost, int maxPerAddress, TokenBucket bucket) {
+    this.maxPerHost = maxPerHost;
+    this.maxPerAddress = maxPerAddress;
+    this.bucket = bucket;
+  }
+
+  void add(T entry) {
+    InetSocketAddress target = entry.target();
+    String name = target.getHostString() + ":" + target.getPort();
+    Host host = hosts.get(name);
+    if (host == null) {
+      InetAddress ip = target.getAddress();
+      Object key = ip == null ? target.getHostString() : ip;
+      Address address = addresses.get(key);
+      if (address == null) {
+        address = new Address(key);
+        addresses.put(key, address);
+      }
+      address.hosts++;
+      host = new Host(name, address);
+      hosts.put(name, host);
+    }
+    entry.host = host;
+    host.entries.add(entry);
+    size++;
+    maxDepth = Math.max(maxDepth, host.entries.size());
+    schedule(host);
+  }
+
+  private void schedule(Host host) {
+    if (!host.scheduled && !host.entries.isEmpty() && host.inFlight < maxPerHost) {
+      host.scheduled = true;
+      ready.add(host);
+    }
+  }
+
+  /**
+   * Next entry allowed to start.
+   *
+   * @param now current {@link System#nanoTime()}
+   * @return entry or null if nothing may start right now
+   */
+  @SuppressWarnings("unchecked")
+  T poll(long now) {
+    if (ready.isEmpty() || !bucket.available(now)) {
+      return null;
+    }
+    for (int n = ready.size(); n > 0; n--) {
+      Host host = ready.poll();
+      Address address = host.address;
+      if (address.inFlight >= maxPerAddress) {
+        // parked until a connection to the same address finishes
+        address.waiting.add(host);
+        continue;
+      }
+      Entry entry = host.entries.poll();
+      size--;
+      host.inFlight++;
+      address.inFlight++;
+      if (!host.entries.isEmpty() && host.inFlight < maxPerHost) {
+        ready.add(host);
+      } else {
+        host.scheduled = false;
+      }
+      bucket.take();
+      return (T) entry;
+    }
+    return null;
+  }
+
+  /**
+   * Give back the slots of an entry returned by {@link #poll(long)}.
+   *
+   * @param entry finished entry
+   */
+  void release(T entry) {
+    Host host = entry.host;
+    Address address = host.address;
+    host.inFlight--;
+    address.inFlight--;
+    Host waiting;
+    while (address.inFlight < maxPerAddress && (waiting = address.waiting.poll()) != null) {
+      waiting.scheduled = false;
+      schedule(waiting);
+    }
+    schedule(host);
+    if (host.inFlight == 0 && host.entries.isEmpty()) {
+      hosts.remove(host.name);
+      if (--address.hosts == 0) {
+        addresses.remove(address.key);
+      }
+    }
+  }
+
+  /**
+   * Remove all entries that were not started yet.
+   *
+   * @return entry or null if empty
+   */
+  @SuppressWarnings("unchecked")
+  T drain() {
+    for (Host host : hosts.values()) {
+      Entry entry = host.entries.poll();
+      if (entry != null) {
+        size--;
+        return (T) entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param now current {@link System#nanoTime()}
+   * @return nanos until the rate limit admits the next entry, 0 if not rate limited
+   */
+  long delay(long now) {
+    return ready.isEmpty() ? 0 : bucket.delay(now);
+  }
+
+  int size() {
+    return size;
+  }
+
+  int hosts() {
+    return hosts.size();
+  }
+
+  /**
+   * @return deepest single host queue seen so far
+   */
+  int maxDepth() {
+    return maxDepth;
+  }
+
+}
@@ -0,0 +1,151 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.NamedGroup;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+
+/**
+ * Outcome of a single ClientHello sent by the {@link ScanEngine}.
+ */
+public final class ProbeResult {
+
+  public enum Status {
+    /** server answered with a ServerHello or HelloRetryRequest */
+    ACCEPTED,
+    /** server answered with an alert */
+    ALERT,
+    /** server closed the connection without answering */
+    CLOSED,
+    /** connect or read timed out */
+    TIMEOUT,
+    /** connection failed or the answer was not understood */
+    ERROR
+  }
+
+  private static final ProbeResult CLOSED = new ProbeResult(Status.CLOSED, -1, -1, -1, null);
+  private static final ProbeResult TIMEOUT = new ProbeResult(Status.TIMEOUT, -1, -1, -1, null);
+
+  private final Status status;
+  private final int version;
+  private final int cipherSuite;
+  private final int alert;
+  private final Throwable error;
+  private final int namedGroup;
+  private final int groupBits;
+
+  private ProbeResult(Status status, int version, int cipherSuite, int alert, Throwable error) {
+    this(status, version, cipherSuite, alert, error, NamedGroup.UNKNOWN, 0);
+  }
+
+  private ProbeResult(Status status, int version, int cipherSuite, int alert, Throwable error,
+      int namedGroup, int groupBits) {
+    this.status = status;
+    this.version = version;
+    this.cipherSuite = cipherSuite;
+    this.alert = alert;
+    this.error = error;
+    this.namedGroup = namedGroup;
+    this.groupBits = groupBits;
+  }
+
+  static ProbeResult accepted(int version, int cipherSuite) {
+    return new ProbeResult(Status.ACCEPTED, version, cipherSuite, -1, null);
+  }
+
+  static ProbeResult accepted(int version, int cipherSuite, int namedGroup, int groupBits) {
+    return new ProbeResult(Status.ACCEPTED, version, cipherSuite, -1, null, namedGroup,
+        groupBits);
+  }
+
+  static ProbeResult alert(int level, int description) {
+    return new ProbeResult(Status.ALERT, -1, -1, level << 8 | description, null);
+  }
+
+  static ProbeResult closed() {
+    return CLOSED;
+  }
+
+  static ProbeResult timeout() {
+    return TIMEOUT;
+  }
+
+  static ProbeResult error(Throwable error) {
+    return new ProbeResult(Status.ERROR, -1, -1, -1, error);
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public boolean isAccepted() {
+    return status == Status.ACCEPTED;
+  }
+
+  /**
+   * Negotiated version code if accepted.
+   *
+   * @return version code or -1
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Selected cipher suite code if accepted.
+   *
+   * @return suite code or -1
+   */
+  public int getCipherSuite() {
+    return cipherSuite;
+  }
+
+  /**
+   * Key exchange group the server selected, from the key_share of a TLSv1.3 answer or the
+   * ServerKeyExchange of a key exchange probe.
+   *
+   * @return named group or {@link NamedGroup#UNKNOWN}, also for finite field DHE without a
+   *         named group
+   */
+  public int getNamedGroup() {
+    return namedGroup;
+  }
+
+  /**
+   * Size of the key exchange group, the prime length for finite field DHE.
+   *
+   * @return size in bits or 0 if unknown
+   */
+  public int getGroupBits() {
+    return groupBits;
+  }
+
+  public int getAlertLevel() {
+    return alert < 0 ? -1 : alert >>> 8;
+  }
+
+  public int getAlertDescription() {
+    return alert < 0 ? -1 : alert & 0xFF;
+  }
+
+  public Throwable getError() {
+    return error;
+  }
+
+  @Override
+  public String toString() {
+    switch (status) {
+      case ACCEPTED:
+        return "ProbeResult [ACCEPTED " + TlsVersion.of(version).getName() + " "
+            + CipherMap.toHex(cipherSuite)
+            + (namedGroup == NamedGroup.UNKNOWN ? "" : " " + NamedGroup.name(namedGroup))
+            + (groupBits == 0 ? "" : " " + groupBits + " bits") + "]";
+      case ALERT:
+        return "ProbeResult [ALERT " + getAlertLevel() + "/" + getAlertDescription() + "]";
+      case ERROR:
+        return "ProbeResult [ERROR " + error + "]";
+      default:
+        return "ProbeResult [" + status + "]";
+    }
+  }
+
+}
@@ -0,0 +1,1363 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import com.google.common.net.InetAddresses;
+
+import io.github.t4skforce.deepviolet.json.CipherCatalog;
+import io.github.t4skforce.deepviolet.json.CipherCatalogHolder;
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.NamedGroup;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+import io.github.t4skforce.deepviolet.metrics.Counter;
+import io.github.t4skforce.deepviolet.metrics.Histogram;
+import io.github.t4skforce.deepviolet.metrics.MetricsRegistry;
+import io.github.t4skforce.deepviolet.tls.ClientHello;
+import io.github.t4skforce.deepviolet.tls.HandshakeReader;
+import io.github.t4skforce.deepviolet.tls.ServerHello;
+import io.github.t4skforce.deepviolet.tls.ServerKeyExchange;
+import io.github.t4skforce.deepviolet.tls.TlsRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enumerates the cipher suites a server accepts by sending crafted ClientHellos and reading only
+ * the first answer. All connections are multiplexed on one selector thread, many probes can be in
+ * flight at once without a thread per connection.
+ *
+ * <p>A probe resets the connection as soon as the ServerHello or an alert arrived, the server never
+ * gets to the expensive part of the handshake. Where the time of a probe goes is recorded per
+ * {@link Phase}, see {@link #getLatency(Phase)}.
+ *
+ * <p>Futures returned by the engine are completed on the selector thread, dependent actions must
+ * not block.
+ */
+public class ScanEngine implements Closeable {
+
+  private static final int BUFFER_SIZE = 4096;
+  // key exchange probes read past the Certificate message, which has to fit as a whole
+  private static final int LARGE_BUFFER_SIZE = 64 * 1024;
+
+  private final int maxInFlight;
+  private final long connectTimeout;
+  private final long readTimeout;
+  private final int suitesPerHello;
+  private final CipherCatalogHolder catalog;
+
+  private final Selector selector;
+  private final Thread thread;
+  private final Queue<Probe> pending = new ConcurrentLinkedQueue<>();
+  private volatile boolean closed;
+
+  // owned by the selector thread
+  private final PriorityQueue<Deadline> deadlines = new PriorityQueue<>(
+      (a, b) -> Long.compare(a.at - b.at, 0));
+  private final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<>();
+  private final ArrayDeque<ByteBuffer> largeBuffers = new ArrayDeque<>();
+  private final ArrayDeque<HandshakeReader> readers = new ArrayDeque<>();
+  private final ServerHello serverHello = new ServerHello();
+  private final ServerKeyExchange serverKeyExchange = new ServerKeyExchange();
+  private final ProbeQueue<Probe> queue;
+  private int inFlight;
+  private final LatencyHistogram[] latency = new LatencyHistogram[Phase.values().length];
+  private final ProbeMetrics metrics;
+
+  // written by the selector thread only
+  private volatile long started;
+  private volatile long completed;
+  private volatile int queued;
+  private volatile int hosts;
+  private volatile int maxDepth;
+
+  private ScanEngine(Builder builder) throws IOException {
+    this.maxInFlight = builder.maxInFlight;
+    this.connectTimeout = builder.connectTimeout.toNanos();
+    this.readTimeout = builder.readTimeout.toNanos();
+    this.suitesPerHello = builder.suitesPerHello;
+    this.queue = new ProbeQueue<>(builder.maxPerHost, builder.maxPerAddress,
+        new TokenBucket(builder.probesPerSecond, builder.burst));
+    this.catalog = builder.catalog;
+    this.metrics = builder.metrics == null ? null : new ProbeMetrics(builder.metrics);
+    for (int i = 0; i < latency.length; i++) {
+      latency[i] = new LatencyHistogram();
+    }
+    this.selector = Selector.open();
+    this.thread = new Thread(this::run, builder.threadName);
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Send a single ClientHello and report the first answer.
+   *
+   * @param target server address
+   * @param hello  hello template
+   * @param suites offered cipher suites
+   * @return future completed with the result, never exceptionally unless the engine is closed
+   */
+  public CompletableFuture<ProbeResult> probe(InetSocketAddress target, ClientHello hello,
+      int... suites) {
+    return submit(new Probe(target, hello, suites.clone(), suites.length, 0));
+  }
+
+  /**
+   * Send a single ClientHello and read on to the ServerKeyExchange to learn the key exchange
+   * group. TLSv1.3 answers already carry the group and complete at the ServerHello.
+   *
+   * @param target      server address
+   * @param hello       hello template
+   * @param keyExchange {@link ServerKeyExchange#DHE} or {@link ServerKeyExchange#ECDHE}, all
+   *                    offered suites have to use it
+   * @param suites      offered cipher suites
+   * @return future completed with the result, never exceptionally unless the engine is closed
+   */
+  public CompletableFuture<ProbeResult> probeKeyExchange(InetSocketAddress target,
+      ClientHello hello, int keyExchange, int... suites) {
+    if (keyExchange != ServerKeyExchange.DHE && keyExchange != ServerKeyExchange.ECDHE) {
+      throw new IllegalArgumentException("Unsupported key exchange: " + keyExchange);
+    }
+    return submit(new Probe(target, hello, suites.clone(), suites.length, keyExchange));
+  }
+
+  /**
+   * Enumerate all suites of the current catalog that are defined for the version.
+   *
+   * @param target  server address
+   * @param version protocol version to offer
+   * @return accepted suites
+   */
+  public CompletableFuture<CipherSuiteScan> enumerate(InetSocketAddress target,
+      TlsVersion version) {
+    if (catalog == null) {
+      throw new IllegalStateException("No CipherMap configured");
+    }
+    return enumerate(target, version, candidates(catalog.get(), version));
+  }
+
+  /**
+   * Enumerate accepted suites. Each round offers every candidate not yet accepted and removes the
+   * one the server selects, until the server refuses. Candidates are split into groups of at most
+   * {@link Builder#suitesPerHello(int)} which are enumerated concurrently.
+   *
+   * @param target     server address
+   * @param version    protocol version to offer
+   * @param candidates suite codes in client preference order
+   * @return accepted suites
+   */
+  public CompletableFuture<CipherSuiteScan> enumerate(InetSocketAddress target, TlsVersion version,
+      int[] candidates) {
+    ClientHello hello = ClientHello.builder().version(version).serverName(serverName(target))
+        .build();
+    CompletableFuture<CipherSuiteScan> result = null;
+    int from = 0;
+    do {
+      int to = Math.min(candidates.length, from + suitesPerHello);
+      CompletableFuture<CipherSuiteScan> chunk = new Enumeration(target, hello,
+          Arrays.copyOfRange(candidates, from, to)).start();
+      result = result == null ? chunk
+          : result.thenCombine(chunk, (a, b) -> new CipherSuiteScan(target, version,
+              CipherSuiteScan.concat(a.getAccepted(), b.getAccepted()),
+              a.getProbes() + b.getProbes(), a.isComplete() ? b.getFailure() : a.getFailure()));
+      from = to;
+    } while (from < candidates.length);
+    return result;
+  }
+
+  /**
+   * Detect the preference order of the suites an enumeration found.
+   *
+   * @param scan accepted suites
+   * @return preference order
+   */
+  public CompletableFuture<PreferenceScan> preferenceOrder(CipherSuiteScan scan) {
+    return preferenceOrder(scan.getTarget(), scan.getVersion(), scan.getAccepted());
+  }
+
+  /**
+   * Detect whether the server enforces its own cipher suite order and recover that order. Two
+   * concurrent handshakes offer the suites and their reversal, a server following the client
+   * answers both with the first suite offered. Otherwise the server answers with its most
+   * preferred suite of those offered, so removing the selected one each round orders the suites
+   * with one handshake per suite instead of one per pair. More suites than fit a hello are ordered
+   * per chunk concurrently and merged by offering the current head of every chunk.
+   *
+   * @param target   server address
+   * @param version  protocol version to offer
+   * @param accepted suites the server accepted for the version
+   * @return preference order
+   */
+  public CompletableFuture<PreferenceScan> preferenceOrder(InetSocketAddress target,
+      TlsVersion version, int[] accepted) {
+    if (suitesPerHello < 2) {
+      throw new IllegalStateException("Preference detection needs two suites per hello");
+    }
+    return new PreferenceDetection(target, version).start(accepted.clone());
+  }
+
+  /**
+   * Enumerate the {@link ClientHello#DEFAULT_GROUPS} the server accepts.
+   *
+   * @param target  server address
+   * @param version protocol version to offer
+   * @return accepted groups
+   */
+  public CompletableFuture<GroupScan> enumerateGroups(InetSocketAddress target,
+      TlsVersion version) {
+    return enumerateGroups(target, version, ClientHello.DEFAULT_GROUPS);
+  }
+
+  /**
+   * Enumerate accepted groups by elimination. Each round offers every group not yet accepted in
+   * supported_groups and removes the one the server selects, so a host costs one handshake per
+   * accepted group plus the final refusal instead of one per candidate. TLSv1.3 hellos carry an
+   * empty key_share and the HelloRetryRequest names the group. Older versions offer only ECDHE
+   * suites and take the group from the ServerKeyExchange, one more handshake offering only DHE
+   * suites measures the finite field parameters.
+   *
+   * @param target  server address
+   * @param version protocol version to offer
+   * @param groups  candidate groups in client preference order
+   * @return accepted groups
+   */
+  public CompletableFuture<GroupScan> enumerateGroups(InetSocketAddress target,
+      TlsVersion version, int[] groups) {
+    if (catalog == null) {
+      throw new IllegalStateException("No CipherMap configured");
+    }
+    CipherCatalog current = catalog.get();
+    if (version.getCode() >= TlsVersion.TLS_V1_3) {
+      return new GroupEnumeration(target, version, candidates(current, version), 0,
+          groups).start();
+    }
+    int[] curves = Arrays.stream(groups).filter(g -> !NamedGroup.isFiniteField(g)).toArray();
+    return new GroupEnumeration(target, version, keyExchangeSuites(current, "TLS_ECDHE_"),
+        ServerKeyExchange.ECDHE, curves).start();
+  }
+
+  static int[] keyExchangeSuites(CipherCatalog catalog, String... prefixes) {
+    int[] codes = catalog.codes();
+    int cnt = 0;
+    for (int code : codes) {
+      String iana = catalog.get(code).getIana();
+      if (iana == null || iana.contains("_PSK_") || code >>> 8 == 0x13) {
+        continue;
+      }
+      for (String prefix : prefixes) {
+        if (iana.startsWith(prefix)) {
+          codes[cnt++] = code;
+          break;
+        }
+      }
+    }
+    return Arrays.copyOf(codes, cnt);
+  }
+
+  static int[] candidates(CipherCatalog catalog, TlsVersion version) {
+    boolean tls13 = version.getCode() >= TlsVersion.TLS_V1_3;
+    int[] codes = catalog.codes();
+    int cnt = 0;
+    for (int code : codes) {
+      // signalling values are not real suites
+      if (code == 0x00FF || code == 0x5600) {
+        continue;
+      }
+      if (tls13 == (code >>> 8 == 0x13)) {
+        codes[cnt++] = code;
+      }
+    }
+    return Arrays.copyOf(codes, cnt);
+  }
+
+  private static String serverName(InetSocketAddress target) {
+    String host = target.getHostString();
+    return InetAddresses.isInetAddress(host) ? null : host;
+  }
+
+  private CompletableFuture<ProbeResult> submit(Probe probe) {
+    if (closed) {
+      probe.future.completeExceptionally(new IOException("ScanEngine closed"));
+    } else {
+      pending.add(probe);
+      selector.wakeup();
+      // lost the race against the selector thread draining the queue on close
+      if (closed && pending.remove(probe)) {
+        probe.future.completeExceptionally(new IOException("ScanEngine closed"));
+      }
+    }
+    return probe.future;
+  }
+
+  /**
+   * Counters of this engine, probes submitted but not yet handed to the selector thread are not
+   * included in the queue depth.
+   *
+   * @return snapshot
+   */
+  public ScanStats getStats() {
+    long done = completed;
+    return new ScanStats(System.nanoTime(), started, done, started - done, queued, hosts,
+        maxDepth);
+  }
+
+  /**
+   * Live histogram of one probe phase since the engine was created, safe to read from any thread.
+   *
+   * @param phase probe phase
+   * @return histogram of durations in nanoseconds
+   */
+  public LatencyHistogram getLatency(Phase phase) {
+    return latency[phase.ordinal()];
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    selector.wakeup();
+    if (Thread.currentThread() != thread) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void run() {
+    IOException failure = new IOException("ScanEngine closed");
+    try {
+      while (!closed) {
+        selector.select(nextTimeout());
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (key.isValid()) {
+            handle(key);
+          }
+        }
+        long now = System.nanoTime();
+        expire(now);
+        startPending(now);
+      }
+    } catch (IOException | RuntimeException e) {
+      failure = new IOException("ScanEngine failed", e);
+    } finally {
+      closed = true;
+      for (SelectionKey key : selector.keys()) {
+        fail((Probe) key.attachment(), failure);
+      }
+      Probe probe;
+      while ((probe = pending.poll()) != null) {
+        fail(probe, failure);
+      }
+      while ((probe = queue.drain()) != null) {
+        fail(probe, failure);
+      }
+      try {
+        selector.close();
+      } catch (IOException e) {
+        // nothing left to do
+      }
+    }
+  }
+
+  private void fail(Probe probe, IOException failure) {
+    if (probe != null && !probe.done) {
+      probe.done = true;
+      closeQuietly(probe);
+      probe.future.completeExceptionally(failure);
+    }
+  }
+
+  private long nextTimeout() {
+    Deadline next;
+    while ((next = deadlines.peek()) != null && next.isStale()) {
+      deadlines.poll();
+    }
+    long now = System.nanoTime();
+    long timeout = next == null ? 0 : Math.max(1, next.at - now);
+    long delay = inFlight < maxInFlight ? queue.delay(now) : 0;
+    if (delay > 0 && (timeout == 0 || delay < timeout)) {
+      timeout = delay;
+    }
+    return timeout == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(timeout) + 1;
+  }
+
+  private void expire(long now) {
+    Deadline next;
+    while ((next = deadlines.peek()) != null && next.at - now <= 0) {
+      deadlines.poll();
+      // a moved deadline is queued as a new entry, the old one is skipped
+      if (!next.isStale()) {
+        finish(next.probe, ProbeResult.timeout());
+      }
+    }
+  }
+
+  private void startPending(long now) {
+    Probe probe;
+    while ((probe = pending.poll()) != null) {
+      queue.add(probe);
+    }
+    while (inFlight < maxInFlight && (probe = queue.poll(now)) != null) {
+      started++;
+      if (metrics != null) {
+        metrics.probes.increment();
+      }
+      open(probe);
+    }
+    queued = queue.size();
+    hosts = queue.hosts();
+    maxDepth = queue.maxDepth();
+  }
+
+  private void open(Probe probe) {
+    inFlight++;
+    try {
+      if (probe.target.isUnresolved()) {
+        throw new UnknownHostException(probe.target.getHostString());
+      }
+      SocketChannel channel = SocketChannel.open();
+      probe.channel = channel;
+      channel.configureBlocking(false);
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      // reset instead of FIN, mass probing would otherwise pile up TIME_WAIT sockets
+      channel.setOption(StandardSocketOptions.SO_LINGER, 0);
+      probe.key = channel.register(selector, 0, probe);
+      probe.opened = System.nanoTime();
+      ProbeEvent event = new ProbeEvent();
+      if (event.isEnabled()) {
+        event.begin();
+        probe.event = event;
+      }
+      deadline(probe, connectTimeout);
+      if (channel.connect(probe.target)) {
+        connected(probe);
+      } else {
+        probe.key.interestOps(SelectionKey.OP_CONNECT);
+      }
+    } catch (IOException e) {
+      finish(probe, ProbeResult.error(e));
+    }
+  }
+
+  private void deadline(Probe probe, long timeout) {
+    deadlines.add(new Deadline(probe, System.nanoTime() + timeout, ++probe.generation));
+  }
+
+  private void handle(SelectionKey key) {
+    Probe probe = (Probe) key.attachment();
+    try {
+      if (key.isConnectable()) {
+        if (probe.channel.finishConnect()) {
+          connected(probe);
+        }
+        return;
+      }
+      if (key.isWritable()) {
+        write(probe);
+      }
+      if (!probe.done && key.isReadable()) {
+        read(probe);
+      }
+    } catch (IOException e) {
+      finish(probe, ProbeResult.error(e));
+    } catch (RuntimeException e) {
+      // one broken probe must not take the selector thread and every other probe with it
+      finish(probe, ProbeResult.error(malformed(e)));
+    }
+  }
+
+  private void connected(Probe probe) throws IOException {
+    probe.connected = System.nanoTime();
+    latency[Phase.CONNECT.ordinal()].record(probe.connected - probe.opened);
+    probe.out = buffer(probe.hello.length(probe.count));
+    probe.hello.write(probe.out, probe.suites, probe.count);
+    probe.out.flip();
+    deadline(probe, readTimeout);
+    write(probe);
+  }
+
+  private void write(Probe probe) throws IOException {
+    probe.channel.write(probe.out);
+    if (probe.out.hasRemaining()) {
+      probe.key.interestOps(SelectionKey.OP_WRITE);
+    } else {
+      release(probe.out);
+      probe.out = null;
+      probe.in = buffer(probe.keyExchange == 0 ? BUFFER_SIZE : LARGE_BUFFER_SIZE);
+      probe.reader = reader().reset(probe.in);
+      probe.key.interestOps(SelectionKey.OP_READ);
+    }
+  }
+
+  private void read(Probe probe) throws IOException {
+    int read = probe.channel.read(probe.in);
+    if (read > 0 && !probe.received) {
+      probe.received = true;
+      probe.firstByte = System.nanoTime();
+      latency[Phase.FIRST_BYTE.ordinal()].record(probe.firstByte - probe.connected);
+    }
+    ProbeResult result = parse(probe);
+    if (result == null) {
+      if (read < 0) {
+        result = ProbeResult.closed();
+      } else if (!probe.in.hasRemaining()) {
+        probe.reader.compact();
+        if (!probe.in.hasRemaining()) {
+          result = ProbeResult.error(new ProtocolException("Response too large"));
+        }
+      }
+    }
+    if (result != null) {
+      if (result.isAccepted() || result.getStatus() == ProbeResult.Status.ALERT) {
+        latency[Phase.SERVER_HELLO.ordinal()].record(System.nanoTime() - probe.firstByte);
+      }
+      finish(probe, result);
+    }
+  }
+
+  /**
+   * Decide on the records received so far.
+   *
+   * @param probe probe whose receive buffer was read into
+   * @return result or null if more data is needed
+   */
+  private ProbeResult parse(Probe probe) {
+    HandshakeReader reader = probe.reader;
+    try {
+      while (true) {
+        switch (reader.next()) {
+          case HandshakeReader.NEED_MORE:
+            return null;
+          case HandshakeReader.ALERT:
+            return ProbeResult.alert(reader.getAlert().getLevel(),
+                reader.getAlert().getDescription());
+          case TlsRecord.SERVER_HELLO:
+            serverHello.wrap(reader.getBuffer(), reader.getOffset(), reader.getLength());
+            int version = serverHello.getVersion();
+            if (probe.keyExchange == 0 || version >= TlsVersion.TLS_V1_3) {
+              int group = serverHello.getKeyShareGroup();
+              return ProbeResult.accepted(version, serverHello.getCipherSuite(), group,
+                  NamedGroup.bits(group));
+            }
+            probe.version = version;
+            probe.cipherSuite = serverHello.getCipherSuite();
+            break;
+          case TlsRecord.SERVER_KEY_EXCHANGE:
+            if (probe.version < 0) {
+              return ProbeResult.error(new ProtocolException("Expected ServerHello"));
+            }
+            serverKeyExchange.wrap(reader.getBuffer(), reader.getOffset(), reader.getLength(),
+                probe.keyExchange, probe.version);
+            return ProbeResult.accepted(probe.version, probe.cipherSuite,
+                serverKeyExchange.getNamedGroup(), serverKeyExchange.getGroupBits());
+          case TlsRecord.SERVER_HELLO_DONE:
+            if (probe.version >= 0) {
+              // the server picked a suite without ephemeral key exchange
+              return ProbeResult.accepted(probe.version, probe.cipherSuite);
+            }
+            return ProbeResult.error(new ProtocolException("Expected ServerHello"));
+          default:
+            if (probe.version < 0) {
+              return ProbeResult.error(new ProtocolException("Expected ServerHello"));
+            }
+            // Certificate and CertificateStatus precede the ServerKeyExchange
+            break;
+        }
+      }
+    } catch (ProtocolException e) {
+      return ProbeResult.error(e);
+    } catch (IllegalArgumentException e) {
+      return ProbeResult.error(new ProtocolException(e.getMessage()));
+    } catch (RuntimeException e) {
+      return ProbeResult.error(malformed(e));
+    }
+  }
+
+  private static ProtocolException malformed(RuntimeException e) {
+    ProtocolException exception = new ProtocolException("Malformed handshake: " + e);
+    exception.initCause(e);
+    return exception;
+  }
+
+  private void finish(Probe probe, ProbeResult result) {
+    if (probe.done) {
+      return;
+    }
+    probe.done = true;
+    inFlight--;
+    completed++;
+    queue.release(probe);
+    closeQuietly(probe);
+    release(probe.out);
+    release(probe.in);
+    if (probe.reader != null) {
+      readers.push(probe.reader);
+    }
+    probe.out = null;
+    probe.in = null;
+    probe.reader = null;
+    if (metrics != null) {
+      metrics.record(probe, result);
+    }
+    if (probe.event != null) {
+      commit(probe, result);
+    }
+    probe.future.complete(result);
+  }
+
+  private static void commit(Probe probe, ProbeResult result) {
+    ProbeEvent event = probe.event;
+    probe.event = null;
+    event.end();
+    if (event.shouldCommit()) {
+      event.host = probe.target.getHostString();
+      event.port = probe.target.getPort();
+      event.offered = probe.count;
+      event.keyExchange = probe.keyExchange != 0;
+      event.status = result.getStatus().name();
+      event.version = result.getVersion();
+      event.cipherSuite = result.getCipherSuite();
+      event.commit();
+    }
+  }
+
+  private static void closeQuietly(Probe probe) {
+    if (probe.channel != null) {
+      try {
+        probe.channel.close();
+      } catch (IOException e) {
+        // connection is abandoned anyway
+      }
+    }
+  }
+
+  private ByteBuffer buffer(int size) {
+    if (size == LARGE_BUFFER_SIZE) {
+      ByteBuffer buffer = largeBuffers.poll();
+      return buffer == null ? ByteBuffer.allocateDirect(LARGE_BUFFER_SIZE) : buffer;
+    }
+    if (size > BUFFER_SIZE) {
+      return ByteBuffer.allocate(size);
+    }
+    ByteBuffer buffer = buffers.poll();
+    return buffer == null ? ByteBuffer.allocateDirect(BUFFER_SIZE) : buffer;
+  }
+
+  private HandshakeReader reader() {
+    HandshakeReader reader = readers.poll();
+    return reader == null ? new HandshakeReader() : reader;
+  }
+
+  private void release(ByteBuffer buffer) {
+    if (buffer != null && buffer.isDirect()) {
+      buffer.clear();
+      (buffer.capacity() == BUFFER_SIZE ? buffers : largeBuffers).push(buffer);
+    }
+  }
+
+  private static final class Probe extends ProbeQueue.Entry {
+    private final InetSocketAddress target;
+    private final ClientHello hello;
+    private final int[] suites;
+    private final int count;
+    private final int keyExchange;
+    private final CompletableFuture<ProbeResult> future = new CompletableFuture<>();
+
+    private SocketChannel channel;
+    private SelectionKey key;
+    private ByteBuffer out;
+    private ByteBuffer in;
+    private HandshakeReader reader;
+    // bumped whenever the deadline moves
+    private int generation;
+    private boolean done;
+    private long opened;
+    private long connected;
+    private long firstByte;
+    private boolean received;
+    // only set while a flight recording is taking probe events
+    private ProbeEvent event;
+    // ServerHello of a key exchange probe still waiting for the ServerKeyExchange
+    private int version = -1;
+    private int cipherSuite;
+
+    private Probe(InetSocketAddress target, ClientHello hello, int[] suites, int count,
+        int keyExchange) {
+      this.target = target;
+      this.hello = hello;
+      this.suites = suites;
+      this.count = count;
+      this.keyExchange = keyExchange;
+    }
+
+    @Override
+    InetSocketAddress target() {
+      return target;
+    }
+  }
+
+  /**
+   * Immutable heap entry, a heap never reorders an entry whose key changes in place.
+   */
+  private static final class Deadline {
+    private final Probe probe;
+    private final long at;
+    private final int generation;
+
+    private Deadline(Probe probe, long at, int generation) {
+      this.probe = probe;
+      this.at = at;
+      this.generation = generation;
+    }
+
+    private boolean isStale() {
+      return probe.done || probe.generation != generation;
+    }
+  }
+
+  /**
+   * One enumeration chain, the next probe is only sent once the previous one was answered.
+   */
+  private final class Enumeration {
+    private final InetSocketAddress target;
+    private final ClientHello hello;
+    private final int[] remaining;
+    private int count;
+    private final int[] accepted;
+    private int acceptedCount;
+    private int probes;
+    private final CompletableFuture<CipherSuiteScan> future = new CompletableFuture<>();
+
+    private Enumeration(InetSocketAddress target, ClientHello hello, int[] candidates) {
+      this.target = target;
+      this.hello = hello;
+      this.remaining = candidates;
+      this.count = candidates.length;
+      this.accepted = new int[candidates.length];
+    }
+
+    private CompletableFuture<CipherSuiteScan> start() {
+      if (count == 0) {
+        done(null);
+      } else {
+        next();
+      }
+      return future;
+    }
+
+    private void next() {
+      probes++;
+      // the remaining array is only modified after the probe completed
+      submit(new Probe(target, hello, remaining, count, 0)).whenComplete(this::step);
+    }
+
+    private void step(ProbeResult result, Throwable error) {
+      if (error != null) {
+        future.completeExceptionally(error);
+      } else if (result.isAccepted()) {
+        if (result.getVersion() != hello.getVersion().getCode()) {
+          // server fell back to another version, nothing is accepted for this one
+          done(null);
+        } else if (!remove(result.getCipherSuite())) {
+          done(ProbeResult.error(new ProtocolException(
+              "Server selected a suite not offered: " + CipherMap.toHex(result.getCipherSuite()))));
+        } else if (count == 0) {
+          done(null);
+        } else {
+          next();
+        }
+      } else if (result.getStatus() == ProbeResult.Status.ALERT
+          || result.getStatus() == ProbeResult.Status.CLOSED) {
+        done(null);
+      } else {
+        done(result);
+      }
+    }
+
+    private boolean remove(int code) {
+      for (int i = 0; i < count; i++) {
+        if (remaining[i] == code) {
+          // keep the client preference order for the next round
+          System.arraycopy(remaining, i + 1, remaining, i, count - i - 1);
+          count--;
+          accepted[acceptedCount++] = code;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private void done(ProbeResult failure) {
+      future.complete(new CipherSuiteScan(target, hello.getVersion(),
+          Arrays.copyOf(accepted, acceptedCount), probes, failure));
+    }
+  }
+
+  /**
+   * Preference detection, see {@link ScanEngine#preferenceOrder(InetSocketAddress, TlsVersion,
+   * int[])}. Selections that fail record the first failure and end the chain that sent them with
+   * the prefix ordered so far.
+   */
+  private final class PreferenceDetection {
+    private final InetSocketAddress target;
+    private final TlsVersion version;
+    private final ClientHello hello;
+    private int probes;
+    private ProbeResult failure;
+    private final CompletableFuture<PreferenceScan> future = new CompletableFuture<>();
+
+    private PreferenceDetection(InetSocketAddress target, TlsVersion version) {
+      this.target = target;
+      this.version = version;
+      this.hello = ClientHello.builder().version(version).serverName(serverName(target)).build();
+    }
+
+    private CompletableFuture<PreferenceScan> start(int[] suites) {
+      if (suites.length < 2) {
+        done(false, suites);
+        return future;
+      }
+      int[] forward = Arrays.copyOf(suites, Math.min(suites.length, suitesPerHello));
+      int[] reverse = new int[forward.length];
+      for (int i = 0; i < forward.length; i++) {
+        reverse[i] = forward[forward.length - 1 - i];
+      }
+      select(forward).thenCombine(select(reverse), (a, b) -> {
+        if (failure != null) {
+          done(false, new int[0]);
+        } else if (a == forward[0] && b == reverse[0]) {
+          done(false, suites);
+        } else {
+          // both answers name the most preferred suite if every suite was offered
+          int top = suites.length == forward.length && a.equals(b) ? a : -1;
+          order(suites, top).whenComplete((order, error) -> {
+            if (error != null) {
+              future.completeExceptionally(error);
+            } else {
+              done(true, order);
+            }
+          });
+        }
+        return null;
+      }).exceptionally(error -> {
+        future.completeExceptionally(error);
+        return null;
+      });
+      return future;
+    }
+
+    private CompletableFuture<int[]> order(int[] suites, int top) {
+      if (suites.length <= suitesPerHello) {
+        return new Elimination(suites).start(top);
+      }
+      List<CompletableFuture<int[]>> chunks = new ArrayList<>();
+      for (int from = 0; from < suites.length; from += suitesPerHello) {
+        chunks.add(new Elimination(Arrays.copyOfRange(suites, from,
+            Math.min(suites.length, from + suitesPerHello))).start(-1));
+      }
+      return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0]))
+          .thenCompose(v -> {
+            int[][] sorted = new int[chunks.size()][];
+            for (int i = 0; i < sorted.length; i++) {
+              sorted[i] = chunks.get(i).join();
+            }
+            return failure != null ? CompletableFuture.completedFuture(new int[0])
+                : new Merge(sorted, suites.length).start();
+          });
+    }
+
+    /**
+     * Most preferred of the offered suites, offers that do not fit one hello are decided per
+     * chunk first.
+     */
+    private CompletableFuture<Integer> best(int[] offered) {
+      if (offered.length == 1) {
+        return CompletableFuture.completedFuture(offered[0]);
+      }
+      if (offered.length <= suitesPerHello) {
+        return select(offered);
+      }
+      List<CompletableFuture<Integer>> chunks = new ArrayList<>();
+      for (int from = 0; from < offered.length; from += suitesPerHello) {
+        chunks.add(best(Arrays.copyOfRange(offered, from,
+            Math.min(offered.length, from + suitesPerHello))));
+      }
+      return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0]))
+          .thenCompose(v -> {
+            int[] winners = new int[chunks.size()];
+            for (int i = 0; i < winners.length; i++) {
+              winners[i] = chunks.get(i).join();
+              if (winners[i] < 0) {
+                return CompletableFuture.completedFuture(-1);
+              }
+            }
+            return best(winners);
+          });
+    }
+
+    /**
+     * @return selected suite or -1 if the probe failed
+     */
+    private CompletableFuture<Integer> select(int[] offered) {
+      probes++;
+      return submit(new Probe(target, hello, offered, offered.length, 0)).thenApply(result -> {
+        if (result.isAccepted() && result.getVersion() == version.getCode()) {
+          for (int suite : offered) {
+            if (suite == result.getCipherSuite()) {
+              return suite;
+            }
+          }
+          result = ProbeResult.error(new ProtocolException(
+              "Server selected a suite not offered: " + CipherMap.toHex(result.getCipherSuite())));
+        }
+        if (failure == null) {
+          failure = result;
+        }
+        return -1;
+      });
+    }
+
+    private void done(boolean serverOrder, int[] order) {
+      future.complete(new PreferenceScan(target, version, serverOrder, order, probes, failure));
+    }
+
+    private final class Elimination {
+      private final int[] remaining;
+      private int count;
+      private final int[] order;
+      private int size;
+      private final CompletableFuture<int[]> result = new CompletableFuture<>();
+
+      private Elimination(int[] suites) {
+        this.remaining = suites.clone();
+        this.count = suites.length;
+        this.order = new int[suites.length];
+      }
+
+      private CompletableFuture<int[]> start(int top) {
+        if (top >= 0) {
+          remove(top);
+        }
+        next();
+        return result;
+      }
+
+      private void next() {
+        if (count <= 1) {
+          if (count == 1) {
+            order[size++] = remaining[0];
+          }
+          result.complete(order);
+          return;
+        }
+        // the remaining array changes before the probe is written, offer a copy
+        select(Arrays.copyOf(remaining, count)).whenComplete((selected, error) -> {
+          if (error != null) {
+            result.completeExceptionally(error);
+          } else if (selected < 0) {
+            result.complete(Arrays.copyOf(order, size));
+          } else {
+            remove(selected);
+            next();
+          }
+        });
+      }
+
+      private void remove(int suite) {
+        for (int i = 0; i < count; i++) {
+          if (remaining[i] == suite) {
+            System.arraycopy(remaining, i + 1, remaining, i, count - i - 1);
+            count--;
+            order[size++] = suite;
+            return;
+          }
+        }
+      }
+    }
+
+    private final class Merge {
+      private final int[][] chunks;
+      private final int[] heads;
+      private final int[] order;
+      private int size;
+      private final CompletableFuture<int[]> result = new CompletableFuture<>();
+
+      private Merge(int[][] chunks, int total) {
+        this.chunks = chunks;
+        this.heads = new int[chunks.length];
+        this.order = new int[total];
+      }
+
+      private CompletableFuture<int[]> start() {
+        next();
+        return result;
+      }
+
+      private void next() {
+        int[] offered = new int[chunks.length];
+        int n = 0;
+        int last = -1;
+        for (int i = 0; i < chunks.length; i++) {
+          if (heads[i] < chunks[i].length) {
+            offered[n++] = chunks[i][heads[i]];
+            last = i;
+          }
+        }
+        if (n <= 1) {
+          // a single chunk left is already in order
+          if (n == 1) {
+            int len = chunks[last].length - heads[last];
+            System.arraycopy(chunks[last], heads[last], order, size, len);
+            size += len;
+          }
+          result.complete(Arrays.copyOf(order, size));
+          return;
+        }
+        best(Arrays.copyOf(offered, n)).whenComplete((selected, error) -> {
+          if (error != null) {
+            result.completeExceptionally(error);
+            return;
+          }
+          if (selected < 0) {
+            result.complete(Arrays.copyOf(order, size));
+            return;
+          }
+          for (int i = 0; i < chunks.length; i++) {
+            if (heads[i] < chunks[i].length && chunks[i][heads[i]] == selected) {
+              heads[i]++;
+              break;
+            }
+          }
+          order[size++] = selected;
+          next();
+        });
+      }
+    }
+  }
+
+  /**
+   * Group elimination chain, see {@link ScanEngine#enumerateGroups(InetSocketAddress, TlsVersion,
+   * int[])}.
+   */
+  private final class GroupEnumeration {
+    private final InetSocketAddress target;
+    private final TlsVersion version;
+    private final int[] suites;
+    private final int keyExchange;
+    private final int[] remaining;
+    private int count;
+    private final int[] accepted;
+    private int acceptedCount;
+    private int dhBits;
+    private int probes;
+    private final CompletableFuture<GroupScan> future = new CompletableFuture<>();
+
+    private GroupEnumeration(InetSocketAddress target, TlsVersion version, int[] suites,
+        int keyExchange, int[] groups) {
+      this.target = target;
+      this.version = version;
+      this.suites = Arrays.copyOf(suites, Math.min(suites.length, suitesPerHello));
+      this.keyExchange = keyExchange;
+      this.remaining = groups.clone();
+      this.count = groups.length;
+      this.accepted = new int[groups.length];
+    }
+
+    private CompletableFuture<GroupScan> start() {
+      if (count == 0 || suites.length == 0) {
+        dhe();
+      } else {
+        next();
+      }
+      return future;
+    }
+
+    private ClientHello hello(int[] groups) {
+      return ClientHello.builder().version(version).serverName(serverName(target))
+          .groups(groups).build();
+    }
+
+    private void next() {
+      probes++;
+      ClientHello hello = hello(Arrays.copyOf(remaining, count));
+      CompletableFuture<ProbeResult> probe = keyExchange == 0
+          ? submit(new Probe(target, hello, suites, suites.length, 0))
+          : probeKeyExchange(target, hello, keyExchange, suites);
+      probe.whenComplete(this::step);
+    }
+
+    private void step(ProbeResult result, Throwable error) {
+      if (error != null) {
+        future.completeExceptionally(error);
+      } else if (result.isAccepted()) {
+        if (result.getVersion() != version.getCode()) {
+          done(null);
+        } else if (!remove(result.getNamedGroup())) {
+          done(ProbeResult.error(new ProtocolException("Server selected a group not offered: "
+              + NamedGroup.name(result.getNamedGroup()))));
+        } else if (count == 0) {
+          dhe();
+        } else {
+          next();
+        }
+      } else if (result.getStatus() == ProbeResult.Status.ALERT
+          || result.getStatus() == ProbeResult.Status.CLOSED) {
+        dhe();
+      } else {
+        done(result);
+      }
+    }
+
+    private boolean remove(int group) {
+      for (int i = 0; i < count; i++) {
+        if (remaining[i] == group) {
+          System.arraycopy(remaining, i + 1, remaining, i, count - i - 1);
+          count--;
+          accepted[acceptedCount++] = group;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Before TLSv1.3 finite field parameters are not negotiated through supported_groups by most
+     * servers, a single DHE handshake tells their size.
+     */
+    private void dhe() {
+      if (keyExchange != ServerKeyExchange.ECDHE) {
+        done(null);
+        return;
+      }
+      int[] dheSuites = keyExchangeSuites(catalog.get(), "TLS_DHE_RSA_", "TLS_DHE_DSS_");
+      if (dheSuites.length == 0) {
+        done(null);
+        return;
+      }
+      probes++;
+      probeKeyExchange(target, hello(ClientHello.DEFAULT_GROUPS), ServerKeyExchange.DHE,
+          Arrays.copyOf(dheSuites, Math.min(dheSuites.length, suitesPerHello)))
+          .whenComplete((result, error) -> {
+            if (error != null) {
+              future.completeExceptionally(error);
+            } else if (result.isAccepted() || result.getStatus() == ProbeResult.Status.ALERT
+                || result.getStatus() == ProbeResult.Status.CLOSED) {
+              if (result.isAccepted() && result.getVersion() == version.getCode()) {
+                dhBits = result.getGroupBits();
+              }
+              done(null);
+            } else {
+              done(result);
+            }
+          });
+    }
+
+    private void done(ProbeResult failure) {
+      future.complete(new GroupScan(target, version, Arrays.copyOf(accepted, acceptedCount),
+          dhBits, probes, failure));
+    }
+  }
+
+  /**
+   * Registry metrics resolved once, recording is a few adder increments per probe.
+   */
+  private static final class ProbeMetrics {
+    private final Counter probes;
+    private final Counter[] results = new Counter[ProbeResult.Status.values().length];
+    private final Histogram helloLatency;
+    private final Histogram keyExchangeLatency;
+
+    private ProbeMetrics(MetricsRegistry registry) {
+      probes = registry.counter("scan.probes");
+      results[ProbeResult.Status.ACCEPTED.ordinal()] = registry.counter("scan.handshakes");
+      results[ProbeResult.Status.ALERT.ordinal()] = registry.counter("scan.alerts");
+      results[ProbeResult.Status.CLOSED.ordinal()] = registry.counter("scan.closed");
+      results[ProbeResult.Status.TIMEOUT.ordinal()] = registry.counter("scan.timeouts");
+      results[ProbeResult.Status.ERROR.ordinal()] = registry.counter("scan.errors");
+      helloLatency = registry.histogram("scan.latency.hello");
+      keyExchangeLatency = registry.histogram("scan.latency.key_exchange");
+    }
+
+    private void record(Probe probe, ProbeResult result) {
+      results[result.getStatus().ordinal()].increment();
+      // probes that never got a socket have no latency worth recording
+      if (probe.channel != null) {
+        (probe.keyExchange == 0 ? helloLatency : keyExchangeLatency)
+            .record(System.nanoTime() - probe.opened);
+      }
+    }
+  }
+
+  /**
+   * Consecutive phases of a probe, each recorded once the phase completed.
+   */
+  public enum Phase {
+    /** TCP connect until established. */
+    CONNECT,
+    /** Connection established until the first byte of the answer to the ClientHello. */
+    FIRST_BYTE,
+    /** First byte until the ServerHello or alert was parsed, key exchange probes read further. */
+    SERVER_HELLO
+  }
+
+  public static class Builder {
+    private CipherCatalogHolder catalog;
+    private int maxInFlight = 256;
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration readTimeout = Duration.ofSeconds(5);
+    private int suitesPerHello = 128;
+    private int maxPerHost = Integer.MAX_VALUE;
+    private int maxPerAddress = Integer.MAX_VALUE;
+    private double probesPerSecond;
+    private int burst = 1;
+    private String threadName = "deepviolet-scan";
+    private MetricsRegistry metrics;
+
+    private Builder() {
+    }
+
+    /**
+     * Catalog used by {@link ScanEngine#enumerate(InetSocketAddress, TlsVersion)}.
+     *
+     * @param cipherMap cipher suite catalog
+     * @return builder
+     */
+    public Builder cipherMap(CipherMap cipherMap) {
+      this.catalog = cipherMap == null ? null : CipherCatalogHolder.of(cipherMap);
+      return this;
+    }
+
+    /**
+     * Catalog that may be refreshed while the engine runs, enumerations started after a refresh use
+     * the new catalog.
+     *
+     * @param catalog catalog holder
+     * @return builder
+     */
+    public Builder catalog(CipherCatalogHolder catalog) {
+      this.catalog = catalog;
+      return this;
+    }
+
+    public Builder maxInFlight(int maxInFlight) {
+      if (maxInFlight < 1) {
+        throw new IllegalArgumentException("maxInFlight must be positive");
+      }
+      this.maxInFlight = maxInFlight;
+      return this;
+    }
+
+    /**
+     * Concurrent probes per host and port, a server that stalls can hold no more connections.
+     *
+     * @param maxPerHost probes in flight per host
+     * @return builder
+     */
+    public Builder maxPerHost(int maxPerHost) {
+      if (maxPerHost < 1) {
+        throw new IllegalArgumentException("maxPerHost must be positive");
+      }
+      this.maxPerHost = maxPerHost;
+      return this;
+    }
+
+    /**
+     * Concurrent probes per IP address, across all host names and ports resolving to it.
+     *
+     * @param maxPerAddress probes in flight per address
+     * @return builder
+     */
+    public Builder maxPerAddress(int maxPerAddress) {
+      if (maxPerAddress < 1) {
+        throw new IllegalArgumentException("maxPerAddress must be positive");
+      }
+      this.maxPerAddress = maxPerAddress;
+      return this;
+    }
+
+    /**
+     * Limit the rate new connections are opened at.
+     *
+     * @param probesPerSecond sustained rate, 0 for unlimited
+     * @param burst           probes that may start at once after an idle period
+     * @return builder
+     */
+    public Builder rateLimit(double probesPerSecond, int burst) {
+      this.probesPerSecond = probesPerSecond;
+      this.burst = burst;
+      return this;
+    }
+
+    public Builder connectTimeout(Duration connectTimeout) {
+      this.connectTimeout = connectTimeout;
+      return this;
+    }
+
+    public Builder readTimeout(Duration readTimeout) {
+      this.readTimeout = readTimeout;
+      return this;
+    }
+
+    /**
+     * Upper bound of suites in one ClientHello. Some servers reject large hellos.
+     *
+     * @param suitesPerHello suites per hello
+     * @return builder
+     */
+    public Builder suitesPerHello(int suitesPerHello) {
+      if (suitesPerHello < 1) {
+        throw new IllegalArgumentException("suitesPerHello must be positive");
+      }
+      this.suitesPerHello = suitesPerHello;
+      return this;
+    }
+
+    public Builder threadName(String threadName) {
+      this.threadName = threadName;
+      return this;
+    }
+
+    /**
+     * Record into the registry: the counters {@code scan.probes}, {@code scan.handshakes},
+     * {@code scan.alerts}, {@code scan.closed}, {@code scan.timeouts} and {@code scan.errors} and
+     * the probe durations {@code scan.latency.hello} and {@code scan.latency.key_exchange}.
+     * Engines sharing a registry add up.
+     *
+     * @param metrics registry
+     * @return builder
+     */
+    public Builder metrics(MetricsRegistry metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    public ScanEngine build() throws IOException {
+      return new ScanEngine(this);
+    }
+  }
+
+}
@@ -0,0 +1,463 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only checkpoint log of a mass scan, so a restarted run skips finished targets and only
+ * enumerates the versions a partially scanned target is still missing.
+ *
+ * <p>Every record is one frame of payload length, CRC32 of the payload and the payload. Records
+ * are encoded into a buffer and a background thread writes and fsyncs the buffers every
+ * {@link Builder#syncInterval(Duration)}, all records of one interval share a single fsync and a
+ * single future completed once they are durable. Appending never touches the file, a full buffer
+ * is handed to the background thread and appends continue in a fresh one, so it is safe on the
+ * selector thread of the engine. On open the log is replayed up to the first truncated or corrupt
+ * frame, the tail a crash left behind is cut off.
+ *
+ * <p>Instances are thread safe.
+ */
+public final class ScanJournal implements Closeable {
+
+  private static final byte VERSION_RECORD = 1;
+  private static final byte TARGET_RECORD = 2;
+  // length and checksum
+  private static final int FRAME_HEADER = 8;
+
+  private final FileChannel channel;
+  private final ScheduledExecutorService flusher;
+  private final int bufferSize;
+  private final CRC32 crc = new CRC32();
+  private final Object writeLock = new Object();
+
+  // replayed state, guarded by this
+  private final Set<String> finished = new HashSet<>();
+  private final Map<String, Map<Integer, CipherSuiteScan>> partial = new HashMap<>();
+
+  // guarded by this
+  private ByteBuffer active;
+  private ByteBuffer spare;
+  // full buffers waiting for the background thread
+  private final ArrayDeque<ByteBuffer> filled = new ArrayDeque<>();
+  private CompletableFuture<Void> batch = new CompletableFuture<>();
+  private boolean dirty;
+  private IOException failure;
+  private boolean closed;
+
+  private ScanJournal(Builder builder) throws IOException {
+    this.channel = FileChannel.open(builder.path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long end = replay();
+      if (end < channel.size()) {
+        channel.truncate(end);
+        channel.force(false);
+      }
+      channel.position(end);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+    this.bufferSize = builder.bufferSize;
+    this.active = ByteBuffer.allocate(bufferSize);
+    this.spare = ByteBuffer.allocate(bufferSize);
+    this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "deepviolet-journal");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long nanos = builder.syncInterval.toNanos();
+    flusher.scheduleWithFixedDelay(this::syncQuietly, nanos, nanos, TimeUnit.NANOSECONDS);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private static String key(InetSocketAddress target) {
+    return target.getHostString() + ":" + target.getPort();
+  }
+
+  /**
+   * @param target server address
+   * @return true if a previous run finished the target
+   */
+  public synchronized boolean isFinished(InetSocketAddress target) {
+    return finished.contains(key(target));
+  }
+
+  /**
+   * @return number of finished targets, replayed and recorded since
+   */
+  public synchronized int getFinishedCount() {
+    return finished.size();
+  }
+
+  /**
+   * Complete version scan of a target that is not finished yet.
+   *
+   * @param target  server address
+   * @param version protocol version
+   * @return journaled scan or null if the version still has to be enumerated
+   */
+  public synchronized CipherSuiteScan getCompleted(InetSocketAddress target, TlsVersion version) {
+    Map<Integer, CipherSuiteScan> versions = partial.get(key(target));
+    CipherSuiteScan scan = versions == null ? null : versions.get(version.getCode());
+    // replayed scans carry an unresolved address
+    return scan == null ? null
+        : new CipherSuiteScan(target, version, scan.getAccepted(), scan.getProbes(), null);
+  }
+
+  /**
+   * Record the result of one version of a target. Incomplete scans are recorded but enumerated
+   * again after a restart.
+   *
+   * @param scan version scan
+   * @return future completed once the record is durable
+   */
+  public CompletableFuture<Void> append(CipherSuiteScan scan) {
+    byte[] host = scan.getTarget().getHostString().getBytes(StandardCharsets.UTF_8);
+    int[] accepted = scan.getAccepted();
+    int size = 1 + 2 + host.length + 2 + 2 + 4 + 1 + 2 + 2 * accepted.length;
+    synchronized (this) {
+      CompletableFuture<Void> result = reserve(size);
+      if (result.isCompletedExceptionally()) {
+        return result;
+      }
+      ByteBuffer out = frame(size);
+      out.put(VERSION_RECORD);
+      putHost(out, host, scan.getTarget().getPort());
+      out.putShort((short) scan.getVersion().getCode());
+      out.putInt(scan.getProbes());
+      out.put((byte) (scan.isComplete() ? 1 : 0));
+      out.putShort((short) accepted.length);
+      for (int code : accepted) {
+        out.putShort((short) code);
+      }
+      seal(out, size);
+      return result;
+    }
+  }
+
+  /**
+   * Record a finished target.
+   *
+   * @param scan target scan
+   * @return future completed once the record is durable
+   */
+  public CompletableFuture<Void> append(TargetScan scan) {
+    byte[] host = scan.getTarget().getHostString().getBytes(StandardCharsets.UTF_8);
+    int size = 1 + 2 + host.length + 2 + 8;
+    synchronized (this) {
+      CompletableFuture<Void> result = reserve(size);
+      if (result.isCompletedExceptionally()) {
+        return result;
+      }
+      ByteBuffer out = frame(size);
+      out.put(TARGET_RECORD);
+      putHost(out, host, scan.getTarget().getPort());
+      out.putLong(scan.getNanos());
+      seal(out, size);
+      String key = key(scan.getTarget());
+      finished.add(key);
+      partial.remove(key);
+      return result;
+    }
+  }
+
+  /**
+   * Make room for a record in the active buffer.
+   *
+   * @return the current batch or a failed future
+   */
+  private CompletableFuture<Void> reserve(int size) {
+    if (failure != null || closed) {
+      CompletableFuture<Void> failed = new CompletableFuture<>();
+      failed.completeExceptionally(failure != null ? failure : new IOException("Journal closed"));
+      return failed;
+    }
+    if (active.remaining() >= FRAME_HEADER + size) {
+      return batch;
+    }
+    if (active.position() > 0) {
+      filled.add(active);
+      active = takeSpare();
+      // write the full buffer now instead of at the next interval
+      flusher.execute(this::syncQuietly);
+    }
+    if (active.remaining() < FRAME_HEADER + size) {
+      // a single record larger than the buffer
+      active = ByteBuffer.allocate(FRAME_HEADER + size);
+    }
+    return batch;
+  }
+
+  private ByteBuffer takeSpare() {
+    ByteBuffer buffer = spare;
+    spare = null;
+    return buffer != null ? buffer : ByteBuffer.allocate(bufferSize);
+  }
+
+  private ByteBuffer frame(int size) {
+    active.putInt(size);
+    // checksum is filled in by seal
+    active.putInt(0);
+    dirty = true;
+    return active;
+  }
+
+  private void seal(ByteBuffer out, int size) {
+    int start = out.position() - size;
+    crc.reset();
+    crc.update(out.array(), start, size);
+    out.putInt(start - 4, (int) crc.getValue());
+  }
+
+  private static void putHost(ByteBuffer out, byte[] host, int port) {
+    out.putShort((short) host.length);
+    out.put(host);
+    out.putShort((short) port);
+  }
+
+  /**
+   * Write and fsync everything appended so far. Runs on the background thread every sync
+   * interval, callers only need it to force durability earlier.
+   *
+   * @throws IOException if writing fails, the journal accepts no further records then
+   */
+  public void sync() throws IOException {
+    synchronized (writeLock) {
+      List<ByteBuffer> out;
+      CompletableFuture<Void> done;
+      synchronized (this) {
+        if (failure != null) {
+          throw failure;
+        }
+        if (!dirty) {
+          return;
+        }
+        out = new ArrayList<>(filled.size() + 1);
+        out.addAll(filled);
+        filled.clear();
+        if (active.position() > 0) {
+          out.add(active);
+          active = takeSpare();
+        }
+        done = batch;
+        batch = new CompletableFuture<>();
+        dirty = false;
+      }
+      try {
+        for (ByteBuffer buffer : out) {
+          buffer.flip();
+          while (buffer.hasRemaining()) {
+            channel.write(buffer);
+          }
+        }
+        channel.force(false);
+      } catch (IOException e) {
+        synchronized (this) {
+          failure = e;
+        }
+        done.completeExceptionally(e);
+        throw e;
+      }
+      synchronized (this) {
+        ByteBuffer last = out.get(out.size() - 1);
+        if (spare == null && last.capacity() == bufferSize) {
+          last.clear();
+          spare = last;
+        }
+      }
+      done.complete(null);
+    }
+  }
+
+  private void syncQuietly() {
+    try {
+      sync();
+    } catch (IOException e) {
+      // kept as failure and reported to every later append
+    }
+  }
+
+  /**
+   * Read all intact frames and rebuild the state.
+   *
+   * @return offset after the last intact frame
+   */
+  private long replay() throws IOException {
+    long end = 0;
+    InputStream stream = Channels.newInputStream(channel);
+    DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024));
+    byte[] payload = new byte[256];
+    CRC32 check = new CRC32();
+    while (true) {
+      int size;
+      int sum;
+      try {
+        size = in.readInt();
+        sum = in.readInt();
+        if (size <= 0 || end + FRAME_HEADER + size > channel.size()) {
+          break;
+        }
+        if (payload.length < size) {
+          payload = new byte[Math.max(size, payload.length * 2)];
+        }
+        in.readFully(payload, 0, size);
+      } catch (EOFException e) {
+        break;
+      }
+      check.reset();
+      check.update(payload, 0, size);
+      if ((int) check.getValue() != sum || !apply(ByteBuffer.wrap(payload, 0, size))) {
+        break;
+      }
+      end += FRAME_HEADER + size;
+    }
+    return end;
+  }
+
+  private boolean apply(ByteBuffer in) {
+    try {
+      byte type = in.get();
+      byte[] host = new byte[in.getShort() & 0xFFFF];
+      in.get(host);
+      int port = in.getShort() & 0xFFFF;
+      String name = new String(host, StandardCharsets.UTF_8);
+      String key = name + ":" + port;
+      if (type == TARGET_RECORD) {
+        in.getLong();
+        finished.add(key);
+        partial.remove(key);
+        return true;
+      }
+      if (type != VERSION_RECORD) {
+        return false;
+      }
+      int version = in.getShort() & 0xFFFF;
+      int probes = in.getInt();
+      boolean complete = in.get() != 0;
+      int[] accepted = new int[in.getShort() & 0xFFFF];
+      for (int i = 0; i < accepted.length; i++) {
+        accepted[i] = in.getShort() & 0xFFFF;
+      }
+      if (complete && !finished.contains(key)) {
+        partial.computeIfAbsent(key, k -> new HashMap<>()).put(version,
+            new CipherSuiteScan(InetSocketAddress.createUnresolved(name, port),
+                TlsVersion.of(version), accepted, probes, null));
+      }
+      return true;
+    } catch (RuntimeException e) {
+      // checksum matched but the payload does not parse, treat like a torn frame
+      return false;
+    }
+  }
+
+  /**
+   * Flush outstanding records and close the log.
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    // an interrupt inside a write would close the channel and lose the buffered records
+    flusher.shutdown();
+    try {
+      flusher.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      sync();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the journal to sync");
+    } finally {
+      channel.close();
+    }
+  }
+
+  public static class Builder {
+    private Path path;
+    private Duration syncInterval = Duration.ofMillis(100);
+    private int bufferSize = 256 * 1024;
+
+    private Builder() {
+    }
+
+    public Builder path(Path path) {
+      this.path = path;
+      return this;
+    }
+
+    /**
+     * Upper bound of work lost on a crash, records appended within one interval share one fsync.
+     *
+     * @param syncInterval time between syncs
+     * @return builder
+     */
+    public Builder syncInterval(Duration syncInterval) {
+      if (syncInterval.isNegative() || syncInterval.isZero()) {
+        throw new IllegalArgumentException("syncInterval must be positive");
+      }
+      this.syncInterval = syncInterval;
+      return this;
+    }
+
+    /**
+     * Records buffered before the buffer is handed to the background thread early.
+     *
+     * @param bufferSize buffer size in bytes
+     * @return builder
+     */
+    public Builder bufferSize(int bufferSize) {
+      if (bufferSize < 64) {
+        throw new IllegalArgumentException("bufferSize must be at least 64");
+      }
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    /**
+     * Open the journal, replaying and repairing an existing log.
+     *
+     * @return journal
+     * @throws IOException if the log can not be opened or repaired
+     */
+    public ScanJournal build() throws IOException {
+      if (path == null) {
+        throw new IllegalStateException("No path configured");
+      }
+      return new ScanJournal(this);
+    }
+  }
+
+}
@@ -0,0 +1,268 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import io.github.t4skforce.deepviolet.json.CipherCatalogHolder;
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+import io.github.t4skforce.deepviolet.metrics.MetricsRegistry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs full target scans on a {@link ScanEngine} for large target lists.
+ *
+ * <p>Probes are admitted under a global in-flight cap, per host and per IP address caps and a token
+ * bucket rate limit, so a slow or tarpitting server only ever ties up its own share. Target
+ * submission blocks once {@link Builder#maxActiveTargets(int)} targets are being scanned, a
+ * producer reading a target list therefore never runs ahead of the scan.
+ */
+public class ScanScheduler implements Closeable {
+
+  private final ScanEngine engine;
+  private final TlsVersion[] versions;
+  private final Semaphore permits;
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger waiting = new AtomicInteger();
+  private final AtomicLong completed = new AtomicLong();
+  private final ScanJournal journal;
+  // the first failed checkpoint, no targets are accepted after it
+  private final AtomicReference<IOException> journalFailure = new AtomicReference<>();
+
+  private ScanScheduler(Builder builder) throws IOException {
+    this.engine = ScanEngine.builder().catalog(builder.catalog)
+        .maxInFlight(builder.maxInFlight).maxPerHost(builder.maxPerHost)
+        .maxPerAddress(builder.maxPerAddress)
+        .rateLimit(builder.probesPerSecond, builder.burst)
+        .connectTimeout(builder.connectTimeout).readTimeout(builder.readTimeout)
+        .metrics(builder.metrics).build();
+    this.versions = builder.versions.clone();
+    this.permits = new Semaphore(builder.maxActiveTargets);
+    this.journal = builder.journal;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Scan a target, blocking while the active target limit is reached. With a journal, versions a
+   * previous run completed for the target are taken from the journal instead of enumerated.
+   *
+   * @param target server address
+   * @return future completed on the engine thread once all versions are enumerated, failed right
+   *     away once a journal write failed
+   * @throws InterruptedException if interrupted while waiting for a free slot
+   */
+  public CompletableFuture<TargetScan> submit(InetSocketAddress target)
+      throws InterruptedException {
+    IOException failure = journalFailure.get();
+    if (failure != null) {
+      CompletableFuture<TargetScan> failed = new CompletableFuture<>();
+      failed.completeExceptionally(failure);
+      return failed;
+    }
+    waiting.incrementAndGet();
+    try {
+      permits.acquire();
+    } finally {
+      waiting.decrementAndGet();
+    }
+    active.incrementAndGet();
+    long start = System.nanoTime();
+    List<CompletableFuture<CipherSuiteScan>> scans = new ArrayList<>(versions.length);
+    CompletableFuture<TargetScan> result;
+    try {
+      for (TlsVersion version : versions) {
+        CipherSuiteScan done = journal == null ? null : journal.getCompleted(target, version);
+        if (done != null) {
+          scans.add(CompletableFuture.completedFuture(done));
+        } else if (journal != null) {
+          scans.add(engine.enumerate(target, version).thenApply(scan -> {
+            checkpoint(journal.append(scan));
+            return scan;
+          }));
+        } else {
+          scans.add(engine.enumerate(target, version));
+        }
+      }
+      result = CompletableFuture.allOf(scans.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+        List<CipherSuiteScan> done = new ArrayList<>(scans.size());
+        for (CompletableFuture<CipherSuiteScan> scan : scans) {
+          done.add(scan.join());
+        }
+        TargetScan scan = new TargetScan(target, done, System.nanoTime() - start);
+        if (journal != null) {
+          checkpoint(journal.append(scan));
+        }
+        return scan;
+      });
+    } catch (RuntimeException e) {
+      result = new CompletableFuture<>();
+      result.completeExceptionally(e);
+    }
+    return result.whenComplete((scan, error) -> {
+      active.decrementAndGet();
+      completed.incrementAndGet();
+      permits.release();
+    });
+  }
+
+  private void checkpoint(CompletableFuture<Void> append) {
+    append.whenComplete((v, error) -> {
+      if (error != null) {
+        journalFailure.compareAndSet(null, error instanceof IOException ? (IOException) error
+            : new IOException(error));
+      }
+    });
+  }
+
+  /**
+   * The first journal write that failed. Targets scanned after it could not be resumed, so
+   * {@link #submit(InetSocketAddress)} rejects them.
+   *
+   * @return failure or null
+   */
+  public IOException getJournalFailure() {
+    return journalFailure.get();
+  }
+
+  /**
+   * Engine counters plus target counters.
+   *
+   * @return snapshot
+   */
+  public ScanStats getStats() {
+    return engine.getStats().withTargets(active.get(), waiting.get(), completed.get());
+  }
+
+  @Override
+  public void close() throws IOException {
+    engine.close();
+  }
+
+  public static class Builder {
+    private CipherCatalogHolder catalog;
+    private TlsVersion[] versions = { TlsVersion.of(TlsVersion.TLS_V1_3),
+        TlsVersion.of(TlsVersion.TLS_V1_2), TlsVersion.of(TlsVersion.TLS_V1_1),
+        TlsVersion.of(TlsVersion.TLS_V1), TlsVersion.of(TlsVersion.SSL_V3) };
+    private int maxInFlight = 256;
+    private int maxPerHost = 4;
+    private int maxPerAddress = 8;
+    private double probesPerSecond;
+    private int burst = 1;
+    private int maxActiveTargets = 1024;
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration readTimeout = Duration.ofSeconds(5);
+    private ScanJournal journal;
+    private MetricsRegistry metrics;
+
+    private Builder() {
+    }
+
+    public Builder cipherMap(CipherMap cipherMap) {
+      this.catalog = cipherMap == null ? null : CipherCatalogHolder.of(cipherMap);
+      return this;
+    }
+
+    public Builder catalog(CipherCatalogHolder catalog) {
+      this.catalog = catalog;
+      return this;
+    }
+
+    public Builder versions(TlsVersion... versions) {
+      this.versions = versions;
+      return this;
+    }
+
+    public Builder maxInFlight(int maxInFlight) {
+      this.maxInFlight = maxInFlight;
+      return this;
+    }
+
+    public Builder maxPerHost(int maxPerHost) {
+      this.maxPerHost = maxPerHost;
+      return this;
+    }
+
+    public Builder maxPerAddress(int maxPerAddress) {
+      this.maxPerAddress = maxPerAddress;
+      return this;
+    }
+
+    public Builder rateLimit(double probesPerSecond, int burst) {
+      this.probesPerSecond = probesPerSecond;
+      this.burst = burst;
+      return this;
+    }
+
+    /**
+     * Targets scanned at the same time, {@link ScanScheduler#submit(InetSocketAddress)} blocks
+     * beyond that.
+     *
+     * @param maxActiveTargets active targets
+     * @return builder
+     */
+    public Builder maxActiveTargets(int maxActiveTargets) {
+      if (maxActiveTargets < 1) {
+        throw new IllegalArgumentException("maxActiveTargets must be positive");
+      }
+      this.maxActiveTargets = maxActiveTargets;
+      return this;
+    }
+
+    public Builder connectTimeout(Duration connectTimeout) {
+      this.connectTimeout = connectTimeout;
+      return this;
+    }
+
+    public Builder readTimeout(Duration readTimeout) {
+      this.readTimeout = readTimeout;
+      return this;
+    }
+
+    /**
+     * Checkpoint finished versions and targets. The scheduler resumes partially scanned targets,
+     * skipping targets the journal already finished is left to the producer through
+     * {@link ScanJournal#isFinished(InetSocketAddress)} so it can also skip its own bookkeeping.
+     * The journal is not closed with the scheduler, its appends run on the engine thread and never
+     * block on the file. Once a write fails no further targets are accepted, see
+     * {@link ScanScheduler#getJournalFailure()}.
+     *
+     * @param journal checkpoint journal
+     * @return builder
+     */
+    public Builder journal(ScanJournal journal) {
+      this.journal = journal;
+      return this;
+    }
+
+    /**
+     * Record the engine counters and probe latencies, see
+     * {@link ScanEngine.Builder#metrics(MetricsRegistry)}.
+     *
+     * @param metrics registry
+     * @return builder
+     */
+    public Builder metrics(MetricsRegistry metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    public ScanScheduler build() throws IOException {
+      if (catalog == null) {
+        throw new IllegalStateException("No CipherMap configured");
+      }
+      return new ScanScheduler(this);
+    }
+  }
+
+}
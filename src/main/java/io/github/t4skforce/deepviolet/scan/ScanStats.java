@@ -0,0 +1,120 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time counters of a {@link ScanEngine} or {@link ScanScheduler}. Rates are computed
+ * between two snapshots, see {@link #getProbesPerSecond(ScanStats)}.
+ */
+public final class ScanStats {
+
+  private final long nanoTime;
+  private final long started;
+  private final long completed;
+  private final long inFlight;
+  private final int queued;
+  private final int hosts;
+  private final int maxHostDepth;
+  private final int activeTargets;
+  private final int waitingTargets;
+  private final long completedTargets;
+
+  ScanStats(long nanoTime, long started, long completed, long inFlight, int queued, int hosts,
+      int maxHostDepth) {
+    this(nanoTime, started, completed, inFlight, queued, hosts, maxHostDepth, 0, 0, 0);
+  }
+
+  private ScanStats(long nanoTime, long started, long completed, long inFlight, int queued,
+      int hosts, int maxHostDepth, int activeTargets, int waitingTargets, long completedTargets) {
+    this.nanoTime = nanoTime;
+    this.started = started;
+    this.completed = completed;
+    this.inFlight = inFlight;
+    this.queued = queued;
+    this.hosts = hosts;
+    this.maxHostDepth = maxHostDepth;
+    this.activeTargets = activeTargets;
+    this.waitingTargets = waitingTargets;
+    this.completedTargets = completedTargets;
+  }
+
+  ScanStats withTargets(int active, int waiting, long targetsCompleted) {
+    return new ScanStats(nanoTime, started, completed, inFlight, queued, hosts, maxHostDepth,
+        active, waiting, targetsCompleted);
+  }
+
+  public long getNanoTime() {
+    return nanoTime;
+  }
+
+  public long getProbesStarted() {
+    return started;
+  }
+
+  public long getProbesCompleted() {
+    return completed;
+  }
+
+  public long getProbesInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * @return probes waiting for admission
+   */
+  public int getProbesQueued() {
+    return queued;
+  }
+
+  /**
+   * @return hosts with queued or running probes
+   */
+  public int getHosts() {
+    return hosts;
+  }
+
+  /**
+   * @return deepest single host queue seen so far
+   */
+  public int getMaxHostQueueDepth() {
+    return maxHostDepth;
+  }
+
+  public int getActiveTargets() {
+    return activeTargets;
+  }
+
+  /**
+   * @return submitters blocked because the active target limit was reached
+   */
+  public int getWaitingTargets() {
+    return waitingTargets;
+  }
+
+  public long getCompletedTargets() {
+    return completedTargets;
+  }
+
+  /**
+   * Completed probes per second between an earlier snapshot and this one.
+   *
+   * @param since earlier snapshot
+   * @return probes per second
+   */
+  public double getProbesPerSecond(ScanStats since) {
+    long elapsed = nanoTime - since.nanoTime;
+    if (elapsed <= 0) {
+      return 0;
+    }
+    return (completed - since.completed) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+  }
+
+  @Override
+  public String toString() {
+    return "ScanStats [started=" + started + ", completed=" + completed + ", inFlight=" + inFlight
+        + ", queued=" + queued + ", hosts=" + hosts + ", maxHostQueueDepth=" + maxHostDepth
+        + ", activeTargets=" + activeTargets + ", waitingTargets=" + waitingTargets
+        + ", completedTargets=" + completedTargets + "]";
+  }
+
+}
@@ -0,0 +1,87 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything the {@link ScanScheduler} found out about one target.
+ */
+public final class TargetScan {
+
+  private final InetSocketAddress target;
+  private final List<CipherSuiteScan> scans;
+  private final long nanos;
+
+  TargetScan(InetSocketAddress target, List<CipherSuiteScan> scans, long nanos) {
+    this.target = target;
+    this.scans = Collections.unmodifiableList(scans);
+    this.nanos = nanos;
+  }
+
+  public InetSocketAddress getTarget() {
+    return target;
+  }
+
+  /**
+   * @return one scan per probed version, in the configured version order
+   */
+  public List<CipherSuiteScan> getScans() {
+    return scans;
+  }
+
+  public CipherSuiteScan getScan(TlsVersion version) {
+    for (CipherSuiteScan scan : scans) {
+      if (scan.getVersion().equals(version)) {
+        return scan;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return versions with at least one accepted suite
+   */
+  public List<TlsVersion> getVersions() {
+    List<TlsVersion> versions = new ArrayList<>();
+    for (CipherSuiteScan scan : scans) {
+      if (scan.getAccepted().length > 0) {
+        versions.add(scan.getVersion());
+      }
+    }
+    return versions;
+  }
+
+  public boolean isComplete() {
+    for (CipherSuiteScan scan : scans) {
+      if (!scan.isComplete()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int getProbes() {
+    int probes = 0;
+    for (CipherSuiteScan scan : scans) {
+      probes += scan.getProbes();
+    }
+    return probes;
+  }
+
+  /**
+   * @return wall time from admission to the last answer
+   */
+  public long getNanos() {
+    return nanos;
+  }
+
+  @Override
+  public String toString() {
+    return "TargetScan [target=" + target + ", scans=" + scans + "]";
+  }
+
+}
@@ -0,0 +1,70 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter on {@link System#nanoTime()}. Not thread safe, it belongs to the
+ * selector thread.
+ */
+final class TokenBucket {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final double rate;
+  private final double burst;
+  private double tokens;
+  private long last;
+
+  /**
+   * @param rate  tokens per second, 0 or less for unlimited
+   * @param burst bucket capacity
+   */
+  TokenBucket(double rate, int burst) {
+    this.rate = rate;
+    this.burst = Math.max(1, burst);
+    this.tokens = this.burst;
+    this.last = System.nanoTime();
+  }
+
+  private boolean isUnlimited() {
+    return rate <= 0;
+  }
+
+  private void refill(long now) {
+    long elapsed = now - last;
+    if (elapsed > 0) {
+      tokens = Math.min(burst, tokens + elapsed * rate / SECOND);
+      last = now;
+    }
+  }
+
+  boolean available(long now) {
+    if (isUnlimited()) {
+      return true;
+    }
+    refill(now);
+    return tokens >= 1;
+  }
+
+  /**
+   * Take a token, only valid after {@link #available(long)} returned true.
+   */
+  void take() {
+    if (!isUnlimited()) {
+      tokens -= 1;
+    }
+  }
+
+  /**
+   * @param now current {@link System#nanoTime()}
+   * @return nanos until the next token, 0 if one is available or unlimited
+   */
+  long delay(long now) {
+    if (isUnlimited()) {
+      return 0;
+    }
+    refill(now);
+    return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) * SECOND / rate);
+  }
+
+}
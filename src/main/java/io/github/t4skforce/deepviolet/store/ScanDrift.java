@@ -0,0 +1,84 @@
+package io.github.t4skforce.deepviolet.store;
+
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+
+import java.util.BitSet;
+
+/**
+ * Difference between two complete scans of the same target.
+ */
+public final class ScanDrift {
+
+  private final ScanRecord before;
+  private final ScanRecord after;
+
+  ScanDrift(ScanRecord before, ScanRecord after) {
+    this.before = before;
+    this.after = after;
+  }
+
+  public ScanRecord getBefore() {
+    return before;
+  }
+
+  public ScanRecord getAfter() {
+    return after;
+  }
+
+  /**
+   * @return version codes accepted after but not before
+   */
+  public BitSet getAddedVersions() {
+    return minus(after.getVersions(), before.getVersions());
+  }
+
+  /**
+   * @return version codes accepted before but not after
+   */
+  public BitSet getRemovedVersions() {
+    return minus(before.getVersions(), after.getVersions());
+  }
+
+  /**
+   * @return suite codes accepted with any version after but with none before
+   */
+  public BitSet getAddedSuites() {
+    return minus(after.getSuites(), before.getSuites());
+  }
+
+  /**
+   * @return suite codes accepted with any version before but with none after
+   */
+  public BitSet getRemovedSuites() {
+    return minus(before.getSuites(), after.getSuites());
+  }
+
+  public BitSet getAddedSuites(TlsVersion version) {
+    return minus(after.getSuites(version), before.getSuites(version));
+  }
+
+  public BitSet getRemovedSuites(TlsVersion version) {
+    return minus(before.getSuites(version), after.getSuites(version));
+  }
+
+  /**
+   * @return true if both scans accepted the same suites with the same versions
+   */
+  public boolean isEmpty() {
+    return before.suites().equals(after.suites());
+  }
+
+  private static BitSet minus(BitSet a, BitSet b) {
+    a.andNot(b);
+    return a;
+  }
+
+  @Override
+  public String toString() {
+    return "ScanDrift [target=" + after.getHost() + ":" + after.getPort() + ", from="
+        + before.getTimestamp() + ", to=" + after.getTimestamp() + ", addedVersions="
+        + getAddedVersions() + ", removedVersions=" + getRemovedVersions() + ", addedSuites="
+        + getAddedSuites() + ", removedSuites=" + getRemovedSuites() + "]";
+  }
+
+}
@@ -0,0 +1,213 @@
+package io.github.t4skforce.deepviolet.store;
+
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+import io.github.t4skforce.deepviolet.scan.CipherSuiteScan;
+import io.github.t4skforce.deepviolet.scan.TargetScan;
+
+import java.net.InetSocketAddress;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Result of one scan of a target as kept by the {@link ScanStore}: accepted cipher suite codes per
+ * protocol version code.
+ */
+public final class ScanRecord {
+
+  private final String host;
+  private final int port;
+  private final long timestamp;
+  private final boolean complete;
+  // version code to accepted suite codes, ascending
+  private final TreeMap<Integer, BitSet> suites;
+
+  private ScanRecord(String host, int port, long timestamp, boolean complete,
+      TreeMap<Integer, BitSet> suites) {
+    this.host = host;
+    this.port = port;
+    this.timestamp = timestamp;
+    this.complete = complete;
+    this.suites = suites;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Versions without accepted suites are dropped.
+   *
+   * @param scan      scheduler result
+   * @param timestamp time of the scan in epoch milliseconds
+   * @return record
+   */
+  public static ScanRecord of(TargetScan scan, long timestamp) {
+    Builder builder = builder().target(scan.getTarget()).timestamp(timestamp)
+        .complete(scan.isComplete());
+    for (CipherSuiteScan version : scan.getScans()) {
+      builder.suites(version.getVersion(), version.getAcceptedSet());
+    }
+    return builder.build();
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+  public int getPort() {
+    return port;
+  }
+
+  /**
+   * @return unresolved address of the target
+   */
+  public InetSocketAddress getTarget() {
+    return InetSocketAddress.createUnresolved(host, port);
+  }
+
+  /**
+   * @return time of the scan in epoch milliseconds
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * An incomplete scan only knows a lower bound of the accepted suites and is ignored by drift
+   * queries.
+   *
+   * @return true if every version was fully enumerated
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * @return accepted protocol version codes, as expected by
+   *         {@link io.github.t4skforce.deepviolet.json.mozilla.MozillaCompatibility}
+   */
+  public BitSet getVersions() {
+    BitSet versions = new BitSet();
+    for (int version : suites.keySet()) {
+      versions.set(version);
+    }
+    return versions;
+  }
+
+  public boolean hasVersion(TlsVersion version) {
+    return suites.containsKey(version.getCode());
+  }
+
+  /**
+   * @param version protocol version
+   * @return suite codes accepted with the version, empty if the version was not accepted
+   */
+  public BitSet getSuites(TlsVersion version) {
+    BitSet set = suites.get(version.getCode());
+    return set == null ? new BitSet() : (BitSet) set.clone();
+  }
+
+  /**
+   * @return suite codes accepted with any version
+   */
+  public BitSet getSuites() {
+    BitSet union = new BitSet();
+    for (BitSet set : suites.values()) {
+      union.or(set);
+    }
+    return union;
+  }
+
+  Map<Integer, BitSet> suites() {
+    return suites;
+  }
+
+  boolean isSameTarget(ScanRecord other) {
+    return port == other.port && host.equals(other.host);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (Entry<Integer, BitSet> entry : suites.entrySet()) {
+      sb.append(sb.length() == 0 ? "" : ", ").append(TlsVersion.of(entry.getKey()).getName())
+          .append("=[");
+      BitSet set = entry.getValue();
+      for (int code = set.nextSetBit(0); code >= 0; code = set.nextSetBit(code + 1)) {
+        sb.append(code == set.nextSetBit(0) ? "" : ", ").append(CipherMap.toHex(code));
+      }
+      sb.append(']');
+    }
+    return "ScanRecord [target=" + host + ":" + port + ", timestamp=" + timestamp + ", complete="
+        + complete + ", suites={" + sb + "}]";
+  }
+
+  public static class Builder {
+    private String host;
+    private int port;
+    private long timestamp;
+    private boolean complete = true;
+    private final TreeMap<Integer, BitSet> suites = new TreeMap<>();
+
+    private Builder() {
+    }
+
+    public Builder target(String host, int port) {
+      this.host = host;
+      this.port = port;
+      return this;
+    }
+
+    public Builder target(InetSocketAddress target) {
+      return target(target.getHostString(), target.getPort());
+    }
+
+    /**
+     * @param timestamp time of the scan in epoch milliseconds
+     * @return builder
+     */
+    public Builder timestamp(long timestamp) {
+      this.timestamp = timestamp;
+      return this;
+    }
+
+    public Builder complete(boolean complete) {
+      this.complete = complete;
+      return this;
+    }
+
+    /**
+     * Accepted suites of one version, replacing earlier ones. Empty sets are ignored.
+     *
+     * @param version protocol version
+     * @param codes   accepted suite codes
+     * @return builder
+     */
+    public Builder suites(TlsVersion version, BitSet codes) {
+      return suites(version.getCode(), codes);
+    }
+
+    Builder suites(int version, BitSet codes) {
+      if (codes.length() > 0x10000) {
+        throw new IllegalArgumentException("Suite code out of range: " + (codes.length() - 1));
+      }
+      if (codes.isEmpty()) {
+        suites.remove(version);
+      } else {
+        suites.put(version, (BitSet) codes.clone());
+      }
+      return this;
+    }
+
+    public ScanRecord build() {
+      if (host == null) {
+        throw new IllegalStateException("No target configured");
+      }
+      return new ScanRecord(host, port, timestamp, complete, new TreeMap<>(suites));
+    }
+  }
+
+}
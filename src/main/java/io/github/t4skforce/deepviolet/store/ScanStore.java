@@ -0,0 +1,572 @@
+package io.github.t4skforce.deepviolet.store;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded on-disk history of {@link ScanRecord}s.
+ *
+ * <p>Records are appended in time order to a data file, each framed with its length and CRC32.
+ * Suite sets are stored as delta encoded runs of their code bitsets, which keeps a typical record
+ * well below a hundred bytes. A second file holds one fixed size entry per record with its
+ * timestamp, offset, host hash and the ordinal of the previous record of the same host. The index
+ * file is therefore sorted by time, range scans binary search it, and the history of a host is a
+ * chain walked backwards from its latest record. Only the latest ordinal per host is kept on the
+ * heap, everything else is read on demand.
+ *
+ * <p>Appends are not synced, {@link #flush()} makes them durable. On open, the records of the last
+ * few thousand index entries are checked against their length and CRC32 and both files are cut at
+ * the first torn or corrupt one, data without an index entry is cut as well, so a crash loses at
+ * most the records appended since the last flush.
+ *
+ * <p>Instances are thread safe.
+ */
+public final class ScanStore implements Closeable {
+
+  static final String DATA_FILE = "scans.dat";
+  static final String INDEX_FILE = "scans.idx";
+
+  // length and checksum
+  private static final int FRAME_HEADER = 8;
+  // timestamp, offset, host hash, previous ordinal of the host and payload length
+  private static final int ENTRY = 32;
+  private static final int NONE = -1;
+  // index entries verified on open, more than a crash can leave unsynced
+  static final int RECOVERY_WINDOW = 4096;
+  private static final HashFunction HASH = Hashing.murmur3_128();
+
+  private final FileChannel data;
+  private final FileChannel index;
+  private final CRC32 crc = new CRC32();
+
+  // guarded by this
+  private final Map<Long, Integer> heads = new HashMap<>();
+  private int count;
+  private long end;
+  private long lastTimestamp = Long.MIN_VALUE;
+
+  private ScanStore(Builder builder) throws IOException {
+    Files.createDirectories(builder.path);
+    this.data = FileChannel.open(builder.path.resolve(DATA_FILE), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      this.index = FileChannel.open(builder.path.resolve(INDEX_FILE), StandardOpenOption.CREATE,
+          StandardOpenOption.READ, StandardOpenOption.WRITE);
+    } catch (IOException e) {
+      data.close();
+      throw e;
+    }
+    try {
+      recover();
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private static long hash(String host, int port) {
+    return HASH.newHasher().putString(host, StandardCharsets.UTF_8).putInt(port).hash().asLong();
+  }
+
+  private void recover() throws IOException {
+    long entries = index.size() / ENTRY;
+    if (entries > Integer.MAX_VALUE) {
+      throw new IOException("Too many records: " + entries);
+    }
+    long size = data.size();
+    // unsynced pages may be missing or written out of order, frames follow each other without gaps
+    // so the first entry that is not right after its predecessor or fails the checksum ends the log
+    long verified = Math.max(0, entries - RECOVERY_WINDOW);
+    end = verified == 0 ? 0 : entry(verified - 1).end();
+    while (verified < entries) {
+      IndexEntry entry = entry(verified);
+      if (entry.offset != end || entry.length < 0 || entry.end() > size || frame(entry) == null) {
+        break;
+      }
+      end = entry.end();
+      verified++;
+    }
+    entries = verified;
+    count = (int) entries;
+    if (index.size() > entries * ENTRY) {
+      index.truncate(entries * ENTRY);
+    }
+    if (size > end) {
+      data.truncate(end);
+    }
+    ByteBuffer chunk = ByteBuffer.allocate(ENTRY * 2048);
+    int ordinal = 0;
+    while (ordinal < count) {
+      chunk.clear();
+      chunk.limit((int) Math.min(chunk.capacity(), (long) (count - ordinal) * ENTRY));
+      readFully(index, chunk, (long) ordinal * ENTRY);
+      chunk.flip();
+      while (chunk.hasRemaining()) {
+        lastTimestamp = chunk.getLong();
+        chunk.getLong();
+        long hash = chunk.getLong();
+        chunk.getLong();
+        heads.put(hash, ordinal++);
+      }
+    }
+  }
+
+  /**
+   * @return number of stored records
+   */
+  public synchronized int size() {
+    return count;
+  }
+
+  /**
+   * @return number of distinct hosts, colliding host hashes count once
+   */
+  public synchronized int getHostCount() {
+    return heads.size();
+  }
+
+  /**
+   * Append a record. The history is kept in time order, a record older than the last one is
+   * rejected.
+   *
+   * @param record scan result
+   * @throws IOException if writing fails
+   */
+  public synchronized void append(ScanRecord record) throws IOException {
+    if (record.getTimestamp() < lastTimestamp) {
+      throw new IllegalArgumentException("Record at " + record.getTimestamp()
+          + " is older than the last record at " + lastTimestamp);
+    }
+    byte[] payload = encode(record);
+    crc.reset();
+    crc.update(payload, 0, payload.length);
+    ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + payload.length);
+    frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+    writeFully(data, frame, end);
+
+    long hash = hash(record.getHost(), record.getPort());
+    Integer previous = heads.get(hash);
+    ByteBuffer entry = ByteBuffer.allocate(ENTRY);
+    entry.putLong(record.getTimestamp()).putLong(end).putLong(hash)
+        .putInt(previous == null ? NONE : previous).putInt(payload.length).flip();
+    writeFully(index, entry, (long) count * ENTRY);
+
+    heads.put(hash, count++);
+    end += frame.capacity();
+    lastTimestamp = record.getTimestamp();
+  }
+
+  /**
+   * Pass every record of a time range to the consumer, oldest first, without keeping them.
+   *
+   * @param from     earliest timestamp, inclusive
+   * @param to       latest timestamp, inclusive
+   * @param consumer record consumer
+   * @throws IOException if reading fails or a record is corrupt
+   */
+  public synchronized void scan(long from, long to, Consumer<ScanRecord> consumer)
+      throws IOException {
+    for (int ordinal = lowerBound(from); ordinal < count; ordinal++) {
+      IndexEntry entry = entry(ordinal);
+      if (entry.timestamp > to) {
+        break;
+      }
+      consumer.accept(read(entry));
+    }
+  }
+
+  /**
+   * Scans of one target in a time range.
+   *
+   * @param target server address
+   * @param from   earliest timestamp, inclusive
+   * @param to     latest timestamp, inclusive
+   * @return records oldest first
+   * @throws IOException if reading fails or a record is corrupt
+   */
+  public synchronized List<ScanRecord> history(InetSocketAddress target, long from, long to)
+      throws IOException {
+    String host = target.getHostString();
+    List<ScanRecord> records = new ArrayList<>();
+    for (IndexEntry entry = head(host, target.getPort()); entry != null; entry = previous(entry)) {
+      if (entry.timestamp < from) {
+        break;
+      }
+      if (entry.timestamp <= to) {
+        ScanRecord record = read(entry);
+        if (matches(record, host, target.getPort())) {
+          records.add(record);
+        }
+      }
+    }
+    Collections.reverse(records);
+    return records;
+  }
+
+  /**
+   * Latest scan of a target at a point in time.
+   *
+   * @param target server address
+   * @param at     timestamp, inclusive
+   * @return record or null if the target was not scanned before
+   * @throws IOException if reading fails or a record is corrupt
+   */
+  public synchronized ScanRecord get(InetSocketAddress target, long at) throws IOException {
+    String host = target.getHostString();
+    for (IndexEntry entry = head(host, target.getPort()); entry != null; entry = previous(entry)) {
+      if (entry.timestamp <= at) {
+        ScanRecord record = read(entry);
+        if (matches(record, host, target.getPort())) {
+          return record;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Changes of one target, e.g. when it dropped a protocol version. The first scan is compared to
+   * the latest complete scan at or before {@code from}, every later one to its predecessor.
+   * Incomplete scans are skipped.
+   *
+   * @param target server address
+   * @param from   timestamp of the baseline
+   * @param to     latest timestamp, inclusive
+   * @return non empty drifts oldest first
+   * @throws IOException if reading fails or a record is corrupt
+   */
+  public synchronized List<ScanDrift> drift(InetSocketAddress target, long from, long to)
+      throws IOException {
+    String host = target.getHostString();
+    List<ScanRecord> records = new ArrayList<>();
+    for (IndexEntry entry = head(host, target.getPort()); entry != null; entry = previous(entry)) {
+      if (entry.timestamp > to) {
+        continue;
+      }
+      ScanRecord record = read(entry);
+      if (record.isComplete() && matches(record, host, target.getPort())) {
+        records.add(record);
+        if (entry.timestamp <= from) {
+          break;
+        }
+      }
+    }
+    Collections.reverse(records);
+    List<ScanDrift> drifts = new ArrayList<>();
+    for (int i = 1; i < records.size(); i++) {
+      ScanDrift drift = new ScanDrift(records.get(i - 1), records.get(i));
+      if (!drift.isEmpty()) {
+        drifts.add(drift);
+      }
+    }
+    return drifts;
+  }
+
+  /**
+   * Targets whose latest complete scan at {@code to} differs from the one at {@code from}, e.g. to
+   * find hosts that regressed to a weaker guideline level. Targets first scanned after
+   * {@code from} are not reported. Only records newer than {@code from} and one older record per
+   * host are read.
+   *
+   * @param from timestamp of the baseline
+   * @param to   timestamp to compare with
+   * @return non empty drifts ordered by host and port
+   * @throws IOException if reading fails or a record is corrupt
+   */
+  public synchronized List<ScanDrift> drift(long from, long to) throws IOException {
+    List<ScanDrift> drifts = new ArrayList<>();
+    for (int head : heads.values()) {
+      // distinct targets on the chain, more than one only on a hash collision
+      Map<String, ScanRecord[]> targets = new LinkedHashMap<>();
+      int pending = 0;
+      for (IndexEntry entry = entry(head); entry != null; entry = previous(entry)) {
+        if (entry.timestamp <= from && pending == 0 && !targets.isEmpty()) {
+          break;
+        }
+        if (entry.timestamp > to) {
+          continue;
+        }
+        ScanRecord record = read(entry);
+        if (!record.isComplete()) {
+          continue;
+        }
+        String key = record.getHost() + ":" + record.getPort();
+        ScanRecord[] pair = targets.get(key);
+        if (pair == null) {
+          // latest complete scan at to, also the baseline if nothing changed since from
+          pair = new ScanRecord[] { entry.timestamp <= from ? record : null, record };
+          targets.put(key, pair);
+          pending += pair[0] == null ? 1 : 0;
+        } else if (pair[0] == null && entry.timestamp <= from) {
+          pair[0] = record;
+          pending--;
+        }
+      }
+      for (ScanRecord[] pair : targets.values()) {
+        if (pair[0] != null && pair[0] != pair[1]) {
+          ScanDrift drift = new ScanDrift(pair[0], pair[1]);
+          if (!drift.isEmpty()) {
+            drifts.add(drift);
+          }
+        }
+      }
+    }
+    drifts.sort(Comparator.comparing((ScanDrift drift) -> drift.getAfter().getHost())
+        .thenComparingInt(drift -> drift.getAfter().getPort()));
+    return drifts;
+  }
+
+  /**
+   * Make all appended records durable.
+   *
+   * @throws IOException if syncing fails
+   */
+  public synchronized void flush() throws IOException {
+    // data first, an index entry must never point at unsynced data
+    data.force(false);
+    index.force(false);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      if (data.isOpen() && index.isOpen()) {
+        flush();
+      }
+    } finally {
+      try {
+        data.close();
+      } finally {
+        index.close();
+      }
+    }
+  }
+
+  private static boolean matches(ScanRecord record, String host, int port) {
+    return record.getPort() == port && record.getHost().equals(host);
+  }
+
+  private IndexEntry head(String host, int port) throws IOException {
+    Integer head = heads.get(hash(host, port));
+    return head == null ? null : entry(head);
+  }
+
+  private IndexEntry previous(IndexEntry entry) throws IOException {
+    return entry.previous == NONE ? null : entry(entry.previous);
+  }
+
+  /**
+   * @return first ordinal with a timestamp at or after the given one
+   */
+  private int lowerBound(long timestamp) throws IOException {
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (entry(mid).timestamp < timestamp) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private IndexEntry entry(long ordinal) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(ENTRY);
+    readFully(index, buffer, ordinal * ENTRY);
+    buffer.flip();
+    long timestamp = buffer.getLong();
+    long offset = buffer.getLong();
+    // host hash, only needed to rebuild the heads
+    buffer.getLong();
+    return new IndexEntry(timestamp, offset, buffer.getInt(), buffer.getInt());
+  }
+
+  /**
+   * @return the frame positioned at its payload or null if it does not match the entry
+   */
+  private ByteBuffer frame(IndexEntry entry) throws IOException {
+    ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + entry.length);
+    readFully(data, frame, entry.offset);
+    frame.flip();
+    int length = frame.getInt();
+    int sum = frame.getInt();
+    crc.reset();
+    crc.update(frame.array(), FRAME_HEADER, entry.length);
+    return length == entry.length && (int) crc.getValue() == sum ? frame : null;
+  }
+
+  private ScanRecord read(IndexEntry entry) throws IOException {
+    ByteBuffer frame = frame(entry);
+    if (frame == null) {
+      throw new IOException("Corrupt record at offset " + entry.offset);
+    }
+    try {
+      return decode(frame);
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new IOException("Corrupt record at offset " + entry.offset, e);
+    }
+  }
+
+  private static byte[] encode(ScanRecord record) throws IOException {
+    byte[] host = record.getHost().getBytes(StandardCharsets.UTF_8);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeLong(record.getTimestamp());
+    out.writeShort(host.length);
+    out.write(host);
+    out.writeShort(record.getPort());
+    out.writeByte(record.isComplete() ? 1 : 0);
+    out.writeByte(record.suites().size());
+    for (Entry<Integer, BitSet> entry : record.suites().entrySet()) {
+      BitSet codes = entry.getValue();
+      out.writeShort(entry.getKey());
+      writeVarInt(out, codes.cardinality());
+      int previous = -1;
+      for (int code = codes.nextSetBit(0); code >= 0; code = codes.nextSetBit(code + 1)) {
+        // gaps between ascending codes mostly fit in one byte
+        writeVarInt(out, code - previous - 1);
+        previous = code;
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private static ScanRecord decode(ByteBuffer in) {
+    long timestamp = in.getLong();
+    byte[] host = new byte[in.getShort() & 0xFFFF];
+    in.get(host);
+    ScanRecord.Builder builder = ScanRecord.builder()
+        .target(new String(host, StandardCharsets.UTF_8), in.getShort() & 0xFFFF)
+        .timestamp(timestamp).complete(in.get() != 0);
+    int versions = in.get() & 0xFF;
+    for (int i = 0; i < versions; i++) {
+      int version = in.getShort() & 0xFFFF;
+      int cardinality = readVarInt(in);
+      BitSet codes = new BitSet();
+      int code = -1;
+      for (int j = 0; j < cardinality; j++) {
+        code += readVarInt(in) + 1;
+        codes.set(code);
+      }
+      builder.suites(version, codes);
+    }
+    return builder.build();
+  }
+
+  private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte(value & 0x7F | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  private static int readVarInt(ByteBuffer in) {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = in.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException("Unexpected end of file at " + position);
+      }
+      position += read;
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  private static final class IndexEntry {
+    private final long timestamp;
+    private final long offset;
+    private final int previous;
+    private final int length;
+
+    private IndexEntry(long timestamp, long offset, int previous, int length) {
+      this.timestamp = timestamp;
+      this.offset = offset;
+      this.previous = previous;
+      this.length = length;
+    }
+
+    private long end() {
+      return offset + FRAME_HEADER + length;
+    }
+  }
+
+  public static class Builder {
+    private Path path;
+
+    private Builder() {
+    }
+
+    /**
+     * @param path directory holding the data and index file, created if missing
+     * @return builder
+     */
+    public Builder path(Path path) {
+      this.path = path;
+      return this;
+    }
+
+    /**
+     * Open the store, cutting off a tail left behind by a crash.
+     *
+     * @return store
+     * @throws IOException if the files can not be opened or repaired
+     */
+    public ScanStore build() throws IOException {
+      if (path == null) {
+        throw new IllegalStateException("No path configured");
+      }
+      return new ScanStore(this);
+    }
+  }
+
+}
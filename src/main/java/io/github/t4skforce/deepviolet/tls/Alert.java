@@ -0,0 +1,50 @@
+package io.github.t4skforce.deepviolet.tls;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flyweight view of an alert fragment.
+ */
+public final class Alert {
+
+  public static final int WARNING = 1;
+  public static final int FATAL = 2;
+
+  public static final int CLOSE_NOTIFY = 0;
+  public static final int UNEXPECTED_MESSAGE = 10;
+  public static final int HANDSHAKE_FAILURE = 40;
+  public static final int ILLEGAL_PARAMETER = 47;
+  public static final int DECODE_ERROR = 50;
+  public static final int PROTOCOL_VERSION = 70;
+  public static final int INSUFFICIENT_SECURITY = 71;
+  public static final int INTERNAL_ERROR = 80;
+  public static final int INAPPROPRIATE_FALLBACK = 86;
+  public static final int UNRECOGNIZED_NAME = 112;
+
+  private ByteBuffer buffer;
+  private int offset;
+
+  /**
+   * @param buffer buffer holding the alert
+   * @param offset absolute position of the two alert bytes
+   * @return this
+   */
+  public Alert wrap(ByteBuffer buffer, int offset) {
+    this.buffer = buffer;
+    this.offset = offset;
+    return this;
+  }
+
+  public int getLevel() {
+    return buffer.get(offset) & 0xFF;
+  }
+
+  public int getDescription() {
+    return buffer.get(offset + 1) & 0xFF;
+  }
+
+  public boolean isFatal() {
+    return getLevel() == FATAL;
+  }
+
+}
@@ -0,0 +1,96 @@
+package io.github.t4skforce.deepviolet.tls;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Flyweight view of a TLSv1.2 and earlier Certificate handshake body. Certificates are exposed as
+ * offsets into the wrapped buffer or as views sharing its content.
+ */
+public final class Certificate {
+
+  private ByteBuffer buffer;
+  private int[] offsets = new int[8];
+  private int[] lengths = new int[8];
+  private int count;
+
+  /**
+   * Point this view at a Certificate body.
+   *
+   * @param buffer buffer holding the message
+   * @param offset absolute position of the body
+   * @param length body length from the handshake header
+   * @return this
+   * @throws IllegalArgumentException if the body is malformed
+   */
+  public Certificate wrap(ByteBuffer buffer, int offset, int length) {
+    if (length < 3 || TlsRecord.getUInt24(buffer, offset) != length - 3) {
+      throw new IllegalArgumentException("Malformed Certificate");
+    }
+    int end = offset + length;
+    int pos = offset + 3;
+    int cnt = 0;
+    while (pos < end) {
+      if (pos + 3 > end) {
+        throw new IllegalArgumentException("Malformed Certificate");
+      }
+      int len = TlsRecord.getUInt24(buffer, pos);
+      if (pos + 3 + len > end) {
+        throw new IllegalArgumentException("Malformed Certificate");
+      }
+      if (cnt == offsets.length) {
+        offsets = Arrays.copyOf(offsets, cnt * 2);
+        lengths = Arrays.copyOf(lengths, cnt * 2);
+      }
+      offsets[cnt] = pos + 3;
+      lengths[cnt] = len;
+      cnt++;
+      pos += 3 + len;
+    }
+    this.buffer = buffer;
+    this.count = cnt;
+    return this;
+  }
+
+  /**
+   * @return number of certificates, the leaf comes first
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * @param index certificate index
+   * @return absolute position of the DER encoding
+   */
+  public int getOffset(int index) {
+    checkIndex(index);
+    return offsets[index];
+  }
+
+  public int getLength(int index) {
+    checkIndex(index);
+    return lengths[index];
+  }
+
+  /**
+   * DER encoding of a certificate as a read only view of the wrapped buffer.
+   *
+   * @param index certificate index
+   * @return view positioned at the encoding
+   */
+  public ByteBuffer getEncoded(int index) {
+    checkIndex(index);
+    ByteBuffer view = buffer.asReadOnlyBuffer();
+    view.limit(offsets[index] + lengths[index]);
+    view.position(offsets[index]);
+    return view;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException("Certificate " + index + " of " + count);
+    }
+  }
+
+}
@@ -0,0 +1,219 @@
+package io.github.t4skforce.deepviolet.tls;
+
+import io.github.t4skforce.deepviolet.json.NamedGroup;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * ClientHello template for probing. Everything except the offered cipher suites is fixed when the
+ * template is built, so a probe loop can write a fresh record for every handshake straight into
+ * its send buffer.
+ *
+ * <p>TLSv1.3 hellos carry an empty key_share, a TLSv1.3 server answers with a HelloRetryRequest
+ * which already names the selected suite.
+ */
+public final class ClientHello {
+
+  public static final int[] DEFAULT_GROUPS = { NamedGroup.X25519, NamedGroup.SECP256R1,
+      NamedGroup.SECP384R1, NamedGroup.SECP521R1, NamedGroup.X448, NamedGroup.FFDHE2048,
+      NamedGroup.FFDHE3072, NamedGroup.FFDHE4096, NamedGroup.FFDHE6144, NamedGroup.FFDHE8192 };
+
+  public static final int[] DEFAULT_SIGNATURE_ALGORITHMS = { 0x0403, 0x0503, 0x0603, 0x0807, 0x0808,
+      0x0804, 0x0805, 0x0806, 0x0809, 0x080A, 0x080B, 0x0401, 0x0501, 0x0601, 0x0303, 0x0301,
+      0x0402, 0x0203, 0x0201, 0x0202 };
+
+  static final int EXT_SERVER_NAME = 0x0000;
+  static final int EXT_SUPPORTED_GROUPS = 0x000A;
+  static final int EXT_EC_POINT_FORMATS = 0x000B;
+  static final int EXT_SIGNATURE_ALGORITHMS = 0x000D;
+  static final int EXT_SUPPORTED_VERSIONS = 0x002B;
+  static final int EXT_KEY_SHARE = 0x0033;
+
+  private final TlsVersion version;
+  private final byte[] serverName;
+  private final int[] groups;
+  private final int[] signatureAlgorithms;
+  private final int extensionsLength;
+
+  private ClientHello(Builder builder) {
+    this.version = builder.version;
+    this.serverName = builder.serverName == null ? null
+        : builder.serverName.getBytes(StandardCharsets.US_ASCII);
+    this.groups = builder.groups.clone();
+    this.signatureAlgorithms = builder.signatureAlgorithms.clone();
+    this.extensionsLength = extensionsLength();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public TlsVersion getVersion() {
+    return version;
+  }
+
+  private boolean isTls13() {
+    return version.getCode() >= TlsVersion.TLS_V1_3;
+  }
+
+  private int extensionsLength() {
+    if (version.getCode() < TlsVersion.TLS_V1) {
+      return 0;
+    }
+    int length = 0;
+    if (serverName != null) {
+      length += 9 + serverName.length;
+    }
+    if (groups.length > 0) {
+      length += 6 + 2 * groups.length + 6;
+    }
+    if (version.getCode() >= TlsVersion.TLS_V1_2 && signatureAlgorithms.length > 0) {
+      length += 6 + 2 * signatureAlgorithms.length;
+    }
+    if (isTls13()) {
+      length += 7 + 6;
+    }
+    return length;
+  }
+
+  /**
+   * Size of the record written by {@link #write(ByteBuffer, int[], int)}.
+   *
+   * @param suiteCount number of offered cipher suites
+   * @return record size in bytes including the record header
+   */
+  public int length(int suiteCount) {
+    return TlsRecord.HEADER_LENGTH + TlsRecord.HANDSHAKE_HEADER_LENGTH + bodyLength(suiteCount);
+  }
+
+  private int bodyLength(int suiteCount) {
+    return 2 + 32 + 1 + 2 + 2 * suiteCount + 2 + (extensionsLength > 0 ? 2 + extensionsLength : 0);
+  }
+
+  /**
+   * Write a ClientHello record offering the first {@code count} suites at the buffer position.
+   *
+   * @param out    destination, needs {@link #length(int)} bytes remaining
+   * @param suites cipher suite codes in preference order
+   * @param count  number of suites to offer
+   */
+  public void write(ByteBuffer out, int[] suites, int count) {
+    int body = bodyLength(count);
+    if (TlsRecord.HANDSHAKE_HEADER_LENGTH + body > TlsRecord.MAX_FRAGMENT_LENGTH) {
+      throw new IllegalArgumentException("Too many cipher suites: " + count);
+    }
+    int code = version.getCode();
+    out.put((byte) TlsRecord.HANDSHAKE);
+    out.putShort((short) (code >= TlsVersion.TLS_V1 ? TlsVersion.TLS_V1 : code));
+    out.putShort((short) (TlsRecord.HANDSHAKE_HEADER_LENGTH + body));
+    out.put((byte) TlsRecord.CLIENT_HELLO);
+    TlsRecord.putUInt24(out, body);
+    out.putShort((short) (isTls13() ? TlsVersion.TLS_V1_2 : code));
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < 4; i++) {
+      out.putLong(random.nextLong());
+    }
+    // no session id
+    out.put((byte) 0);
+    out.putShort((short) (2 * count));
+    for (int i = 0; i < count; i++) {
+      out.putShort((short) suites[i]);
+    }
+    // null compression only
+    out.put((byte) 1);
+    out.put((byte) 0);
+    if (extensionsLength > 0) {
+      out.putShort((short) extensionsLength);
+      writeExtensions(out);
+    }
+  }
+
+  private void writeExtensions(ByteBuffer out) {
+    if (serverName != null) {
+      out.putShort((short) EXT_SERVER_NAME);
+      out.putShort((short) (5 + serverName.length));
+      out.putShort((short) (3 + serverName.length));
+      // host_name
+      out.put((byte) 0);
+      out.putShort((short) serverName.length);
+      out.put(serverName);
+    }
+    if (groups.length > 0) {
+      putList(out, EXT_SUPPORTED_GROUPS, groups);
+      out.putShort((short) EXT_EC_POINT_FORMATS);
+      out.putShort((short) 2);
+      out.put((byte) 1);
+      // uncompressed
+      out.put((byte) 0);
+    }
+    if (version.getCode() >= TlsVersion.TLS_V1_2 && signatureAlgorithms.length > 0) {
+      putList(out, EXT_SIGNATURE_ALGORITHMS, signatureAlgorithms);
+    }
+    if (isTls13()) {
+      out.putShort((short) EXT_SUPPORTED_VERSIONS);
+      out.putShort((short) 3);
+      out.put((byte) 2);
+      out.putShort((short) version.getCode());
+      // empty client_shares, forces a HelloRetryRequest
+      out.putShort((short) EXT_KEY_SHARE);
+      out.putShort((short) 2);
+      out.putShort((short) 0);
+    }
+  }
+
+  private static void putList(ByteBuffer out, int type, int[] values) {
+    out.putShort((short) type);
+    out.putShort((short) (2 + 2 * values.length));
+    out.putShort((short) (2 * values.length));
+    for (int value : values) {
+      out.putShort((short) value);
+    }
+  }
+
+  public static class Builder {
+    private TlsVersion version = TlsVersion.of(TlsVersion.TLS_V1_2);
+    private String serverName;
+    private int[] groups = DEFAULT_GROUPS;
+    private int[] signatureAlgorithms = DEFAULT_SIGNATURE_ALGORITHMS;
+
+    private Builder() {
+    }
+
+    public Builder version(TlsVersion version) {
+      if (version.getCode() < TlsVersion.SSL_V3 || version.getCode() > TlsVersion.TLS_V1_3) {
+        throw new IllegalArgumentException("Unsupported version: " + version);
+      }
+      this.version = version;
+      return this;
+    }
+
+    /**
+     * Host name sent in the server_name extension, null to omit it.
+     *
+     * @param serverName DNS host name
+     * @return builder
+     */
+    public Builder serverName(String serverName) {
+      this.serverName = serverName;
+      return this;
+    }
+
+    public Builder groups(int... groups) {
+      this.groups = groups;
+      return this;
+    }
+
+    public Builder signatureAlgorithms(int... signatureAlgorithms) {
+      this.signatureAlgorithms = signatureAlgorithms;
+      return this;
+    }
+
+    public ClientHello build() {
+      return new ClientHello(this);
+    }
+  }
+
+}
@@ -0,0 +1,189 @@
+package io.github.t4skforce.deepviolet.tls;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits the records in a receive buffer into handshake messages without copying them out.
+ *
+ * <p>The buffer is used as a channel read buffer, valid data runs from 0 to its position. A message
+ * inside a single record is exposed where it lies. Messages spanning records are joined in place
+ * by moving the shorter of the two pieces over the record header in between, so the handshake
+ * stream stays contiguous inside the same buffer.
+ *
+ * <p>Usage: {@link #reset(ByteBuffer)} once per connection, then call {@link #next()} after every
+ * read until it returns {@link #NEED_MORE}. Use {@link #compact()} to reclaim space taken by
+ * messages already consumed.
+ */
+public final class HandshakeReader {
+
+  public static final int NEED_MORE = -1;
+  public static final int ALERT = -2;
+
+  // a bit of slack for compressed or encrypted records, RFC 5246 6.2.3
+  private static final int MAX_RECORD_LENGTH = TlsRecord.MAX_FRAGMENT_LENGTH + 2048;
+
+  private final Alert alert = new Alert();
+  private ByteBuffer buffer;
+  // next record header not yet processed
+  private int recordOffset;
+  // unconsumed handshake bytes
+  private int streamStart;
+  private int streamEnd;
+  // current message body
+  private int messageType;
+  private int messageOffset;
+  private int messageLength;
+
+  public HandshakeReader reset(ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.recordOffset = 0;
+    this.streamStart = 0;
+    this.streamEnd = 0;
+    this.messageType = NEED_MORE;
+    this.messageOffset = 0;
+    this.messageLength = 0;
+    return this;
+  }
+
+  /**
+   * Advance to the next handshake message or alert.
+   *
+   * @return handshake type, {@link #ALERT} or {@link #NEED_MORE}
+   * @throws ProtocolException on anything but handshake, alert and change_cipher_spec records
+   */
+  public int next() throws ProtocolException {
+    while (true) {
+      int available = streamEnd - streamStart;
+      if (available >= TlsRecord.HANDSHAKE_HEADER_LENGTH) {
+        int length = TlsRecord.getUInt24(buffer, streamStart + 1);
+        if (available >= TlsRecord.HANDSHAKE_HEADER_LENGTH + length) {
+          messageType = buffer.get(streamStart) & 0xFF;
+          messageOffset = streamStart + TlsRecord.HANDSHAKE_HEADER_LENGTH;
+          messageLength = length;
+          streamStart = messageOffset + length;
+          return messageType;
+        }
+      }
+      int end = buffer.position();
+      if (end - recordOffset < TlsRecord.HEADER_LENGTH) {
+        return NEED_MORE;
+      }
+      int type = TlsRecord.contentType(buffer, recordOffset);
+      int length = TlsRecord.length(buffer, recordOffset);
+      if (length > MAX_RECORD_LENGTH) {
+        throw new ProtocolException("Record overflow: " + length);
+      }
+      int fragment = recordOffset + TlsRecord.HEADER_LENGTH;
+      if (end - fragment < length) {
+        return NEED_MORE;
+      }
+      recordOffset = fragment + length;
+      switch (type) {
+        case TlsRecord.HANDSHAKE:
+          append(fragment, length);
+          break;
+        case TlsRecord.ALERT:
+          if (length < 2) {
+            throw new ProtocolException("Truncated alert");
+          }
+          alert.wrap(buffer, fragment);
+          messageType = ALERT;
+          return ALERT;
+        case TlsRecord.CHANGE_CIPHER_SPEC:
+          // TLSv1.3 middlebox compatibility, carries nothing of interest
+          break;
+        default:
+          throw new ProtocolException("Unexpected content type: " + type);
+      }
+    }
+  }
+
+  private void append(int fragment, int length) {
+    int pending = streamEnd - streamStart;
+    if (pending == 0) {
+      streamStart = fragment;
+      streamEnd = fragment + length;
+    } else if (pending <= length) {
+      // move the partial message up against the new fragment
+      move(streamStart, fragment - pending, pending);
+      streamStart = fragment - pending;
+      streamEnd = fragment + length;
+    } else {
+      move(fragment, streamEnd, length);
+      streamEnd += length;
+    }
+  }
+
+  /**
+   * Drop consumed messages and processed record headers, moving the unconsumed handshake bytes and
+   * unprocessed records to the start of the buffer. Invalidates offsets of earlier messages.
+   */
+  public void compact() {
+    int pending = streamEnd - streamStart;
+    int tail = buffer.position() - recordOffset;
+    move(streamStart, 0, pending);
+    move(recordOffset, pending, tail);
+    streamStart = 0;
+    streamEnd = pending;
+    recordOffset = pending;
+    buffer.position(pending + tail);
+  }
+
+  /**
+   * @return true if the buffer has no space left and {@link #compact()} would not free any
+   */
+  public boolean isFull() {
+    return !buffer.hasRemaining() && streamStart == 0 && recordOffset == streamEnd;
+  }
+
+  public int getType() {
+    return messageType;
+  }
+
+  /**
+   * @return absolute position of the current message body
+   */
+  public int getOffset() {
+    return messageOffset;
+  }
+
+  public int getLength() {
+    return messageLength;
+  }
+
+  public ByteBuffer getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * @return view of the last alert, valid until the next call to {@link #next()}
+   */
+  public Alert getAlert() {
+    return alert;
+  }
+
+  private void move(int from, int to, int length) {
+    if (from == to || length == 0) {
+      return;
+    }
+    if (to < from) {
+      int i = 0;
+      for (; i + 8 <= length; i += 8) {
+        buffer.putLong(to + i, buffer.getLong(from + i));
+      }
+      for (; i < length; i++) {
+        buffer.put(to + i, buffer.get(from + i));
+      }
+    } else {
+      int i = length;
+      for (; i >= 8; i -= 8) {
+        buffer.putLong(to + i - 8, buffer.getLong(from + i - 8));
+      }
+      for (; i > 0; i--) {
+        buffer.put(to + i - 1, buffer.get(from + i - 1));
+      }
+    }
+  }
+
+}
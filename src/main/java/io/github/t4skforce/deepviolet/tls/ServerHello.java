@@ -0,0 +1,150 @@
+package io.github.t4skforce.deepviolet.tls;
+
+import io.github.t4skforce.deepviolet.json.NamedGroup;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flyweight view of a ServerHello handshake body. {@link #wrap(ByteBuffer, int, int)} only checks
+ * bounds, the accessors read straight from the wrapped buffer, so an instance can be reused for
+ * every response of a connection.
+ */
+public final class ServerHello {
+
+  // SHA-256("HelloRetryRequest"), RFC 8446 4.1.3
+  private static final long[] HELLO_RETRY_REQUEST = { 0xCF21AD74E59A6111L, 0xBE1D8C021E65B891L,
+      0xC2A211167ABB8C5EL, 0x079E09E2C8A8339CL };
+
+  private ByteBuffer buffer;
+  private int offset;
+  private int length;
+  private int suiteOffset;
+  private int extensionsOffset;
+
+  /**
+   * Point this view at a ServerHello body.
+   *
+   * @param buffer buffer holding the message
+   * @param offset absolute position of the body, after the handshake header
+   * @param length body length from the handshake header
+   * @return this
+   * @throws IllegalArgumentException if the body is malformed
+   */
+  public ServerHello wrap(ByteBuffer buffer, int offset, int length) {
+    if (length < 38 || offset + length > buffer.limit()) {
+      throw new IllegalArgumentException("Truncated ServerHello");
+    }
+    int sessionIdLength = buffer.get(offset + 34) & 0xFF;
+    int suite = offset + 35 + sessionIdLength;
+    if (sessionIdLength > 32 || suite + 3 > offset + length) {
+      throw new IllegalArgumentException("Malformed ServerHello");
+    }
+    int extensions = suite + 3;
+    int end = offset + length;
+    if (extensions < end) {
+      if (extensions + 2 > end || extensions + 2 + (buffer.getShort(extensions) & 0xFFFF) > end) {
+        throw new IllegalArgumentException("Malformed ServerHello extensions");
+      }
+      // every extension has to fit the list, the accessors read their bodies unchecked
+      int last = extensions + 2 + (buffer.getShort(extensions) & 0xFFFF);
+      int pos = extensions + 2;
+      while (pos < last) {
+        if (pos + 4 > last || pos + 4 + (buffer.getShort(pos + 2) & 0xFFFF) > last) {
+          throw new IllegalArgumentException("Malformed ServerHello extension at " + pos);
+        }
+        pos += 4 + (buffer.getShort(pos + 2) & 0xFFFF);
+      }
+    } else {
+      extensions = -1;
+    }
+    this.buffer = buffer;
+    this.offset = offset;
+    this.length = length;
+    this.suiteOffset = suite;
+    this.extensionsOffset = extensions;
+    return this;
+  }
+
+  public int getLegacyVersion() {
+    return buffer.getShort(offset) & 0xFFFF;
+  }
+
+  /**
+   * Negotiated version, taken from supported_versions if present.
+   *
+   * @return version code
+   */
+  public int getVersion() {
+    int ext = findExtension(ClientHello.EXT_SUPPORTED_VERSIONS);
+    if (ext >= 0 && (buffer.getShort(ext + 2) & 0xFFFF) == 2) {
+      return buffer.getShort(ext + 4) & 0xFFFF;
+    }
+    return getLegacyVersion();
+  }
+
+  public TlsVersion getTlsVersion() {
+    return TlsVersion.of(getVersion());
+  }
+
+  public int getCipherSuite() {
+    return buffer.getShort(suiteOffset) & 0xFFFF;
+  }
+
+  public int getCompressionMethod() {
+    return buffer.get(suiteOffset + 2) & 0xFF;
+  }
+
+  /**
+   * Group of the key_share extension, the selected group of a HelloRetryRequest or the group of
+   * the server share in a TLSv1.3 ServerHello.
+   *
+   * @return named group or {@link NamedGroup#UNKNOWN} if there is no key_share
+   */
+  public int getKeyShareGroup() {
+    int ext = findExtension(ClientHello.EXT_KEY_SHARE);
+    if (ext < 0 || (buffer.getShort(ext + 2) & 0xFFFF) < 2) {
+      return NamedGroup.UNKNOWN;
+    }
+    return buffer.getShort(ext + 4) & 0xFFFF;
+  }
+
+  public boolean isHelloRetryRequest() {
+    for (int i = 0; i < HELLO_RETRY_REQUEST.length; i++) {
+      if (buffer.getLong(offset + 2 + 8 * i) != HELLO_RETRY_REQUEST[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Find an extension.
+   *
+   * @param type extension type
+   * @return absolute position of the extension header (type, length) or -1
+   */
+  public int findExtension(int type) {
+    if (extensionsOffset < 0) {
+      return -1;
+    }
+    int end = extensionsOffset + 2 + (buffer.getShort(extensionsOffset) & 0xFFFF);
+    int pos = extensionsOffset + 2;
+    while (pos + 4 <= end) {
+      int next = pos + 4 + (buffer.getShort(pos + 2) & 0xFFFF);
+      if (next > end) {
+        return -1;
+      }
+      if ((buffer.getShort(pos) & 0xFFFF) == type) {
+        return pos;
+      }
+      pos = next;
+    }
+    return -1;
+  }
+
+}
@@ -0,0 +1,132 @@
+package io.github.t4skforce.deepviolet.tls;
+
+import io.github.t4skforce.deepviolet.json.NamedGroup;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flyweight view of a ServerKeyExchange body for ephemeral (EC)DH key exchange. The layout
+ * depends on the negotiated suite, so the caller has to tell which key exchange to expect.
+ */
+public final class ServerKeyExchange {
+
+  public static final int DHE = 1;
+  public static final int ECDHE = 2;
+
+  private static final int NAMED_CURVE = 3;
+
+  private ByteBuffer buffer;
+  private int keyExchange;
+  private int primeOffset;
+  private int primeLength;
+  private int namedGroup;
+  private int publicKeyLength;
+  private int signatureAlgorithm;
+
+  /**
+   * Point this view at a ServerKeyExchange body.
+   *
+   * @param buffer      buffer holding the message
+   * @param offset      absolute position of the body
+   * @param length      body length from the handshake header
+   * @param keyExchange {@link #DHE} or {@link #ECDHE}
+   * @param version     negotiated version code, signature algorithms exist from TLSv1.2
+   * @return this
+   * @throws IllegalArgumentException if the body is malformed
+   */
+  public ServerKeyExchange wrap(ByteBuffer buffer, int offset, int length, int keyExchange,
+      int version) {
+    int end = offset + length;
+    int pos = offset;
+    int prime = -1;
+    int primeLen = 0;
+    int group = NamedGroup.UNKNOWN;
+    int publicKey;
+    if (keyExchange == DHE) {
+      prime = pos + 2;
+      primeLen = vector16(buffer, pos, end);
+      pos = prime + primeLen;
+      // generator
+      pos += 2 + vector16(buffer, pos, end);
+      publicKey = vector16(buffer, pos, end);
+      pos += 2 + publicKey;
+    } else if (keyExchange == ECDHE) {
+      if (pos + 4 > end || (buffer.get(pos) & 0xFF) != NAMED_CURVE) {
+        throw new IllegalArgumentException("Unsupported ECParameters");
+      }
+      group = buffer.getShort(pos + 1) & 0xFFFF;
+      publicKey = buffer.get(pos + 3) & 0xFF;
+      pos += 4 + publicKey;
+      if (pos > end) {
+        throw new IllegalArgumentException("Malformed ServerKeyExchange");
+      }
+    } else {
+      throw new IllegalArgumentException("Unsupported key exchange: " + keyExchange);
+    }
+    int signature = -1;
+    if (version >= TlsVersion.TLS_V1_2 && pos + 2 <= end) {
+      signature = buffer.getShort(pos) & 0xFFFF;
+    }
+    this.buffer = buffer;
+    this.keyExchange = keyExchange;
+    this.primeOffset = prime;
+    this.primeLength = primeLen;
+    this.namedGroup = group;
+    this.publicKeyLength = publicKey;
+    this.signatureAlgorithm = signature;
+    return this;
+  }
+
+  private static int vector16(ByteBuffer buffer, int pos, int end) {
+    if (pos + 2 > end) {
+      throw new IllegalArgumentException("Malformed ServerKeyExchange");
+    }
+    int length = buffer.getShort(pos) & 0xFFFF;
+    if (pos + 2 + length > end) {
+      throw new IllegalArgumentException("Malformed ServerKeyExchange");
+    }
+    return length;
+  }
+
+  public int getKeyExchange() {
+    return keyExchange;
+  }
+
+  /**
+   * @return named group for ECDHE or {@link NamedGroup#UNKNOWN}
+   */
+  public int getNamedGroup() {
+    return namedGroup;
+  }
+
+  /**
+   * Size of the key exchange group, bit length of the prime for DHE.
+   *
+   * @return size in bits or 0 if unknown
+   */
+  public int getGroupBits() {
+    if (keyExchange == ECDHE) {
+      return NamedGroup.bits(namedGroup);
+    }
+    for (int i = 0; i < primeLength; i++) {
+      int b = buffer.get(primeOffset + i) & 0xFF;
+      if (b != 0) {
+        return (primeLength - i) * 8 - (Integer.numberOfLeadingZeros(b) - 24);
+      }
+    }
+    return 0;
+  }
+
+  public int getPublicKeyLength() {
+    return publicKeyLength;
+  }
+
+  /**
+   * @return signature scheme or -1 before TLSv1.2
+   */
+  public int getSignatureAlgorithm() {
+    return signatureAlgorithm;
+  }
+
+}
@@ -0,0 +1,50 @@
+package io.github.t4skforce.deepviolet.tls;
+
+import java.nio.ByteBuffer;
+
+/**
+ * TLS record layer constants and header accessors. All accessors use absolute positions and never
+ * move the buffer position.
+ */
+public final class TlsRecord {
+
+  public static final int HEADER_LENGTH = 5;
+  public static final int MAX_FRAGMENT_LENGTH = 1 << 14;
+
+  public static final int CHANGE_CIPHER_SPEC = 20;
+  public static final int ALERT = 21;
+  public static final int HANDSHAKE = 22;
+  public static final int APPLICATION_DATA = 23;
+
+  public static final int HANDSHAKE_HEADER_LENGTH = 4;
+  public static final int CLIENT_HELLO = 1;
+  public static final int SERVER_HELLO = 2;
+  public static final int CERTIFICATE = 11;
+  public static final int SERVER_KEY_EXCHANGE = 12;
+  public static final int SERVER_HELLO_DONE = 14;
+
+  private TlsRecord() {
+  }
+
+  public static int contentType(ByteBuffer buffer, int index) {
+    return buffer.get(index) & 0xFF;
+  }
+
+  public static int version(ByteBuffer buffer, int index) {
+    return buffer.getShort(index + 1) & 0xFFFF;
+  }
+
+  public static int length(ByteBuffer buffer, int index) {
+    return buffer.getShort(index + 3) & 0xFFFF;
+  }
+
+  static int getUInt24(ByteBuffer buffer, int index) {
+    return (buffer.get(index) & 0xFF) << 16 | (buffer.getShort(index + 1) & 0xFFFF);
+  }
+
+  static void putUInt24(ByteBuffer buffer, int value) {
+    buffer.put((byte) (value >>> 16));
+    buffer.putShort((short) value);
+  }
+
+}
@@ -0,0 +1,29 @@
+package io.github.t4skforce.deepviolet.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event around {@link Downloader#open(String)}, the body is read by the caller
+ * afterwards and accounted for in its own events.
+ */
+@Name("io.github.t4skforce.deepviolet.Download")
+@Label("Download")
+@Category({ "DeepViolet", "Catalog" })
+@Description("Connect and response headers of a downloaded source")
+@StackTrace(false)
+final class DownloadEvent extends jdk.jfr.Event {
+
+  @Label("URL")
+  String url;
+
+  @Label("Response Code")
+  int responseCode;
+
+  @Label("Served From Cache")
+  boolean cached;
+
+}
@@ -1,27 +1,227 @@
 package io.github.t4skforce.deepviolet.util;
 
+import com.google.common.hash.Hashing;
+import com.google.common.io.CharStreams;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.charset.StandardCharsets;
-import java.util.Scanner;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
 import org.apache.commons.lang3.StringUtils;
 
 public abstract class Downloader {
 
-  private static final String HTTP_AGENT = "http.agent";
+  public static final String CACHE_DIR_PROPERTY = "deepviolet.download.cache";
+
   private static final String USER_AGENT = "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/88.0.4324.146 Safari/537.36";
 
-  
-  public static String get(String requestUrl) throws IOException {
-    String sysUa = System.getProperty(HTTP_AGENT);
-    System.setProperty(HTTP_AGENT, USER_AGENT);
-    try (Scanner scanner = new Scanner(new URL(requestUrl).openStream(),
-        StandardCharsets.UTF_8.toString())) {
-      scanner.useDelimiter("\\A");
-      return scanner.hasNext() ? scanner.next() : StringUtils.EMPTY;
+  private static final String GZIP = "gzip";
+  private static final String META_URL = "url";
+  private static final String META_ETAG = "etag";
+  private static final String META_LAST_MODIFIED = "last-modified";
+
+  private static volatile Path cacheDirectory = StringUtils
+      .isBlank(System.getProperty(CACHE_DIR_PROPERTY)) ? null
+          : Paths.get(System.getProperty(CACHE_DIR_PROPERTY));
+
+  /**
+   * Directory used to cache downloaded content between runs. When set, requests are sent with
+   * If-None-Match / If-Modified-Since and a 304 response is served from the cache. Defaults to the
+   * {@value #CACHE_DIR_PROPERTY} system property, null disables caching.
+   *
+   * @param directory cache directory or null
+   */
+  public static void setCacheDirectory(Path directory) {
+    cacheDirectory = directory;
+  }
+
+  public static Path getCacheDirectory() {
+    return cacheDirectory;
+  }
+
+  /**
+   * Open a stream to the given url, the caller is responsible for closing it. Responses are
+   * transparently decompressed and, if a cache directory is configured, stored once the stream has
+   * been read to the end.
+   *
+   * @param requestUrl url to fetch
+   * @return response body
+   * @throws IOException if the connection fails
+   */
+  public static InputStream open(String requestUrl) throws IOException {
+    DownloadEvent event = new DownloadEvent();
+    event.begin();
+    try {
+      return open(requestUrl, event);
     } finally {
-      if (sysUa != null) {
-        System.setProperty(HTTP_AGENT, sysUa);
+      if (event.shouldCommit()) {
+        event.url = requestUrl;
+        event.commit();
+      }
+    }
+  }
+
+  private static InputStream open(String requestUrl, DownloadEvent event) throws IOException {
+    URLConnection connection = new URL(requestUrl).openConnection();
+    connection.setRequestProperty("User-Agent", USER_AGENT);
+    if (!(connection instanceof HttpURLConnection)) {
+      return connection.getInputStream();
+    }
+    HttpURLConnection http = (HttpURLConnection) connection;
+    http.setRequestProperty("Accept-Encoding", GZIP);
+
+    Path cache = cacheDirectory;
+    if (cache == null) {
+      InputStream in = decode(http);
+      event.responseCode = http.getResponseCode();
+      return in;
+    }
+
+    String key = Hashing.sha256().hashString(requestUrl, StandardCharsets.UTF_8).toString();
+    Path body = cache.resolve(key + ".body");
+    Path meta = cache.resolve(key + ".properties");
+    Properties cached = new Properties();
+    if (Files.isRegularFile(body) && Files.isRegularFile(meta)) {
+      try (InputStream in = Files.newInputStream(meta)) {
+        cached.load(in);
+      }
+      if (cached.containsKey(META_ETAG)) {
+        http.setRequestProperty("If-None-Match", cached.getProperty(META_ETAG));
+      }
+      if (cached.containsKey(META_LAST_MODIFIED)) {
+        http.setRequestProperty("If-Modified-Since", cached.getProperty(META_LAST_MODIFIED));
+      }
+    }
+
+    event.responseCode = http.getResponseCode();
+    if (event.responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && !cached.isEmpty()) {
+      http.disconnect();
+      event.cached = true;
+      return Files.newInputStream(body);
+    }
+
+    Properties update = new Properties();
+    update.setProperty(META_URL, requestUrl);
+    if (http.getHeaderField("ETag") != null) {
+      update.setProperty(META_ETAG, http.getHeaderField("ETag"));
+    }
+    if (http.getHeaderField("Last-Modified") != null) {
+      update.setProperty(META_LAST_MODIFIED, http.getHeaderField("Last-Modified"));
+    }
+    InputStream in = decode(http);
+    if (update.size() == 1) {
+      // nothing to validate against later on
+      return in;
+    }
+    Files.createDirectories(cache);
+    return new CachingInputStream(in, body, meta, update);
+  }
+
+  public static String get(String requestUrl) throws IOException {
+    try (InputStreamReader reader = new InputStreamReader(open(requestUrl),
+        StandardCharsets.UTF_8)) {
+      return CharStreams.toString(reader);
+    }
+  }
+
+  private static InputStream decode(HttpURLConnection http) throws IOException {
+    InputStream in = http.getInputStream();
+    if (GZIP.equalsIgnoreCase(http.getContentEncoding())) {
+      return new GZIPInputStream(in);
+    }
+    return in;
+  }
+
+  /**
+   * Copies everything read into a temporary file, which replaces the cache entry once the stream
+   * has been consumed completely.
+   */
+  private static class CachingInputStream extends FilterInputStream {
+
+    private final Path body;
+    private final Path meta;
+    private final Properties properties;
+    private final Path temp;
+    private final OutputStream out;
+    private boolean complete;
+
+    CachingInputStream(InputStream in, Path body, Path meta, Properties properties)
+        throws IOException {
+      super(in);
+      this.body = body;
+      this.meta = meta;
+      this.properties = properties;
+      this.temp = Files.createTempFile(body.getParent(), body.getFileName().toString(), ".tmp");
+      this.out = new BufferedOutputStream(Files.newOutputStream(temp));
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b < 0) {
+        complete = true;
+      } else {
+        out.write(b);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read < 0) {
+        complete = true;
+      } else {
+        out.write(b, off, read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      // skipped bytes would be missing from the cached copy
+      long skipped = 0;
+      while (skipped < n && read() >= 0) {
+        skipped++;
+      }
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        out.close();
+        if (complete) {
+          // drop the validators first so a crash never pairs them with another body
+          Files.deleteIfExists(meta);
+          Files.move(temp, body, StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+          try (OutputStream metaOut = Files.newOutputStream(meta)) {
+            properties.store(metaOut, null);
+          }
+        } else {
+          Files.deleteIfExists(temp);
+        }
       }
     }
   }
@@ -0,0 +1,133 @@
+package io.github.t4skforce.deepviolet.cert;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.Resources;
+import io.github.t4skforce.deepviolet.json.CompatibilityEnum;
+import io.github.t4skforce.deepviolet.json.mozilla.MozillaConfig;
+import io.github.t4skforce.deepviolet.json.mozilla.MozillaGuidelines;
+import io.github.t4skforce.deepviolet.tls.Certificate;
+import java.nio.ByteBuffer;
+import java.security.cert.CertificateException;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// certificates were created with openssl req -x509, see the subject for the key
+class CertificateAnalyzerTest {
+
+  private static MozillaConfig modern;
+  private static MozillaConfig intermediate;
+
+  private CertificateAnalyzer analyzer;
+
+  @BeforeAll
+  static void setUpGuidelines() throws Exception {
+    MozillaGuidelines guidelines = MozillaGuidelines.builder()
+        .load("mozilla/guidelines/5.6.json").build();
+    modern = guidelines.get(5.6, CompatibilityEnum.MORDERN);
+    intermediate = guidelines.get(5.6, CompatibilityEnum.INTERMEDIATE);
+  }
+
+  @BeforeEach
+  void setUp() {
+    analyzer = CertificateAnalyzer.builder().maximumSize(16).build();
+  }
+
+  private static byte[] der(String name) throws Exception {
+    return Resources.toByteArray(Resources.getResource("cert/" + name + ".der"));
+  }
+
+  @Test
+  void testRsa() throws Exception {
+    byte[] der = der("rsa2048");
+    CertificateInfo info = analyzer.analyze(der);
+
+    assertThat(info.getKeyType()).isEqualTo(CertificateInfo.RSA);
+    assertThat(info.getKeyBits()).isEqualTo(2048);
+    assertThat(info.getCurve()).isNull();
+    assertThat(info.getSignature()).isEqualTo("sha256WithRSAEncryption");
+    assertThat(info.getLifespanDays()).isEqualTo(365);
+    assertThat(info.getSubject()).isEqualTo("CN=rsa.example");
+    assertThat(info.isSelfIssued()).isTrue();
+    assertThat(info.getFingerprint()).isEqualTo(Hashing.sha256().hashBytes(der));
+    assertThat(info.violations(intermediate)).isEmpty();
+    assertThat(info.violations(modern)).containsExactly("certificate_types",
+        "certificate_signatures", "maximum_certificate_lifespan");
+  }
+
+  @Test
+  void testEc() throws Exception {
+    CertificateInfo p256 = analyzer.analyze(der("ec256"));
+    CertificateInfo p521 = analyzer.analyze(der("ec521"));
+
+    assertThat(p256.getKeyType()).isEqualTo(CertificateInfo.ECDSA);
+    assertThat(p256.getKeyBits()).isEqualTo(256);
+    assertThat(p256.getCurve()).isEqualTo("prime256v1");
+    assertThat(p256.getSignature()).isEqualTo("ecdsa-with-SHA256");
+    assertThat(p256.violations(modern)).isEmpty();
+    assertThat(p521.getCurve()).isEqualTo("secp521r1");
+    assertThat(p521.violations(modern)).containsExactly("certificate_curves");
+  }
+
+  @Test
+  void testWeak() throws Exception {
+    CertificateInfo info = analyzer.analyze(der("rsa1024"));
+
+    assertThat(info.getSignature()).isEqualTo("sha1WithRSAEncryption");
+    assertThat(info.violations(intermediate)).containsExactly("certificate_signatures",
+        "rsa_key_size", "maximum_certificate_lifespan");
+    assertThat(info.violations(intermediate)).isSameInstanceAs(info.violations(intermediate));
+  }
+
+  @Test
+  void testParsedOnce() throws Exception {
+    byte[] leaf = der("ec256");
+    byte[] issuer = der("rsa2048");
+    // Certificate handshake body with the DER encodings at an offset inside a larger buffer
+    ByteBuffer buffer = ByteBuffer.allocate(16 + 3 + 3 + leaf.length + 3 + issuer.length);
+    buffer.position(16);
+    putUInt24(buffer, 3 + leaf.length + 3 + issuer.length);
+    putUInt24(buffer, leaf.length);
+    buffer.put(leaf);
+    putUInt24(buffer, issuer.length);
+    buffer.put(issuer);
+    Certificate chain = new Certificate().wrap(buffer, 16, buffer.position() - 16);
+
+    List<CertificateInfo> first = analyzer.analyze(chain);
+    List<CertificateInfo> second = analyzer.analyze(chain);
+    CertificateInfo copy = analyzer.analyze(leaf.clone());
+
+    assertThat(first).hasSize(2);
+    assertThat(first.get(0).getKeyType()).isEqualTo(CertificateInfo.ECDSA);
+    assertThat(second.get(0)).isSameInstanceAs(first.get(0));
+    assertThat(copy).isSameInstanceAs(first.get(0));
+    assertThat(analyzer.size()).isEqualTo(2);
+    assertThat(analyzer.getStats().loadCount()).isEqualTo(2);
+    assertThat(analyzer.getStats().hitCount()).isEqualTo(3);
+  }
+
+  @Test
+  void testBounded() throws Exception {
+    CertificateAnalyzer small = CertificateAnalyzer.builder().maximumSize(1).build();
+
+    small.analyze(der("ec256"));
+    small.analyze(der("rsa2048"));
+
+    assertThat(small.size()).isEqualTo(1);
+  }
+
+  @Test
+  void testGarbage() {
+    assertThrows(CertificateException.class, () -> analyzer.analyze(new byte[] { 0x30, 0x03 }));
+    assertThat(analyzer.size()).isEqualTo(0);
+  }
+
+  private static void putUInt24(ByteBuffer buffer, int value) {
+    buffer.put((byte) (value >>> 16)).put((byte) (value >>> 8)).put((byte) value);
+  }
+
+}
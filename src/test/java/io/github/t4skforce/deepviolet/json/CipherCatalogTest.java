@@ -0,0 +1,167 @@
+package io.github.t4skforce.deepviolet.json;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.github.t4skforce.deepviolet.metrics.MetricsRegistry;
+import io.github.t4skforce.deepviolet.metrics.MetricsSnapshot;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CipherCatalogTest {
+
+  private static CipherMap cipherMap;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    cipherMap = CipherMap.builder().load().build();
+  }
+
+  private static CipherMapClassificationsJson entry(String iana, String openssl) {
+    CipherMapClassificationsJson json = new CipherMapClassificationsJson();
+    json.setIana(iana);
+    json.setOpenssl(openssl);
+    return json;
+  }
+
+  @Test
+  void testSnapshot() {
+    CipherCatalog catalog = cipherMap.snapshot();
+
+    assertThat(catalog.size()).isEqualTo(cipherMap.index().size());
+    assertThat(catalog.codes()).isEqualTo(cipherMap.index().codes());
+    CipherSuite suite = catalog.get(0x1301);
+    assertThat(suite.getIana()).isEqualTo("TLS_AES_128_GCM_SHA256");
+    assertThat(suite.getHex()).isEqualTo("0x13,0x01");
+    assertThat(catalog.get(0x10000)).isNull();
+    assertThat(catalog.toCipherMap().keySet()).isEqualTo(cipherMap.keySet());
+  }
+
+  @Test
+  void testSnapshotIsDetached() {
+    CipherMap map = new CipherMap("0x13,0x01", entry("TLS_AES_128_GCM_SHA256", null));
+    CipherCatalog catalog = map.snapshot();
+
+    map.get("0x13,0x01").setIana("changed");
+    map.put("0x13,0x02", entry("TLS_AES_256_GCM_SHA384", null));
+
+    assertThat(catalog.get(0x1301).getIana()).isEqualTo("TLS_AES_128_GCM_SHA256");
+    assertThat(catalog.contains(0x1302)).isFalse();
+  }
+
+  @Test
+  void testDiff() {
+    CipherMap before = new CipherMap();
+    before.put("0x00,0x2F", entry("TLS_RSA_WITH_AES_128_CBC_SHA", null));
+    before.put("0x00,0x35", entry("TLS_RSA_WITH_AES_256_CBC_SHA", null));
+    before.put("0xC0,0x2F", entry("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256", null));
+    CipherMap after = new CipherMap();
+    after.put("0x00,0x2F", entry("TLS_RSA_WITH_AES_128_CBC_SHA", null));
+    after.put("0xC0,0x2F",
+        entry("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256", "ECDHE-RSA-AES128-GCM-SHA256"));
+    after.put("0x13,0x01", entry("TLS_AES_128_GCM_SHA256", null));
+
+    CipherCatalog.Diff diff = before.snapshot().diff(after.snapshot());
+
+    assertThat(diff.getAdded()).asList().containsExactly(0x1301);
+    assertThat(diff.getRemoved()).asList().containsExactly(0x0035);
+    assertThat(diff.getChanged()).asList().containsExactly(0xC02F);
+    assertThat(diff.isEmpty()).isFalse();
+    assertThat(after.snapshot().diff(after.snapshot()).isEmpty()).isTrue();
+  }
+
+  @Test
+  void testHolderUpdate() {
+    CipherCatalogHolder holder = CipherCatalogHolder.of(
+        new CipherMap("0x00,0x2F", entry("TLS_RSA_WITH_AES_128_CBC_SHA", null)));
+    List<CipherCatalog.Diff> diffs = new ArrayList<>();
+    holder.addListener((catalog, diff) -> diffs.add(diff));
+    CipherCatalog first = holder.get();
+
+    CipherCatalog.Diff diff = holder.update(cipherMap);
+
+    assertThat(diff.getAdded().length).isEqualTo(cipherMap.size() - 1);
+    assertThat(holder.get().getGeneration()).isEqualTo(1);
+    assertThat(diffs).containsExactly(diff);
+    // readers holding the old snapshot are unaffected
+    assertThat(first.size()).isEqualTo(1);
+
+    assertThat(holder.update(cipherMap.snapshot()).isEmpty()).isTrue();
+    assertThat(holder.get().getGeneration()).isEqualTo(1);
+    assertThat(diffs).hasSize(1);
+  }
+
+  @Test
+  void testRefreshFailureKeepsCatalog() throws Exception {
+    CipherCatalogHolder holder = CipherCatalogHolder.of(cipherMap);
+    CipherCatalog current = holder.get();
+
+    CompletionException e = assertThrows(CompletionException.class,
+        () -> holder.refresh(() -> {
+          throw new IOException("offline");
+        }, Runnable::run).join());
+
+    assertThat(e).hasCauseThat().hasCauseThat().hasMessageThat().isEqualTo("offline");
+    assertThat(holder.get()).isSameInstanceAs(current);
+  }
+
+  @Test
+  void testRefreshMetrics() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    CipherCatalogHolder holder = CipherCatalogHolder.of(cipherMap).metrics(registry);
+
+    holder.refresh(() -> cipherMap, Runnable::run).join();
+    assertThrows(CompletionException.class, () -> holder.refresh(() -> {
+      throw new IOException("offline");
+    }, Runnable::run).join());
+
+    MetricsSnapshot snapshot = registry.snapshot();
+    assertThat(snapshot.getCounter("catalog.refresh.unchanged")).isEqualTo(1);
+    assertThat(snapshot.getCounter("catalog.refresh.failed")).isEqualTo(1);
+    assertThat(snapshot.getHistogram("catalog.refresh").getCount()).isEqualTo(1);
+  }
+
+  @Test
+  void testConcurrentReaders() throws Exception {
+    CipherMap small = new CipherMap("0x13,0x01", entry("TLS_AES_128_GCM_SHA256", null));
+    CipherCatalogHolder holder = CipherCatalogHolder.of(small);
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicReference<String> torn = new AtomicReference<>();
+    ExecutorService readers = Executors.newFixedThreadPool(2);
+    try {
+      for (int i = 0; i < 2; i++) {
+        readers.execute(() -> {
+          while (running.get()) {
+            CipherCatalog catalog = holder.get();
+            // a snapshot never changes under a reader
+            if (catalog.size() != catalog.codes().length
+                || catalog.size() > 1 && !catalog.contains(0xC02F)) {
+              torn.set("generation " + catalog.getGeneration());
+            }
+          }
+        });
+      }
+      for (int i = 0; i < 20; i++) {
+        holder.refresh(i % 2 == 0 ? () -> cipherMap : () -> small, Runnable::run).join();
+      }
+    } finally {
+      running.set(false);
+      readers.shutdown();
+      assertThat(readers.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    assertThat(torn.get()).isNull();
+    assertThat(holder.get().getGeneration()).isEqualTo(20);
+  }
+
+}
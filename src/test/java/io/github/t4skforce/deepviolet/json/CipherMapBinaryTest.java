@@ -0,0 +1,100 @@
+package io.github.t4skforce.deepviolet.json;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Map.Entry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CipherMapBinaryTest {
+
+  private CipherMap json;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    json = CipherMap.builder().load("ciphermap.json").build();
+  }
+
+  private void assertSameEntries(CipherMap expected, CipherMap actual) {
+    assertEquals(expected.keySet(), actual.keySet());
+    for (Entry<String, CipherMapClassificationsJson> entry : expected.entrySet()) {
+      CipherMapClassificationsJson other = actual.get(entry.getKey());
+      assertEquals(entry.getValue().getIana(), other.getIana());
+      assertEquals(entry.getValue().getNss(), other.getNss());
+      assertEquals(entry.getValue().getOpenssl(), other.getOpenssl());
+      assertEquals(entry.getValue().getGnutls(), other.getGnutls());
+    }
+  }
+
+  @Test
+  void testRoundTrip() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CipherMapBinary.write(json, out);
+    CipherMapBinary binary = CipherMapBinary.of(ByteBuffer.wrap(out.toByteArray()));
+
+    assertEquals(json.size(), binary.size());
+    assertSameEntries(json, binary.toCipherMap());
+  }
+
+  @Test
+  void testLookup() throws Exception {
+    CipherMapBinary binary = CipherMapBinary.load("ciphermap.bin");
+    assertTrue(binary.contains(0x1301));
+    assertEquals("TLS_AES_128_GCM_SHA256", binary.get(0x1301).getIana());
+    assertEquals("ECDHE-RSA-AES128-GCM-SHA256", binary.get(0xC02F).getOpenssl());
+    assertFalse(binary.contains(0xFFFF));
+    assertNull(binary.get(0xFFFF));
+  }
+
+  @Test
+  void testIndexAndSnapshot() throws Exception {
+    CipherMapBinary binary = CipherMapBinary.load("ciphermap.bin");
+    CipherMapIndex index = binary.index();
+    CipherCatalog catalog = binary.snapshot();
+
+    assertArrayEquals(json.index().codes(), index.codes());
+    assertArrayEquals(json.snapshot().codes(), catalog.codes());
+    for (int code : index.codes()) {
+      CipherMapClassificationsJson expected = json.get(CipherMap.toHex(code));
+      assertEquals(expected.getIana(), index.get(code).getIana());
+      assertEquals(expected.getGnutls(), index.get(code).getGnutls());
+      assertEquals(expected.getIana(), catalog.get(code).getIana());
+      assertEquals(expected.getOpenssl(), catalog.get(code).getOpenssl());
+    }
+    assertNull(index.get(0xFFFF));
+    assertNull(catalog.get(0xFFFF));
+  }
+
+  @Test
+  void testBundledImageMatchesJson() throws Exception {
+    assertSameEntries(json, CipherMap.builder().build());
+    assertSameEntries(json, CipherMap.builder().loadBinary("ciphermap.bin").build());
+  }
+
+  @Test
+  void testWriteMapped(@TempDir Path tempDir) throws Exception {
+    Path target = tempDir.resolve("ciphermap.bin");
+    CipherMap.builder().load("ciphermap.json").writeBinary(target.toFile());
+    assertSameEntries(json, CipherMap.builder().loadBinary(target.toFile()).build());
+  }
+
+  @Test
+  void testInvalidImage() {
+    assertThrows(IOException.class, () -> CipherMapBinary.of(ByteBuffer.wrap(new byte[] { 1, 2 })));
+    assertThrows(IOException.class,
+        () -> CipherMapBinary.of(ByteBuffer.wrap(new byte[] { 0x44, 0x56, 0x43, 0x4D, 0, 1, 0, 0,
+            0, 10, 0, 0, 0, 0 })));
+  }
+
+}
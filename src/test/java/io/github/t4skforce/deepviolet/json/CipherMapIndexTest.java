@@ -0,0 +1,67 @@
+package io.github.t4skforce.deepviolet.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map.Entry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CipherMapIndexTest {
+
+  private CipherMap cipherMap;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    cipherMap = CipherMap.builder().load("ciphermap.json").build();
+  }
+
+  @Test
+  void testIndexMatchesMap() {
+    CipherMapIndex index = cipherMap.index();
+    assertEquals(cipherMap.size(), index.size());
+    for (Entry<String, CipherMapClassificationsJson> entry : cipherMap.entrySet()) {
+      int code = CipherMap.toCode(entry.getKey());
+      assertSame(entry.getValue(), index.get(code));
+      assertSame(entry.getValue(), index.get((short) code));
+      assertSame(entry.getValue(), index.get((byte) (code >>> 8), (byte) code));
+      assertEquals(entry.getKey(), CipherMap.toHex(code));
+    }
+  }
+
+  @Test
+  void testLookup() {
+    CipherMapIndex index = cipherMap.index();
+    assertEquals("TLS_AES_128_GCM_SHA256", index.get(0x1301).getIana());
+    assertEquals("TLS_AES_128_GCM_SHA256", index.get((byte) 0x13, (byte) 0x01).getIana());
+    assertEquals("ECDHE-RSA-AES128-GCM-SHA256", index.get((short) 0xC02F).getOpenssl());
+    assertTrue(index.contains(0xC02F));
+    assertFalse(index.contains(0xFFFF));
+    assertNull(index.get(-1));
+    assertNull(index.get(0x10000));
+  }
+
+  @Test
+  void testCodesSorted() {
+    int[] codes = cipherMap.index().codes();
+    for (int i = 1; i < codes.length; i++) {
+      assertTrue(codes[i - 1] < codes[i]);
+    }
+  }
+
+  @Test
+  void testToCode() {
+    assertEquals(0x1301, CipherMap.toCode("0x13,0x01"));
+    assertEquals(0xC0A1, CipherMap.toCode("0xc0,0xa1"));
+    assertEquals("0xC0,0xA1", CipherMap.toHex(0xC0A1));
+    assertThrows(IllegalArgumentException.class, () -> CipherMap.toCode("0x1301"));
+    assertThrows(IllegalArgumentException.class, () -> CipherMap.toCode("0xG3,0x01"));
+    assertThrows(IllegalArgumentException.class, () -> CipherMap.toCode(null));
+  }
+
+}
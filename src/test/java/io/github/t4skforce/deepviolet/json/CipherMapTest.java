@@ -1,6 +1,7 @@
 package io.github.t4skforce.deepviolet.json;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -14,19 +15,34 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.hash.Hashing;
 import com.google.common.io.Resources;
+import com.sun.net.httpserver.HttpServer;
 
 import io.github.t4skforce.deepviolet.json.CipherMap.Builder.MessageConsumer;
 import io.github.t4skforce.deepviolet.util.Downloader;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.commons.lang3.StringUtils;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -36,15 +52,17 @@ import org.mockito.stubbing.Answer;
 
 class CipherMapTest {
 
-  private static final Answer<String> ANSWER_BY_URL = new Answer<String>() {
+  private static final Answer<InputStream> ANSWER_BY_URL = new Answer<InputStream>() {
     @Override
-    public String answer(InvocationOnMock invocation) throws Throwable {
+    public InputStream answer(InvocationOnMock invocation) throws Throwable {
       String[] url = invocation.getArgument(0, String.class).split("/");
-      return Resources.toString(Resources.getResource("builder/download/" + url[url.length - 1]),
-          StandardCharsets.UTF_8);
+      return Resources.getResource("builder/download/" + url[url.length - 1]).openStream();
     }
   };
 
+  private static final Answer<InputStream> ANSWER_EMPTY = invocation -> new ByteArrayInputStream(
+      new byte[0]);
+
   private Map<String, Map<String, String>> ciphermap = new TreeMap<String, Map<String, String>>();
 
   @BeforeEach
@@ -60,12 +78,12 @@ class CipherMapTest {
   @Test
   void testFallbackFetch() throws Exception {
     try (MockedStatic<Downloader> mock = mockStatic(Downloader.class)) {
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.IANA_URL))).thenReturn(StringUtils.EMPTY);
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.NSS_URL))).thenReturn(StringUtils.EMPTY);
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.OPENSSL_URL)))
-          .thenReturn(StringUtils.EMPTY);
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.GNUTLS_URL)))
-          .thenReturn(StringUtils.EMPTY);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.IANA_URL))).thenAnswer(ANSWER_EMPTY);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.NSS_URL))).thenAnswer(ANSWER_EMPTY);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.OPENSSL_URL)))
+          .thenAnswer(ANSWER_EMPTY);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.GNUTLS_URL)))
+          .thenAnswer(ANSWER_EMPTY);
 
       // fall back to local resource version if nothing can be fetched
       assertEquals(CipherMap.builder().fetch().build().keySet(),
@@ -73,10 +91,41 @@ class CipherMapTest {
     }
   }
 
+  @Test
+  void testFlightRecorderEvents(@TempDir Path tmp) throws Exception {
+    List<RecordedEvent> events;
+    try (Recording recording = new Recording();
+        MockedStatic<Downloader> mock = mockStatic(Downloader.class)) {
+      recording.enable("io.github.t4skforce.deepviolet.SourceParse");
+      recording.enable("io.github.t4skforce.deepviolet.CatalogLoad");
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.IANA_URL))).thenAnswer(ANSWER_BY_URL);
+      recording.start();
+
+      CipherMap.builder().fetchIana().build();
+      CipherMap.builder().load("ciphermap.json").build();
+
+      recording.stop();
+      Path file = tmp.resolve("events.jfr");
+      recording.dump(file);
+      events = RecordingFile.readAllEvents(file);
+    }
+
+    RecordedEvent parse = events.stream()
+        .filter(e -> e.getEventType().getName().endsWith(".SourceParse")).findFirst().get();
+    RecordedEvent load = events.stream()
+        .filter(e -> e.getEventType().getName().endsWith(".CatalogLoad")).findFirst().get();
+    assertEquals("IANA", parse.getString("source"));
+    assertEquals(ciphermap.size(), parse.getInt("entries"));
+    assertTrue(parse.getLong("bytes") > 0);
+    assertEquals("ciphermap.json", load.getString("source"));
+    assertEquals("json", load.getString("format"));
+    assertEquals(ciphermap.size(), load.getInt("entries"));
+  }
+
   @Test
   void testParseIana() throws Exception {
     try (MockedStatic<Downloader> mock = mockStatic(Downloader.class)) {
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.IANA_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.IANA_URL))).thenAnswer(ANSWER_BY_URL);
 
       CipherMap data = CipherMap.builder().fetchIana().build();
 
@@ -91,8 +140,8 @@ class CipherMapTest {
   @Test
   void testParseNss() throws Exception {
     try (MockedStatic<Downloader> mock = mockStatic(Downloader.class)) {
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.IANA_URL))).thenAnswer(ANSWER_BY_URL);
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.NSS_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.IANA_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.NSS_URL))).thenAnswer(ANSWER_BY_URL);
 
       CipherMap data = CipherMap.builder().fetchIana().fetchNss().build();
 
@@ -107,8 +156,8 @@ class CipherMapTest {
   @Test
   void testParseOpenSsl() throws Exception {
     try (MockedStatic<Downloader> mock = mockStatic(Downloader.class)) {
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.IANA_URL))).thenAnswer(ANSWER_BY_URL);
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.OPENSSL_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.IANA_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.OPENSSL_URL))).thenAnswer(ANSWER_BY_URL);
 
       CipherMap data = CipherMap.builder().fetchIana().fetchOpenSsl().build();
 
@@ -123,8 +172,8 @@ class CipherMapTest {
   @Test
   void testParseGnuTls() throws Exception {
     try (MockedStatic<Downloader> mock = mockStatic(Downloader.class)) {
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.IANA_URL))).thenAnswer(ANSWER_BY_URL);
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.GNUTLS_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.IANA_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.GNUTLS_URL))).thenAnswer(ANSWER_BY_URL);
 
       CipherMap data = CipherMap.builder().fetchIana().fetchGnuTls().build();
 
@@ -139,10 +188,10 @@ class CipherMapTest {
   @Test
   void testParsAll() throws Exception {
     try (MockedStatic<Downloader> mock = mockStatic(Downloader.class)) {
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.IANA_URL))).thenAnswer(ANSWER_BY_URL);
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.NSS_URL))).thenAnswer(ANSWER_BY_URL);
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.OPENSSL_URL))).thenAnswer(ANSWER_BY_URL);
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.GNUTLS_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.IANA_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.NSS_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.OPENSSL_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.GNUTLS_URL))).thenAnswer(ANSWER_BY_URL);
 
       CipherMap data = CipherMap.builder().fetch().build();
 
@@ -209,10 +258,10 @@ class CipherMapTest {
   void testLogging() throws Exception {
 
     try (MockedStatic<Downloader> mock = mockStatic(Downloader.class)) {
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.IANA_URL))).thenAnswer(ANSWER_BY_URL);
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.NSS_URL))).thenAnswer(ANSWER_BY_URL);
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.OPENSSL_URL))).thenAnswer(ANSWER_BY_URL);
-      mock.when(() -> Downloader.get(eq(CipherMap.Builder.GNUTLS_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.IANA_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.NSS_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.OPENSSL_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.GNUTLS_URL))).thenAnswer(ANSWER_BY_URL);
 
       MessageTester log = mock(MessageTester.class);
       MessageTester warn = mock(MessageTester.class);
@@ -226,6 +275,96 @@ class CipherMapTest {
 
   }
 
+  @Test
+  void testFetchExecutor() throws Exception {
+    try (MockedStatic<Downloader> mock = mockStatic(Downloader.class)) {
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.IANA_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.NSS_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.OPENSSL_URL))).thenAnswer(ANSWER_BY_URL);
+      mock.when(() -> Downloader.open(eq(CipherMap.Builder.GNUTLS_URL))).thenAnswer(ANSWER_BY_URL);
+
+      AtomicInteger tasks = new AtomicInteger();
+      MessageTester log = mock(MessageTester.class);
+      CipherMap data = CipherMap.builder().executor(command -> {
+        tasks.incrementAndGet();
+        command.run();
+      }).log(log).fetch().build();
+
+      assertEquals(4, tasks.get());
+      assertEquals(ciphermap.size(), data.size());
+      verify(log, times(4)).accept(eq("cypher.builder.info.timing"), any(Object[].class));
+    }
+  }
+
+  @Test
+  void testFetchThreadPool() throws Exception {
+    HttpServer server = HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    ExecutorService handlers = Executors.newCachedThreadPool();
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    server.setExecutor(handlers);
+    server.createContext("/mirror/", exchange -> {
+      String name = exchange.getRequestURI().getPath().substring("/mirror/".length());
+      byte[] body = Resources.toByteArray(Resources.getResource("builder/download/" + name));
+      if (name.equals("tls-parameters.xhtml")) {
+        // IANA completes last
+        try {
+          Thread.sleep(200);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.start();
+    try {
+      String mirror = "http://" + server.getAddress().getHostString() + ":"
+          + server.getAddress().getPort() + "/mirror/";
+      List<String> sequential = new ArrayList<>();
+      CipherMap.builder().mirror(mirror).log(record(sequential)).warn(record(sequential)).fetch()
+          .build();
+      List<String> parallel = new ArrayList<>();
+      CipherMap data = CipherMap.builder().mirror(mirror).executor(pool)
+          .log(record(parallel)).warn(record(parallel)).fetch().build();
+
+      assertEquals(sequential, parallel);
+      assertEquals("cypher.builder.info.fetching[IANA, " + mirror + "tls-parameters.xhtml]",
+          parallel.get(0));
+      assertEquals("cypher.builder.info.fetching[NSS, " + mirror + "sslproto.h]",
+          parallel.get(3));
+      assertEquals(ciphermap.size(), data.size());
+      for (Entry<String, Map<String, String>> entry : ciphermap.entrySet()) {
+        assertEquals(entry.getValue().get("IANA"), data.get(entry.getKey()).getIana());
+        assertEquals(entry.getValue().get("NSS"), data.get(entry.getKey()).getNss());
+        assertEquals(entry.getValue().get("OpenSSL"), data.get(entry.getKey()).getOpenssl());
+        assertEquals(entry.getValue().get("GnuTLS"), data.get(entry.getKey()).getGnutls());
+      }
+    } finally {
+      server.stop(0);
+      handlers.shutdownNow();
+      pool.shutdownNow();
+    }
+  }
+
+  private static MessageConsumer<String, Object[]> record(List<String> messages) {
+    return (key, params) -> messages.add(key.endsWith(".timing")
+        // durations differ between runs
+        ? key + "[" + params[0] + "]"
+        : key + Arrays.toString(params));
+  }
+
+  @Test
+  void testFetchFailure() throws Exception {
+    try (MockedStatic<Downloader> mock = mockStatic(Downloader.class)) {
+      mock.when(() -> Downloader.open(any())).thenThrow(new IOException("offline"));
+
+      assertThrows(IOException.class, () -> CipherMap.builder().fetch());
+    }
+  }
+
   @Test
   void testFormat() throws Exception {
     assertEquals("found 123 entries",
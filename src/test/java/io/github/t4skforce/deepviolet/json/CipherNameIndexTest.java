@@ -0,0 +1,77 @@
+package io.github.t4skforce.deepviolet.json;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.github.t4skforce.deepviolet.json.CipherNameIndex.Dialect;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CipherNameIndexTest {
+
+  private static CipherCatalog catalog;
+  private static CipherNameIndex names;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    catalog = CipherMap.builder().load().build().snapshot();
+    names = catalog.names();
+  }
+
+  @Test
+  void testDialects() {
+    assertThat(names.code(Dialect.IANA, "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256"))
+        .isEqualTo(0xC02F);
+    assertThat(names.code(Dialect.OPENSSL, "ECDHE-RSA-AES128-GCM-SHA256")).isEqualTo(0xC02F);
+    assertThat(names.code(Dialect.GNUTLS, "TLS_RSA_AES_256_CCM_8")).isEqualTo(0xC0A1);
+    assertThat(names.code(Dialect.OPENSSL, "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256"))
+        .isEqualTo(CipherNameIndex.UNKNOWN);
+    assertThat(names.code("ADH-AES128-SHA256")).isEqualTo(0x006C);
+    assertThat(names.dialect("ADH-AES128-SHA256")).isEqualTo(Dialect.OPENSSL);
+    assertThat(names.code("NOT-A-CIPHER")).isEqualTo(CipherNameIndex.UNKNOWN);
+    assertThat(names.dialect("NOT-A-CIPHER")).isNull();
+  }
+
+  @Test
+  void testCaseInsensitive() {
+    assertThat(names.code("ecdhe-rsa-aes128-gcm-sha256")).isEqualTo(0xC02F);
+    assertThat(names.code(new StringBuilder("Tls_Aes_128_Gcm_Sha256"))).isEqualTo(0x1301);
+  }
+
+  @Test
+  void testRange() {
+    String line = "2024-01-01 handshake cipher=ECDHE-RSA-AES256-GCM-SHA384 proto=TLSv1.2";
+    int start = line.indexOf('=') + 1;
+    int end = line.indexOf(' ', start);
+
+    assertThat(names.code(line, start, end)).isEqualTo(0xC030);
+    assertThat(names.code(Dialect.OPENSSL, line, start, end - 1))
+        .isEqualTo(CipherNameIndex.UNKNOWN);
+    assertThrows(IndexOutOfBoundsException.class, () -> names.code(line, end, start));
+  }
+
+  @Test
+  void testEveryNameResolves() {
+    for (int code : catalog.codes()) {
+      CipherSuite suite = catalog.get(code);
+      for (Dialect dialect : Dialect.values()) {
+        String name = dialect.of(suite);
+        if (name != null) {
+          assertThat(names.code(dialect, name)).isEqualTo(code);
+          assertThat(names.code(dialect, name.toLowerCase())).isEqualTo(code);
+        }
+      }
+    }
+    assertThat(names.size(Dialect.IANA)).isEqualTo(catalog.size());
+  }
+
+  @Test
+  void testBuiltOncePerSnapshot() {
+    assertThat(catalog.names()).isSameInstanceAs(names);
+    CipherCatalog empty = new CipherMap().snapshot();
+    assertThat(empty.names().code("TLS_AES_128_GCM_SHA256")).isEqualTo(CipherNameIndex.UNKNOWN);
+    assertThat(empty.names().size(Dialect.OPENSSL)).isEqualTo(0);
+  }
+
+}
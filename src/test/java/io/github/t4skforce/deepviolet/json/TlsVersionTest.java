@@ -3,6 +3,16 @@ package io.github.t4skforce.deepviolet.json;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.Test;
 
@@ -60,6 +70,60 @@ class TlsVersionTest {
     assertNotEquals(new Object(), TlsVersion.of(TlsVersion.TLS_V1_1));
   }
 
+  @Test
+  void tlsVersionInternedTest() {
+    assertSame(TlsVersion.of(TlsVersion.TLS_V1_2), TlsVersion.of("TLSv1.2"));
+    assertSame(TlsVersion.of(0x030A), TlsVersion.of(0x030A));
+    assertSame(TlsVersion.of("TLSv1.10"), TlsVersion.of("TLSv1.10"));
+    assertEquals("UNKNOWN_NAME:TLSv1x2", TlsVersion.of("TLSv1x2").getName());
+  }
+
+  @Test
+  void tlsVersionOfBytesTest() {
+    assertSame(TlsVersion.of(TlsVersion.TLS_V1_2), TlsVersion.of((byte) 0x03, (byte) 0x03));
+    assertSame(TlsVersion.of(0xFEFD), TlsVersion.of((byte) 0xFE, (byte) 0xFD));
+
+    ByteBuffer record = ByteBuffer.wrap(new byte[] { 0x16, 0x03, 0x01, 0x00, 0x05 });
+    assertSame(TlsVersion.of(TlsVersion.TLS_V1), TlsVersion.of(record, 1));
+    assertEquals(0, record.position());
+    assertEquals(TlsVersion.TLS_V1, TlsVersion.of(record, 1).getCode());
+  }
+
+  @Test
+  void tlsVersionConcurrentTest() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<TlsVersion[]>> results = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        results.add(executor.submit(() -> {
+          TlsVersion[] versions = new TlsVersion[0x200];
+          for (int i = 0; i < versions.length; i++) {
+            versions[i] = TlsVersion.of(0x7F00 + i);
+          }
+          return versions;
+        }));
+      }
+      TlsVersion[] first = results.get(0).get();
+      for (Future<TlsVersion[]> result : results) {
+        TlsVersion[] versions = result.get();
+        for (int i = 0; i < versions.length; i++) {
+          assertSame(first[i], versions[i]);
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void tlsVersionCompareTest() {
+    List<TlsVersion> versions = new ArrayList<>(Arrays.asList(TlsVersion.of("TLSv1.3"),
+        TlsVersion.of("SSLv3"), TlsVersion.of("TLSv1.2")));
+    Collections.sort(versions);
+    assertEquals(Arrays.asList(TlsVersion.of(TlsVersion.SSL_V3),
+        TlsVersion.of(TlsVersion.TLS_V1_2), TlsVersion.of(TlsVersion.TLS_V1_3)), versions);
+  }
+
   @Test
   void tlsVersionToStringTest() {
     assertEquals("TLSv1.0 (0x0301)", TlsVersion.of(TlsVersion.TLS_V1).toString());
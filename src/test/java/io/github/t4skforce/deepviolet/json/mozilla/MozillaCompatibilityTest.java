@@ -0,0 +1,159 @@
+package io.github.t4skforce.deepviolet.json.mozilla;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.Resources;
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.CompatibilityEnum;
+import io.github.t4skforce.deepviolet.json.NamedGroup;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+import io.github.t4skforce.deepviolet.json.mozilla.MozillaCompatibility.Report;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Collections;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class MozillaCompatibilityTest {
+
+  // TLS_AES_128_GCM_SHA256
+  private static final int TLS13_SUITE = 0x1301;
+  // ECDHE-RSA-AES128-GCM-SHA256
+  private static final int INTERMEDIATE_SUITE = 0xC02F;
+  // ECDHE-RSA-AES128-SHA
+  private static final int OLD_SUITE = 0xC013;
+  // TLS_RSA_WITH_NULL_MD5
+  private static final int NULL_SUITE = 0x0001;
+
+  private static CipherMap cipherMap;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    cipherMap = CipherMap.builder().load().build();
+  }
+
+  private static MozillaCompatibility compile(String resourceName) throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+    objectMapper.configure(MapperFeature.USE_ANNOTATIONS, true);
+    objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    String json = Resources.toString(Resources.getResource("mozilla/guidelines/" + resourceName),
+        StandardCharsets.UTF_8);
+    return MozillaCompatibility.compile(objectMapper.readValue(json, MozillaCerts.class),
+        cipherMap);
+  }
+
+  private static BitSet bits(int... codes) {
+    BitSet bits = new BitSet();
+    for (int code : codes) {
+      bits.set(code);
+    }
+    return bits;
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = { "4.0.json", "5.1.json", "5.2.json", "5.3.json", "5.4.json", "5.5.json",
+      "5.6.json" })
+  void testCompile(String resourceName) throws Exception {
+    MozillaCompatibility compatibility = compile(resourceName);
+
+    assertThat(compatibility.getLevels()).containsExactly(CompatibilityEnum.MORDERN,
+        CompatibilityEnum.INTERMEDIATE, CompatibilityEnum.OLD);
+    for (CompatibilityEnum level : compatibility.getLevels()) {
+      assertThat(compatibility.getSuites(level).get(TLS13_SUITE)).isTrue();
+      assertThat(compatibility.getSuites(level).get(NULL_SUITE)).isFalse();
+      assertThat(compatibility.getVersions(level).get(TlsVersion.TLS_V1_3)).isTrue();
+      assertThat(compatibility.getGroups(level).get(NamedGroup.X25519)).isTrue();
+      assertThat(compatibility.getGroups(level).get(NamedGroup.SECP256R1)).isTrue();
+    }
+    assertThat(compatibility.getSuites(CompatibilityEnum.INTERMEDIATE).get(INTERMEDIATE_SUITE))
+        .isTrue();
+    assertThat(compatibility.getVersions(CompatibilityEnum.OLD).get(TlsVersion.TLS_V1)).isTrue();
+  }
+
+  @Test
+  void testEvaluateModern() throws Exception {
+    MozillaCompatibility compatibility = compile("5.6.json");
+
+    Report report = compatibility.evaluate(bits(TLS13_SUITE), bits(TlsVersion.TLS_V1_3),
+        bits(NamedGroup.X25519));
+
+    assertThat(report.getBestLevel()).isEqualTo(CompatibilityEnum.MORDERN);
+    assertThat(report.isCompliant(CompatibilityEnum.INTERMEDIATE)).isTrue();
+    assertThat(report.isCompliant(CompatibilityEnum.OLD)).isTrue();
+  }
+
+  @Test
+  void testEvaluateIntermediate() throws Exception {
+    MozillaCompatibility compatibility = compile("5.6.json");
+    BitSet suites = bits(TLS13_SUITE, INTERMEDIATE_SUITE);
+    BitSet versions = bits(TlsVersion.TLS_V1_2, TlsVersion.TLS_V1_3);
+    BitSet groups = bits(NamedGroup.X25519, NamedGroup.SECP384R1);
+
+    Report report = compatibility.evaluate(suites, versions, groups);
+
+    assertThat(report.getBestLevel()).isEqualTo(CompatibilityEnum.INTERMEDIATE);
+    assertThat(report.getViolations(CompatibilityEnum.MORDERN).getSuites())
+        .isEqualTo(bits(INTERMEDIATE_SUITE));
+    assertThat(report.getViolations(CompatibilityEnum.MORDERN).getVersions())
+        .isEqualTo(bits(TlsVersion.TLS_V1_2));
+    assertThat(report.getViolations(CompatibilityEnum.MORDERN).getGroups().isEmpty()).isTrue();
+    assertThat(compatibility.isCompliant(CompatibilityEnum.INTERMEDIATE, suites, versions, groups))
+        .isTrue();
+    assertThat(compatibility.isCompliant(CompatibilityEnum.MORDERN, suites, versions, groups))
+        .isFalse();
+  }
+
+  @Test
+  void testEvaluateNonCompliant() throws Exception {
+    MozillaCompatibility compatibility = compile("5.6.json");
+
+    Report report = compatibility.evaluate(bits(OLD_SUITE, NULL_SUITE),
+        bits(TlsVersion.SSL_V3, TlsVersion.TLS_V1), bits(NamedGroup.FFDHE2048));
+
+    assertThat(report.getBestLevel()).isNull();
+    assertThat(report.getViolations(CompatibilityEnum.OLD).getSuites())
+        .isEqualTo(bits(NULL_SUITE));
+    assertThat(report.getViolations(CompatibilityEnum.OLD).getVersions())
+        .isEqualTo(bits(TlsVersion.SSL_V3));
+    assertThat(report.getViolations(CompatibilityEnum.OLD).getGroups())
+        .isEqualTo(bits(NamedGroup.FFDHE2048));
+  }
+
+  @Test
+  void testUnresolved() throws Exception {
+    MozillaConfig config = new MozillaConfig();
+    config.setCiphersuites(Collections.singleton("TLS_NOT_A_SUITE"));
+    config.setTlsCurves(Collections.emptySet());
+    MozillaCompatibility compatibility = MozillaCompatibility
+        .compile(Collections.singletonMap(CompatibilityEnum.MORDERN, config), cipherMap);
+
+    assertThat(compatibility.getUnresolved(CompatibilityEnum.MORDERN))
+        .containsExactly("TLS_NOT_A_SUITE");
+    // names that do not resolve restrict to nothing, missing or empty lists do not restrict
+    Report report = compatibility.evaluate(bits(TLS13_SUITE), bits(TlsVersion.SSL_V3),
+        bits(NamedGroup.FFDHE2048));
+    assertThat(report.getBestLevel()).isNull();
+    assertThat(report.getViolations(CompatibilityEnum.MORDERN).getSuites())
+        .isEqualTo(bits(TLS13_SUITE));
+    assertThat(report.getViolations(CompatibilityEnum.MORDERN).getVersions().isEmpty()).isTrue();
+    assertThat(report.getViolations(CompatibilityEnum.MORDERN).getGroups().isEmpty()).isTrue();
+  }
+
+  @Test
+  void testNamedGroup() {
+    assertThat(NamedGroup.code("X25519")).isEqualTo(NamedGroup.X25519);
+    assertThat(NamedGroup.code("prime256v1")).isEqualTo(NamedGroup.SECP256R1);
+    assertThat(NamedGroup.code("SECP384R1")).isEqualTo(NamedGroup.SECP384R1);
+    assertThat(NamedGroup.code("nope")).isEqualTo(NamedGroup.UNKNOWN);
+    assertThat(NamedGroup.name(NamedGroup.FFDHE3072)).isEqualTo("ffdhe3072");
+    assertThat(NamedGroup.bits(NamedGroup.SECP521R1)).isEqualTo(521);
+    assertThat(NamedGroup.isFiniteField(NamedGroup.FFDHE8192)).isTrue();
+    assertThat(NamedGroup.isFiniteField(NamedGroup.X448)).isFalse();
+  }
+
+}
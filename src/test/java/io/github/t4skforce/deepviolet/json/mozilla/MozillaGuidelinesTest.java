@@ -0,0 +1,86 @@
+package io.github.t4skforce.deepviolet.json.mozilla;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.CompatibilityEnum;
+import io.github.t4skforce.deepviolet.json.mozilla.MozillaGuidelines.Diff;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class MozillaGuidelinesTest {
+
+  private static final String[] RESOURCES = { "4.0.json", "5.1.json", "5.2.json", "5.3.json",
+      "5.4.json", "5.5.json", "5.6.json" };
+
+  private static MozillaGuidelines guidelines;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    MozillaGuidelines.Builder builder = MozillaGuidelines.builder()
+        .catalog(CipherMap.builder().load().build().snapshot());
+    for (String resource : RESOURCES) {
+      builder.load("mozilla/guidelines/" + resource);
+    }
+    guidelines = builder.build();
+  }
+
+  @Test
+  void testVersions() {
+    // 4.0.json carries version 5.0
+    assertThat(guidelines.getVersions()).containsExactly(5.0, 5.1, 5.2, 5.3, 5.4, 5.5, 5.6)
+        .inOrder();
+    assertThat(guidelines.latest().getVersion()).isEqualTo(5.6);
+    assertThat(guidelines.get(4.0)).isNull();
+    assertThrows(IllegalArgumentException.class,
+        () -> guidelines.get(4.0, CompatibilityEnum.OLD));
+  }
+
+  @Test
+  void testVersionsPermitting() {
+    assertThat(guidelines.versionsPermitting(CompatibilityEnum.OLD, "DES-CBC3-SHA"))
+        .isEqualTo(guidelines.getVersions());
+    assertThat(guidelines.versionsPermitting(CompatibilityEnum.INTERMEDIATE, "DES-CBC3-SHA"))
+        .isEmpty();
+    // IANA cipher lists were added with 5.1
+    assertThat(guidelines.versionsPermitting(CompatibilityEnum.OLD,
+        "TLS_RSA_WITH_3DES_EDE_CBC_SHA")).containsExactly(5.1, 5.2, 5.3, 5.4, 5.5, 5.6);
+    assertThat(guidelines.versionsPermitting(CompatibilityEnum.OLD, 0xC013))
+        .isEqualTo(guidelines.getVersions());
+    assertThat(guidelines.versionsPermitting(CompatibilityEnum.MORDERN, 0xC02F)).isEmpty();
+  }
+
+  @Test
+  void testDiff() {
+    Diff curves = guidelines.diff(5.2, 5.3, CompatibilityEnum.OLD);
+
+    assertThat(curves.getAdded().keySet()).containsExactly("tls_curves");
+    assertThat(curves.getAdded().get("tls_curves")).containsExactly("prime256v1");
+    assertThat(curves.getRemoved().get("tls_curves")).containsExactly("secp256r1");
+    assertThat(curves.getChanged()).isEmpty();
+
+    Diff lifespan = guidelines.diff(5.4, 5.5, CompatibilityEnum.OLD);
+
+    assertThat(lifespan.getChanged().keySet()).containsExactly("maximum_certificate_lifespan");
+    assertThat(lifespan.getChanged().get("maximum_certificate_lifespan").leftValue())
+        .isEqualTo(730L);
+    assertThat(lifespan.getChanged().get("maximum_certificate_lifespan").rightValue())
+        .isEqualTo(366L);
+    assertThat(guidelines.diff(5.6, 5.6, CompatibilityEnum.OLD).isEmpty()).isTrue();
+  }
+
+  @Test
+  void testInterned() {
+    MozillaConfig before = guidelines.get(5.5, CompatibilityEnum.OLD);
+    MozillaConfig after = guidelines.get(5.6, CompatibilityEnum.OLD);
+
+    assertThat(after.getCiphers().get("openssl"))
+        .isSameInstanceAs(before.getCiphers().get("openssl"));
+    assertThat(after.getTlsCurves()).isSameInstanceAs(before.getTlsCurves());
+    String go = before.getCiphers().get("go").iterator().next();
+    assertThat(after.getCiphers().get("go").iterator().next()).isSameInstanceAs(go);
+    assertThrows(UnsupportedOperationException.class, () -> after.getCiphersuites().clear());
+  }
+
+}
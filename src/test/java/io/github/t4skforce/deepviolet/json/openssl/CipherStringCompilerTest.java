@@ -0,0 +1,129 @@
+package io.github.t4skforce.deepviolet.json.openssl;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.github.t4skforce.deepviolet.json.CipherCatalog;
+import io.github.t4skforce.deepviolet.json.CipherMap;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+// expected lists were taken from openssl ciphers of OpenSSL 3.0
+class CipherStringCompilerTest {
+
+  private static final String INTERMEDIATE = "ECDHE-ECDSA-AES128-GCM-SHA256:"
+      + "ECDHE-RSA-AES128-GCM-SHA256:ECDHE-ECDSA-AES256-GCM-SHA384:ECDHE-RSA-AES256-GCM-SHA384:"
+      + "ECDHE-ECDSA-CHACHA20-POLY1305:ECDHE-RSA-CHACHA20-POLY1305:DHE-RSA-AES128-GCM-SHA256:"
+      + "DHE-RSA-AES256-GCM-SHA384";
+
+  private static CipherCatalog catalog;
+  private static CipherStringCompiler compiler;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    catalog = CipherMap.builder().load().build().snapshot();
+    compiler = CipherStringCompiler.builder().catalog(catalog).build();
+  }
+
+  private static int[] codes(String expression) {
+    return compiler.compile(expression).getCodes();
+  }
+
+  @Test
+  void testNames() {
+    assertThat(codes(INTERMEDIATE)).isEqualTo(
+        new int[] { 0xC02B, 0xC02F, 0xC02C, 0xC030, 0xCCA9, 0xCCA8, 0x009E, 0x009F });
+  }
+
+  @Test
+  void testIntersectionAndStrength() {
+    assertThat(codes("ECDHE+AESGCM:!aNULL:@STRENGTH"))
+        .isEqualTo(new int[] { 0xC02C, 0xC030, 0xC02B, 0xC02F });
+  }
+
+  @Test
+  void testDefaultOrder() {
+    int[] codes = codes("DEFAULT");
+
+    assertThat(Arrays.copyOf(codes, 9)).isEqualTo(new int[] { 0xC02C, 0xC030, 0x009F, 0xCCA9,
+        0xCCA8, 0xCCAA, 0xC02B, 0xC02F, 0x009E });
+    CipherSelection complement = compiler.compile("COMPLEMENTOFDEFAULT");
+    for (int code : codes) {
+      assertThat(complement.contains(code)).isFalse();
+    }
+    // DSS, CCM, ARIA and Camellia are not enabled by default
+    assertThat(complement.contains(0x00A3)).isTrue();
+    assertThat(complement.contains(0xC0AD)).isTrue();
+  }
+
+  @Test
+  void testKillIsPermanent() {
+    CipherSelection killed = compiler.compile("ALL:!kRSA:kRSA");
+    CipherSelection deleted = compiler.compile("ALL:-kRSA:kRSA+AESGCM");
+
+    assertThat(killed.contains(0x002F)).isFalse();
+    assertThat(killed.contains(0x009C)).isFalse();
+    int[] codes = deleted.getCodes();
+    // re-added at the end, other RSA key exchange suites stay disabled
+    assertThat(Arrays.copyOfRange(codes, codes.length - 2, codes.length))
+        .isEqualTo(new int[] { 0x009D, 0x009C });
+    assertThat(deleted.contains(0x002F)).isFalse();
+  }
+
+  @Test
+  void testMoveToEnd() {
+    int[] codes = codes("ECDHE+AESGCM:+ECDSA");
+
+    assertThat(codes).isEqualTo(new int[] { 0xC030, 0xC02F, 0xC02C, 0xC02B });
+  }
+
+  @Test
+  void testVersions() {
+    CipherSelection tls12 = compiler.compile("TLSv1.2");
+    CipherSelection tls10 = compiler.compile("TLSv1.0");
+
+    assertThat(tls12.contains(0xC02F)).isTrue();
+    assertThat(tls12.contains(0x003C)).isTrue();
+    assertThat(tls10.contains(0xC013)).isTrue();
+    // PSK suites with SHA-2 MACs predate TLS 1.2
+    assertThat(tls10.contains(0x00AE)).isTrue();
+    assertThat(compiler.compile("SSLv3").contains(0x002F)).isTrue();
+  }
+
+  @Test
+  void testNoTls13() {
+    for (int code : codes("ALL:COMPLEMENTOFALL")) {
+      assertThat(code >>> 8).isNotEqualTo(0x13);
+    }
+  }
+
+  @Test
+  void testUnnamed() {
+    CipherStringCompiler all = CipherStringCompiler.builder().catalog(catalog).unnamed(true)
+        .build();
+
+    // TLS_RSA_WITH_NULL_SHA has no OpenSSL name in the catalog
+    assertThat(compiler.compile("eNULL").contains(0x0002)).isFalse();
+    assertThat(all.compile("eNULL").contains(0x0002)).isTrue();
+  }
+
+  @Test
+  void testUnknownWords() {
+    CipherSelection selection = compiler.compile("AESGCM+NOPE:FOO:@SECLEVEL=2");
+
+    assertThat(selection.isEmpty()).isTrue();
+    assertThat(selection.getUnknown()).containsExactly("NOPE", "FOO").inOrder();
+    assertThrows(IllegalArgumentException.class, () -> compiler.compile("ALL:@FOO"));
+  }
+
+  @Test
+  void testCached() {
+    assertThat(compiler.compile("HIGH:!aNULL")).isSameInstanceAs(compiler.compile("HIGH:!aNULL"));
+    assertThat(compiler.compile(Arrays.asList("HIGH", "!aNULL")))
+        .isSameInstanceAs(compiler.compile("HIGH:!aNULL"));
+  }
+
+}
@@ -0,0 +1,158 @@
+package io.github.t4skforce.deepviolet.json.parser;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.io.Resources;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class SourceParserTest {
+
+  // reference patterns the streaming parsers replace
+  private static final Pattern REGEX_IANA = Pattern.compile(
+      "<td[^>]*>(?<hex>0x[0-9|A-F]{2},0x[0-9|A-F]{2})</td[^>]*>[^<]*<td[^>]*>(?<name>TLS_[^\\s]+)</td[^>]*>",
+      Pattern.DOTALL | Pattern.MULTILINE);
+
+  private static final Pattern REGEX_NSS = Pattern.compile(
+      "#\\s*define\\s+(?<name>TLS_[^\\s]+)\\s+(?<hex>0x[A-F|0-9]{4})",
+      Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern REGEX_OPENSSL = Pattern.compile(
+      "#\\s*define\\s+TLS1_CK_(?<name>[^\\s]+)\\s+(?<hex>0x[A-F|0-9]{8})",
+      Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern REGEX_OPENSSL_NAMES = Pattern.compile(
+      "#\\s*define\\s+TLS1_TXT_(?<key>[^\\s]+)\\s+\"(?<value>[^\"]+)\"",
+      Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern REGEX_GNUTLS_NAMES = Pattern.compile(
+      "#\\s*define\\s*GNU(?<name>TLS_[^\\s]+)\\s*\\{\\s*(?<hex1>0x[A-F|0-9]{2})\\s*,\\s*(?<hex2>0x[A-F|0-9]{2})\\s*\\}",
+      Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Hands out a single character per read to exercise chunk boundaries.
+   */
+  private static class TrickleReader extends FilterReader {
+    TrickleReader(Reader in) {
+      super(in);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      return super.read(cbuf, off, Math.min(len, 1));
+    }
+  }
+
+  private static String fixture(String name) throws IOException {
+    return Resources.toString(Resources.getResource("builder/download/" + name),
+        StandardCharsets.UTF_8);
+  }
+
+  private static List<String> parse(SourceParser parser, Reader reader) throws IOException {
+    List<String> entries = new ArrayList<>();
+    parser.parse(reader, (hex, name) -> entries.add(hex + "=" + name));
+    return entries;
+  }
+
+  private static void assertParses(SourceParser parser, String content, List<String> expected)
+      throws IOException {
+    assertThat(parse(parser, new StringReader(content))).containsExactlyElementsIn(expected)
+        .inOrder();
+    assertThat(parse(parser, new TrickleReader(new StringReader(content))))
+        .containsExactlyElementsIn(expected).inOrder();
+  }
+
+  @Test
+  void testIana() throws Exception {
+    String content = fixture("tls-parameters.xhtml");
+    List<String> expected = new ArrayList<>();
+    Matcher sources = REGEX_IANA.matcher(content);
+    while (sources.find()) {
+      expected.add(sources.group("hex").trim().toUpperCase().replace("X", "x") + "="
+          + sources.group("name").trim().toUpperCase());
+    }
+    assertThat(expected).isNotEmpty();
+    assertParses(SourceParser.IANA, content, expected);
+  }
+
+  @Test
+  void testNss() throws Exception {
+    String content = fixture("sslproto.h");
+    List<String> expected = new ArrayList<>();
+    Matcher sources = REGEX_NSS.matcher(content);
+    while (sources.find()) {
+      String hex = sources.group("hex").trim().toUpperCase().replace("X", "x");
+      expected.add(String.format("%s,0x%s", hex.substring(0, 4), hex.substring(4, 6)) + "="
+          + sources.group("name").trim().toUpperCase());
+    }
+    assertThat(expected).isNotEmpty();
+    assertParses(SourceParser.NSS, content, expected);
+  }
+
+  @Test
+  void testOpenSsl() throws Exception {
+    String content = fixture("tls1.h");
+    Map<String, String> mapping = new HashMap<>();
+    Matcher sources = REGEX_OPENSSL_NAMES.matcher(content);
+    while (sources.find()) {
+      mapping.put(sources.group("key").trim().toUpperCase(),
+          sources.group("value").trim().toUpperCase());
+    }
+    List<String> expected = new ArrayList<>();
+    sources = REGEX_OPENSSL.matcher(content);
+    while (sources.find()) {
+      String hex = sources.group("hex").trim().toUpperCase().replace("X", "x");
+      expected.add(String.format("0x%s,0x%s", hex.substring(6, 8), hex.substring(8, 10)) + "="
+          + mapping.get(sources.group("name").trim().toUpperCase()));
+    }
+    assertThat(expected).isNotEmpty();
+    assertParses(SourceParser.OPENSSL, content, expected);
+  }
+
+  @Test
+  void testGnuTls() throws Exception {
+    String content = fixture("ciphersuites.c");
+    List<String> expected = new ArrayList<>();
+    Matcher sources = REGEX_GNUTLS_NAMES.matcher(content);
+    while (sources.find()) {
+      expected.add(String.format("%s,%s",
+          sources.group("hex1").trim().toUpperCase().replace("X", "x"),
+          sources.group("hex2").trim().toUpperCase().replace("X", "x")) + "="
+          + sources.group("name").trim().toUpperCase());
+    }
+    assertThat(expected).isNotEmpty();
+    assertParses(SourceParser.GNUTLS, content, expected);
+  }
+
+  @Test
+  void testDefineVariants() throws Exception {
+    String content = "# define TLS_A 0x0001\n" + "#define TLS_B\n" + "#define TLS_C 0xc02b\n"
+        + "#define SSL_D 0x0004\n" + "#define tls_e 0x0005UL /* comment */\n";
+    assertParses(SourceParser.NSS, content,
+        Arrays.asList("0x00,0x01=TLS_A", "0xC0,0x2B=TLS_C", "0x00,0x05=TLS_E"));
+  }
+
+  @Test
+  void testIanaCellsMustBeAdjacent() throws Exception {
+    String content = "<tr><td>0x00,0x01</td> <td>TLS_A</td></tr>"
+        + "<tr><td>0x00,0x02</td><td>Reserved</td><td>TLS_B</td></tr>"
+        + "<tr><td>0x00,0x03</td></tr><tr><td>TLS_C</td></tr>"
+        + "<tr><td class=\"x\">0x00,0x04</td>\n  <td>TLS_D</td></tr>";
+    assertParses(SourceParser.IANA, content,
+        Arrays.asList("0x00,0x01=TLS_A", "0x00,0x04=TLS_D"));
+  }
+
+}
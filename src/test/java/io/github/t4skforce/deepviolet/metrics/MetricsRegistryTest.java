@@ -0,0 +1,124 @@
+package io.github.t4skforce.deepviolet.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import org.junit.jupiter.api.Test;
+
+class MetricsRegistryTest {
+
+  @Test
+  void testBuckets() {
+    for (long value : new long[] { 0, 1, 15, 16, 17, 31, 32, 1000, 123_456_789L,
+        Long.MAX_VALUE }) {
+      int bucket = HistogramSnapshot.bucket(value);
+      assertThat(HistogramSnapshot.lowest(bucket)).isAtMost(value);
+      if (bucket + 1 < HistogramSnapshot.BUCKETS) {
+        assertThat(HistogramSnapshot.lowest(bucket + 1)).isGreaterThan(value);
+      }
+    }
+    assertThat(HistogramSnapshot.bucket(Long.MAX_VALUE)).isEqualTo(HistogramSnapshot.BUCKETS - 1);
+  }
+
+  @Test
+  void testConcurrentRecording() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          Counter counter = registry.counter("probes");
+          Histogram histogram = registry.histogram("latency");
+          start.await();
+          for (int i = 1; i <= 10_000; i++) {
+            counter.increment();
+            histogram.record(i, TimeUnit.MICROSECONDS);
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    MetricsSnapshot snapshot = registry.snapshot();
+    HistogramSnapshot latency = snapshot.getHistogram("latency");
+    assertThat(snapshot.getCounter("probes")).isEqualTo(80_000);
+    assertThat(latency.getCount()).isEqualTo(80_000);
+    assertThat(latency.getMax()).isEqualTo(TimeUnit.MICROSECONDS.toNanos(10_000));
+    assertThat(latency.getMean()).isWithin(1).of(TimeUnit.MICROSECONDS.toNanos(1) * 5000.5);
+    // at most one bucket width above the exact value
+    assertThat(latency.getP99()).isAtLeast(TimeUnit.MICROSECONDS.toNanos(9_900));
+    assertThat(latency.getP99()).isAtMost(TimeUnit.MICROSECONDS.toNanos(9_900) * 17 / 16);
+    assertThat(snapshot.getCounter("missing")).isEqualTo(0);
+  }
+
+  @Test
+  void testJmx() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("scan.probes").add(3);
+    registry.histogram("scan.latency.hello").record(1000);
+
+    ObjectName name = registry.register("test");
+    try {
+      TabularData counters = (TabularData) ManagementFactory.getPlatformMBeanServer()
+          .getAttribute(name, "Counters");
+      TabularData histograms = (TabularData) ManagementFactory.getPlatformMBeanServer()
+          .getAttribute(name, "Histograms");
+
+      CompositeData probes = counters.get(new Object[] { "scan.probes" });
+      CompositeData hello = histograms.get(new Object[] { "scan.latency.hello" });
+      assertThat(probes.get("value")).isEqualTo(3L);
+      assertThat(((CompositeData) hello.get("value")).get("count")).isEqualTo(1L);
+    } finally {
+      registry.unregister(name);
+    }
+    assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(name)).isFalse();
+  }
+
+  @Test
+  void testReport() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("scan.probes").increment();
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    CountDownLatch reports = new CountDownLatch(2);
+    List<MetricsSnapshot> snapshots = new ArrayList<>();
+    try {
+      ScheduledFuture<?> future = registry.report(executor, Duration.ofMillis(10), s -> {
+        synchronized (snapshots) {
+          snapshots.add(s);
+        }
+        reports.countDown();
+      });
+      assertThat(reports.await(10, TimeUnit.SECONDS)).isTrue();
+      future.cancel(false);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    synchronized (snapshots) {
+      assertThat(snapshots.get(0).getCounter("scan.probes")).isEqualTo(1);
+      assertThat(snapshots.get(1).getRate("scan.probes", snapshots.get(0))).isEqualTo(0);
+    }
+  }
+
+}
@@ -0,0 +1,146 @@
+package io.github.t4skforce.deepviolet.report;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+import io.github.t4skforce.deepviolet.scan.CipherSuiteScan;
+import io.github.t4skforce.deepviolet.scan.TargetScan;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class NdjsonWriterTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private static CipherMap cipherMap;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    cipherMap = CipherMap.builder().load().build();
+  }
+
+  private static TargetScan scan(String host, int... suites) throws Exception {
+    InetSocketAddress target = new InetSocketAddress(
+        InetAddress.getByAddress(host, new byte[] { 10, 0, 0, 1 }), 443);
+    CipherSuiteScan version = mock(CipherSuiteScan.class);
+    when(version.getVersion()).thenReturn(TlsVersion.of(TlsVersion.TLS_V1_2));
+    when(version.getAccepted()).thenReturn(suites);
+    when(version.getProbes()).thenReturn(suites.length + 1);
+    when(version.isComplete()).thenReturn(true);
+    TargetScan scan = mock(TargetScan.class);
+    when(scan.getTarget()).thenReturn(target);
+    when(scan.getScans()).thenReturn(Collections.singletonList(version));
+    when(scan.getProbes()).thenReturn(suites.length + 1);
+    when(scan.isComplete()).thenReturn(true);
+    when(scan.getNanos()).thenReturn(42_000_000L);
+    return scan;
+  }
+
+  private static List<JsonNode> read(InputStream in) throws Exception {
+    List<JsonNode> records = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        records.add(MAPPER.readTree(line));
+      }
+    }
+    return records;
+  }
+
+  @Test
+  void testWrite(@TempDir Path tempDir) throws Exception {
+    Path file = tempDir.resolve("results.ndjson");
+    try (NdjsonWriter writer = NdjsonWriter.builder().cipherMap(cipherMap).build(file)) {
+      writer.write(scan("a.example", 0xC02F, 0x002F));
+      writer.write(scan("b.example"));
+      assertThat(writer.getRecords()).isEqualTo(2);
+    }
+
+    List<JsonNode> records = read(Files.newInputStream(file));
+    assertThat(records).hasSize(2);
+    JsonNode first = records.get(0);
+    assertThat(first.get("host").asText()).isEqualTo("a.example");
+    assertThat(first.get("ip").asText()).isEqualTo("10.0.0.1");
+    assertThat(first.get("port").asInt()).isEqualTo(443);
+    assertThat(first.get("millis").asLong()).isEqualTo(42);
+    assertThat(first.get("complete").asBoolean()).isTrue();
+    JsonNode version = first.get("versions").get(0);
+    assertThat(version.get("version").asText()).isEqualTo("TLSv1.2");
+    assertThat(version.get("suites").get(0).get("code").asText()).isEqualTo("0xC0,0x2F");
+    assertThat(version.get("suites").get(0).get("name").asText())
+        .isEqualTo("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256");
+    assertThat(records.get(1).get("versions").get(0).get("suites").size()).isEqualTo(0);
+  }
+
+  @Test
+  void testRecordsVisibleBeforeClose(@TempDir Path tempDir) throws Exception {
+    Path file = tempDir.resolve("results.ndjson");
+    try (NdjsonWriter writer = NdjsonWriter.builder().build(file)) {
+      writer.write(scan("a.example", 0x002F));
+
+      List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+      assertThat(lines).hasSize(1);
+      assertThat(MAPPER.readTree(lines.get(0)).get("versions").get(0).get("suites").get(0)
+          .has("name")).isFalse();
+    }
+  }
+
+  @Test
+  void testGzip(@TempDir Path tempDir) throws Exception {
+    Path file = tempDir.resolve("results.ndjson.gz");
+    try (NdjsonWriter writer = NdjsonWriter.builder().gzip(true).build(file)) {
+      writer.write(scan("a.example", 0x002F));
+
+      // sync flushed, readable while still open
+      byte[] partial = Files.readAllBytes(file);
+      try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(partial))) {
+        byte[] buffer = new byte[4096];
+        int length = in.read(buffer);
+        assertThat(new String(buffer, 0, length, StandardCharsets.UTF_8)).endsWith("}\n");
+      } catch (EOFException e) {
+        throw new AssertionError("first record was not flushed", e);
+      }
+      writer.write(scan("b.example", 0x002F));
+    }
+
+    assertThat(read(new GZIPInputStream(Files.newInputStream(file)))).hasSize(2);
+  }
+
+  @Test
+  void testAppend(@TempDir Path tempDir) throws Exception {
+    Path file = tempDir.resolve("results.ndjson");
+    for (String host : Arrays.asList("a.example", "b.example")) {
+      try (NdjsonWriter writer = NdjsonWriter.builder().append(true).build(file)) {
+        writer.write(scan(host));
+      }
+    }
+
+    assertThat(read(Files.newInputStream(file))).hasSize(2);
+  }
+
+}
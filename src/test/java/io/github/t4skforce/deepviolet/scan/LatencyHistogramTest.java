@@ -0,0 +1,37 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.Range;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000);
+    }
+
+    assertThat(histogram.getCount()).isEqualTo(1000);
+    assertThat(histogram.getMax()).isEqualTo(1_000_000);
+    assertThat(histogram.getMean()).isWithin(1).of(500_500);
+    assertThat(histogram.getValueAtPercentile(50)).isIn(
+        Range.closed(500_000L, 532_000L));
+    assertThat(histogram.getValueAtPercentile(99)).isIn(
+        Range.closed(990_000L, 1_000_000L));
+    assertThat(histogram.getValueAtPercentile(100)).isEqualTo(1_000_000);
+  }
+
+  @Test
+  void testEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    assertThat(histogram.getValueAtPercentile(99)).isEqualTo(0);
+    assertThat(histogram.getMean()).isEqualTo(0);
+    assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+  }
+
+}
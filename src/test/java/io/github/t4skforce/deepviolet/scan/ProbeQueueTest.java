@@ -0,0 +1,135 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ProbeQueueTest {
+
+  private static final class TestEntry extends ProbeQueue.Entry {
+    private final InetSocketAddress target;
+
+    private TestEntry(InetSocketAddress target) {
+      this.target = target;
+    }
+
+    @Override
+    InetSocketAddress target() {
+      return target;
+    }
+  }
+
+  private static InetSocketAddress address(String host, int ip, int port) throws Exception {
+    return new InetSocketAddress(
+        InetAddress.getByAddress(host, new byte[] { 10, 0, 0, (byte) ip }), port);
+  }
+
+  private static ProbeQueue<TestEntry> queue(int perHost, int perAddress) {
+    return new ProbeQueue<>(perHost, perAddress, new TokenBucket(0, 1));
+  }
+
+  private static List<TestEntry> pollAll(ProbeQueue<TestEntry> queue) {
+    List<TestEntry> entries = new ArrayList<>();
+    TestEntry entry;
+    while ((entry = queue.poll(System.nanoTime())) != null) {
+      entries.add(entry);
+    }
+    return entries;
+  }
+
+  @Test
+  void testPerHostLimit() throws Exception {
+    ProbeQueue<TestEntry> queue = queue(2, Integer.MAX_VALUE);
+    InetSocketAddress slow = address("slow", 1, 443);
+    for (int i = 0; i < 5; i++) {
+      queue.add(new TestEntry(slow));
+    }
+
+    List<TestEntry> started = pollAll(queue);
+    assertThat(started).hasSize(2);
+    assertThat(queue.size()).isEqualTo(3);
+
+    queue.release(started.get(0));
+    assertThat(pollAll(queue)).hasSize(1);
+    assertThat(queue.maxDepth()).isEqualTo(5);
+  }
+
+  @Test
+  void testPerAddressLimit() throws Exception {
+    ProbeQueue<TestEntry> queue = queue(Integer.MAX_VALUE, 3);
+    // virtual hosts and ports sharing one address
+    queue.add(new TestEntry(address("a", 1, 443)));
+    queue.add(new TestEntry(address("a", 1, 443)));
+    queue.add(new TestEntry(address("b", 1, 443)));
+    queue.add(new TestEntry(address("b", 1, 8443)));
+    queue.add(new TestEntry(address("c", 1, 443)));
+    queue.add(new TestEntry(address("other", 2, 443)));
+
+    List<TestEntry> started = pollAll(queue);
+    assertThat(started).hasSize(4);
+    assertThat(queue.size()).isEqualTo(2);
+    assertThat(pollAll(queue)).isEmpty();
+
+    queue.release(started.get(0));
+    assertThat(pollAll(queue)).hasSize(1);
+  }
+
+  @Test
+  void testRoundRobin() throws Exception {
+    ProbeQueue<TestEntry> queue = queue(Integer.MAX_VALUE, Integer.MAX_VALUE);
+    InetSocketAddress big = address("big", 1, 443);
+    InetSocketAddress small = address("small", 2, 443);
+    for (int i = 0; i < 10; i++) {
+      queue.add(new TestEntry(big));
+    }
+    queue.add(new TestEntry(small));
+
+    // the small host does not wait behind the big one
+    assertThat(queue.poll(System.nanoTime()).target()).isEqualTo(big);
+    assertThat(queue.poll(System.nanoTime()).target()).isEqualTo(small);
+    assertThat(queue.hosts()).isEqualTo(2);
+  }
+
+  @Test
+  void testReleaseForgetsHosts() throws Exception {
+    ProbeQueue<TestEntry> queue = queue(1, 1);
+    queue.add(new TestEntry(address("a", 1, 443)));
+    TestEntry entry = queue.poll(System.nanoTime());
+
+    queue.release(entry);
+
+    assertThat(queue.hosts()).isEqualTo(0);
+    assertThat(queue.size()).isEqualTo(0);
+  }
+
+  @Test
+  void testRateLimit() throws Exception {
+    ProbeQueue<TestEntry> queue = new ProbeQueue<>(Integer.MAX_VALUE, Integer.MAX_VALUE,
+        new TokenBucket(10, 2));
+    long start = System.nanoTime();
+    for (int i = 0; i < 10; i++) {
+      queue.add(new TestEntry(address("a", 1, 443)));
+    }
+
+    // burst
+    assertThat(queue.poll(start)).isNotNull();
+    assertThat(queue.poll(start)).isNotNull();
+    assertThat(queue.poll(start)).isNull();
+    assertThat(queue.delay(start)).isGreaterThan(0L);
+
+    // 10 per second
+    long later = start + TimeUnit.MILLISECONDS.toNanos(100);
+    assertThat(queue.poll(later)).isNotNull();
+    assertThat(queue.poll(later)).isNull();
+    long muchLater = start + TimeUnit.SECONDS.toNanos(10);
+    assertThat(queue.poll(muchLater)).isNotNull();
+    assertThat(queue.poll(muchLater)).isNotNull();
+    assertThat(queue.poll(muchLater)).isNull();
+  }
+
+}
@@ -0,0 +1,457 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.NamedGroup;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+import io.github.t4skforce.deepviolet.metrics.MetricsRegistry;
+import io.github.t4skforce.deepviolet.metrics.MetricsSnapshot;
+import io.github.t4skforce.deepviolet.test.extension.TlsServer;
+import io.github.t4skforce.deepviolet.tls.ClientHello;
+import io.github.t4skforce.deepviolet.tls.ServerKeyExchange;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ScanEngineTest {
+
+  private static final TlsVersion TLS_V1_2 = TlsVersion.of(TlsVersion.TLS_V1_2);
+  private static final TlsVersion TLS_V1_3 = TlsVersion.of(TlsVersion.TLS_V1_3);
+
+  private static CipherMap cipherMap;
+  private static TlsServer server;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    cipherMap = CipherMap.builder().load().build();
+    server = TlsServer.builder().protocols("TLSv1.2", "TLSv1.3")
+        .cipherSuites("TLS_AES_128_GCM_SHA256", "TLS_CHACHA20_POLY1305_SHA256",
+            "TLS_ECDHE_ECDSA_WITH_AES_256_GCM_SHA384", "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256",
+            "TLS_DHE_RSA_WITH_AES_128_GCM_SHA256", "TLS_RSA_WITH_AES_128_CBC_SHA")
+        .build();
+  }
+
+  @AfterAll
+  static void tearDown() throws Exception {
+    server.close();
+  }
+
+  private static ScanEngine.Builder engine() {
+    return ScanEngine.builder().cipherMap(cipherMap).connectTimeout(Duration.ofSeconds(2))
+        .readTimeout(Duration.ofSeconds(2));
+  }
+
+  @Test
+  void testEnumerateTls12() throws Exception {
+    try (ScanEngine engine = engine().build()) {
+      CipherSuiteScan scan = engine.enumerate(server.getAddress(), TLS_V1_2).get(30,
+          TimeUnit.SECONDS);
+
+      assertThat(scan.isComplete()).isTrue();
+      assertThat(scan.getVersion()).isEqualTo(TLS_V1_2);
+      assertThat(scan.getAcceptedSet().stream().boxed().toArray()).asList()
+          .containsExactly(0x002F, 0x009E, 0xC02C, 0xC02F);
+    }
+  }
+
+  @Test
+  void testEnumerateTls13() throws Exception {
+    try (ScanEngine engine = engine().build()) {
+      CipherSuiteScan scan = engine.enumerate(server.getAddress(), TLS_V1_3).get(30,
+          TimeUnit.SECONDS);
+
+      assertThat(scan.isComplete()).isTrue();
+      assertThat(scan.getAcceptedSet().stream().boxed().toArray()).asList()
+          .containsExactly(0x1301, 0x1303);
+      // one round per accepted suite and the final refusal
+      assertThat(scan.getProbes()).isEqualTo(3);
+    }
+  }
+
+  @Test
+  void testEnumerateSmallHellos() throws Exception {
+    try (ScanEngine engine = engine().suitesPerHello(16).build()) {
+      CipherSuiteScan scan = engine.enumerate(server.getAddress(), TLS_V1_2).get(30,
+          TimeUnit.SECONDS);
+
+      assertThat(scan.isComplete()).isTrue();
+      assertThat(scan.getAcceptedSet().cardinality()).isEqualTo(4);
+    }
+  }
+
+  @Test
+  void testEnumerateUnsupportedVersion() throws Exception {
+    try (TlsServer tls13 = TlsServer.builder().protocols("TLSv1.3").build();
+        ScanEngine engine = engine().suitesPerHello(1024).build()) {
+      CipherSuiteScan scan = engine.enumerate(tls13.getAddress(), TLS_V1_2).get(30,
+          TimeUnit.SECONDS);
+
+      assertThat(scan.isComplete()).isTrue();
+      assertThat(scan.getAccepted()).isEmpty();
+      assertThat(scan.getProbes()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void testProbe() throws Exception {
+    try (ScanEngine engine = engine().build()) {
+      ClientHello hello = ClientHello.builder().version(TLS_V1_2).build();
+
+      ProbeResult accepted = engine.probe(server.getAddress(), hello, 0x0005, 0xC02F).get(30,
+          TimeUnit.SECONDS);
+      ProbeResult refused = engine.probe(server.getAddress(), hello, 0x0005).get(30,
+          TimeUnit.SECONDS);
+
+      assertThat(accepted.getStatus()).isEqualTo(ProbeResult.Status.ACCEPTED);
+      assertThat(accepted.getVersion()).isEqualTo(TlsVersion.TLS_V1_2);
+      assertThat(accepted.getCipherSuite()).isEqualTo(0xC02F);
+      assertThat(refused.getStatus()).isEqualTo(ProbeResult.Status.ALERT);
+      // fatal handshake_failure
+      assertThat(refused.getAlertLevel()).isEqualTo(2);
+      assertThat(refused.getAlertDescription()).isEqualTo(40);
+      for (ScanEngine.Phase phase : ScanEngine.Phase.values()) {
+        assertThat(engine.getLatency(phase).getCount()).isEqualTo(2);
+      }
+    }
+  }
+
+  @Test
+  void testProbeKeyExchange() throws Exception {
+    try (ScanEngine engine = engine().build()) {
+      ClientHello hello = ClientHello.builder().version(TLS_V1_2)
+          .groups(NamedGroup.SECP384R1, NamedGroup.SECP256R1).build();
+
+      ProbeResult ecdhe = engine.probeKeyExchange(server.getAddress(), hello,
+          ServerKeyExchange.ECDHE, 0xC02F).get(30, TimeUnit.SECONDS);
+      ProbeResult dhe = engine.probeKeyExchange(server.getAddress(), hello,
+          ServerKeyExchange.DHE, 0x009E).get(30, TimeUnit.SECONDS);
+
+      assertThat(ecdhe.isAccepted()).isTrue();
+      assertThat(ecdhe.getCipherSuite()).isEqualTo(0xC02F);
+      assertThat(ecdhe.getNamedGroup()).isEqualTo(NamedGroup.SECP384R1);
+      assertThat(ecdhe.getGroupBits()).isEqualTo(384);
+      assertThat(dhe.isAccepted()).isTrue();
+      assertThat(dhe.getGroupBits()).isAtLeast(2048);
+    }
+  }
+
+  @Test
+  void testEnumerateGroupsTls13() throws Exception {
+    try (ScanEngine engine = engine().build()) {
+      GroupScan scan = engine.enumerateGroups(server.getAddress(), TLS_V1_3).get(30,
+          TimeUnit.SECONDS);
+
+      assertThat(scan.isComplete()).isTrue();
+      assertThat(scan.getGroupSet().stream().boxed().toArray()).asList()
+          .containsExactlyElementsIn(Arrays.stream(ClientHello.DEFAULT_GROUPS).boxed().toArray());
+      // one round per accepted group, no refusal needed once every candidate was accepted
+      assertThat(scan.getProbes()).isEqualTo(ClientHello.DEFAULT_GROUPS.length);
+      assertThat(scan.getMinEcdhBits()).isEqualTo(256);
+      assertThat(scan.getDhBits()).isEqualTo(2048);
+    }
+  }
+
+  @Test
+  void testEnumerateGroupsTls12() throws Exception {
+    try (ScanEngine engine = engine().build()) {
+      GroupScan scan = engine.enumerateGroups(server.getAddress(), TLS_V1_2).get(30,
+          TimeUnit.SECONDS);
+
+      assertThat(scan.isComplete()).isTrue();
+      assertThat(scan.getGroupSet().stream().boxed().toArray()).asList()
+          .containsExactly(NamedGroup.X25519, NamedGroup.SECP256R1, NamedGroup.SECP384R1,
+              NamedGroup.SECP521R1, NamedGroup.X448);
+      // one round per curve and the DHE handshake
+      assertThat(scan.getProbes()).isEqualTo(6);
+      assertThat(scan.getDhBits()).isAtLeast(2048);
+    }
+  }
+
+  @Test
+  void testPreferenceServerOrder() throws Exception {
+    try (TlsServer ordered = TlsServer.builder().protocols("TLSv1.2")
+        .cipherSuites("TLS_ECDHE_ECDSA_WITH_AES_256_GCM_SHA384",
+            "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256", "TLS_DHE_RSA_WITH_AES_128_GCM_SHA256",
+            "TLS_RSA_WITH_AES_128_CBC_SHA")
+        .useCipherSuitesOrder(true).build();
+        ScanEngine engine = engine().build()) {
+      PreferenceScan scan = engine.preferenceOrder(ordered.getAddress(), TLS_V1_2,
+          new int[] { 0x002F, 0x009E, 0xC02F, 0xC02C }).get(30, TimeUnit.SECONDS);
+
+      assertThat(scan.isComplete()).isTrue();
+      assertThat(scan.isServerOrder()).isTrue();
+      assertThat(Arrays.stream(scan.getOrder()).boxed().toArray()).asList()
+          .containsExactly(0xC02C, 0xC02F, 0x009E, 0x002F).inOrder();
+      // the order check already names the top suite, the last one needs no handshake
+      assertThat(scan.getProbes()).isEqualTo(4);
+    }
+  }
+
+  @Test
+  void testPreferenceChunked() throws Exception {
+    try (TlsServer ordered = TlsServer.builder().protocols("TLSv1.2")
+        .cipherSuites("TLS_ECDHE_ECDSA_WITH_AES_256_GCM_SHA384",
+            "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256", "TLS_DHE_RSA_WITH_AES_128_GCM_SHA256",
+            "TLS_RSA_WITH_AES_128_CBC_SHA")
+        .useCipherSuitesOrder(true).build();
+        ScanEngine engine = engine().suitesPerHello(2).build()) {
+      CipherSuiteScan accepted = engine.enumerate(ordered.getAddress(), TLS_V1_2).get(30,
+          TimeUnit.SECONDS);
+      PreferenceScan scan = engine.preferenceOrder(accepted).get(30, TimeUnit.SECONDS);
+
+      assertThat(scan.isComplete()).isTrue();
+      assertThat(scan.isServerOrder()).isTrue();
+      assertThat(Arrays.stream(scan.getOrder()).boxed().toArray()).asList()
+          .containsExactly(0xC02C, 0xC02F, 0x009E, 0x002F).inOrder();
+    }
+  }
+
+  @Test
+  void testPreferenceClientOrder() throws Exception {
+    try (TlsServer client = TlsServer.builder().protocols("TLSv1.2")
+        .cipherSuites("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256",
+            "TLS_DHE_RSA_WITH_AES_128_GCM_SHA256", "TLS_RSA_WITH_AES_128_CBC_SHA")
+        .useCipherSuitesOrder(false).build();
+        ScanEngine engine = engine().build()) {
+      PreferenceScan scan = engine.preferenceOrder(client.getAddress(), TLS_V1_2,
+          new int[] { 0x002F, 0x009E, 0xC02F }).get(30, TimeUnit.SECONDS);
+
+      assertThat(scan.isComplete()).isTrue();
+      assertThat(scan.isServerOrder()).isFalse();
+      assertThat(scan.getProbes()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  void testMetrics() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    try (ScanEngine engine = engine().metrics(registry).build()) {
+      ClientHello hello = ClientHello.builder().version(TLS_V1_2).build();
+
+      engine.probe(server.getAddress(), hello, 0xC02F).get(30, TimeUnit.SECONDS);
+      engine.probe(server.getAddress(), hello, 0x0005).get(30, TimeUnit.SECONDS);
+      engine.probeKeyExchange(server.getAddress(), hello, ServerKeyExchange.ECDHE, 0xC02F)
+          .get(30, TimeUnit.SECONDS);
+    }
+
+    MetricsSnapshot snapshot = registry.snapshot();
+    assertThat(snapshot.getCounter("scan.probes")).isEqualTo(3);
+    assertThat(snapshot.getCounter("scan.handshakes")).isEqualTo(2);
+    assertThat(snapshot.getCounter("scan.alerts")).isEqualTo(1);
+    assertThat(snapshot.getHistogram("scan.latency.hello").getCount()).isEqualTo(2);
+    assertThat(snapshot.getHistogram("scan.latency.key_exchange").getCount()).isEqualTo(1);
+  }
+
+  @Test
+  void testFlightRecorderEvents() throws Exception {
+    List<RecordedEvent> events;
+    try (Recording recording = new Recording(); ScanEngine engine = engine().build()) {
+      recording.enable("io.github.t4skforce.deepviolet.Probe");
+      recording.start();
+      ClientHello hello = ClientHello.builder().version(TLS_V1_2).build();
+
+      engine.probe(server.getAddress(), hello, 0x0005, 0xC02F).get(30, TimeUnit.SECONDS);
+
+      recording.stop();
+      Path file = Files.createTempFile("probe", ".jfr");
+      try {
+        recording.dump(file);
+        events = RecordingFile.readAllEvents(file);
+      } finally {
+        Files.delete(file);
+      }
+    }
+
+    assertThat(events).hasSize(1);
+    RecordedEvent probe = events.get(0);
+    assertThat(probe.getString("status")).isEqualTo("ACCEPTED");
+    assertThat(probe.getInt("port")).isEqualTo(server.getAddress().getPort());
+    assertThat(probe.getInt("offered")).isEqualTo(2);
+    assertThat(probe.getInt("cipherSuite")).isEqualTo(0xC02F);
+    assertThat(probe.getDuration().isNegative()).isFalse();
+  }
+
+  @Test
+  void testTimeout() throws Exception {
+    try (ServerSocket silent = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        ScanEngine engine = engine().readTimeout(Duration.ofMillis(200)).build()) {
+      InetSocketAddress address = new InetSocketAddress(silent.getInetAddress(),
+          silent.getLocalPort());
+
+      CipherSuiteScan scan = engine.enumerate(address, TLS_V1_2).get(30, TimeUnit.SECONDS);
+
+      assertThat(scan.isComplete()).isFalse();
+      assertThat(scan.getFailure().getStatus()).isEqualTo(ProbeResult.Status.TIMEOUT);
+    }
+  }
+
+  @Test
+  void testMixedTimeouts() throws Exception {
+    List<SocketChannel> backlog = new ArrayList<>();
+    List<Socket> accepted = Collections.synchronizedList(new ArrayList<>());
+    try (ServerSocket slow = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        ServerSocket full = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        ScanEngine engine = engine().connectTimeout(Duration.ofSeconds(2))
+            .readTimeout(Duration.ofSeconds(8)).build()) {
+      InetSocketAddress late = new InetSocketAddress(slow.getInetAddress(), slow.getLocalPort());
+      InetSocketAddress never = new InetSocketAddress(full.getInetAddress(), full.getLocalPort());
+      // with the accept queue full further SYNs are dropped and connects hang
+      for (InetSocketAddress address : Arrays.asList(late, never)) {
+        for (int i = 0; i < 4; i++) {
+          SocketChannel channel = SocketChannel.open();
+          backlog.add(channel);
+          channel.configureBlocking(false);
+          channel.connect(address);
+        }
+      }
+
+      long start = System.nanoTime();
+      CompletableFuture<ProbeResult> read = engine.probe(late, ClientHello.builder().build(),
+          0xC02F);
+      Thread.sleep(100);
+      CompletableFuture<ProbeResult> connect = engine.probe(never,
+          ClientHello.builder().build(), 0xC02F);
+      Thread.sleep(100);
+      // the first probe connects on its SYN retry, its deadline moves from ahead of the second
+      // probe to well after it
+      Thread drain = new Thread(() -> {
+        try {
+          while (true) {
+            accepted.add(slow.accept());
+          }
+        } catch (IOException e) {
+          // closed
+        }
+      });
+      drain.setDaemon(true);
+      drain.start();
+
+      assertThat(connect.get(30, TimeUnit.SECONDS).getStatus())
+          .isEqualTo(ProbeResult.Status.TIMEOUT);
+      assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+      assertThat(read.isDone()).isFalse();
+      assertThat(read.get(30, TimeUnit.SECONDS).getStatus())
+          .isEqualTo(ProbeResult.Status.TIMEOUT);
+    } finally {
+      for (SocketChannel channel : backlog) {
+        channel.close();
+      }
+      for (Socket socket : accepted) {
+        socket.close();
+      }
+    }
+  }
+
+  @Test
+  void testConnectionRefused() throws Exception {
+    int port;
+    try (ServerSocket closed = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      port = closed.getLocalPort();
+    }
+    try (ScanEngine engine = engine().build()) {
+      ProbeResult result = engine.probe(
+          new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+          ClientHello.builder().build(), 0xC02F).get(30, TimeUnit.SECONDS);
+
+      assertThat(result.getStatus()).isEqualTo(ProbeResult.Status.ERROR);
+      assertThat(result.getError()).isNotNull();
+    }
+  }
+
+  @Test
+  void testMalformedServer() throws Exception {
+    // ServerHello whose supported_versions extension runs past the end of the message
+    byte[] response = new byte[] { 0x16, 0x03, 0x03, 0x00, 0x30, 0x02, 0x00, 0x00, 0x2C, 0x03,
+        0x03, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0x00, 0x13, 0x01, 0x00, 0x00, 0x04, 0x00, 0x2B, 0x00, 0x02 };
+    List<Socket> accepted = Collections.synchronizedList(new ArrayList<>());
+    try (ServerSocket bad = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        ScanEngine engine = engine().build()) {
+      Thread responder = new Thread(() -> {
+        try {
+          while (true) {
+            Socket socket = bad.accept();
+            accepted.add(socket);
+            socket.getInputStream().read(new byte[4096]);
+            socket.getOutputStream().write(response);
+          }
+        } catch (IOException e) {
+          // closed
+        }
+      });
+      responder.setDaemon(true);
+      responder.start();
+      InetSocketAddress address = new InetSocketAddress(bad.getInetAddress(),
+          bad.getLocalPort());
+      ClientHello hello = ClientHello.builder().version(TLS_V1_2).build();
+
+      List<CompletableFuture<ProbeResult>> good = new ArrayList<>();
+      List<CompletableFuture<ProbeResult>> broken = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        good.add(engine.probe(server.getAddress(), hello, 0xC02F));
+        broken.add(engine.probe(address, hello, 0xC02F));
+      }
+
+      for (CompletableFuture<ProbeResult> result : broken) {
+        assertThat(result.get(30, TimeUnit.SECONDS).getStatus())
+            .isEqualTo(ProbeResult.Status.ERROR);
+      }
+      for (CompletableFuture<ProbeResult> result : good) {
+        assertThat(result.get(30, TimeUnit.SECONDS).isAccepted()).isTrue();
+      }
+      assertThat(engine.probe(server.getAddress(), hello, 0xC02F).get(30, TimeUnit.SECONDS)
+          .isAccepted()).isTrue();
+    } finally {
+      for (Socket socket : accepted) {
+        socket.close();
+      }
+    }
+  }
+
+  @Test
+  void testConcurrentEnumerations() throws Exception {
+    try (ScanEngine engine = engine().maxInFlight(4).build()) {
+      List<CompletableFuture<CipherSuiteScan>> scans = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        scans.add(engine.enumerate(server.getAddress(), i % 2 == 0 ? TLS_V1_2 : TLS_V1_3));
+      }
+
+      for (int i = 0; i < scans.size(); i++) {
+        CipherSuiteScan scan = scans.get(i).get(60, TimeUnit.SECONDS);
+        assertThat(scan.isComplete()).isTrue();
+        assertThat(scan.getAccepted().length).isEqualTo(i % 2 == 0 ? 4 : 2);
+      }
+    }
+  }
+
+  @Test
+  void testClosed() throws Exception {
+    ScanEngine engine = engine().build();
+    engine.close();
+
+    CompletableFuture<ProbeResult> result = engine.probe(server.getAddress(),
+        ClientHello.builder().build(), 0xC02F);
+
+    assertThat(result.isCompletedExceptionally()).isTrue();
+  }
+
+}
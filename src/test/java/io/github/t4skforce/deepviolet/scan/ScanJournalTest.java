@@ -0,0 +1,152 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScanJournalTest {
+
+  private static final TlsVersion TLS_V1_2 = TlsVersion.of(TlsVersion.TLS_V1_2);
+  private static final TlsVersion TLS_V1_3 = TlsVersion.of(TlsVersion.TLS_V1_3);
+
+  @TempDir
+  Path tmp;
+
+  private ScanJournal open(Path file) throws IOException {
+    return ScanJournal.builder().path(file).syncInterval(Duration.ofHours(1)).build();
+  }
+
+  private static InetSocketAddress target(int i) {
+    return InetSocketAddress.createUnresolved("host" + i + ".example", 443);
+  }
+
+  private static CipherSuiteScan scan(InetSocketAddress target, TlsVersion version,
+      boolean complete, int... accepted) {
+    return new CipherSuiteScan(target, version, accepted, accepted.length + 1,
+        complete ? null : ProbeResult.timeout());
+  }
+
+  @Test
+  void testResume() throws Exception {
+    Path file = tmp.resolve("scan.journal");
+    try (ScanJournal journal = open(file)) {
+      journal.append(scan(target(1), TLS_V1_3, true, 0x1301));
+      journal.append(scan(target(1), TLS_V1_2, true, 0xC02F, 0x009E));
+      journal.append(new TargetScan(target(1), Collections.emptyList(), 1000));
+      journal.append(scan(target(2), TLS_V1_3, true, 0x1302));
+      journal.append(scan(target(2), TLS_V1_2, false, 0xC02F));
+    }
+
+    try (ScanJournal journal = open(file)) {
+      assertThat(journal.isFinished(target(1))).isTrue();
+      assertThat(journal.isFinished(target(2))).isFalse();
+      assertThat(journal.getFinishedCount()).isEqualTo(1);
+      // finished targets keep no partial state
+      assertThat(journal.getCompleted(target(1), TLS_V1_3)).isNull();
+      CipherSuiteScan resumed = journal.getCompleted(target(2), TLS_V1_3);
+      assertThat(resumed.getAccepted()).asList().containsExactly(0x1302);
+      assertThat(resumed.getProbes()).isEqualTo(2);
+      assertThat(resumed.getTarget()).isEqualTo(target(2));
+      // incomplete versions are enumerated again
+      assertThat(journal.getCompleted(target(2), TLS_V1_2)).isNull();
+    }
+  }
+
+  @Test
+  void testTornTail() throws Exception {
+    Path file = tmp.resolve("scan.journal");
+    try (ScanJournal journal = open(file)) {
+      journal.append(scan(target(1), TLS_V1_3, true, 0x1301));
+      journal.append(new TargetScan(target(1), Collections.emptyList(), 1000));
+    }
+    long intact = Files.size(file);
+    try (ScanJournal journal = open(file)) {
+      journal.append(new TargetScan(target(2), Collections.emptyList(), 1000));
+    }
+    // a crash in the middle of the last frame
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(Files.size(file) - 3);
+    }
+
+    try (ScanJournal journal = open(file)) {
+      assertThat(journal.isFinished(target(1))).isTrue();
+      assertThat(journal.isFinished(target(2))).isFalse();
+      assertThat(Files.size(file)).isEqualTo(intact);
+      journal.append(new TargetScan(target(3), Collections.emptyList(), 1000));
+    }
+    try (ScanJournal journal = open(file)) {
+      assertThat(journal.isFinished(target(3))).isTrue();
+    }
+  }
+
+  @Test
+  void testCorruptFrame() throws Exception {
+    Path file = tmp.resolve("scan.journal");
+    try (ScanJournal journal = open(file)) {
+      journal.append(new TargetScan(target(1), Collections.emptyList(), 1000));
+    }
+    long intact = Files.size(file);
+    try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.APPEND)) {
+      // plausible length, wrong checksum
+      out.write(new byte[] { 0, 0, 0, 4, 1, 2, 3, 4, 5, 6, 7, 8 });
+    }
+
+    try (ScanJournal journal = open(file)) {
+      assertThat(journal.getFinishedCount()).isEqualTo(1);
+    }
+    assertThat(Files.size(file)).isEqualTo(intact);
+  }
+
+  @Test
+  void testGroupCommit() throws Exception {
+    Path file = tmp.resolve("scan.journal");
+    try (ScanJournal journal = ScanJournal.builder().path(file).bufferSize(256)
+        .syncInterval(Duration.ofHours(1)).build()) {
+      CompletableFuture<Void> first = journal.append(scan(target(1), TLS_V1_3, true, 0x1301));
+      CompletableFuture<Void> second = journal.append(scan(target(2), TLS_V1_3, true, 0x1301));
+
+      assertThat(second).isSameInstanceAs(first);
+      assertThat(first.isDone()).isFalse();
+      journal.sync();
+      assertThat(first.isDone()).isTrue();
+
+      // more records than fit the buffer, full buffers are handed to the background thread
+      for (int i = 0; i < 100; i++) {
+        journal.append(new TargetScan(target(i), Collections.emptyList(), i));
+      }
+      // one record larger than the whole buffer
+      journal.append(scan(target(200), TLS_V1_2, true, new int[200]));
+    }
+
+    try (ScanJournal journal = open(file)) {
+      assertThat(journal.getFinishedCount()).isEqualTo(100);
+      assertThat(journal.getCompleted(target(200), TLS_V1_2).getAccepted()).hasLength(200);
+    }
+  }
+
+  @Test
+  void testBackgroundSync() throws Exception {
+    Path file = tmp.resolve("scan.journal");
+    try (ScanJournal journal = ScanJournal.builder().path(file)
+        .syncInterval(Duration.ofMillis(10)).build()) {
+      journal.append(new TargetScan(target(1), Collections.emptyList(), 1000)).get(10,
+          TimeUnit.SECONDS);
+
+      assertThat(Files.size(file)).isGreaterThan(0L);
+    }
+  }
+
+}
@@ -0,0 +1,231 @@
+package io.github.t4skforce.deepviolet.scan;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.CompatibilityEnum;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+import io.github.t4skforce.deepviolet.json.mozilla.MozillaCompatibility;
+import io.github.t4skforce.deepviolet.json.mozilla.MozillaGuidelines;
+import io.github.t4skforce.deepviolet.test.extension.TlsServer;
+import io.github.t4skforce.deepviolet.test.extension.WebServerExtension;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScanSchedulerTest {
+
+  private static final int TLS_RSA_WITH_3DES_EDE_CBC_SHA = 0x000A;
+
+  @RegisterExtension
+  static WebServerExtension farm = WebServerExtension.builder()
+      .profile(CompatibilityEnum.MORDERN).profile(CompatibilityEnum.INTERMEDIATE)
+      .profile(CompatibilityEnum.OLD).build();
+
+  private static CipherMap cipherMap;
+  private static TlsServer server;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    cipherMap = CipherMap.builder().load().build();
+    server = TlsServer.builder().protocols("TLSv1.2", "TLSv1.3")
+        .cipherSuites("TLS_AES_128_GCM_SHA256", "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256",
+            "TLS_RSA_WITH_AES_128_CBC_SHA")
+        .build();
+  }
+
+  @AfterAll
+  static void tearDown() throws Exception {
+    server.close();
+  }
+
+  private static ScanScheduler.Builder scheduler() {
+    return ScanScheduler.builder().cipherMap(cipherMap)
+        .versions(TlsVersion.of(TlsVersion.TLS_V1_3), TlsVersion.of(TlsVersion.TLS_V1_2))
+        .connectTimeout(Duration.ofSeconds(2)).readTimeout(Duration.ofSeconds(2));
+  }
+
+  @Test
+  void testScan() throws Exception {
+    try (ScanScheduler scheduler = scheduler().build()) {
+      TargetScan scan = scheduler.submit(server.getAddress()).get(30, TimeUnit.SECONDS);
+
+      assertThat(scan.isComplete()).isTrue();
+      assertThat(scan.getVersions()).containsExactly(TlsVersion.of(TlsVersion.TLS_V1_3),
+          TlsVersion.of(TlsVersion.TLS_V1_2)).inOrder();
+      assertThat(scan.getScan(TlsVersion.of(TlsVersion.TLS_V1_2)).getAccepted()).hasLength(2);
+      ScanStats stats = scheduler.getStats();
+      assertThat(stats.getProbesCompleted()).isEqualTo(scan.getProbes());
+      assertThat(stats.getCompletedTargets()).isEqualTo(1);
+      assertThat(stats.getActiveTargets()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  void testProfiles() throws Exception {
+    MozillaCompatibility compatibility = MozillaGuidelines.builder()
+        .catalog(cipherMap.snapshot()).load(WebServerExtension.GUIDELINES).build()
+        .getCompatibility(WebServerExtension.GUIDELINES_VERSION);
+    List<InetSocketAddress> addresses = farm.getAddresses();
+
+    try (ScanScheduler scheduler = scheduler().versions(TlsVersion.of(TlsVersion.TLS_V1_3),
+        TlsVersion.of(TlsVersion.TLS_V1_2), TlsVersion.of(TlsVersion.TLS_V1_1),
+        TlsVersion.of(TlsVersion.TLS_V1)).build()) {
+      TargetScan modern = scheduler.submit(addresses.get(0)).get(30, TimeUnit.SECONDS);
+      TargetScan intermediate = scheduler.submit(addresses.get(1)).get(30, TimeUnit.SECONDS);
+      TargetScan old = scheduler.submit(addresses.get(2)).get(30, TimeUnit.SECONDS);
+
+      assertThat(modern.getVersions()).containsExactly(TlsVersion.of(TlsVersion.TLS_V1_3));
+      assertThat(level(compatibility, modern)).isEqualTo(CompatibilityEnum.MORDERN);
+      assertThat(intermediate.getVersions()).hasSize(2);
+      assertThat(level(compatibility, intermediate)).isEqualTo(CompatibilityEnum.INTERMEDIATE);
+      // legacy protocols and suites are really accepted
+      assertThat(old.getVersions()).contains(TlsVersion.of(TlsVersion.TLS_V1));
+      assertThat(old.getVersions()).contains(TlsVersion.of(TlsVersion.TLS_V1_1));
+      assertThat(accepted(old).get(TLS_RSA_WITH_3DES_EDE_CBC_SHA)).isTrue();
+      assertThat(level(compatibility, old)).isEqualTo(CompatibilityEnum.OLD);
+    }
+  }
+
+  private static BitSet accepted(TargetScan scan) {
+    BitSet suites = new BitSet();
+    for (CipherSuiteScan version : scan.getScans()) {
+      suites.or(version.getAcceptedSet());
+    }
+    return suites;
+  }
+
+  private static CompatibilityEnum level(MozillaCompatibility compatibility, TargetScan scan) {
+    BitSet suites = accepted(scan);
+    BitSet versions = new BitSet();
+    for (CipherSuiteScan version : scan.getScans()) {
+      if (version.getAccepted().length > 0) {
+        versions.set(version.getVersion().getCode());
+      }
+    }
+    return compatibility.evaluate(suites, versions, new BitSet()).getBestLevel();
+  }
+
+  @Test
+  void testResumeFromJournal(@TempDir Path tmp) throws Exception {
+    Path file = tmp.resolve("scan.journal");
+    TlsVersion tls13 = TlsVersion.of(TlsVersion.TLS_V1_3);
+    try (ScanJournal journal = ScanJournal.builder().path(file).build()) {
+      // a previous run got through TLSv1.3 before it died
+      journal.append(new CipherSuiteScan(server.getAddress(), tls13, new int[] { 0x1301 }, 2,
+          null));
+    }
+
+    try (ScanJournal journal = ScanJournal.builder().path(file).build();
+        ScanScheduler scheduler = scheduler().journal(journal).build()) {
+      TargetScan scan = scheduler.submit(server.getAddress()).get(30, TimeUnit.SECONDS);
+
+      assertThat(scan.getScan(tls13).getAccepted()).asList().containsExactly(0x1301);
+      assertThat(scan.getScan(TlsVersion.of(TlsVersion.TLS_V1_2)).getAccepted()).hasLength(2);
+      // only TLSv1.2 was enumerated
+      assertThat(scheduler.getStats().getProbesCompleted())
+          .isEqualTo(scan.getScan(TlsVersion.of(TlsVersion.TLS_V1_2)).getProbes());
+      assertThat(journal.isFinished(server.getAddress())).isTrue();
+    }
+
+    try (ScanJournal journal = ScanJournal.builder().path(file).build()) {
+      assertThat(journal.isFinished(server.getAddress())).isTrue();
+    }
+  }
+
+  @Test
+  void testJournalFailure(@TempDir Path tmp) throws Exception {
+    ScanJournal journal = ScanJournal.builder().path(tmp.resolve("scan.journal")).build();
+    // every append fails once the journal is closed
+    journal.close();
+    try (ScanScheduler scheduler = scheduler().journal(journal).build()) {
+      TargetScan scan = scheduler.submit(server.getAddress()).get(30, TimeUnit.SECONDS);
+
+      assertThat(scan.getScans()).hasSize(2);
+      assertThat(scheduler.getJournalFailure()).hasMessageThat().isEqualTo("Journal closed");
+      ExecutionException e = assertThrows(ExecutionException.class,
+          () -> scheduler.submit(server.getAddress()).get(30, TimeUnit.SECONDS));
+      assertThat(e).hasCauseThat().isSameInstanceAs(scheduler.getJournalFailure());
+      assertThat(scheduler.getStats().getCompletedTargets()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void testTarpitDoesNotStarve() throws Exception {
+    try (ServerSocket tarpit = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        ScanScheduler scheduler = scheduler().maxInFlight(4).maxPerHost(1)
+            .readTimeout(Duration.ofSeconds(3)).build()) {
+      InetSocketAddress slow = new InetSocketAddress(tarpit.getInetAddress(),
+          tarpit.getLocalPort());
+      CompletableFuture<TargetScan> stalled = scheduler.submit(slow);
+
+      long start = System.nanoTime();
+      TargetScan scan = scheduler.submit(server.getAddress()).get(30, TimeUnit.SECONDS);
+
+      assertThat(scan.isComplete()).isTrue();
+      assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(3));
+      assertThat(stalled.isDone()).isFalse();
+      assertThat(stalled.get(30, TimeUnit.SECONDS).isComplete()).isFalse();
+    }
+  }
+
+  @Test
+  void testBackpressure() throws Exception {
+    ExecutorService producer = Executors.newSingleThreadExecutor();
+    try (ServerSocket tarpit = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        ScanScheduler scheduler = scheduler().maxActiveTargets(1)
+            .readTimeout(Duration.ofMillis(500)).build()) {
+      InetSocketAddress slow = new InetSocketAddress(tarpit.getInetAddress(),
+          tarpit.getLocalPort());
+      CompletableFuture<TargetScan> first = scheduler.submit(slow);
+
+      Future<CompletableFuture<TargetScan>> second = producer
+          .submit(() -> scheduler.submit(server.getAddress()));
+      try {
+        second.get(100, TimeUnit.MILLISECONDS);
+        throw new AssertionError("submit did not block");
+      } catch (TimeoutException e) {
+        assertThat(scheduler.getStats().getWaitingTargets()).isEqualTo(1);
+      }
+
+      first.get(30, TimeUnit.SECONDS);
+      assertThat(second.get(30, TimeUnit.SECONDS).get(30, TimeUnit.SECONDS).isComplete())
+          .isTrue();
+    } finally {
+      producer.shutdownNow();
+    }
+  }
+
+  @Test
+  void testRateLimit() throws Exception {
+    try (ScanScheduler scheduler = scheduler().rateLimit(20, 1).build()) {
+      long start = System.nanoTime();
+      TargetScan scan = scheduler.submit(server.getAddress()).get(30, TimeUnit.SECONDS);
+      long elapsed = System.nanoTime() - start;
+
+      // the first probe starts right away, every further one waits for a token
+      assertThat(elapsed).isAtLeast(TimeUnit.MILLISECONDS.toNanos(50 * (scan.getProbes() - 1)
+          - 50));
+      ScanStats stats = scheduler.getStats();
+      assertThat(stats.getProbesInFlight()).isEqualTo(0);
+    }
+  }
+
+}
@@ -0,0 +1,272 @@
+package io.github.t4skforce.deepviolet.store;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.github.t4skforce.deepviolet.json.CipherMap;
+import io.github.t4skforce.deepviolet.json.CompatibilityEnum;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+import io.github.t4skforce.deepviolet.json.mozilla.MozillaCompatibility;
+import io.github.t4skforce.deepviolet.json.mozilla.MozillaGuidelines;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScanStoreTest {
+
+  private static final TlsVersion TLS_V1 = TlsVersion.of(TlsVersion.TLS_V1);
+  private static final TlsVersion TLS_V1_2 = TlsVersion.of(TlsVersion.TLS_V1_2);
+  private static final TlsVersion TLS_V1_3 = TlsVersion.of(TlsVersion.TLS_V1_3);
+  private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+  // TLS_AES_128_GCM_SHA256
+  private static final int TLS13_SUITE = 0x1301;
+  // ECDHE-RSA-AES128-GCM-SHA256
+  private static final int INTERMEDIATE_SUITE = 0xC02F;
+  // ECDHE-RSA-AES128-SHA
+  private static final int OLD_SUITE = 0xC013;
+
+  @TempDir
+  Path tmp;
+
+  private ScanStore open() throws IOException {
+    return ScanStore.builder().path(tmp.resolve("history")).build();
+  }
+
+  private static InetSocketAddress target(int i) {
+    return InetSocketAddress.createUnresolved("host" + i + ".example", 443);
+  }
+
+  private static BitSet bits(int... codes) {
+    BitSet bits = new BitSet();
+    for (int code : codes) {
+      bits.set(code);
+    }
+    return bits;
+  }
+
+  private static ScanRecord intermediate(InetSocketAddress target, long timestamp) {
+    return ScanRecord.builder().target(target).timestamp(timestamp)
+        .suites(TLS_V1_3, bits(TLS13_SUITE)).suites(TLS_V1_2, bits(INTERMEDIATE_SUITE)).build();
+  }
+
+  private static ScanRecord old(InetSocketAddress target, long timestamp) {
+    return ScanRecord.builder().target(target).timestamp(timestamp)
+        .suites(TLS_V1_3, bits(TLS13_SUITE)).suites(TLS_V1_2, bits(INTERMEDIATE_SUITE, OLD_SUITE))
+        .suites(TLS_V1, bits(OLD_SUITE)).build();
+  }
+
+  @Test
+  void testHistory() throws Exception {
+    try (ScanStore store = open()) {
+      for (int day = 0; day < 10; day++) {
+        store.append(intermediate(target(1), day * DAY));
+        store.append(old(target(2), day * DAY));
+      }
+      assertThrows(IllegalArgumentException.class, () -> store.append(old(target(1), 0)));
+    }
+
+    try (ScanStore store = open()) {
+      assertThat(store.size()).isEqualTo(20);
+      assertThat(store.getHostCount()).isEqualTo(2);
+
+      List<ScanRecord> history = store.history(target(2), 3 * DAY, 5 * DAY);
+      assertThat(history).hasSize(3);
+      assertThat(history.get(0).getTimestamp()).isEqualTo(3 * DAY);
+      assertThat(history.get(2).getTimestamp()).isEqualTo(5 * DAY);
+      ScanRecord record = history.get(1);
+      assertThat(record.getTarget()).isEqualTo(target(2));
+      assertThat(record.isComplete()).isTrue();
+      assertThat(record.getVersions())
+          .isEqualTo(bits(TlsVersion.TLS_V1, TlsVersion.TLS_V1_2, TlsVersion.TLS_V1_3));
+      assertThat(record.getSuites(TLS_V1_2)).isEqualTo(bits(INTERMEDIATE_SUITE, OLD_SUITE));
+      assertThat(record.getSuites()).isEqualTo(bits(TLS13_SUITE, INTERMEDIATE_SUITE, OLD_SUITE));
+
+      assertThat(store.get(target(1), 4 * DAY + 1).getTimestamp()).isEqualTo(4 * DAY);
+      assertThat(store.get(target(1), -1)).isNull();
+      assertThat(store.get(target(3), 4 * DAY)).isNull();
+      assertThat(store.history(target(3), 0, 10 * DAY)).isEmpty();
+
+      // appends continue after the replayed tail
+      store.append(intermediate(target(3), 10 * DAY));
+      assertThat(store.get(target(3), 10 * DAY).getSuites(TLS_V1_3)).isEqualTo(bits(TLS13_SUITE));
+    }
+  }
+
+  @Test
+  void testScan() throws Exception {
+    try (ScanStore store = open()) {
+      for (int day = 0; day < 100; day++) {
+        store.append(intermediate(target(day % 7), day * DAY));
+      }
+
+      List<ScanRecord> records = new ArrayList<>();
+      store.scan(20 * DAY, 29 * DAY, records::add);
+
+      assertThat(records).hasSize(10);
+      assertThat(records.get(0).getTimestamp()).isEqualTo(20 * DAY);
+      assertThat(records.get(0).getTarget()).isEqualTo(target(20 % 7));
+      assertThat(records.get(9).getTimestamp()).isEqualTo(29 * DAY);
+
+      records.clear();
+      store.scan(100 * DAY, Long.MAX_VALUE, records::add);
+      assertThat(records).isEmpty();
+    }
+  }
+
+  @Test
+  void testDrift() throws Exception {
+    try (ScanStore store = open()) {
+      store.append(old(target(1), 0));
+      store.append(old(target(1), DAY));
+      // a timed out scan misses versions, which is no drift
+      store.append(ScanRecord.builder().target(target(1)).timestamp(2 * DAY).complete(false)
+          .suites(TLS_V1_3, bits(TLS13_SUITE)).build());
+      store.append(intermediate(target(1), 3 * DAY));
+      store.append(intermediate(target(1), 4 * DAY));
+
+      List<ScanDrift> drifts = store.drift(target(1), 0, 4 * DAY);
+
+      assertThat(drifts).hasSize(1);
+      ScanDrift drift = drifts.get(0);
+      // dropped TLSv1 on the third day
+      assertThat(drift.getBefore().getTimestamp()).isEqualTo(DAY);
+      assertThat(drift.getAfter().getTimestamp()).isEqualTo(3 * DAY);
+      assertThat(drift.getRemovedVersions()).isEqualTo(bits(TlsVersion.TLS_V1));
+      assertThat(drift.getAddedVersions().isEmpty()).isTrue();
+      assertThat(drift.getRemovedSuites()).isEqualTo(bits(OLD_SUITE));
+      assertThat(drift.getRemovedSuites(TLS_V1_2)).isEqualTo(bits(OLD_SUITE));
+      assertThat(drift.getRemovedSuites(TLS_V1_3).isEmpty()).isTrue();
+
+      // baseline is the latest scan at or before from
+      assertThat(store.drift(target(1), DAY + 1, 4 * DAY)).hasSize(1);
+      assertThat(store.drift(target(1), 3 * DAY, 4 * DAY)).isEmpty();
+    }
+  }
+
+  @Test
+  void testRegressions() throws Exception {
+    MozillaCompatibility compatibility = MozillaGuidelines.builder()
+        .catalog(CipherMap.builder().load().build().snapshot())
+        .load("mozilla/guidelines/5.6.json").build().getCompatibility(5.6);
+    try (ScanStore store = open()) {
+      for (int day = 0; day < 30; day++) {
+        for (int i = 0; i < 5; i++) {
+          // host 2 regresses on day 10, host 3 is fixed on day 20
+          boolean weak = i == 2 && day >= 10 || i == 3 && day < 20;
+          store.append(weak ? old(target(i), day * DAY) : intermediate(target(i), day * DAY));
+        }
+        if (day == 25) {
+          // new host, nothing to compare with
+          store.append(old(target(5), day * DAY));
+        }
+      }
+
+      List<ScanDrift> drifts = store.drift(5 * DAY, 29 * DAY);
+
+      assertThat(drifts).hasSize(2);
+      List<InetSocketAddress> regressed = new ArrayList<>();
+      for (ScanDrift drift : drifts) {
+        CompatibilityEnum before = level(compatibility, drift.getBefore());
+        CompatibilityEnum after = level(compatibility, drift.getAfter());
+        if (before == CompatibilityEnum.INTERMEDIATE && after == CompatibilityEnum.OLD) {
+          regressed.add(drift.getAfter().getTarget());
+        }
+      }
+      assertThat(regressed).containsExactly(target(2));
+      assertThat(store.drift(21 * DAY, 29 * DAY)).isEmpty();
+    }
+  }
+
+  private static CompatibilityEnum level(MozillaCompatibility compatibility, ScanRecord record) {
+    return compatibility.evaluate(record.getSuites(), record.getVersions(), new BitSet())
+        .getBestLevel();
+  }
+
+  @Test
+  void testTornTail() throws Exception {
+    Path dir = tmp.resolve("history");
+    try (ScanStore store = open()) {
+      for (int day = 0; day < 3; day++) {
+        store.append(intermediate(target(1), day * DAY));
+      }
+    }
+    // the last record lost part of its data, the index entry survived
+    try (FileChannel channel = FileChannel.open(dir.resolve(ScanStore.DATA_FILE),
+        StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 3);
+    }
+    // half written index entry
+    Files.write(dir.resolve(ScanStore.INDEX_FILE), new byte[] { 1, 2, 3 },
+        StandardOpenOption.APPEND);
+
+    try (ScanStore store = open()) {
+      assertThat(store.size()).isEqualTo(2);
+      assertThat(store.get(target(1), 3 * DAY).getTimestamp()).isEqualTo(DAY);
+      store.append(old(target(1), 3 * DAY));
+      assertThat(store.history(target(1), 0, 3 * DAY)).hasSize(3);
+    }
+    try (ScanStore store = open()) {
+      assertThat(store.size()).isEqualTo(3);
+      assertThat(store.get(target(1), 3 * DAY).hasVersion(TLS_V1)).isTrue();
+    }
+  }
+
+  @Test
+  void testCorruptTail() throws Exception {
+    Path dir = tmp.resolve("history");
+    try (ScanStore store = open()) {
+      for (int day = 0; day < 3; day++) {
+        store.append(intermediate(target(1), day * DAY));
+      }
+    }
+    // sizes are intact but the second record holds garbage, pages were written out of order
+    long size = Files.size(dir.resolve(ScanStore.DATA_FILE));
+    try (FileChannel channel = FileChannel.open(dir.resolve(ScanStore.DATA_FILE),
+        StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] { 0x55, 0x55 }), size / 3 + 12);
+    }
+
+    try (ScanStore store = open()) {
+      assertThat(store.size()).isEqualTo(1);
+      assertThat(store.get(target(1), 3 * DAY).getTimestamp()).isEqualTo(0);
+      store.append(old(target(1), DAY));
+    }
+    try (ScanStore store = open()) {
+      assertThat(store.size()).isEqualTo(2);
+      assertThat(store.get(target(1), DAY).hasVersion(TLS_V1)).isTrue();
+    }
+  }
+
+  @Test
+  void testCorruptRecord() throws Exception {
+    Path dir = tmp.resolve("history");
+    try (ScanStore store = open()) {
+      store.append(intermediate(target(1), 0));
+      // the first record is older than the tail verified on open
+      for (int i = 0; i < ScanStore.RECOVERY_WINDOW; i++) {
+        store.append(intermediate(target(2), i));
+      }
+    }
+    try (FileChannel channel = FileChannel.open(dir.resolve(ScanStore.DATA_FILE),
+        StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] { 0x55 }), 12);
+    }
+
+    try (ScanStore store = open()) {
+      assertThat(store.size()).isEqualTo(ScanStore.RECOVERY_WINDOW + 1);
+      assertThrows(IOException.class, () -> store.get(target(1), 0));
+    }
+  }
+
+}
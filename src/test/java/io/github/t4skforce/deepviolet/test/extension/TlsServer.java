@@ -0,0 +1,245 @@
+package io.github.t4skforce.deepviolet.test.extension;
+
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+import io.github.t4skforce.deepviolet.json.mozilla.MozillaConfig;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * JSSE server on the loopback interface with a fixed set of protocols and cipher suites, backed by
+ * the RSA and EC keys in {@code tls/server.p12}. Loading the class lifts the JDK restrictions on
+ * {@link #LEGACY} algorithms so old endpoints really accept them.
+ */
+public class TlsServer implements Closeable {
+
+  public static final String KEYSTORE = "tls/server.p12";
+  public static final char[] PASSWORD = "changeit".toCharArray();
+  public static final String DISABLED_ALGORITHMS = "jdk.tls.disabledAlgorithms";
+  // disabled by jdk.tls.disabledAlgorithms since JDK 16, still part of the old guideline level
+  public static final String[] LEGACY = { "TLSv1", "TLSv1.1", "3DES_EDE_CBC" };
+
+  static {
+    // JSSE reads the property once on first use, later changes are ignored
+    String disabled = Security.getProperty(DISABLED_ALGORITHMS);
+    if (disabled != null) {
+      List<String> algorithms = new ArrayList<>();
+      for (String algorithm : disabled.split(",")) {
+        if (!Arrays.asList(LEGACY).contains(algorithm.trim())) {
+          algorithms.add(algorithm.trim());
+        }
+      }
+      Security.setProperty(DISABLED_ALGORITHMS, String.join(", ", algorithms));
+    }
+  }
+
+  private final SSLServerSocket serverSocket;
+  private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+    Thread thread = new Thread(r, "tls-server");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private TlsServer(Builder builder) throws IOException, GeneralSecurityException {
+    serverSocket = (SSLServerSocket) sslContext().getServerSocketFactory().createServerSocket(0,
+        builder.backlog, InetAddress.getLoopbackAddress());
+    if (builder.lenient) {
+      // the defaults are what the constraints permit
+      checkPermitted("protocols", builder.protocols, serverSocket.getSupportedProtocols(),
+          serverSocket.getEnabledProtocols());
+      checkPermitted("cipher suites", builder.cipherSuites,
+          serverSocket.getSupportedCipherSuites(), serverSocket.getEnabledCipherSuites());
+    }
+    if (builder.protocols != null) {
+      serverSocket.setEnabledProtocols(builder.lenient
+          ? supported(builder.protocols, serverSocket.getSupportedProtocols())
+          : builder.protocols);
+    }
+    if (builder.cipherSuites != null) {
+      serverSocket.setEnabledCipherSuites(builder.lenient
+          ? supported(builder.cipherSuites, serverSocket.getSupportedCipherSuites())
+          : builder.cipherSuites);
+    }
+    if (builder.useCipherSuitesOrder != null) {
+      SSLParameters parameters = serverSocket.getSSLParameters();
+      parameters.setUseCipherSuitesOrder(builder.useCipherSuitesOrder);
+      serverSocket.setSSLParameters(parameters);
+    }
+    executor.execute(this::accept);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static SSLContext sslContext() throws IOException, GeneralSecurityException {
+    KeyStore keyStore = KeyStore.getInstance("PKCS12");
+    try (InputStream in = TlsServer.class.getClassLoader().getResourceAsStream(KEYSTORE)) {
+      keyStore.load(in, PASSWORD);
+    }
+    KeyManagerFactory kmf = KeyManagerFactory
+        .getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    kmf.init(keyStore, PASSWORD);
+    SSLContext context = SSLContext.getInstance("TLS");
+    context.init(kmf.getKeyManagers(), null, null);
+    return context;
+  }
+
+  private void checkPermitted(String what, String[] names, String[] supported, String[] permitted)
+      throws IOException {
+    Set<String> disabled = new LinkedHashSet<>(Arrays.asList(supported(names, supported)));
+    disabled.removeAll(Arrays.asList(permitted));
+    if (!disabled.isEmpty()) {
+      serverSocket.close();
+      throw new IllegalStateException("JSSE was initialized before " + DISABLED_ALGORITHMS
+          + " could be lifted, " + what + " " + disabled + " would fail the handshake");
+    }
+  }
+
+  private static String[] supported(String[] names, String[] supported) {
+    List<String> available = Arrays.asList(supported);
+    Set<String> result = new LinkedHashSet<>();
+    for (String name : names) {
+      // JSSE lists suites that predate TLS under their SSL_ names
+      String legacy = name.startsWith("TLS_") ? "SSL_" + name.substring(4) : name;
+      if (available.contains(name)) {
+        result.add(name);
+      } else if (available.contains(legacy)) {
+        result.add(legacy);
+      }
+    }
+    return result.toArray(new String[0]);
+  }
+
+  public InetSocketAddress getAddress() {
+    return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        executor.execute(() -> handshake((SSLSocket) socket));
+      } catch (IOException e) {
+        if (serverSocket.isClosed()) {
+          return;
+        }
+        // e.g. out of file descriptors, retry later instead of spinning
+        try {
+          Thread.sleep(50);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+      }
+    }
+  }
+
+  private static void handshake(SSLSocket socket) {
+    try (SSLSocket s = socket) {
+      s.setSoTimeout(2000);
+      s.startHandshake();
+    } catch (IOException e) {
+      // probes abort after the ServerHello, handshake failures are expected
+    }
+  }
+
+  public String[] getProtocols() {
+    return serverSocket.getEnabledProtocols();
+  }
+
+  public String[] getCipherSuites() {
+    return serverSocket.getEnabledCipherSuites();
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    executor.shutdownNow();
+  }
+
+  public static class Builder {
+    private String[] protocols;
+    private String[] cipherSuites;
+    private int backlog = 128;
+    private Boolean useCipherSuitesOrder;
+    private boolean lenient;
+
+    private Builder() {
+    }
+
+    /**
+     * Protocols, cipher suites and order of a guideline level, minus what this JVM does not
+     * implement. Building fails if the level needs anything the JVM implements but disables.
+     * Named groups are JVM wide in JSSE and ignored.
+     *
+     * @param config guideline level
+     * @return builder
+     */
+    public Builder profile(MozillaConfig config) {
+      Set<String> protocols = new LinkedHashSet<>();
+      for (TlsVersion version : config.getTlsVersions()) {
+        protocols.add(version.getCode() == TlsVersion.TLS_V1 ? "TLSv1" : version.getName());
+      }
+      Set<String> suites = new LinkedHashSet<>(config.getCiphersuites());
+      Set<String> iana = config.getCiphers().get("iana");
+      if (iana != null) {
+        suites.addAll(iana);
+      }
+      this.protocols = protocols.toArray(new String[0]);
+      this.cipherSuites = suites.toArray(new String[0]);
+      this.useCipherSuitesOrder = Boolean.TRUE.equals(config.getServerPeferredOrder());
+      this.lenient = true;
+      return this;
+    }
+
+    public Builder protocols(String... protocols) {
+      this.protocols = protocols;
+      this.lenient = false;
+      return this;
+    }
+
+    public Builder cipherSuites(String... cipherSuites) {
+      this.cipherSuites = cipherSuites;
+      this.lenient = false;
+      return this;
+    }
+
+    public Builder backlog(int backlog) {
+      this.backlog = backlog;
+      return this;
+    }
+
+    /**
+     * @param useCipherSuitesOrder true to enforce the order of {@link #cipherSuites(String...)},
+     *                             false to follow the client
+     * @return builder
+     */
+    public Builder useCipherSuitesOrder(boolean useCipherSuitesOrder) {
+      this.useCipherSuitesOrder = useCipherSuitesOrder;
+      return this;
+    }
+
+    public TlsServer build() throws IOException, GeneralSecurityException {
+      return new TlsServer(this);
+    }
+  }
+
+}
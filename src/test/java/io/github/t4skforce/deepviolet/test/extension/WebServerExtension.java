@@ -1,40 +1,175 @@
 package io.github.t4skforce.deepviolet.test.extension;
 
+import io.github.t4skforce.deepviolet.json.CompatibilityEnum;
+import io.github.t4skforce.deepviolet.json.mozilla.MozillaConfig;
+import io.github.t4skforce.deepviolet.json.mozilla.MozillaGuidelines;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import org.junit.jupiter.api.extension.AfterAllCallback;
 import org.junit.jupiter.api.extension.BeforeAllCallback;
 import org.junit.jupiter.api.extension.ExtensionContext;
 
-public class WebServerExtension implements BeforeAllCallback, AfterAllCallback {
+/**
+ * Farm of {@link TlsServer}s on the loopback interface, each configured from a Mozilla guideline
+ * level or a custom protocol and suite set. Registered with {@code @RegisterExtension} on a static
+ * field the farm runs for all tests of the class, benchmarks use {@link #start()} and
+ * {@link #close()} directly.
+ */
+public class WebServerExtension implements BeforeAllCallback, AfterAllCallback, Closeable {
 
-  private WebServerExtension() {
+  public static final String GUIDELINES = "mozilla/guidelines/5.6.json";
+  public static final double GUIDELINES_VERSION = 5.6;
+
+  private final List<Endpoint> endpoints;
+  private final int copies;
+  private final List<TlsServer> servers = new ArrayList<>();
+
+  private WebServerExtension(Builder builder) {
+    this.endpoints = new ArrayList<>(builder.endpoints);
+    this.copies = builder.copies;
   }
 
   public static Builder builder() {
     return new Builder();
   }
 
-  public static class Builder {
+  /**
+   * Start every endpoint, copies of an endpoint are adjacent in {@link #getServers()}.
+   *
+   * @throws IOException              if a server can not be started or the guidelines not loaded
+   * @throws GeneralSecurityException if the key store can not be loaded
+   */
+  public synchronized void start() throws IOException, GeneralSecurityException {
+    if (!servers.isEmpty()) {
+      throw new IllegalStateException("Already started");
+    }
+    MozillaGuidelines guidelines = null;
+    try {
+      for (Endpoint endpoint : endpoints) {
+        TlsServer.Builder server = endpoint.server;
+        if (endpoint.level != null) {
+          if (guidelines == null) {
+            guidelines = MozillaGuidelines.builder().load(GUIDELINES).build();
+          }
+          server = TlsServer.builder()
+              .profile(guidelines.get(GUIDELINES_VERSION, endpoint.level));
+        }
+        for (int i = 0; i < copies; i++) {
+          servers.add(server.build());
+        }
+      }
+    } catch (IOException | GeneralSecurityException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
 
-    public Builder enableSecurity(boolean b) {
-      return this;
+  public synchronized List<TlsServer> getServers() {
+    return Collections.unmodifiableList(new ArrayList<>(servers));
+  }
+
+  public synchronized List<InetSocketAddress> getAddresses() {
+    List<InetSocketAddress> addresses = new ArrayList<>();
+    for (TlsServer server : servers) {
+      addresses.add(server.getAddress());
     }
+    return addresses;
+  }
 
-    public WebServerExtension build() {
-      return new WebServerExtension();
+  @Override
+  public synchronized void close() throws IOException {
+    IOException failure = null;
+    for (TlsServer server : servers) {
+      try {
+        server.close();
+      } catch (IOException e) {
+        failure = e;
+      }
+    }
+    servers.clear();
+    if (failure != null) {
+      throw failure;
     }
+  }
 
+  @Override
+  public void beforeAll(ExtensionContext context) throws Exception {
+    start();
   }
 
   @Override
   public void afterAll(ExtensionContext context) throws Exception {
-    // TODO Auto-generated method stub
+    close();
+  }
+
+  private static final class Endpoint {
+    private final CompatibilityEnum level;
+    private final TlsServer.Builder server;
 
+    private Endpoint(CompatibilityEnum level, TlsServer.Builder server) {
+      this.level = level;
+      this.server = server;
+    }
   }
 
-  @Override
-  public void beforeAll(ExtensionContext context) throws Exception {
-    // TODO Auto-generated method stub
+  public static class Builder {
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private int copies = 1;
+
+    private Builder() {
+    }
+
+    /**
+     * Endpoint configured from a level of the bundled {@link #GUIDELINES}, loaded on start.
+     *
+     * @param level guideline level
+     * @return builder
+     */
+    public Builder profile(CompatibilityEnum level) {
+      endpoints.add(new Endpoint(level, null));
+      return this;
+    }
 
+    public Builder profile(MozillaConfig config) {
+      return server(TlsServer.builder().profile(config));
+    }
+
+    /**
+     * Endpoint with a custom configuration, names as understood by JSSE.
+     *
+     * @param protocols    enabled protocols
+     * @param cipherSuites enabled cipher suites
+     * @return builder
+     */
+    public Builder custom(String[] protocols, String[] cipherSuites) {
+      return server(TlsServer.builder().protocols(protocols).cipherSuites(cipherSuites));
+    }
+
+    public Builder server(TlsServer.Builder server) {
+      endpoints.add(new Endpoint(null, server));
+      return this;
+    }
+
+    /**
+     * @param copies servers started per configured endpoint
+     * @return builder
+     */
+    public Builder copies(int copies) {
+      if (copies < 1) {
+        throw new IllegalArgumentException("copies must be positive");
+      }
+      this.copies = copies;
+      return this;
+    }
+
+    public WebServerExtension build() {
+      return new WebServerExtension(this);
+    }
   }
 
 }
@@ -0,0 +1,253 @@
+package io.github.t4skforce.deepviolet.tls;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.github.t4skforce.deepviolet.json.NamedGroup;
+import io.github.t4skforce.deepviolet.json.TlsVersion;
+import io.github.t4skforce.deepviolet.test.extension.TlsServer;
+import java.io.ByteArrayInputStream;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import org.junit.jupiter.api.Test;
+
+class HandshakeReaderTest {
+
+  private static final int ECDHE_RSA = 0xC02F;
+  private static final int DHE_RSA = 0x009E;
+
+  /**
+   * Feed a ClientHello to a JSSE server engine and collect its first flight.
+   */
+  private static ByteBuffer serverFlight(TlsVersion version, int... suites) throws Exception {
+    SSLEngine engine = TlsServer.sslContext().createSSLEngine();
+    engine.setUseClientMode(false);
+    engine.setEnabledProtocols(new String[] { "TLSv1.2", "TLSv1.3" });
+    ClientHello hello = ClientHello.builder().version(version).build();
+    ByteBuffer in = ByteBuffer.allocate(hello.length(suites.length));
+    hello.write(in, suites, suites.length);
+    assertThat(in.hasRemaining()).isFalse();
+    in.flip();
+
+    ByteBuffer app = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+    ByteBuffer out = ByteBuffer.allocate(64 * 1024);
+    engine.beginHandshake();
+    engine.unwrap(in, app);
+    while (true) {
+      HandshakeStatus status = engine.getHandshakeStatus();
+      if (status == HandshakeStatus.NEED_TASK) {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+          task.run();
+        }
+      } else if (status == HandshakeStatus.NEED_WRAP) {
+        engine.wrap(ByteBuffer.allocate(0), out);
+      } else {
+        return out;
+      }
+    }
+  }
+
+  /**
+   * Split the handshake stream of the given records into records of at most size bytes.
+   */
+  private static ByteBuffer refragment(ByteBuffer records, int size) {
+    ByteBuffer stream = ByteBuffer.allocate(records.position());
+    int pos = 0;
+    while (pos < records.position()) {
+      int length = TlsRecord.length(records, pos);
+      for (int i = 0; i < length; i++) {
+        stream.put(records.get(pos + TlsRecord.HEADER_LENGTH + i));
+      }
+      pos += TlsRecord.HEADER_LENGTH + length;
+    }
+    stream.flip();
+    int count = (stream.remaining() + size - 1) / size;
+    ByteBuffer result = ByteBuffer
+        .allocate(stream.remaining() + count * TlsRecord.HEADER_LENGTH);
+    while (stream.hasRemaining()) {
+      int length = Math.min(size, stream.remaining());
+      result.put((byte) TlsRecord.HANDSHAKE).putShort((short) TlsVersion.TLS_V1_2)
+          .putShort((short) length);
+      for (int i = 0; i < length; i++) {
+        result.put(stream.get());
+      }
+    }
+    return result;
+  }
+
+  private static void assertEcdheFlight(HandshakeReader reader) throws Exception {
+    assertThat(reader.next()).isEqualTo(TlsRecord.SERVER_HELLO);
+    ServerHello serverHello = new ServerHello().wrap(reader.getBuffer(), reader.getOffset(),
+        reader.getLength());
+    assertThat(serverHello.getVersion()).isEqualTo(TlsVersion.TLS_V1_2);
+    assertThat(serverHello.getCipherSuite()).isEqualTo(ECDHE_RSA);
+    assertThat(serverHello.isHelloRetryRequest()).isFalse();
+
+    assertThat(reader.next()).isEqualTo(TlsRecord.CERTIFICATE);
+    Certificate certificate = new Certificate().wrap(reader.getBuffer(), reader.getOffset(),
+        reader.getLength());
+    assertThat(certificate.getCount()).isEqualTo(1);
+    ByteBuffer der = certificate.getEncoded(0);
+    byte[] encoded = new byte[der.remaining()];
+    der.get(encoded);
+    X509Certificate x509 = (X509Certificate) CertificateFactory.getInstance("X.509")
+        .generateCertificate(new ByteArrayInputStream(encoded));
+    assertThat(x509.getSubjectX500Principal().getName()).isEqualTo("CN=localhost");
+    assertThat(x509.getPublicKey().getAlgorithm()).isEqualTo("RSA");
+
+    assertThat(reader.next()).isEqualTo(TlsRecord.SERVER_KEY_EXCHANGE);
+    ServerKeyExchange ske = new ServerKeyExchange().wrap(reader.getBuffer(), reader.getOffset(),
+        reader.getLength(), ServerKeyExchange.ECDHE, serverHello.getVersion());
+    assertThat(ske.getNamedGroup()).isEqualTo(NamedGroup.X25519);
+    assertThat(ske.getGroupBits()).isEqualTo(256);
+    assertThat(ske.getPublicKeyLength()).isEqualTo(32);
+    assertThat(ske.getSignatureAlgorithm()).isNotEqualTo(-1);
+
+    assertThat(reader.next()).isEqualTo(TlsRecord.SERVER_HELLO_DONE);
+    assertThat(reader.getLength()).isEqualTo(0);
+    assertThat(reader.next()).isEqualTo(HandshakeReader.NEED_MORE);
+  }
+
+  @Test
+  void testServerFlight() throws Exception {
+    ByteBuffer flight = serverFlight(TlsVersion.of(TlsVersion.TLS_V1_2), 0x0005, ECDHE_RSA);
+
+    assertEcdheFlight(new HandshakeReader().reset(flight));
+  }
+
+  @Test
+  void testFragmentedRecords() throws Exception {
+    ByteBuffer flight = serverFlight(TlsVersion.of(TlsVersion.TLS_V1_2), ECDHE_RSA);
+
+    for (int size : new int[] { 1, 7, 100, 1000 }) {
+      assertEcdheFlight(new HandshakeReader().reset(refragment(flight, size)));
+    }
+  }
+
+  @Test
+  void testPartialReads() throws Exception {
+    ByteBuffer flight = serverFlight(TlsVersion.of(TlsVersion.TLS_V1_2), ECDHE_RSA);
+    ByteBuffer records = refragment(flight, 300);
+    ByteBuffer buffer = ByteBuffer.allocate(records.capacity());
+    HandshakeReader reader = new HandshakeReader().reset(buffer);
+
+    int messages = 0;
+    for (int i = 0; i < records.position(); i++) {
+      buffer.put(records.get(i));
+      int type;
+      while ((type = reader.next()) != HandshakeReader.NEED_MORE) {
+        assertThat(type).isAnyOf(TlsRecord.SERVER_HELLO, TlsRecord.CERTIFICATE,
+            TlsRecord.SERVER_KEY_EXCHANGE, TlsRecord.SERVER_HELLO_DONE);
+        messages++;
+      }
+    }
+
+    assertThat(messages).isEqualTo(4);
+  }
+
+  @Test
+  void testCompact() throws Exception {
+    ByteBuffer flight = serverFlight(TlsVersion.of(TlsVersion.TLS_V1_2), ECDHE_RSA);
+    ByteBuffer records = refragment(flight, 64);
+    HandshakeReader reader = new HandshakeReader().reset(records);
+
+    assertThat(reader.next()).isEqualTo(TlsRecord.SERVER_HELLO);
+    int before = records.position();
+    reader.compact();
+    assertThat(records.position()).isLessThan(before);
+    assertThat(reader.isFull()).isFalse();
+
+    assertThat(reader.next()).isEqualTo(TlsRecord.CERTIFICATE);
+    assertThat(new Certificate().wrap(records, reader.getOffset(), reader.getLength()).getCount())
+        .isEqualTo(1);
+    reader.compact();
+    assertThat(reader.next()).isEqualTo(TlsRecord.SERVER_KEY_EXCHANGE);
+    assertThat(reader.next()).isEqualTo(TlsRecord.SERVER_HELLO_DONE);
+  }
+
+  @Test
+  void testDheServerKeyExchange() throws Exception {
+    ByteBuffer flight = serverFlight(TlsVersion.of(TlsVersion.TLS_V1_2), DHE_RSA);
+    HandshakeReader reader = new HandshakeReader().reset(flight);
+
+    assertThat(reader.next()).isEqualTo(TlsRecord.SERVER_HELLO);
+    assertThat(reader.next()).isEqualTo(TlsRecord.CERTIFICATE);
+    assertThat(reader.next()).isEqualTo(TlsRecord.SERVER_KEY_EXCHANGE);
+    ServerKeyExchange ske = new ServerKeyExchange().wrap(flight, reader.getOffset(),
+        reader.getLength(), ServerKeyExchange.DHE, TlsVersion.TLS_V1_2);
+
+    assertThat(ske.getNamedGroup()).isEqualTo(NamedGroup.UNKNOWN);
+    // ffdhe2048 is offered first
+    assertThat(ske.getGroupBits()).isEqualTo(2048);
+  }
+
+  @Test
+  void testHelloRetryRequest() throws Exception {
+    ByteBuffer flight = serverFlight(TlsVersion.of(TlsVersion.TLS_V1_3), 0x1302, 0x1301);
+    HandshakeReader reader = new HandshakeReader().reset(flight);
+
+    assertThat(reader.next()).isEqualTo(TlsRecord.SERVER_HELLO);
+    ServerHello serverHello = new ServerHello().wrap(flight, reader.getOffset(),
+        reader.getLength());
+
+    assertThat(serverHello.isHelloRetryRequest()).isTrue();
+    assertThat(serverHello.getLegacyVersion()).isEqualTo(TlsVersion.TLS_V1_2);
+    assertThat(serverHello.getVersion()).isEqualTo(TlsVersion.TLS_V1_3);
+    assertThat(serverHello.getCipherSuite()).isAnyOf(0x1301, 0x1302);
+  }
+
+  /**
+   * ServerHello body with an empty session id, TLS_AES_128_GCM_SHA256 and the given extensions.
+   */
+  private static ByteBuffer serverHello(byte[] extensions) {
+    ByteBuffer body = ByteBuffer.allocate(38 + 2 + extensions.length);
+    body.putShort((short) TlsVersion.TLS_V1_2).put(new byte[32]).put((byte) 0)
+        .putShort((short) 0x1301).put((byte) 0).putShort((short) extensions.length)
+        .put(extensions).flip();
+    return body;
+  }
+
+  @Test
+  void testMalformedExtension() {
+    // supported_versions announcing two bytes in the last four bytes of the body
+    ByteBuffer truncated = serverHello(new byte[] { 0x00, 0x2B, 0x00, 0x02 });
+    assertThrows(IllegalArgumentException.class,
+        () -> new ServerHello().wrap(truncated, 0, truncated.limit()));
+
+    ByteBuffer valid = serverHello(new byte[] { 0x00, 0x2B, 0x00, 0x02, 0x03, 0x04 });
+    ServerHello serverHello = new ServerHello().wrap(valid, 0, valid.limit());
+    assertThat(serverHello.getVersion()).isEqualTo(TlsVersion.TLS_V1_3);
+    assertThat(serverHello.getKeyShareGroup()).isEqualTo(NamedGroup.UNKNOWN);
+  }
+
+  @Test
+  void testAlert() throws Exception {
+    ByteBuffer buffer = ByteBuffer.allocate(64);
+    buffer.put((byte) TlsRecord.CHANGE_CIPHER_SPEC).putShort((short) TlsVersion.TLS_V1_2)
+        .putShort((short) 1).put((byte) 1);
+    buffer.put((byte) TlsRecord.ALERT).putShort((short) TlsVersion.TLS_V1_2).putShort((short) 2)
+        .put((byte) Alert.FATAL);
+    HandshakeReader reader = new HandshakeReader().reset(buffer);
+
+    assertThat(reader.next()).isEqualTo(HandshakeReader.NEED_MORE);
+    buffer.put((byte) Alert.HANDSHAKE_FAILURE);
+    assertThat(reader.next()).isEqualTo(HandshakeReader.ALERT);
+    assertThat(reader.getAlert().isFatal()).isTrue();
+    assertThat(reader.getAlert().getDescription()).isEqualTo(Alert.HANDSHAKE_FAILURE);
+  }
+
+  @Test
+  void testUnexpectedContent() {
+    ByteBuffer buffer = ByteBuffer.allocate(64);
+    buffer.put("HTTP/1.1 400 Bad Request".getBytes());
+    HandshakeReader reader = new HandshakeReader().reset(buffer);
+
+    assertThrows(ProtocolException.class, reader::next);
+  }
+
+}
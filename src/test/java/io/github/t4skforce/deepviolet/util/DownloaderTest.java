@@ -0,0 +1,110 @@
+package io.github.t4skforce.deepviolet.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DownloaderTest {
+
+  private static final String BODY = "#define TLS_AES_128_GCM_SHA256 0x1301\n";
+  private static final String ETAG = "\"v1\"";
+
+  private HttpServer server;
+  private String url;
+  private final AtomicInteger fullResponses = new AtomicInteger();
+  private final List<String> conditional = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/tls1.h", exchange -> {
+      conditional.add(exchange.getRequestHeaders().getFirst("If-None-Match"));
+      if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return;
+      }
+      fullResponses.incrementAndGet();
+      ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+      try (OutputStream out = new GZIPOutputStream(gzip)) {
+        out.write(BODY.getBytes(StandardCharsets.UTF_8));
+      }
+      exchange.getResponseHeaders().add("ETag", ETAG);
+      exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+      exchange.sendResponseHeaders(200, gzip.size());
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(gzip.toByteArray());
+      }
+    });
+    server.start();
+    url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+        + "/tls1.h";
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+    Downloader.setCacheDirectory(null);
+  }
+
+  @Test
+  void testWithoutCache() throws Exception {
+    Downloader.setCacheDirectory(null);
+    assertEquals(BODY, Downloader.get(url));
+    assertEquals(BODY, Downloader.get(url));
+    assertEquals(2, fullResponses.get());
+    assertNull(conditional.get(1));
+  }
+
+  @Test
+  void testConditionalRequest(@TempDir Path cache) throws Exception {
+    Downloader.setCacheDirectory(cache);
+    assertEquals(BODY, Downloader.get(url));
+    assertEquals(BODY, Downloader.get(url));
+    assertEquals(BODY, Downloader.get(url));
+
+    assertEquals(1, fullResponses.get());
+    assertNull(conditional.get(0));
+    assertEquals(ETAG, conditional.get(1));
+    try (Stream<Path> files = Files.list(cache)) {
+      List<String> names = files.map(p -> p.getFileName().toString()).sorted()
+          .collect(Collectors.toList());
+      assertEquals(2, names.size());
+    }
+  }
+
+  @Test
+  void testPartialReadIsNotCached(@TempDir Path cache) throws Exception {
+    Downloader.setCacheDirectory(cache);
+    try (InputStream in = Downloader.open(url)) {
+      in.read();
+    }
+    try (Stream<Path> files = Files.list(cache)) {
+      assertEquals(0, files.count());
+    }
+    assertEquals(BODY, Downloader.get(url));
+    assertEquals(2, fullResponses.get());
+  }
+
+}